@@ -25,20 +25,36 @@ android {
             )
         }
     }
+    buildFeatures {
+        // BuildConfig.DEBUG compiles trace sections and frame monitoring out of release builds
+        buildConfig = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests {
+            // Robolectric: the database query-plan and performance suites run on the JVM
+            isIncludeAndroidResources = true
+        }
+    }
 }
 
 dependencies {
+    implementation(project(":core"))
+
     // These 'libs.' references are likely the cause of the "Unresolved reference: libs" error,
     // but we must keep them unless you fix your libs.versions.toml file.
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    implementation(libs.lifecycle.viewmodel)
+    implementation(libs.lifecycle.viewmodel.savedstate)
+    implementation(libs.lifecycle.livedata)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
     implementation("androidx.core:core:1.13.1")
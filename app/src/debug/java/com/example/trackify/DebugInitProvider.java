@@ -0,0 +1,45 @@
+package com.example.trackify;
+
+import android.app.Application;
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+
+/**
+ * Installs debug-only monitoring before the first activity starts. Content providers are created
+ * during application start-up, so this needs no hook in release code.
+ */
+public class DebugInitProvider extends ContentProvider {
+
+    @Override
+    public boolean onCreate() {
+        FrameMonitor.install((Application) getContext().getApplicationContext());
+        return true;
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        return null;
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        return null;
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        return null;
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        return 0;
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        return 0;
+    }
+}
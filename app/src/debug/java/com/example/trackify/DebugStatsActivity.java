@@ -0,0 +1,102 @@
+package com.example.trackify;
+
+import android.os.Bundle;
+import android.text.TextUtils;
+import android.widget.EditText;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.google.android.material.button.MaterialButton;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Debug-only screen showing per-method query latencies and the slow-query log collected by
+ * {@link QueryTracer}, plus per-screen frame times from {@link FrameMonitor}, with export to a
+ * text file for attaching to bug reports.
+ */
+public class DebugStatsActivity extends AppCompatActivity {
+
+    private TextView textReport;
+    private EditText editTextSlowThreshold;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_debug_stats);
+
+        textReport = findViewById(R.id.text_stats_report);
+        editTextSlowThreshold = findViewById(R.id.edit_text_slow_threshold);
+        MaterialButton buttonApplyThreshold = findViewById(R.id.button_apply_threshold);
+        MaterialButton buttonRefresh = findViewById(R.id.button_refresh_stats);
+        MaterialButton buttonReset = findViewById(R.id.button_reset_stats);
+        MaterialButton buttonExport = findViewById(R.id.button_export_stats);
+
+        editTextSlowThreshold.setText(String.valueOf(QueryTracer.metrics().getSlowThresholdMillis()));
+
+        buttonApplyThreshold.setOnClickListener(v -> applyThreshold());
+        buttonRefresh.setOnClickListener(v -> showReport());
+        buttonReset.setOnClickListener(v -> {
+            QueryTracer.metrics().reset();
+            FrameMonitor.stats().reset();
+            showReport();
+        });
+        buttonExport.setOnClickListener(v -> exportReport());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showReport();
+    }
+
+    private void applyThreshold() {
+        String value = editTextSlowThreshold.getText().toString().trim();
+        if (TextUtils.isEmpty(value)) {
+            editTextSlowThreshold.setError("Enter a threshold in milliseconds");
+            return;
+        }
+        QueryTracer.metrics().setSlowThresholdMillis(Long.parseLong(value));
+        Toast.makeText(this, "Slow threshold set to " + value + " ms", Toast.LENGTH_SHORT).show();
+        showReport();
+    }
+
+    private void showReport() {
+        textReport.setText(buildReport());
+    }
+
+    private String buildReport() {
+        return "Frames\n" + FrameMonitor.stats().report()
+                + "\nDatabase\n" + QueryTracer.metrics().report();
+    }
+
+    private void exportReport() {
+        String report = buildReport();
+        File directory = getExternalFilesDir(null) != null ? getExternalFilesDir(null) : getFilesDir();
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        File file = new File(directory, "trackify-stats-" + timestamp + ".txt");
+
+        // File IO stays off the main thread, even here
+        new Thread(() -> {
+            String message;
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                writer.write(report);
+                message = "Exported to " + file.getAbsolutePath();
+            } catch (IOException e) {
+                message = "Export failed: " + e.getMessage();
+            }
+            String result = message;
+            runOnUiThread(() -> Toast.makeText(this, result, Toast.LENGTH_LONG).show());
+        }).start();
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.trackify;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.example.trackify.core.WorkloadGenerator;
+import com.example.trackify.core.WorkloadTrace;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+
+/**
+ * Debug-build entry point for the synthetic workload tools, driven from adb:
+ * <pre>
+ * adb shell am broadcast -a com.example.trackify.debug.GENERATE_WORKLOAD --el seed 42 --ei users 5 --ei years 3 --ef activity 1.0
+ * adb shell am broadcast -a com.example.trackify.debug.WRITE_TRACE --el seed 7 --es user user0@example.com --ei operations 5000 --es trace session.trace
+ * adb shell am broadcast -a com.example.trackify.debug.REPLAY_TRACE --es user user0@example.com --es trace session.trace
+ * </pre>
+ * Generated users log in with {@link WorkloadGenerator#DEFAULT_PASSWORD}. A trace replays into
+ * the database of the {@code user} extra, which must match the user it was written for. Trace names are
+ * resolved against the app's files directory. Results are logged under {@value #TAG}.
+ */
+public class DebugWorkloadReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "DebugWorkload";
+
+    static final String ACTION_GENERATE_WORKLOAD = "com.example.trackify.debug.GENERATE_WORKLOAD";
+    static final String ACTION_WRITE_TRACE = "com.example.trackify.debug.WRITE_TRACE";
+    static final String ACTION_REPLAY_TRACE = "com.example.trackify.debug.REPLAY_TRACE";
+
+    private static final String EXTRA_SEED = "seed";
+    private static final String EXTRA_USERS = "users";
+    private static final String EXTRA_START_YEAR = "start_year";
+    private static final String EXTRA_YEARS = "years";
+    private static final String EXTRA_ACTIVITY = "activity";
+    private static final String EXTRA_USER = "user";
+    private static final String EXTRA_OPERATIONS = "operations";
+    private static final String EXTRA_TRACE = "trace";
+
+    private static final String DEFAULT_TRACE = "workload.trace";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Context appContext = context.getApplicationContext();
+        PendingResult pendingResult = goAsync();
+        // Loading years of data takes seconds; keep it off the main thread
+        new Thread(() -> {
+            try {
+                handle(appContext, intent);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Workload action " + intent.getAction() + " failed: " + e.getMessage(), e);
+            } finally {
+                pendingResult.finish();
+            }
+        }).start();
+    }
+
+    private void handle(Context context, Intent intent) throws IOException {
+        int thisYear = Calendar.getInstance().get(Calendar.YEAR);
+        WorkloadGenerator generator = new WorkloadGenerator(intent.getLongExtra(EXTRA_SEED, 42L));
+        File traceFile = new File(context.getFilesDir(), nameOrDefault(intent.getStringExtra(EXTRA_TRACE)));
+        String userEmail = nameOrDefault(intent.getStringExtra(EXTRA_USER), WorkloadGenerator.userEmail(0));
+
+        if (ACTION_GENERATE_WORKLOAD.equals(intent.getAction())) {
+            int years = intent.getIntExtra(EXTRA_YEARS, 3);
+            long start = System.nanoTime();
+            int rows;
+            try (UserBulkLoader loader = new UserBulkLoader(context)) {
+                rows = generator.generate(loader,
+                        intent.getIntExtra(EXTRA_USERS, 5),
+                        intent.getIntExtra(EXTRA_START_YEAR, thisYear - years + 1),
+                        years,
+                        intent.getFloatExtra(EXTRA_ACTIVITY, 1.0f));
+            }
+            Log.i(TAG, "Generated " + rows + " transactions in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } else if (ACTION_WRITE_TRACE.equals(intent.getAction())) {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(traceFile), StandardCharsets.UTF_8))) {
+                WorkloadTrace.Writer writer = new WorkloadTrace.Writer(out);
+                generator.generateTrace(writer, userEmail,
+                        intent.getIntExtra(EXTRA_START_YEAR, thisYear),
+                        intent.getIntExtra(EXTRA_OPERATIONS, 1_000));
+            }
+            Log.i(TAG, "Wrote trace to " + traceFile);
+        } else if (ACTION_REPLAY_TRACE.equals(intent.getAction())) {
+            DatabaseHelper databaseHelper = new DatabaseHelper(context, userEmail);
+            try (Reader in = new BufferedReader(new InputStreamReader(new FileInputStream(traceFile), StandardCharsets.UTF_8))) {
+                WorkloadTrace.Result result = WorkloadTrace.replay(in, new DatabaseReplayTarget(databaseHelper));
+                Log.i(TAG, "Replayed " + traceFile.getName() + ": " + result);
+            } finally {
+                databaseHelper.close();
+            }
+        }
+    }
+
+    private static String nameOrDefault(String name) {
+        return nameOrDefault(name, DEFAULT_TRACE);
+    }
+
+    private static String nameOrDefault(String value, String fallback) {
+        return value == null || value.isEmpty() ? fallback : value;
+    }
+}
@@ -3,8 +3,11 @@ package com.example.trackify;
 import android.app.DatePickerDialog;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.Bundle;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.util.Log; // Ensure this import is present
 import android.view.View;
 import android.widget.ArrayAdapter;
@@ -12,21 +15,31 @@ import android.widget.AutoCompleteTextView;
 import android.widget.RadioGroup;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
+import com.google.android.material.textfield.TextInputLayout;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.text.DecimalFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Currency;
 import java.util.List;
 import java.util.Locale;
 
 // Import the Transaction class for convenience
 import com.example.trackify.DatabaseHelper.Transaction;
+import com.example.trackify.core.Categories;
+import com.example.trackify.core.Currencies;
+import com.example.trackify.core.CurrencyFormatter;
+import com.example.trackify.core.SpendingStats;
 
 public class AddExpenseActivity extends AppCompatActivity {
 
@@ -37,8 +50,17 @@ public class AddExpenseActivity extends AppCompatActivity {
     private TextInputEditText editTextDate;
     private RadioGroup radioGroupType;
     private AutoCompleteTextView spinnerCategory;
+    private AutoCompleteTextView spinnerCurrency;
+    private TextInputLayout inputLayoutAmount;
+    private TextInputLayout inputLayoutFxRate;
+    private TextInputEditText editTextFxRate;
+    private AutoCompleteTextView spinnerRepeat;
+    private TextInputLayout inputLayoutRepeat;
+    private TextInputLayout inputLayoutRepeatInterval;
+    private TextInputEditText editTextRepeatInterval;
     private MaterialButton buttonSaveTransaction;
     private MaterialButton buttonBackToHome;
+    private MaterialButton buttonAttachReceipt;
 
     private DatabaseHelper databaseHelper;
     private SharedPreferences sharedPreferences;
@@ -47,6 +69,15 @@ public class AddExpenseActivity extends AppCompatActivity {
 
     // --- Edit Mode Variable ---
     private long transactionIdToEdit = -1;
+
+    // --- Category: suggested from the note by the keyword rules until the user picks one ---
+    private boolean categoryPicked;
+
+    // --- Receipt: stored in ReceiptStore as soon as it is picked, linked to the transaction on save ---
+    private ReceiptStore receiptStore;
+    private String receiptHash;
+    private final ActivityResultLauncher<String> pickReceipt =
+            registerForActivityResult(new ActivityResultContracts.GetContent(), this::onReceiptPicked);
     public static final String EXTRA_TRANSACTION_ID = "TRANSACTION_ID_TO_EDIT";
 
     // Constants
@@ -55,16 +86,15 @@ public class AddExpenseActivity extends AppCompatActivity {
     private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
     private static final String DATE_FORMAT = "yyyy-MM-dd";
 
-    // UPDATED: Revised category lists based on user feedback (simpler structure)
-    private static final List<String> EXPENSE_CATEGORIES = Arrays.asList(
-            "Food", "Rent", "Transportation", "Utilities", "Groceries",
-            "Health & Fitness", "Entertainment", "Shopping", "Travel", "Education",
-            "Miscellaneous"
-    );
+    // Category lists live in the core module so they can be validated and benchmarked off-device
+    private static final List<String> EXPENSE_CATEGORIES = Categories.EXPENSE_CATEGORIES;
+    private static final List<String> INCOME_CATEGORIES = Categories.INCOME_CATEGORIES;
 
-    private static final List<String> INCOME_CATEGORIES = Arrays.asList(
-            "Salary", "Business/Freelance", "Investments", "Rental Income",
-            "Gifts", "Other"
+    // Repeat options; anything other than REPEAT_NONE is stored as a recurring rule
+    private static final String REPEAT_NONE = "Does not repeat";
+    private static final List<String> REPEAT_OPTIONS = Arrays.asList(
+            REPEAT_NONE, Recurrence.FREQUENCY_DAILY, Recurrence.FREQUENCY_WEEKLY,
+            Recurrence.FREQUENCY_MONTHLY, Recurrence.FREQUENCY_CUSTOM
     );
 
 
@@ -74,7 +104,7 @@ public class AddExpenseActivity extends AppCompatActivity {
         setContentView(R.layout.activity_add_expense);
 
         // Initialization
-        databaseHelper = new DatabaseHelper(this);
+        databaseHelper = UserSession.database(this);
         sharedPreferences = getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
         userEmail = sharedPreferences.getString(KEY_LOGGED_IN_EMAIL, null);
         selectedDate = Calendar.getInstance();
@@ -85,8 +115,22 @@ public class AddExpenseActivity extends AppCompatActivity {
         editTextDate = findViewById(R.id.edit_text_date);
         radioGroupType = findViewById(R.id.radio_group_type);
         spinnerCategory = findViewById(R.id.spinner_category);
+        spinnerCurrency = findViewById(R.id.spinner_currency);
+        inputLayoutAmount = findViewById(R.id.input_layout_amount);
+        inputLayoutFxRate = findViewById(R.id.input_layout_fx_rate);
+        editTextFxRate = findViewById(R.id.edit_text_fx_rate);
         buttonSaveTransaction = findViewById(R.id.button_save_transaction);
         buttonBackToHome = findViewById(R.id.button_back_to_home);
+        spinnerRepeat = findViewById(R.id.spinner_repeat);
+        inputLayoutRepeat = findViewById(R.id.input_layout_repeat);
+        inputLayoutRepeatInterval = findViewById(R.id.input_layout_repeat_interval);
+        editTextRepeatInterval = findViewById(R.id.edit_text_repeat_interval);
+        buttonAttachReceipt = findViewById(R.id.button_attach_receipt);
+        if (userEmail != null) {
+            receiptStore = new ReceiptStore(this, userEmail);
+        }
+
+        setCurrencyAdapter();
 
         // 1. --- EDIT MODE CHECK: This determines if we load data ---
         transactionIdToEdit = getIntent().getLongExtra(EXTRA_TRANSACTION_ID, -1);
@@ -95,9 +139,12 @@ public class AddExpenseActivity extends AppCompatActivity {
         Log.d(TAG, "onCreate: Checking for edit mode. Received ID: " + transactionIdToEdit);
 
         if (transactionIdToEdit != -1) {
-            // Load existing data for editing
+            // Load existing data for editing; its category was already chosen
+            categoryPicked = true;
             loadTransactionData(transactionIdToEdit);
             buttonSaveTransaction.setText("Update Transaction");
+            // Editing changes a single occurrence, never the rule behind it
+            inputLayoutRepeat.setVisibility(View.GONE);
             if (getSupportActionBar() != null) {
                 getSupportActionBar().setTitle("Edit Transaction");
             }
@@ -106,6 +153,7 @@ public class AddExpenseActivity extends AppCompatActivity {
             updateDateInView();
             // Set default category list (Expense)
             setCategoryAdapter(EXPENSE_CATEGORIES);
+            setRepeatAdapter();
             if (getSupportActionBar() != null) {
                 getSupportActionBar().setTitle("Add New Transaction");
             }
@@ -114,7 +162,23 @@ public class AddExpenseActivity extends AppCompatActivity {
         // Listeners
         buttonBackToHome.setOnClickListener(v -> finish());
         buttonSaveTransaction.setOnClickListener(v -> saveTransaction());
+        buttonAttachReceipt.setOnClickListener(v -> pickReceipt.launch("image/*"));
         editTextDate.setOnClickListener(v -> showDatePickerDialog());
+        spinnerCategory.setOnItemClickListener((parent, view, position, id) -> categoryPicked = true);
+        editTextNote.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                suggestCategory();
+            }
+        });
 
         // Set initial adapter before setting the listener
         onTransactionTypeChanged(radioGroupType.getCheckedRadioButtonId());
@@ -169,6 +233,13 @@ public class AddExpenseActivity extends AppCompatActivity {
                         Log.e(TAG, "Error parsing saved date: " + transaction.date, e);
                         Toast.makeText(this, "Error parsing saved date.", Toast.LENGTH_SHORT).show();
                     }
+
+                    // After the date, so the rate shown is the one for that day
+                    spinnerCurrency.setText(transaction.currency, false);
+                    onCurrencyChanged(transaction.currency);
+
+                    receiptHash = transaction.receiptHash;
+                    updateReceiptButton();
                 } else {
                     // <<< LOGGING STEP 3 (FAILURE): Check if data was null >>>
                     Log.w(TAG, "loadTransactionData: FAILURE! Transaction returned null for ID: " + id + ". Check DatabaseHelper logs.");
@@ -206,6 +277,24 @@ public class AddExpenseActivity extends AppCompatActivity {
         } else if (checkedId == R.id.radio_income) {
             setCategoryAdapter(INCOME_CATEGORIES);
         }
+        // A new type clears the category, so a new transaction takes suggestions again
+        if (transactionIdToEdit == -1) {
+            categoryPicked = false;
+            suggestCategory();
+        }
+    }
+
+    /**
+     * Fills in the category the keyword rules pick from the note. One pass over the note
+     * whatever the number of rules, so it runs on every keystroke.
+     */
+    private void suggestCategory() {
+        if (categoryPicked || databaseHelper == null) {
+            return;
+        }
+        String type = radioGroupType.getCheckedRadioButtonId() == R.id.radio_income ? Categories.TYPE_INCOME : Categories.TYPE_EXPENSE;
+        String category = databaseHelper.getCategoryMatcher().match(type, editTextNote.getText().toString());
+        spinnerCategory.setText(category == null ? "" : category, false);
     }
 
     private void setCategoryAdapter(List<String> categories) {
@@ -218,6 +307,49 @@ public class AddExpenseActivity extends AppCompatActivity {
         spinnerCategory.setText("", false); // Clear category on type switch to force selection
     }
 
+    private void setCurrencyAdapter() {
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(
+                this,
+                android.R.layout.simple_dropdown_item_1line,
+                Currencies.SUPPORTED
+        );
+        spinnerCurrency.setAdapter(adapter);
+        spinnerCurrency.setText(Currencies.BASE, false);
+        spinnerCurrency.setOnItemClickListener((parent, view, position, id) ->
+                onCurrencyChanged(Currencies.SUPPORTED.get(position)));
+    }
+
+    /**
+     * Shows the currency's symbol on the amount and, for anything but rupees, the rate field,
+     * filled in with the rate totals would use today.
+     */
+    private void onCurrencyChanged(String currency) {
+        inputLayoutAmount.setPrefixText(Currency.getInstance(currency).getSymbol(INDIA_LOCALE));
+        boolean foreign = !Currencies.BASE.equals(currency);
+        inputLayoutFxRate.setVisibility(foreign ? View.VISIBLE : View.GONE);
+        editTextFxRate.setText("");
+        if (foreign) {
+            double rate = databaseHelper.getFxRate(currency, new SimpleDateFormat(DATE_FORMAT, Locale.US).format(selectedDate.getTime()));
+            if (rate > 0) {
+                editTextFxRate.setText(new DecimalFormat("0.####").format(rate));
+            }
+        }
+    }
+
+    private void setRepeatAdapter() {
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(
+                this,
+                android.R.layout.simple_dropdown_item_1line,
+                REPEAT_OPTIONS
+        );
+        spinnerRepeat.setAdapter(adapter);
+        spinnerRepeat.setText(REPEAT_NONE, false);
+        // Only the custom frequency needs an explicit interval
+        spinnerRepeat.setOnItemClickListener((parent, view, position, id) ->
+                inputLayoutRepeatInterval.setVisibility(
+                        Recurrence.FREQUENCY_CUSTOM.equals(REPEAT_OPTIONS.get(position)) ? View.VISIBLE : View.GONE));
+    }
+
     private void saveTransaction() {
         String amountStr = editTextAmount.getText().toString();
         String note = editTextNote.getText().toString().trim();
@@ -230,10 +362,9 @@ public class AddExpenseActivity extends AppCompatActivity {
 
         // Determine transaction type and category list
         String type = radioGroupType.getCheckedRadioButtonId() == R.id.radio_income ? "Income" : "Expense";
-        List<String> currentCategories = type.equals("Income") ? INCOME_CATEGORIES : EXPENSE_CATEGORIES;
 
         // Validate category against the predefined list
-        if (!currentCategories.contains(category)) {
+        if (!Categories.isValid(type, category)) {
             Toast.makeText(this, "Invalid category for " + type + ". Please select from the dropdown.", Toast.LENGTH_LONG).show();
             return;
         }
@@ -260,20 +391,68 @@ public class AddExpenseActivity extends AppCompatActivity {
         String date = new SimpleDateFormat(DATE_FORMAT, Locale.US).format(selectedDate.getTime());
         boolean success;
 
+        String repeat = spinnerRepeat.getText().toString();
+        boolean isRecurring = transactionIdToEdit == -1 && REPEAT_OPTIONS.contains(repeat) && !REPEAT_NONE.equals(repeat);
+        int intervalDays = 0;
+        if (isRecurring && Recurrence.FREQUENCY_CUSTOM.equals(repeat)) {
+            try {
+                intervalDays = Integer.parseInt(editTextRepeatInterval.getText().toString().trim());
+            } catch (NumberFormatException e) {
+                intervalDays = 0;
+            }
+            if (intervalDays <= 0) {
+                Toast.makeText(this, "Enter how many days apart the transaction repeats.", Toast.LENGTH_SHORT).show();
+                return;
+            }
+        }
+
+        String currency = spinnerCurrency.getText().toString();
+        if (!Currencies.isSupported(currency)) {
+            currency = Currencies.BASE;
+        }
+        if (!Currencies.BASE.equals(currency)) {
+            if (isRecurring) {
+                Toast.makeText(this, "Recurring transactions can only be in " + Currencies.BASE + ".", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            if (!saveFxRate(currency, date)) {
+                return;
+            }
+        }
+
         // --- Logic to Differentiate Insert vs. Update ---
-        if (transactionIdToEdit != -1) {
+        if (isRecurring) {
+            // Store the rule once; the first occurrence (and any already due) is materialized right away
+            success = databaseHelper.insertRecurringRule(userEmail, category, amount, date, note, type, repeat, intervalDays);
+            if (success) {
+                // A back-dated rule can catch up hundreds of occurrences; the session's database
+                // outlives this screen, so the inserts finish after it closes
+                new Thread(() -> databaseHelper.materializeRecurringTransactions(userEmail,
+                        RecurringTransactionJobService.today()), "MaterializeRecurring").start();
+                Toast.makeText(this, "Recurring " + type.toLowerCase(Locale.ROOT) + " saved successfully!", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, "Failed to save recurring transaction. Check logs.", Toast.LENGTH_SHORT).show();
+            }
+        } else if (transactionIdToEdit != -1) {
             // Update Existing Transaction
-            success = databaseHelper.updateExpense(transactionIdToEdit, userEmail, category, amount, date, note, type);
+            success = databaseHelper.updateExpense(transactionIdToEdit, userEmail, category, amount, date, note, type, currency);
             if (success) {
+                databaseHelper.setReceipt(transactionIdToEdit, receiptHash);
                 Toast.makeText(this, type + " updated successfully!", Toast.LENGTH_SHORT).show();
+                alertIfAnomalous(transactionIdToEdit, category, currency);
             } else {
                 Toast.makeText(this, "Failed to update transaction. Check logs.", Toast.LENGTH_SHORT).show();
             }
         } else {
             // Insert New Transaction
-            success = databaseHelper.insertExpense(userEmail, category, amount, date, note, type);
+            long newId = databaseHelper.insertExpenseAndGetId(userEmail, category, amount, date, note, type, currency);
+            success = newId != -1;
             if (success) {
+                if (receiptHash != null) {
+                    databaseHelper.setReceipt(newId, receiptHash);
+                }
                 Toast.makeText(this, type + " saved successfully!", Toast.LENGTH_SHORT).show();
+                alertIfAnomalous(newId, category, currency);
             } else {
                 Toast.makeText(this, "Failed to save transaction. Check logs.", Toast.LENGTH_SHORT).show();
             }
@@ -283,4 +462,82 @@ public class AddExpenseActivity extends AppCompatActivity {
             finish(); // Return to the previous activity (likely MainActivity or ViewAllTransactions)
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Copies the picked image into the receipt store off the main thread, and starts building
+     * its thumbnail so the lists never decode the full photo.
+     */
+    private void onReceiptPicked(Uri uri) {
+        if (uri == null || receiptStore == null) {
+            return;
+        }
+        new Thread(() -> {
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    throw new IOException("Cannot open " + uri);
+                }
+                String hash = receiptStore.importReceipt(in);
+                ThumbnailLoader.get(this).prefetch(receiptStore.file(hash), hash);
+                runOnUiThread(() -> {
+                    receiptHash = hash;
+                    updateReceiptButton();
+                });
+            } catch (IOException | SecurityException e) {
+                Log.e(TAG, "Error attaching receipt: " + e.getMessage());
+                runOnUiThread(() -> Toast.makeText(this, "Could not attach the receipt.", Toast.LENGTH_SHORT).show());
+            }
+        }).start();
+    }
+
+    private void updateReceiptButton() {
+        buttonAttachReceipt.setText(receiptHash == null ? "Attach Receipt" : "Receipt Attached (Tap to Replace)");
+    }
+
+    /**
+     * Notifies the user if the saved expense is unusually large for its category, or pushes the
+     * category's month well past normal. The statistics are kept current by the database, so
+     * this is a single indexed lookup.
+     */
+    private void alertIfAnomalous(long transactionId, String category, String currency) {
+        SpendingStats.Anomaly anomaly = databaseHelper.findAnomaly(transactionId);
+        if (anomaly == null) {
+            return;
+        }
+        String amount = CurrencyFormatter.format(anomaly.amount, currency);
+        String typical = CurrencyFormatter.format(anomaly.typical, currency);
+        if (anomaly.kind == SpendingStats.Anomaly.Kind.LARGE_TRANSACTION) {
+            MainActivity.showSpendingAlertNotification(this, "Unusual " + category + " expense",
+                    amount + " is well above your usual " + category + " expense of about " + typical + ".");
+        } else {
+            MainActivity.showSpendingAlertNotification(this, category + " spending is up this month",
+                    "You've spent " + amount + " on " + category + " this month, against about " + typical + " usually.");
+        }
+    }
+
+    /**
+     * Records the entered rate for {@code date} if it differs from the one already in effect.
+     * A foreign amount needs some rate, or it would be left out of every total.
+     */
+    private boolean saveFxRate(String currency, String date) {
+        String rateStr = editTextFxRate.getText() != null ? editTextFxRate.getText().toString().trim() : "";
+        double current = databaseHelper.getFxRate(currency, date);
+        if (TextUtils.isEmpty(rateStr)) {
+            if (current <= 0) {
+                Toast.makeText(this, "Enter the " + currency + " rate in " + Currencies.BASE + ".", Toast.LENGTH_SHORT).show();
+                return false;
+            }
+            return true;
+        }
+        double rate;
+        try {
+            rate = Double.parseDouble(rateStr.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            rate = 0;
+        }
+        if (rate <= 0) {
+            Toast.makeText(this, "Invalid rate. Please use numbers only.", Toast.LENGTH_SHORT).show();
+            return false;
+        }
+        return rate == current || databaseHelper.setFxRate(currency, date, rate);
+    }
+}
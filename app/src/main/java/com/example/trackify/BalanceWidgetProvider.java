@@ -0,0 +1,86 @@
+package com.example.trackify;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.view.View;
+import android.widget.RemoteViews;
+
+import com.example.trackify.core.Categories;
+import com.example.trackify.core.CurrencyFormatter;
+import com.example.trackify.core.WidgetSnapshot;
+
+/**
+ * Home-screen widget with the balance, this month's spending and the latest transactions. It
+ * never opens the database: everything comes from the logged-in account's snapshot file, which
+ * {@link WidgetSnapshotWriter} rewrites after each burst of changes and then calls
+ * {@link #refresh}.
+ */
+public class BalanceWidgetProvider extends AppWidgetProvider {
+
+    private static final String PREF_NAME = "TrackifyPrefs";
+    private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
+
+    private static final int[] RECENT_VIEWS = {R.id.widget_recent_1, R.id.widget_recent_2, R.id.widget_recent_3};
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        appWidgetManager.updateAppWidget(appWidgetIds, buildViews(context));
+    }
+
+    /**
+     * Redraws every placed widget from the current snapshot; one read however many are placed.
+     */
+    static void refresh(Context context) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, BalanceWidgetProvider.class));
+        if (appWidgetIds.length > 0) {
+            appWidgetManager.updateAppWidget(appWidgetIds, buildViews(context));
+        }
+    }
+
+    static RemoteViews buildViews(Context context) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_balance);
+        Intent intent = new Intent(context, MainActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        views.setOnClickPendingIntent(R.id.widget_root,
+                PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT));
+
+        SharedPreferences sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        String userEmail = sharedPreferences.getString(KEY_LOGGED_IN_EMAIL, null);
+        WidgetSnapshot snapshot = userEmail == null ? null : WidgetSnapshotWriter.read(context, userEmail);
+        if (snapshot == null) {
+            views.setTextViewText(R.id.widget_balance, "");
+            views.setTextViewText(R.id.widget_month_spend, "");
+            for (int id : RECENT_VIEWS) {
+                views.setViewVisibility(id, View.GONE);
+            }
+            views.setViewVisibility(R.id.widget_message, View.VISIBLE);
+            views.setTextViewText(R.id.widget_message, userEmail == null
+                    ? "Log in to Trackify to see your balance" : "Open Trackify to load your balance");
+            return views;
+        }
+
+        views.setViewVisibility(R.id.widget_message, View.GONE);
+        views.setTextViewText(R.id.widget_balance, CurrencyFormatter.format(snapshot.balance));
+        // A snapshot from last month has nothing for this one until the next write
+        String month = RecurringTransactionJobService.today().substring(0, 7);
+        double monthExpense = month.equals(snapshot.month) ? snapshot.monthExpense : 0;
+        views.setTextViewText(R.id.widget_month_spend, "Spent this month: " + CurrencyFormatter.format(monthExpense));
+        for (int i = 0; i < RECENT_VIEWS.length; i++) {
+            if (i >= snapshot.recent.size()) {
+                views.setViewVisibility(RECENT_VIEWS[i], View.GONE);
+                continue;
+            }
+            WidgetSnapshot.Item item = snapshot.recent.get(i);
+            String sign = Categories.TYPE_INCOME.equals(item.type) ? "+" : "-";
+            views.setViewVisibility(RECENT_VIEWS[i], View.VISIBLE);
+            views.setTextViewText(RECENT_VIEWS[i], item.category + "  " + sign + CurrencyFormatter.format(item.amount, item.currency));
+        }
+        return views;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.trackify;
+
+import android.database.Cursor;
+
+import com.example.trackify.core.Row;
+
+/**
+ * Adapts an Android Cursor to the platform-independent {@link Row} used by the core module.
+ */
+public class CursorRow implements Row {
+
+    private final Cursor cursor;
+
+    public CursorRow(Cursor cursor) {
+        this.cursor = cursor;
+    }
+
+    @Override
+    public int columnIndex(String columnName) {
+        return cursor.getColumnIndexOrThrow(columnName);
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        return cursor.getLong(columnIndex);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        return cursor.getDouble(columnIndex);
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        return cursor.getString(columnIndex);
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+        return cursor.isNull(columnIndex);
+    }
+}
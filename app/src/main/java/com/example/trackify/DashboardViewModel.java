@@ -0,0 +1,137 @@
+package com.example.trackify;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+
+import com.example.trackify.core.CashFlowForecast;
+import com.example.trackify.core.QueryScheduler;
+import com.example.trackify.core.WidgetSnapshot;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * What {@link MainActivity}'s dashboard shows, kept across rotation and trips to other screens.
+ * The figures are read once when the dashboard is first shown and again after each write to
+ * the data, never just because the activity was recreated or resumed.
+ */
+public class DashboardViewModel extends AndroidViewModel {
+
+    private static final String PREF_NAME = "TrackifyPrefs";
+    private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
+    // The dashboard's only query, as its scheduler key
+    private static final String DASHBOARD = "dashboard";
+
+    /**
+     * One fresh read of the dashboard and its month-end forecast.
+     */
+    static final class Dashboard {
+        final WidgetSnapshot snapshot;
+        final CashFlowForecast forecast;
+
+        Dashboard(WidgetSnapshot snapshot, CashFlowForecast forecast) {
+            this.snapshot = snapshot;
+            this.forecast = forecast;
+        }
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final String userEmail;
+    private final WidgetSnapshot persisted;
+    // Dashboard reads run here, one at a time, never on the main thread
+    private final ExecutorService dashboardExecutor = Executors.newSingleThreadExecutor();
+    // Overlapping refreshes share one read; one that started before a write is redone
+    private final QueryScheduler<String, Dashboard> scheduler =
+            new QueryScheduler<>((key, cancellation) -> loadDashboard(), dashboardExecutor);
+    private final DatabaseLiveData<Dashboard> dashboard;
+    // The content last persisted or read, so an unchanged dashboard is not saved again
+    private volatile WidgetSnapshot latest;
+    // The last dashboard whose alerts were raised
+    private Dashboard alerted;
+
+    public DashboardViewModel(@NonNull Application application) {
+        super(application);
+        databaseHelper = UserSession.database(application);
+        userEmail = application.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).getString(KEY_LOGGED_IN_EMAIL, null);
+        // One small file read whatever the database size, and only once per view model
+        persisted = userEmail != null ? WidgetSnapshotWriter.read(application, userEmail) : null;
+        latest = persisted;
+        dashboard = new DatabaseLiveData<>(databaseHelper, this::requestDashboard);
+        if (userEmail != null) {
+            materializeRecurringTransactions();
+        }
+    }
+
+    /**
+     * The last persisted dashboard, for the first frame before a fresh read arrives; null if
+     * there is none.
+     */
+    WidgetSnapshot persistedSnapshot() {
+        return persisted;
+    }
+
+    LiveData<Dashboard> dashboard() {
+        return dashboard;
+    }
+
+    /**
+     * Whether {@code shown} is new since the last call, so alerts are raised once per read and
+     * not again for the same figures after a rotation.
+     */
+    boolean firstShown(Dashboard shown) {
+        if (shown == alerted) {
+            return false;
+        }
+        alerted = shown;
+        return true;
+    }
+
+    @Override
+    protected void onCleared() {
+        dashboardExecutor.shutdown();
+    }
+
+    /**
+     * Creates any recurring transactions that fell due since the last run, off the main thread.
+     * The dashboard reloads itself if any were created.
+     */
+    private void materializeRecurringTransactions() {
+        final String email = userEmail;
+        final DatabaseHelper backgroundHelper = databaseHelper;
+        new Thread(() -> backgroundHelper.materializeRecurringTransactions(email, RecurringTransactionJobService.today())).start();
+    }
+
+    private void requestDashboard(boolean dataChanged, Consumer<Dashboard> deliver) {
+        if (dataChanged) {
+            scheduler.invalidate();
+        }
+        scheduler.request(DASHBOARD, QueryScheduler.Priority.VISIBLE, deliver);
+    }
+
+    /**
+     * Reads the dashboard with one combined query, and re-persists it only if something changed.
+     * Runs on the dashboard executor; null, which reaches nobody, if the read failed.
+     */
+    private Dashboard loadDashboard() {
+        String today = RecurringTransactionJobService.today();
+        WidgetSnapshot fresh = databaseHelper.getDashboard(userEmail, today.substring(0, 7));
+        if (fresh == null) {
+            return null;
+        }
+        // Reads the trigger-maintained profiles, so it costs the same however long the history
+        CashFlowForecast forecast = databaseHelper.getForecast(userEmail, today);
+        if (!fresh.sameContent(latest)) {
+            WidgetSnapshotWriter writer = UserSession.snapshotWriter();
+            if (writer != null) {
+                writer.save(fresh);
+            }
+        }
+        latest = fresh;
+        return new Dashboard(fresh, forecast);
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.trackify;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.example.trackify.core.BackupArchive;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Online backup and restore of one account's database and its cold storage file, stored as a
+ * {@link BackupArchive}.
+ *
+ * <p>Backup snapshots the database on its own connection with {@code VACUUM INTO}, which under
+ * WAL only holds a read snapshot, so the app keeps writing while it runs. The snapshot is
+ * compacted (no free pages), then streamed through compression, so both time and archive size
+ * follow the amount of data. The cold storage file, if anything was ever moved, is snapshotted
+ * the same way right after, with no rows crossing between the two meanwhile, so the archive's
+ * cold_totals always describe the cold rows beside them. Restore verifies the whole archive and
+ * the databases inside it before renaming them over the live files. Both do file I/O and must
+ * run off the main thread.
+ */
+public final class DatabaseBackup {
+
+    private static final String TAG = "DatabaseBackup";
+
+    static final String ARCHIVE_EXTENSION = ".trkb";
+    private static final String BACKUP_DIRECTORY = "backups";
+    private static final String SNAPSHOT_SCHEMA = "snapshot";
+
+    private DatabaseBackup() {
+    }
+
+    /**
+     * Where the account's backup lives by default: one archive per account in the app's files.
+     */
+    public static File defaultArchive(Context context, DatabaseHelper databaseHelper) {
+        String databaseName = databaseHelper.getDatabaseName();
+        String baseName = databaseName.endsWith(".db") ? databaseName.substring(0, databaseName.length() - 3) : databaseName;
+        return new File(new File(context.getFilesDir(), BACKUP_DIRECTORY), baseName + ARCHIVE_EXTENSION);
+    }
+
+    /**
+     * Writes a consistent snapshot of the account's database to {@code archive}. The archive is
+     * replaced only once the new one is complete and synced.
+     */
+    public static BackupArchive.Header backup(Context context, DatabaseHelper databaseHelper, File archive) throws IOException {
+        // Create or upgrade the file first, so the snapshot always has the current schema
+        File databaseFile = new File(databaseHelper.getWritableDatabase().getPath());
+        File snapshot = new File(context.getCacheDir(), databaseHelper.getDatabaseName() + ".snapshot");
+        File coldFile = databaseHelper.coldStorageFile();
+        File coldSnapshot = new File(context.getCacheDir(), coldFile.getName() + ".snapshot");
+        File partial = new File(archive.getPath() + ".partial");
+        File directory = archive.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        long start = System.nanoTime();
+        try {
+            deleteDatabaseFiles(snapshot);
+            deleteDatabaseFiles(coldSnapshot);
+            boolean useVacuumInto = supportsVacuumInto(databaseHelper.sqliteVersion());
+            int schemaVersion;
+            boolean hasCold;
+            // Nothing moves to or from cold storage between the two snapshots
+            synchronized (databaseHelper.coldStorageLock()) {
+                schemaVersion = snapshot(databaseFile, snapshot, useVacuumInto);
+                hasCold = coldFile.exists();
+                if (hasCold) {
+                    snapshot(coldFile, coldSnapshot, useVacuumInto);
+                }
+            }
+
+            BackupArchive.Header header;
+            try (FileChannel source = new FileInputStream(snapshot).getChannel();
+                 FileChannel cold = hasCold ? new FileInputStream(coldSnapshot).getChannel() : null;
+                 FileChannel target = new RandomAccessFile(partial, "rw").getChannel()) {
+                header = BackupArchive.write(source, cold, target, schemaVersion, System.currentTimeMillis());
+                target.force(true);
+            }
+            if (!partial.renameTo(archive)) {
+                throw new IOException("Cannot replace " + archive);
+            }
+            Log.i(TAG, "Backed up " + header.rawLength + " bytes into " + archive.length() + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return header;
+        } finally {
+            deleteDatabaseFiles(snapshot);
+            deleteDatabaseFiles(coldSnapshot);
+            if (partial.exists() && !partial.delete()) {
+                Log.w(TAG, "Could not delete " + partial);
+            }
+        }
+    }
+
+    /**
+     * Replaces the account's database and cold storage file with the ones in {@code archive}.
+     * Nothing is touched unless the archive checksums match and the databases inside pass an
+     * integrity check. The helper is closed during the swap and reopens the restored file on its
+     * next call. An archive without cold storage removes the device's, whose rows the restored
+     * totals do not count; one from before cold storage (format 1) leaves it alone.
+     */
+    public static BackupArchive.Header restore(Context context, DatabaseHelper databaseHelper, File archive) throws IOException {
+        File databaseFile = context.getDatabasePath(databaseHelper.getDatabaseName());
+        File coldFile = databaseHelper.coldStorageFile();
+        // Same directory as the live files, so the final renames are atomic
+        File restoring = new File(databaseFile.getPath() + ".restoring");
+        File coldRestoring = new File(coldFile.getPath() + ".restoring");
+
+        try {
+            BackupArchive.Header header;
+            try (FileChannel source = new FileInputStream(archive).getChannel();
+                 FileChannel target = new FileOutputStream(restoring).getChannel();
+                 FileChannel cold = new FileOutputStream(coldRestoring).getChannel()) {
+                header = BackupArchive.extract(source, target, cold);
+                target.force(true);
+                cold.force(true);
+            }
+            if (header.schemaVersion > DatabaseHelper.DATABASE_VERSION) {
+                throw new BackupArchive.FormatException("Backup was made by a newer version of Trackify");
+            }
+            checkIntegrity(restoring);
+            boolean hasCold = header.coldLength > 0;
+            if (hasCold) {
+                checkIntegrity(coldRestoring);
+            }
+
+            // SQLiteOpenHelper's open and close are synchronized on the helper, so no other
+            // thread can reopen the old file between the close and the rename; the cold storage
+            // lock keeps moves and synced restores out of both files meanwhile
+            synchronized (databaseHelper) {
+                synchronized (databaseHelper.coldStorageLock()) {
+                    databaseHelper.close();
+                    // A leftover WAL would be replayed into the restored file
+                    deleteSidecarFiles(databaseFile);
+                    if (header.formatVersion > 1) {
+                        deleteSidecarFiles(coldFile);
+                        if (hasCold ? !coldRestoring.renameTo(coldFile) : coldFile.exists() && !coldFile.delete()) {
+                            throw new IOException("Cannot replace " + coldFile);
+                        }
+                    }
+                    if (!restoring.renameTo(databaseFile)) {
+                        throw new IOException("Cannot replace " + databaseFile);
+                    }
+                }
+            }
+            Log.i(TAG, "Restored " + header.rawLength + " bytes from " + archive);
+            databaseHelper.dataChanged();
+            return header;
+        } finally {
+            deleteDatabaseFiles(restoring);
+            deleteDatabaseFiles(coldRestoring);
+        }
+    }
+
+    // --- Snapshot ---
+
+    /**
+     * @return the snapshot's schema version.
+     */
+    static int snapshot(File databaseFile, File snapshot, boolean useVacuumInto) {
+        // A connection of our own: the app's helper keeps serving reads and writes meanwhile.
+        // ATTACH inherits the open flags, so CREATE is needed for the fallback's new file.
+        SQLiteDatabase source = SQLiteDatabase.openDatabase(databaseFile.getPath(), null,
+                SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.CREATE_IF_NECESSARY);
+        try {
+            if (useVacuumInto) {
+                source.execSQL("VACUUM INTO ?", new Object[]{snapshot.getPath()});
+            } else {
+                copyInto(source, snapshot);
+            }
+            return source.getVersion();
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Fallback for SQLite before 3.27 (Android 10 and older), which has no VACUUM INTO: recreates
+     * the schema in an attached file and copies every table in one transaction. Readers are
+     * unaffected under WAL, but writers wait for the copy to finish.
+     */
+    private static void copyInto(SQLiteDatabase source, File snapshot) {
+        source.execSQL("ATTACH DATABASE ? AS " + SNAPSHOT_SCHEMA, new Object[]{snapshot.getPath()});
+        try {
+            source.beginTransaction();
+            try {
+                List<String> deferredSql = new ArrayList<>();
+                boolean hasSequence = false;
+                boolean hasStatistics = false;
+                try (Cursor cursor = source.rawQuery("SELECT type, name, sql FROM main.sqlite_master WHERE sql IS NOT NULL", null)) {
+                    while (cursor.moveToNext()) {
+                        String type = cursor.getString(0);
+                        String name = cursor.getString(1);
+                        if (name.startsWith("sqlite_")) {
+                            hasSequence |= "sqlite_sequence".equals(name);
+                            hasStatistics |= "sqlite_stat1".equals(name);
+                        } else if ("table".equals(type)) {
+                            source.execSQL(qualify(cursor.getString(2)));
+                            source.execSQL("INSERT INTO " + SNAPSHOT_SCHEMA + ".\"" + name + "\" SELECT * FROM main.\"" + name + "\"");
+                        } else {
+                            // Indexes are cheaper to build once the rows are in, and triggers must not fire on the copy
+                            deferredSql.add(cursor.getString(2));
+                        }
+                    }
+                }
+                if (hasSequence) {
+                    source.execSQL("INSERT INTO " + SNAPSHOT_SCHEMA + ".sqlite_sequence SELECT * FROM main.sqlite_sequence");
+                }
+                for (String sql : deferredSql) {
+                    source.execSQL(qualify(sql));
+                }
+                if (hasStatistics) {
+                    // Keep the planner statistics the bulk loader gathered
+                    source.execSQL("ANALYZE " + SNAPSHOT_SCHEMA);
+                }
+                source.execSQL("PRAGMA " + SNAPSHOT_SCHEMA + ".user_version = " + source.getVersion());
+                source.setTransactionSuccessful();
+            } finally {
+                source.endTransaction();
+            }
+        } finally {
+            source.execSQL("DETACH DATABASE " + SNAPSHOT_SCHEMA);
+        }
+    }
+
+    /**
+     * Points a CREATE statement from sqlite_master at the snapshot schema.
+     */
+    static String qualify(String createSql) {
+        return createSql.replaceFirst(
+                "(?i)^(\\s*CREATE\\s+(?:UNIQUE\\s+)?(?:TABLE|INDEX|VIEW|TRIGGER)\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?)",
+                "$1" + SNAPSHOT_SCHEMA + ".");
+    }
+
+    static boolean supportsVacuumInto(String sqliteVersion) {
+        return DatabaseHelper.isSqliteAtLeast(sqliteVersion, 27);
+    }
+
+    // --- Restore Validation ---
+
+    private static void checkIntegrity(File candidate) throws IOException {
+        SQLiteDatabase db = null;
+        try {
+            db = SQLiteDatabase.openDatabase(candidate.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+            String result = DatabaseUtils.stringForQuery(db, "PRAGMA quick_check", null);
+            if (!"ok".equalsIgnoreCase(result)) {
+                throw new BackupArchive.FormatException("Backup database is damaged: " + result);
+            }
+        } catch (RuntimeException e) {
+            throw new BackupArchive.FormatException("Backup does not contain a database", e);
+        } finally {
+            if (db != null) {
+                db.close();
+            }
+        }
+    }
+
+    // --- Files ---
+
+    private static void deleteSidecarFiles(File databaseFile) {
+        for (String suffix : new String[]{"-wal", "-shm", "-journal"}) {
+            File sidecar = new File(databaseFile.getPath() + suffix);
+            if (sidecar.exists() && !sidecar.delete()) {
+                Log.w(TAG, "Could not delete " + sidecar);
+            }
+        }
+    }
+
+    private static void deleteDatabaseFiles(File databaseFile) {
+        if (databaseFile.exists() && !databaseFile.delete()) {
+            Log.w(TAG, "Could not delete " + databaseFile);
+        }
+        deleteSidecarFiles(databaseFile);
+    }
+}
@@ -3,33 +3,79 @@ package com.example.trackify;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 import android.util.Log;
-import android.util.Patterns;
-import android.os.Build;
 
-// ADDED IMPORTS FOR PASSWORD HASHING
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Formatter;
+import com.example.trackify.core.CashFlowForecast;
+import com.example.trackify.core.CategoryMatcher;
+import com.example.trackify.core.Categories;
+import com.example.trackify.core.Currencies;
+import com.example.trackify.core.MaintenanceReport;
+import com.example.trackify.core.MonthRange;
+import com.example.trackify.core.PasswordHasher;
+import com.example.trackify.core.SpendingStats;
+import com.example.trackify.core.StatementImport;
+import com.example.trackify.core.StatementPdf;
+import com.example.trackify.core.SyncRecord;
+import com.example.trackify.core.TransactionAggregator;
+import com.example.trackify.core.TransactionQuery;
+import com.example.trackify.core.TransactionRecord;
+import com.example.trackify.core.TransactionRowMapper;
+import com.example.trackify.core.WidgetSnapshot;
+
+import java.io.Closeable;
+import java.io.File;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Locale;
-
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * One account's transactions and recurring rules. Every account has its own database file, so a
+ * user's queries only ever touch their own pages and indexes; credentials live in the shared
+ * {@link UserDirectoryHelper}. Instances are long-lived: {@link UserSession} opens one at login
+ * and closes it at logout, so individual methods do not close the connection.
+ */
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     // Database Info
-    private static final String DATABASE_NAME = "trackify.db";
-    private static final int DATABASE_VERSION = 3;
+    private static final String DATABASE_NAME_PREFIX = "trackify_user_";
+    static final int DATABASE_VERSION = 15;
     private static final String TAG = "DatabaseHelper";
 
     // Table Names
     private static final String TABLE_EXPENSES = "expenses";
-    private static final String TABLE_USERS = "users";
+    private static final String TABLE_RECURRING = "recurring_rules";
+    private static final String TABLE_MAINTENANCE_LOG = "maintenance_log";
+    private static final String TABLE_CHANGE_LOG = "change_log";
+    private static final String TABLE_SYNC_STATE = "sync_state";
+    private static final String TABLE_FX_RATES = "fx_rates";
+    private static final String TABLE_MONTHLY_TOTALS = "monthly_totals";
+    private static final String TABLE_DECAY_WEIGHTS = "decay_weights";
+    private static final String TABLE_CATEGORY_STATS = "category_stats";
+    private static final String TABLE_CATEGORY_MONTHS = "category_months";
+    private static final String TABLE_DAILY_FLOWS = "daily_flows";
+    private static final String TABLE_DAY_PROFILES = "day_profiles";
+    private static final String TABLE_IMPORT_KEYS = "import_keys";
+    private static final String TABLE_CATEGORY_RULES = "category_rules";
+    private static final String TABLE_COLD_TOTALS = "cold_totals";
+    private static final String TABLE_COLD_STATE = "cold_state";
 
     // Expense Table Columns
     private static final String COLUMN_EXPENSE_ID = "expense_id";
@@ -39,67 +85,385 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String COLUMN_EXPENSE_AMOUNT = "amount";
     private static final String COLUMN_EXPENSE_DATE = "date"; // YYYY-MM-DD format
     private static final String COLUMN_EXPENSE_NOTE = "note";
+    private static final String COLUMN_EXPENSE_SYNC_ID = "sync_id"; // Random id shared by every device
+    private static final String COLUMN_EXPENSE_MODIFIED_AT = "modified_at"; // Epoch millis of the last edit
+    private static final String COLUMN_EXPENSE_CURRENCY = "currency"; // ISO 4217, see Currencies
+    private static final String COLUMN_EXPENSE_RULE_ID = "recurring_rule_id"; // Set on materialized occurrences
+    private static final String COLUMN_EXPENSE_RECEIPT_HASH = TransactionRowMapper.COLUMN_RECEIPT_HASH; // File in ReceiptStore
+    private static final String COLUMN_EXPENSE_AUTO_CATEGORY = "auto_category"; // 1 until the user sets an imported row's category
+    // auto_category of a catch-all row from before schema 15, until the user decides what it is
+    private static final int AUTO_CATEGORY_UNTRACKED = 2;
+
+
+    // Recurring Rule Table Columns
+    private static final String COLUMN_RULE_ID = "rule_id";
+    private static final String COLUMN_RULE_USER_EMAIL = "user_email";
+    private static final String COLUMN_RULE_TYPE = "type";
+    private static final String COLUMN_RULE_CATEGORY = "category";
+    private static final String COLUMN_RULE_AMOUNT = "amount";
+    private static final String COLUMN_RULE_NOTE = "note";
+    private static final String COLUMN_RULE_FREQUENCY = "frequency"; // see Recurrence.FREQUENCY_*
+    private static final String COLUMN_RULE_INTERVAL_DAYS = "interval_days"; // Only used by 'Custom'
+    private static final String COLUMN_RULE_ANCHOR_DAY = "anchor_day"; // Day of month for 'Monthly'
+    private static final String COLUMN_RULE_NEXT_DATE = "next_date"; // First occurrence not yet materialized
+
+    // Maintenance Log Table Columns
+    private static final String COLUMN_MAINTENANCE_RUN_AT = "run_at"; // Epoch millis
+    private static final String COLUMN_MAINTENANCE_DURATION_MS = "duration_ms";
+    private static final String COLUMN_MAINTENANCE_BYTES_BEFORE = "bytes_before";
+    private static final String COLUMN_MAINTENANCE_BYTES_AFTER = "bytes_after";
+    private static final String COLUMN_MAINTENANCE_PAGES_RECLAIMED = "pages_reclaimed";
+    private static final String COLUMN_MAINTENANCE_INTEGRITY = "integrity";
+    private static final String COLUMN_MAINTENANCE_REBUILT = "rebuilt";
+
+    // Change Log Table Columns: the newest local change to each transaction
+    private static final String COLUMN_CHANGE_VERSION = "version"; // Grows with every change, never reused
+    private static final String COLUMN_CHANGE_SYNC_ID = "sync_id";
+    private static final String COLUMN_CHANGE_DELETED = "deleted";
+    private static final String COLUMN_CHANGE_CHANGED_AT = "changed_at";
+
+    // Sync State Table Columns (a single row)
+    private static final String COLUMN_SYNC_DEVICE_ID = "device_id";
+    private static final String COLUMN_SYNC_PUSHED_VERSION = "pushed_version"; // Last change_log version the server has
+    private static final String COLUMN_SYNC_PULLED_VERSION = "pulled_version"; // Last server version applied here
+    private static final String COLUMN_SYNC_APPLYING = "applying"; // 1 while pulled changes are written
+
+    // FX Rate Table Columns: one row per currency and day a rate was recorded
+    private static final String COLUMN_FX_CURRENCY = "currency";
+    private static final String COLUMN_FX_DATE = "date"; // First day the rate applies, YYYY-MM-DD
+    private static final String COLUMN_FX_RATE = "rate"; // Base-currency units per unit of the currency
+
+    // Monthly Totals Table Columns: converted totals cached per month, cleared by triggers
+    private static final String COLUMN_TOTALS_USER_EMAIL = "user_email";
+    private static final String COLUMN_TOTALS_MONTH = "month"; // YYYY-MM
+    private static final String COLUMN_TOTALS_TYPE = "type";
+    private static final String COLUMN_TOTALS_TOTAL = "total";
+
+    // Decay Weight Table Columns: SpendingStats.monthWeight() for every month it covers
+    private static final String COLUMN_DECAY_MONTH = "month"; // YYYY-MM
+    private static final String COLUMN_DECAY_WEIGHT = "weight";
+
+    // Category Stats Table Columns: decayed sums over one category's expenses in one currency
+    private static final String COLUMN_STATS_USER_EMAIL = "user_email";
+    private static final String COLUMN_STATS_CATEGORY = "category";
+    private static final String COLUMN_STATS_CURRENCY = "currency";
+    private static final String COLUMN_STATS_COUNT = "tx_count";
+    private static final String COLUMN_STATS_WEIGHT = "tx_weight";
+    private static final String COLUMN_STATS_SUM = "tx_sum";
+    private static final String COLUMN_STATS_SQUARES = "tx_squares";
+    private static final String COLUMN_STATS_MONTHS = "months"; // Months with at least one expense
+    private static final String COLUMN_STATS_MONTH_WEIGHT = "month_weight";
+    private static final String COLUMN_STATS_MONTH_SUM = "month_sum";
+    private static final String COLUMN_STATS_MONTH_SQUARES = "month_squares";
+
+    // Category Months Table Columns: one category's expense total per month, feeding month_*
+    private static final String COLUMN_CATEGORY_MONTH = "month"; // YYYY-MM
+    private static final String COLUMN_CATEGORY_MONTH_TOTAL = "total";
+    private static final String COLUMN_CATEGORY_MONTH_COUNT = "month_tx_count";
+
+    // Daily Flows Table Columns: one day's non-recurring total per type and currency
+    private static final String COLUMN_FLOW_USER_EMAIL = "user_email";
+    private static final String COLUMN_FLOW_DATE = "date"; // YYYY-MM-DD
+    private static final String COLUMN_FLOW_TYPE = "type";
+    private static final String COLUMN_FLOW_CURRENCY = "currency";
+    private static final String COLUMN_FLOW_TOTAL = "total";
+    private static final String COLUMN_FLOW_COUNT = "flow_count";
+
+    // Day Profile Table Columns: decayed sums of the daily totals per day of the month
+    private static final String COLUMN_PROFILE_USER_EMAIL = "user_email";
+    private static final String COLUMN_PROFILE_TYPE = "type";
+    private static final String COLUMN_PROFILE_CURRENCY = "currency";
+    private static final String COLUMN_PROFILE_DAY = "day"; // 1-31
+    private static final String COLUMN_PROFILE_DATES = "dates"; // Dates with a daily total
+    private static final String COLUMN_PROFILE_SUM = "weighted_sum";
+    private static final String COLUMN_PROFILE_SQUARES = "weighted_squares";
+
+    // Import Keys Table Columns: StatementImport.key() of every statement line imported
+    private static final String COLUMN_IMPORT_KEY = "import_key";
+
+    // Category Rule Table Columns: the user's own keyword rules, see CategoryMatcher
+    private static final String COLUMN_CATEGORY_RULE_ID = "rule_id";
+    private static final String COLUMN_CATEGORY_RULE_KEYWORD = "keyword"; // Normalized, see CategoryMatcher.normalize()
+    private static final String COLUMN_CATEGORY_RULE_TYPE = "type";
+    private static final String COLUMN_CATEGORY_RULE_CATEGORY = "category";
+
+    // Cold Totals Table Columns: what moveToColdStorage() took out of expenses, summed per key.
+    // Named like the expenses columns, so the same conversion SQL reads both.
+    private static final String COLUMN_COLD_USER_EMAIL = "user_email";
+    private static final String COLUMN_COLD_TYPE = "type";
+    private static final String COLUMN_COLD_DATE = "date"; // YYYY-MM in the base currency, else the day, see coldDate()
+    private static final String COLUMN_COLD_CATEGORY = "category";
+    private static final String COLUMN_COLD_CURRENCY = "currency";
+    private static final String COLUMN_COLD_TOTAL = "total";
+    private static final String COLUMN_COLD_COUNT = "cold_count";
+
+    // Cold State Table Columns (a single row)
+    private static final String COLUMN_COLD_MOVING = "moving"; // 1 while rows cross between expenses and cold storage
+
+    // Indexes. Every expenses query filters on user_email first, so both lead with it.
+    // (user_email, date) serves month lists and "recent" lookups; the implicit rowid suffix also
+    // satisfies ORDER BY date DESC, expense_id DESC without a sort step.
+    static final String INDEX_EXPENSES_USER_DATE = "idx_expenses_user_date";
+    // (user_email, type, date, category, amount, currency) covers every SUM() query, so aggregates
+    // never touch the table rows at all.
+    static final String INDEX_EXPENSES_USER_TYPE_DATE = TransactionQuery.INDEX_USER_TYPE_DATE;
+
+    // Compiled-statement write used by bulk loading
+    static final String SQL_INSERT_EXPENSE = "INSERT INTO " + TABLE_EXPENSES + "("
+            + COLUMN_EXPENSE_USER_EMAIL + ", " + COLUMN_EXPENSE_TYPE + ", " + COLUMN_EXPENSE_CATEGORY + ", "
+            + COLUMN_EXPENSE_AMOUNT + ", " + COLUMN_EXPENSE_DATE + ", " + COLUMN_EXPENSE_NOTE
+            + ") VALUES (?, ?, ?, ?, ?, ?)";
+    // The same for recurring catch-up, which also records the rule each occurrence came from
+    private static final String SQL_INSERT_RECURRING_EXPENSE = "INSERT INTO " + TABLE_EXPENSES + "("
+            + COLUMN_EXPENSE_USER_EMAIL + ", " + COLUMN_EXPENSE_TYPE + ", " + COLUMN_EXPENSE_CATEGORY + ", "
+            + COLUMN_EXPENSE_AMOUNT + ", " + COLUMN_EXPENSE_DATE + ", " + COLUMN_EXPENSE_NOTE + ", " + COLUMN_EXPENSE_RULE_ID
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    // The same for statement imports, which name the currency of each line and whose category
+    // came from the keyword rules, not the user
+    private static final String SQL_INSERT_IMPORTED_EXPENSE = "INSERT INTO " + TABLE_EXPENSES + "("
+            + COLUMN_EXPENSE_USER_EMAIL + ", " + COLUMN_EXPENSE_TYPE + ", " + COLUMN_EXPENSE_CATEGORY + ", "
+            + COLUMN_EXPENSE_AMOUNT + ", " + COLUMN_EXPENSE_CURRENCY + ", " + COLUMN_EXPENSE_DATE + ", " + COLUMN_EXPENSE_NOTE
+            + ", " + COLUMN_EXPENSE_AUTO_CATEGORY + ") VALUES (?, ?, ?, ?, ?, ?, ?, 1)";
+    // Rows in their type's catch-all category with a note to match; binds the two fallbacks
+    private static final String SQL_CATCH_ALL = "((" + COLUMN_EXPENSE_TYPE + " = '" + Categories.TYPE_EXPENSE + "' AND "
+            + COLUMN_EXPENSE_CATEGORY + " = ?) OR (" + COLUMN_EXPENSE_TYPE + " = '" + Categories.TYPE_INCOME + "' AND "
+            + COLUMN_EXPENSE_CATEGORY + " = ?)) AND " + COLUMN_EXPENSE_NOTE + " <> ''";
+    // Ignored, and so returns -1, for a key imported before
+    private static final String SQL_INSERT_IMPORT_KEY = "INSERT OR IGNORE INTO " + TABLE_IMPORT_KEYS
+            + "(" + COLUMN_IMPORT_KEY + ") VALUES (?)";
+
+    // Rows per transaction when bulk loading
+    private static final int BULK_BATCH_SIZE = 5_000;
+
+    // Rows per transaction when categorizing history; small, so the screens' writes get in between
+    static final int CATEGORIZE_CHUNK = 500;
+
+    // Ids bound per IN (...) list in batch edits; SQLite before 3.32 allows at most 999 parameters
+    static final int BATCH_ID_CHUNK = 500;
+
+    // Cold storage: a second file beside the database, only opened to move rows or read them back
+    static final String COLD_STORAGE_SUFFIX = "-cold.db";
+    static final String COLD_SCHEMA = "cold";
+    // Rows per transaction when moving to cold storage; one IN (...) list of ids
+    static final int COLD_STORAGE_CHUNK = BATCH_ID_CHUNK;
+    // Years kept hot besides the current one, unless the user picks otherwise; 0 turns moving off.
+    // Off until the user opts in, so nothing moves behind an older backup's back.
+    static final int DEFAULT_HOT_YEARS = 0;
+    // Every expenses column, named, since upgraded files have them in a different order
+    private static final String COLD_COPY_COLUMNS = COLUMN_EXPENSE_ID + ", " + COLUMN_EXPENSE_USER_EMAIL + ", "
+            + COLUMN_EXPENSE_TYPE + ", " + COLUMN_EXPENSE_CATEGORY + ", " + COLUMN_EXPENSE_AMOUNT + ", " + COLUMN_EXPENSE_DATE + ", "
+            + COLUMN_EXPENSE_NOTE + ", " + COLUMN_EXPENSE_CURRENCY + ", " + COLUMN_EXPENSE_RULE_ID + ", "
+            + COLUMN_EXPENSE_RECEIPT_HASH + ", " + COLUMN_EXPENSE_SYNC_ID + ", " + COLUMN_EXPENSE_MODIFIED_AT;
+
+    // Maintenance runs kept in the log; about a month of daily runs
+    private static final int MAINTENANCE_LOG_SIZE = 30;
+    // Prepared statements kept per connection: the fixed queries plus every TransactionQuery shape
+    // the filter screen produces, so switching filters reuses compiled statements
+    private static final int SQL_CACHE_SIZE = 50;
+    // PRAGMA auto_vacuum value for INCREMENTAL
+    static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    // Current time in epoch millis, in SQL, for defaults and triggers
+    private static final String SQL_NOW_MILLIS = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+    // Change-log triggers stay quiet while pulled changes are applied, so they are not pushed back
+    private static final String SQL_NOT_APPLYING = "(SELECT " + COLUMN_SYNC_APPLYING + " FROM " + TABLE_SYNC_STATE + ") = 0";
+    // Insert and delete triggers also stay quiet while rows move to or from cold storage: the
+    // transaction still exists, and the statistics and the change log still count it
+    private static final String SQL_NOT_MOVING = "(SELECT " + COLUMN_COLD_MOVING + " FROM " + TABLE_COLD_STATE + ") = 0";
+
+    // An expenses row's amount in the base currency. The rate is the one in effect on the row's
+    // date, or the first one recorded if the row is older; each lookup is one seek on fx_rates'
+    // primary key. NULL, and so left out of every SUM(), if the currency has no rate at all.
+    static final String SQL_BASE_AMOUNT = baseAmount(TABLE_EXPENSES, COLUMN_EXPENSE_AMOUNT);
+    // The same for a cold_totals row. Only base-currency totals are kept per month, so every
+    // other total still converts at its own day's rate.
+    static final String SQL_COLD_BASE_AMOUNT = baseAmount(TABLE_COLD_TOTALS, COLUMN_COLD_TOTAL);
+
+    // Queries (package-private so the query-plan tests can EXPLAIN exactly what runs).
+    // Month filters use a [month, next month) date range instead of LIKE 'yyyy-MM%', which SQLite
+    // cannot serve from an index.
+    // Rows moved to cold storage are counted through their totals (see SQL_COLD_*), so aggregates
+    // come back with up to two rows per group, which the callers add up.
+    static final String SQL_TOTAL_BALANCE = "SELECT " + COLUMN_EXPENSE_TYPE + ", SUM(" + SQL_BASE_AMOUNT + ") AS TotalAmount FROM " + TABLE_EXPENSES +
+            " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ?1" +
+            " GROUP BY " + COLUMN_EXPENSE_TYPE +
+            " UNION ALL SELECT " + COLUMN_COLD_TYPE + ", SUM(" + SQL_COLD_BASE_AMOUNT + ") FROM " + TABLE_COLD_TOTALS +
+            " WHERE " + COLUMN_COLD_USER_EMAIL + " = ?1 GROUP BY " + COLUMN_COLD_TYPE;
+
+    // Both types in one pass; the IN list keeps it on the covering type index
+    static final String SQL_MONTHLY_TOTALS = "SELECT " + COLUMN_EXPENSE_TYPE + ", SUM(" + SQL_BASE_AMOUNT + ") FROM " + TABLE_EXPENSES +
+            " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ?1" +
+            " AND " + COLUMN_EXPENSE_TYPE + " IN ('" + Categories.TYPE_INCOME + "', '" + Categories.TYPE_EXPENSE + "')" +
+            " AND " + COLUMN_EXPENSE_DATE + " >= ?2 AND " + COLUMN_EXPENSE_DATE + " < ?3" +
+            " GROUP BY " + COLUMN_EXPENSE_TYPE +
+            " UNION ALL SELECT " + COLUMN_COLD_TYPE + ", SUM(" + SQL_COLD_BASE_AMOUNT + ") FROM " + TABLE_COLD_TOTALS +
+            " WHERE " + COLUMN_COLD_USER_EMAIL + " = ?1" +
+            " AND " + COLUMN_COLD_TYPE + " IN ('" + Categories.TYPE_INCOME + "', '" + Categories.TYPE_EXPENSE + "')" +
+            " AND " + COLUMN_COLD_DATE + " >= ?2 AND " + COLUMN_COLD_DATE + " < ?3" +
+            " GROUP BY " + COLUMN_COLD_TYPE;
+
+    static final String SQL_CACHED_MONTHLY_TOTALS = "SELECT " + COLUMN_TOTALS_TYPE + ", " + COLUMN_TOTALS_TOTAL + " FROM " + TABLE_MONTHLY_TOTALS +
+            " WHERE " + COLUMN_TOTALS_USER_EMAIL + " = ? AND " + COLUMN_TOTALS_MONTH + " = ?";
+
+    static final String SQL_TRANSACTION_BY_ID = "SELECT * FROM " + TABLE_EXPENSES + " WHERE " + COLUMN_EXPENSE_ID + " = ?";
+
+    static final String SQL_MONTHLY_TRANSACTIONS = "SELECT * FROM " + TABLE_EXPENSES
+            + " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ? AND "
+            + COLUMN_EXPENSE_DATE + " >= ? AND " + COLUMN_EXPENSE_DATE + " < ?"
+            + " ORDER BY " + COLUMN_EXPENSE_DATE + " DESC, " + COLUMN_EXPENSE_ID + " DESC";
+
+    static final String SQL_MONTHLY_CATEGORY_EXPENSES = "SELECT " + COLUMN_EXPENSE_CATEGORY + ", SUM(" + COLUMN_EXPENSE_AMOUNT + ") AS TotalAmount FROM (" +
+            "SELECT " + COLUMN_EXPENSE_CATEGORY + ", " + SQL_BASE_AMOUNT + " AS " + COLUMN_EXPENSE_AMOUNT + " FROM " + TABLE_EXPENSES +
+            " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ?1 AND " +
+            COLUMN_EXPENSE_TYPE + " = 'Expense' AND " +
+            COLUMN_EXPENSE_DATE + " >= ?2 AND " + COLUMN_EXPENSE_DATE + " < ?3" +
+            " UNION ALL SELECT " + COLUMN_COLD_CATEGORY + ", " + SQL_COLD_BASE_AMOUNT + " FROM " + TABLE_COLD_TOTALS +
+            " WHERE " + COLUMN_COLD_USER_EMAIL + " = ?1 AND " +
+            COLUMN_COLD_TYPE + " = 'Expense' AND " +
+            COLUMN_COLD_DATE + " >= ?2 AND " + COLUMN_COLD_DATE + " < ?3)" +
+            " GROUP BY " + COLUMN_EXPENSE_CATEGORY +
+            " ORDER BY TotalAmount DESC";
+
+    // The LIMIT is appended per call; SQLite will not accept a bound string as a LIMIT
+    static final String SQL_RECENT_TRANSACTIONS_PREFIX = "SELECT * FROM " + TABLE_EXPENSES
+            + " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ? "
+            + " ORDER BY " + COLUMN_EXPENSE_DATE + " DESC, " + COLUMN_EXPENSE_ID + " DESC"
+            + " LIMIT ";
+
+    // Everything on the dashboard in one round trip: balance per type (part 0, hot and cold), the
+    // month's totals per type (part 1) and the newest transactions (part 2). ?1 is the user, ?2 and ?3 the month.
+    static final String SQL_DASHBOARD = "SELECT 0 AS part, " + COLUMN_EXPENSE_TYPE + ", SUM(" + SQL_BASE_AMOUNT + ") AS "
+            + COLUMN_EXPENSE_AMOUNT + ", NULL AS " + COLUMN_EXPENSE_CATEGORY + ", NULL AS " + COLUMN_EXPENSE_CURRENCY
+            + ", NULL AS " + COLUMN_EXPENSE_DATE + ", NULL AS " + COLUMN_EXPENSE_ID + ", NULL AS " + COLUMN_EXPENSE_NOTE
+            + " FROM " + TABLE_EXPENSES + " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ?1 GROUP BY " + COLUMN_EXPENSE_TYPE
+            + " UNION ALL SELECT 0, " + COLUMN_COLD_TYPE + ", SUM(" + SQL_COLD_BASE_AMOUNT + "), NULL, NULL, NULL, NULL, NULL FROM "
+            + TABLE_COLD_TOTALS + " WHERE " + COLUMN_COLD_USER_EMAIL + " = ?1 GROUP BY " + COLUMN_COLD_TYPE
+            + " UNION ALL SELECT 1, " + COLUMN_EXPENSE_TYPE + ", SUM(" + SQL_BASE_AMOUNT + "), NULL, NULL, NULL, NULL, NULL FROM "
+            + TABLE_EXPENSES + " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ?1"
+            + " AND " + COLUMN_EXPENSE_TYPE + " IN ('" + Categories.TYPE_INCOME + "', '" + Categories.TYPE_EXPENSE + "')"
+            + " AND " + COLUMN_EXPENSE_DATE + " >= ?2 AND " + COLUMN_EXPENSE_DATE + " < ?3 GROUP BY " + COLUMN_EXPENSE_TYPE
+            + " UNION ALL SELECT * FROM (SELECT 2, " + COLUMN_EXPENSE_TYPE + ", " + COLUMN_EXPENSE_AMOUNT + ", "
+            + COLUMN_EXPENSE_CATEGORY + ", " + COLUMN_EXPENSE_CURRENCY + ", " + COLUMN_EXPENSE_DATE + ", "
+            + COLUMN_EXPENSE_ID + ", " + COLUMN_EXPENSE_NOTE + " FROM " + TABLE_EXPENSES
+            + " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ?1"
+            + " ORDER BY " + COLUMN_EXPENSE_DATE + " DESC, " + COLUMN_EXPENSE_ID + " DESC LIMIT " + WidgetSnapshot.MAX_RECENT + ")";
+
+    static final String SQL_DUE_RECURRING_RULES = "SELECT * FROM " + TABLE_RECURRING
+            + " WHERE " + COLUMN_RULE_USER_EMAIL + " = ? AND " + COLUMN_RULE_NEXT_DATE + " <= ?";
 
-    // User Table Columns
-    private static final String COLUMN_USER_EMAIL = "email";
-    private static final String COLUMN_USER_PASSWORD = "password";
-    private static final String COLUMN_USER_NAME = "name";
-
-    //  UserDetails ---
-    public static class UserDetails {
-        public String email;
-        public String name;
-
-        public UserDetails(String email, String name) {
-            this.email = email;
-            this.name = name;
-        }
+    /**
+     * SQL for a row's amount in the base currency, as described at {@link #SQL_BASE_AMOUNT};
+     * {@code table} needs currency and date columns named as in expenses.
+     */
+    private static String baseAmount(String table, String amount) {
+        return "(CASE WHEN " + table + "." + COLUMN_EXPENSE_CURRENCY + " = '" + Currencies.BASE
+                + "' THEN " + table + "." + amount + " ELSE " + table + "." + amount + " * "
+                + rateLookup(table + "." + COLUMN_EXPENSE_CURRENCY, table + "." + COLUMN_EXPENSE_DATE) + " END)";
     }
 
-    // --- Model Class: Transaction ---
-    public static class Transaction {
-        public long id;
-        public String userEmail;
-        public String type;
-        public String category;
-        public double amount;
-        public String date;
-        public String note;
+    /**
+     * SQL for the rate of {@code currency} on {@code date} (both SQL expressions), as described
+     * at {@link #SQL_BASE_AMOUNT}.
+     */
+    private static String rateLookup(String currency, String date) {
+        String rates = " FROM " + TABLE_FX_RATES + " r WHERE r." + COLUMN_FX_CURRENCY + " = " + currency;
+        return "COALESCE((SELECT r." + COLUMN_FX_RATE + rates + " AND r." + COLUMN_FX_DATE + " <= " + date
+                + " ORDER BY r." + COLUMN_FX_DATE + " DESC LIMIT 1), (SELECT r." + COLUMN_FX_RATE + rates
+                + " ORDER BY r." + COLUMN_FX_DATE + " LIMIT 1))";
+    }
 
+    // --- Model Class: Transaction (fields live in the core module's TransactionRecord) ---
+    public static class Transaction extends TransactionRecord {
         public Transaction(long id, String userEmail, String type, String category, double amount, String date, String note) {
-            this.id = id;
-            this.userEmail = userEmail;
-            this.type = type;
-            this.category = category;
-            this.amount = amount;
-            this.date = date;
-            this.note = note;
+            super(id, userEmail, type, category, amount, date, note);
         }
     }
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    private final String userEmail;
+    // Told after every committed write to the transactions; see addChangeListener()
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    // Bumped by each of those writes, so a reader can tell whether what it holds is stale
+    private final AtomicLong dataVersion = new AtomicLong();
+    // Built-in and user rules compiled together; dropped whenever the user's rules change
+    private volatile CategoryMatcher categoryMatcher;
+    private final File coldStorageFile;
+    // Held while rows cross between the database and cold storage; see coldStorageLock()
+    private final Object coldStorageLock = new Object();
+
+    public DatabaseHelper(Context context, String userEmail) {
+        super(context, databaseNameFor(userEmail), null, DATABASE_VERSION);
+        this.userEmail = userEmail;
+        this.coldStorageFile = coldStorageFile(context.getDatabasePath(databaseNameFor(userEmail)));
+        // WAL lets a backup snapshot read the file while the app keeps writing
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
     public void onConfigure(SQLiteDatabase db) {
         super.onConfigure(db);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
-            db.setForeignKeyConstraintsEnabled(true);
-        } else {
-            db.execSQL("PRAGMA foreign_keys = ON;");
+        // Only takes effect on a brand-new file; older files are converted by runMaintenance()
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+        db.setMaxSqlCacheSize(SQL_CACHE_SIZE);
+    }
+
+    /**
+     * Registers {@code listener} to run, on the writing thread, after each write that changed
+     * transactions or rates has committed. One call may stand for many rows.
+     */
+    void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    void removeChangeListener(Runnable listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Counts the writes change listeners were told about. Equal values read before and after a
+     * query mean nothing it could see has changed in between.
+     */
+    long dataVersion() {
+        return dataVersion.get();
+    }
+
+    /**
+     * Tells the change listeners the data changed; also called after a restore swaps the file.
+     */
+    void dataChanged() {
+        dataVersion.incrementAndGet();
+        for (Runnable listener : changeListeners) {
+            listener.run();
         }
     }
 
+    /**
+     * File name of an account's database. Named by a hash of the email, so addresses never appear
+     * on disk outside the user directory.
+     */
+    static String databaseNameFor(String userEmail) {
+        return DATABASE_NAME_PREFIX + PasswordHasher.hash(userEmail.toLowerCase(Locale.ROOT)).substring(0, 16) + ".db";
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
-        String CREATE_USERS_TABLE = "CREATE TABLE " + TABLE_USERS + "("
-                + COLUMN_USER_EMAIL + " TEXT PRIMARY KEY,"
-                + COLUMN_USER_NAME + " TEXT,"
-                + COLUMN_USER_PASSWORD + " TEXT)";
-        db.execSQL(CREATE_USERS_TABLE);
+        createExpensesTable(db, TABLE_EXPENSES);
+        // Before the expenses triggers, which read cold_state
+        createColdStorageTables(db);
+        createRecurringTable(db);
+        createExpenseIndexes(db);
+        createMaintenanceLogTable(db);
+        createSyncTables(db);
+        createCurrencyTables(db);
+        createSpendingStatsTables(db);
+        createForecastTables(db);
+        createImportKeysTable(db);
+        createCategoryRulesTable(db);
+    }
 
-        String CREATE_EXPENSES_TABLE = "CREATE TABLE " + TABLE_EXPENSES + "("
+    private void createExpensesTable(SQLiteDatabase db, String table) {
+        // Sync columns fill themselves in, so no insert path has to know about them
+        String CREATE_EXPENSES_TABLE = "CREATE TABLE " + table + "("
                 + COLUMN_EXPENSE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + COLUMN_EXPENSE_USER_EMAIL + " TEXT,"
                 + COLUMN_EXPENSE_TYPE + " TEXT,"
@@ -107,160 +471,551 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + COLUMN_EXPENSE_AMOUNT + " REAL,"
                 + COLUMN_EXPENSE_DATE + " TEXT,"
                 + COLUMN_EXPENSE_NOTE + " TEXT,"
-                + "FOREIGN KEY(" + COLUMN_EXPENSE_USER_EMAIL + ") REFERENCES " + TABLE_USERS + "(" + COLUMN_USER_EMAIL + "))";
+                + COLUMN_EXPENSE_CURRENCY + " TEXT NOT NULL DEFAULT '" + Currencies.BASE + "',"
+                + COLUMN_EXPENSE_RULE_ID + " INTEGER,"
+                + COLUMN_EXPENSE_RECEIPT_HASH + " TEXT,"
+                + COLUMN_EXPENSE_AUTO_CATEGORY + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_EXPENSE_SYNC_ID + " TEXT NOT NULL DEFAULT (lower(hex(randomblob(16)))),"
+                + COLUMN_EXPENSE_MODIFIED_AT + " INTEGER NOT NULL DEFAULT (" + SQL_NOW_MILLIS + "))";
         db.execSQL(CREATE_EXPENSES_TABLE);
     }
 
-    @Override
-    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Drops tables and calls onCreate to recreate the schema (necessary for Hashing change)
-        Log.w(TAG, "Upgrading database from version " + oldVersion + " to " + newVersion + ". All existing user data will be lost due to security schema change.");
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_EXPENSES);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
-        onCreate(db);
+    private void createExpenseIndexes(SQLiteDatabase db) {
+        createExpenseIndexes(db, "main");
     }
 
-    // ---PASSWORD HASHING METHOD ---//
-
     /**
-     * Converts a plain text password into a secure SHA-256 hash string.
+     * The expenses indexes in {@code schema}; cold storage has the same ones, so a
+     * {@link TransactionQuery} runs unchanged on either file.
      */
-    private String hashPassword(String password) {
-        String sha256 = "";
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            md.update(password.getBytes());
-            byte[] bytes = md.digest();
+    private void createExpenseIndexes(SQLiteDatabase db, String schema) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + schema + "." + INDEX_EXPENSES_USER_DATE + " ON " + TABLE_EXPENSES
+                + "(" + COLUMN_EXPENSE_USER_EMAIL + ", " + COLUMN_EXPENSE_DATE + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + schema + "." + INDEX_EXPENSES_USER_TYPE_DATE + " ON " + TABLE_EXPENSES
+                + "(" + COLUMN_EXPENSE_USER_EMAIL + ", " + COLUMN_EXPENSE_TYPE + ", " + COLUMN_EXPENSE_DATE + ", "
+                + COLUMN_EXPENSE_CATEGORY + ", " + COLUMN_EXPENSE_AMOUNT + ", " + COLUMN_EXPENSE_CURRENCY + ")");
+    }
 
-            // Convert byte array to a readable hexadecimal string
-            Formatter formatter = new Formatter();
-            for (byte b : bytes) {
-                formatter.format("%02x", b);
-            }
-            sha256 = formatter.toString();
-            formatter.close();
-        } catch (NoSuchAlgorithmException e) {
-            Log.e(TAG, "SHA-256 algorithm not available. Password hashing failed!", e);
-        }
-        return sha256;
+    private void createRecurringTable(SQLiteDatabase db) {
+        String CREATE_RECURRING_TABLE = "CREATE TABLE " + TABLE_RECURRING + "("
+                + COLUMN_RULE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COLUMN_RULE_USER_EMAIL + " TEXT,"
+                + COLUMN_RULE_TYPE + " TEXT,"
+                + COLUMN_RULE_CATEGORY + " TEXT,"
+                + COLUMN_RULE_AMOUNT + " REAL,"
+                + COLUMN_RULE_NOTE + " TEXT,"
+                + COLUMN_RULE_FREQUENCY + " TEXT,"
+                + COLUMN_RULE_INTERVAL_DAYS + " INTEGER,"
+                + COLUMN_RULE_ANCHOR_DAY + " INTEGER,"
+                + COLUMN_RULE_NEXT_DATE + " TEXT)";
+        db.execSQL(CREATE_RECURRING_TABLE);
+        // Materialization only ever asks "which of this user's rules are due?"
+        db.execSQL("CREATE INDEX idx_recurring_user_next ON " + TABLE_RECURRING
+                + "(" + COLUMN_RULE_USER_EMAIL + ", " + COLUMN_RULE_NEXT_DATE + ")");
     }
 
+    private void createMaintenanceLogTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_MAINTENANCE_LOG + "("
+                + COLUMN_MAINTENANCE_RUN_AT + " INTEGER PRIMARY KEY,"
+                + COLUMN_MAINTENANCE_DURATION_MS + " INTEGER,"
+                + COLUMN_MAINTENANCE_BYTES_BEFORE + " INTEGER,"
+                + COLUMN_MAINTENANCE_BYTES_AFTER + " INTEGER,"
+                + COLUMN_MAINTENANCE_PAGES_RECLAIMED + " INTEGER,"
+                + COLUMN_MAINTENANCE_INTEGRITY + " TEXT,"
+                + COLUMN_MAINTENANCE_REBUILT + " INTEGER)");
+    }
 
-    // -------------------------------------------------------------------------
-    // --- User Management Methods (MODIFIED FOR HASHING) ---
-    // -------------------------------------------------------------------------
+    /**
+     * Change log, sync state and the triggers that record every insert, update and delete on
+     * expenses, whichever code path makes it. An edit also moves modified_at past its previous
+     * value, so it wins over the version it replaced even if this device's clock is behind.
+     */
+    private void createSyncTables(SQLiteDatabase db) {
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_expenses_sync_id ON " + TABLE_EXPENSES + "(" + COLUMN_EXPENSE_SYNC_ID + ")");
+        db.execSQL("CREATE TABLE " + TABLE_CHANGE_LOG + "("
+                + COLUMN_CHANGE_VERSION + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COLUMN_CHANGE_SYNC_ID + " TEXT NOT NULL UNIQUE,"
+                + COLUMN_CHANGE_DELETED + " INTEGER NOT NULL,"
+                + COLUMN_CHANGE_CHANGED_AT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_STATE + "("
+                + "id INTEGER PRIMARY KEY CHECK (id = 0),"
+                + COLUMN_SYNC_DEVICE_ID + " TEXT NOT NULL,"
+                + COLUMN_SYNC_PUSHED_VERSION + " INTEGER NOT NULL,"
+                + COLUMN_SYNC_PULLED_VERSION + " INTEGER NOT NULL,"
+                + COLUMN_SYNC_APPLYING + " INTEGER NOT NULL)");
+        db.execSQL("INSERT INTO " + TABLE_SYNC_STATE + " VALUES (0, lower(hex(randomblob(8))), 0, 0, 0)");
+
+        createChangeLogTriggers(db);
+        createChangeLogUpdateTrigger(db);
+    }
+
+    private void createChangeLogTriggers(SQLiteDatabase db) {
+        // INSERT OR REPLACE keeps one row per transaction, under a new, higher version
+        String logChange = "INSERT OR REPLACE INTO " + TABLE_CHANGE_LOG + "(" + COLUMN_CHANGE_SYNC_ID + ", "
+                + COLUMN_CHANGE_DELETED + ", " + COLUMN_CHANGE_CHANGED_AT + ") ";
+        db.execSQL("CREATE TRIGGER expenses_log_insert AFTER INSERT ON " + TABLE_EXPENSES
+                + " WHEN " + SQL_NOT_APPLYING + " AND " + SQL_NOT_MOVING + " BEGIN "
+                + logChange + "VALUES (NEW." + COLUMN_EXPENSE_SYNC_ID + ", 0, NEW." + COLUMN_EXPENSE_MODIFIED_AT + "); END");
+        db.execSQL("CREATE TRIGGER expenses_log_delete AFTER DELETE ON " + TABLE_EXPENSES
+                + " WHEN " + SQL_NOT_APPLYING + " AND " + SQL_NOT_MOVING + " BEGIN "
+                + logChange + "VALUES (OLD." + COLUMN_EXPENSE_SYNC_ID + ", 1, MAX(" + SQL_NOW_MILLIS
+                + ", OLD." + COLUMN_EXPENSE_MODIFIED_AT + " + 1)); END");
+    }
+
+    private void createChangeLogUpdateTrigger(SQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER expenses_log_update AFTER UPDATE OF "
+                + COLUMN_EXPENSE_USER_EMAIL + ", " + COLUMN_EXPENSE_TYPE + ", " + COLUMN_EXPENSE_CATEGORY + ", "
+                + COLUMN_EXPENSE_AMOUNT + ", " + COLUMN_EXPENSE_CURRENCY + ", " + COLUMN_EXPENSE_DATE + ", " + COLUMN_EXPENSE_NOTE
+                + " ON " + TABLE_EXPENSES + " WHEN " + SQL_NOT_APPLYING + " BEGIN "
+                + "UPDATE " + TABLE_EXPENSES + " SET " + COLUMN_EXPENSE_MODIFIED_AT + " = MAX(" + SQL_NOW_MILLIS
+                + ", OLD." + COLUMN_EXPENSE_MODIFIED_AT + " + 1) WHERE " + COLUMN_EXPENSE_ID + " = NEW." + COLUMN_EXPENSE_ID + "; "
+                + "INSERT OR REPLACE INTO " + TABLE_CHANGE_LOG + "(" + COLUMN_CHANGE_SYNC_ID + ", "
+                + COLUMN_CHANGE_DELETED + ", " + COLUMN_CHANGE_CHANGED_AT + ") "
+                + "SELECT " + COLUMN_EXPENSE_SYNC_ID + ", 0, " + COLUMN_EXPENSE_MODIFIED_AT + " FROM " + TABLE_EXPENSES
+                + " WHERE " + COLUMN_EXPENSE_ID + " = NEW." + COLUMN_EXPENSE_ID + "; END");
+    }
 
     /**
-     * Attempts to insert a new user. Password is now HASHED before storage.
+     * Dated FX rates and the cache of converted monthly totals. Triggers drop a month's cached
+     * totals whenever one of its transactions changes, whichever code path changes it, and every
+     * cached total when a rate changes.
      */
-    public int insertUser(String name, String email, String password) {
-        // 1. Validation check for email
-        if (!Patterns.EMAIL_ADDRESS.matcher(email).matches()) {
-            return -1;
+    private void createCurrencyTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_FX_RATES + "("
+                + COLUMN_FX_CURRENCY + " TEXT NOT NULL,"
+                + COLUMN_FX_DATE + " TEXT NOT NULL,"
+                + COLUMN_FX_RATE + " REAL NOT NULL,"
+                + "PRIMARY KEY (" + COLUMN_FX_CURRENCY + ", " + COLUMN_FX_DATE + ")) WITHOUT ROWID");
+        db.execSQL("CREATE TABLE " + TABLE_MONTHLY_TOTALS + "("
+                + COLUMN_TOTALS_USER_EMAIL + " TEXT NOT NULL,"
+                + COLUMN_TOTALS_MONTH + " TEXT NOT NULL,"
+                + COLUMN_TOTALS_TYPE + " TEXT NOT NULL,"
+                + COLUMN_TOTALS_TOTAL + " REAL NOT NULL,"
+                + "PRIMARY KEY (" + COLUMN_TOTALS_USER_EMAIL + ", " + COLUMN_TOTALS_MONTH + ", " + COLUMN_TOTALS_TYPE + ")) WITHOUT ROWID");
+
+        String forgetNew = forgetMonthlyTotals("NEW");
+        String forgetOld = forgetMonthlyTotals("OLD");
+        db.execSQL("CREATE TRIGGER totals_expense_insert AFTER INSERT ON " + TABLE_EXPENSES
+                + " BEGIN " + forgetNew + " END");
+        db.execSQL("CREATE TRIGGER totals_expense_update AFTER UPDATE OF "
+                + COLUMN_EXPENSE_USER_EMAIL + ", " + COLUMN_EXPENSE_TYPE + ", " + COLUMN_EXPENSE_AMOUNT + ", "
+                + COLUMN_EXPENSE_CURRENCY + ", " + COLUMN_EXPENSE_DATE + " ON " + TABLE_EXPENSES
+                + " BEGIN " + forgetOld + " " + forgetNew + " END");
+        db.execSQL("CREATE TRIGGER totals_expense_delete AFTER DELETE ON " + TABLE_EXPENSES
+                + " BEGIN " + forgetOld + " END");
+        // A new rate can change every later month, and earlier ones that fell back to the first rate
+        for (String event : new String[]{"INSERT", "UPDATE", "DELETE"}) {
+            db.execSQL("CREATE TRIGGER totals_fx_" + event.toLowerCase(Locale.ROOT) + " AFTER " + event + " ON " + TABLE_FX_RATES
+                    + " BEGIN DELETE FROM " + TABLE_MONTHLY_TOTALS + "; END");
         }
+    }
 
-        String lowerCaseEmail = email.toLowerCase(Locale.ROOT);
+    private static String forgetMonthlyTotals(String row) {
+        return "DELETE FROM " + TABLE_MONTHLY_TOTALS + " WHERE " + COLUMN_TOTALS_USER_EMAIL + " = " + row + "." + COLUMN_EXPENSE_USER_EMAIL
+                + " AND " + COLUMN_TOTALS_MONTH + " = substr(" + row + "." + COLUMN_EXPENSE_DATE + ", 1, 7);";
+    }
 
-        // 2. Check for duplicate email
-        SQLiteDatabase readDb = this.getReadableDatabase();
-        Cursor cursor = null;
+    /**
+     * Streaming per-category statistics for anomaly detection (see {@link SpendingStats}).
+     * Triggers keep them current on every insert, update and delete of an expense, whichever code
+     * path makes it, at a few primary-key writes per row; reads never rescan history.
+     */
+    private void createSpendingStatsTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_DECAY_WEIGHTS + "("
+                + COLUMN_DECAY_MONTH + " TEXT PRIMARY KEY,"
+                + COLUMN_DECAY_WEIGHT + " REAL NOT NULL) WITHOUT ROWID");
+        SQLiteStatement insertWeight = db.compileStatement("INSERT INTO " + TABLE_DECAY_WEIGHTS + " VALUES (?, ?)");
         try {
-            cursor = readDb.query(TABLE_USERS, new String[]{COLUMN_USER_EMAIL}, COLUMN_USER_EMAIL + " = ?", new String[]{lowerCaseEmail}, null, null, null);
-            if (cursor != null && cursor.getCount() > 0) {
-                return 0; // Duplicate email
+            for (String month : SpendingStats.weightedMonths()) {
+                insertWeight.bindString(1, month);
+                insertWeight.bindDouble(2, SpendingStats.monthWeight(month));
+                insertWeight.executeInsert();
             }
         } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            // Explicitly close after read operation
-            if (readDb != null && readDb.isOpen()) {
-                readDb.close();
-            }
+            insertWeight.close();
         }
+        db.execSQL("CREATE TABLE " + TABLE_CATEGORY_STATS + "("
+                + COLUMN_STATS_USER_EMAIL + " TEXT NOT NULL,"
+                + COLUMN_STATS_CATEGORY + " TEXT NOT NULL,"
+                + COLUMN_STATS_CURRENCY + " TEXT NOT NULL,"
+                + COLUMN_STATS_COUNT + " INTEGER NOT NULL,"
+                + COLUMN_STATS_WEIGHT + " REAL NOT NULL,"
+                + COLUMN_STATS_SUM + " REAL NOT NULL,"
+                + COLUMN_STATS_SQUARES + " REAL NOT NULL,"
+                + COLUMN_STATS_MONTHS + " INTEGER NOT NULL,"
+                + COLUMN_STATS_MONTH_WEIGHT + " REAL NOT NULL,"
+                + COLUMN_STATS_MONTH_SUM + " REAL NOT NULL,"
+                + COLUMN_STATS_MONTH_SQUARES + " REAL NOT NULL,"
+                + "PRIMARY KEY (" + COLUMN_STATS_USER_EMAIL + ", " + COLUMN_STATS_CATEGORY + ", " + COLUMN_STATS_CURRENCY + ")) WITHOUT ROWID");
+        db.execSQL("CREATE TABLE " + TABLE_CATEGORY_MONTHS + "("
+                + COLUMN_STATS_USER_EMAIL + " TEXT NOT NULL,"
+                + COLUMN_STATS_CATEGORY + " TEXT NOT NULL,"
+                + COLUMN_STATS_CURRENCY + " TEXT NOT NULL,"
+                + COLUMN_CATEGORY_MONTH + " TEXT NOT NULL,"
+                + COLUMN_CATEGORY_MONTH_TOTAL + " REAL NOT NULL,"
+                + COLUMN_CATEGORY_MONTH_COUNT + " INTEGER NOT NULL,"
+                + "PRIMARY KEY (" + COLUMN_STATS_USER_EMAIL + ", " + COLUMN_STATS_CATEGORY + ", " + COLUMN_STATS_CURRENCY + ", "
+                + COLUMN_CATEGORY_MONTH + ")) WITHOUT ROWID");
+        rebuildSpendingStats(db);
+        createSpendingStatsTriggers(db);
+    }
 
-        // 3. Insert user
-        SQLiteDatabase writeDb = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_USER_EMAIL, lowerCaseEmail);
-        values.put(COLUMN_USER_NAME, name);
+    private void createSpendingStatsTriggers(SQLiteDatabase db) {
+        String isExpense = "." + COLUMN_EXPENSE_TYPE + " = '" + Categories.TYPE_EXPENSE + "'";
+        db.execSQL("CREATE TRIGGER stats_expense_insert AFTER INSERT ON " + TABLE_EXPENSES
+                + " WHEN NEW" + isExpense + " AND " + SQL_NOT_MOVING + " BEGIN " + adjustSpendingStats("NEW", 1) + " END");
+        db.execSQL("CREATE TRIGGER stats_expense_update AFTER UPDATE OF "
+                + COLUMN_EXPENSE_USER_EMAIL + ", " + COLUMN_EXPENSE_TYPE + ", " + COLUMN_EXPENSE_CATEGORY + ", "
+                + COLUMN_EXPENSE_AMOUNT + ", " + COLUMN_EXPENSE_CURRENCY + ", " + COLUMN_EXPENSE_DATE + " ON " + TABLE_EXPENSES
+                + " WHEN OLD" + isExpense + " OR NEW" + isExpense
+                + " BEGIN " + adjustSpendingStats("OLD", -1) + " " + adjustSpendingStats("NEW", 1) + " END");
+        db.execSQL("CREATE TRIGGER stats_expense_delete AFTER DELETE ON " + TABLE_EXPENSES
+                + " WHEN OLD" + isExpense + " AND " + SQL_NOT_MOVING + " BEGIN " + adjustSpendingStats("OLD", -1) + " END");
+    }
+
+    /**
+     * Trigger statements that add ({@code sign} 1) or take out (-1) one expense row's share of
+     * the statistics. The month sums move by the change in the month's total; a month joins or
+     * leaves them when its first expense arrives or its last one goes. Rows that are not
+     * expenses change nothing.
+     */
+    private static String adjustSpendingStats(String row, int sign) {
+        String key = COLUMN_STATS_USER_EMAIL + " = " + row + "." + COLUMN_EXPENSE_USER_EMAIL
+                + " AND " + COLUMN_STATS_CATEGORY + " = " + row + "." + COLUMN_EXPENSE_CATEGORY
+                + " AND " + COLUMN_STATS_CURRENCY + " = " + row + "." + COLUMN_EXPENSE_CURRENCY;
+        String month = "substr(" + row + "." + COLUMN_EXPENSE_DATE + ", 1, 7)";
+        String monthKey = key + " AND " + COLUMN_CATEGORY_MONTH + " = " + month;
+        String isExpense = " AND " + row + "." + COLUMN_EXPENSE_TYPE + " = '" + Categories.TYPE_EXPENSE + "'";
+        String amount = row + "." + COLUMN_EXPENSE_AMOUNT;
+        String weight = "COALESCE((SELECT " + COLUMN_DECAY_WEIGHT + " FROM " + TABLE_DECAY_WEIGHTS + " WHERE "
+                + COLUMN_DECAY_MONTH + " = " + month + "), 0)";
+        String monthTotal = "(SELECT " + COLUMN_CATEGORY_MONTH_TOTAL + " FROM " + TABLE_CATEGORY_MONTHS + " WHERE " + monthKey + ")";
+        String monthCount = "(SELECT " + COLUMN_CATEGORY_MONTH_COUNT + " FROM " + TABLE_CATEGORY_MONTHS + " WHERE " + monthKey + ")";
+        // 1 if this row makes the month non-empty, -1 if it empties it, else 0
+        String monthJoins = sign > 0
+                ? "(CASE WHEN " + monthCount + " = 0 THEN 1 ELSE 0 END)"
+                : "(CASE WHEN " + monthCount + " = 1 THEN -1 ELSE 0 END)";
+        String newTotal = "(" + monthTotal + " + " + sign + " * " + amount + ")";
+
+        return "INSERT OR IGNORE INTO " + TABLE_CATEGORY_STATS + " SELECT " + row + "." + COLUMN_EXPENSE_USER_EMAIL + ", "
+                + row + "." + COLUMN_EXPENSE_CATEGORY + ", " + row + "." + COLUMN_EXPENSE_CURRENCY + ", 0, 0, 0, 0, 0, 0, 0, 0"
+                + " WHERE 1" + isExpense + "; "
+                + "INSERT OR IGNORE INTO " + TABLE_CATEGORY_MONTHS + " SELECT " + row + "." + COLUMN_EXPENSE_USER_EMAIL + ", "
+                + row + "." + COLUMN_EXPENSE_CATEGORY + ", " + row + "." + COLUMN_EXPENSE_CURRENCY + ", " + month + ", 0, 0"
+                + " WHERE 1" + isExpense + "; "
+                // Reads the month's total before the next statement moves it
+                + "UPDATE " + TABLE_CATEGORY_STATS + " SET "
+                + COLUMN_STATS_COUNT + " = " + COLUMN_STATS_COUNT + " + " + sign + ", "
+                + COLUMN_STATS_WEIGHT + " = " + COLUMN_STATS_WEIGHT + " + " + sign + " * " + weight + ", "
+                + COLUMN_STATS_SUM + " = " + COLUMN_STATS_SUM + " + " + sign + " * " + weight + " * " + amount + ", "
+                + COLUMN_STATS_SQUARES + " = " + COLUMN_STATS_SQUARES + " + " + sign + " * " + weight + " * " + amount + " * " + amount + ", "
+                + COLUMN_STATS_MONTHS + " = " + COLUMN_STATS_MONTHS + " + " + monthJoins + ", "
+                + COLUMN_STATS_MONTH_WEIGHT + " = " + COLUMN_STATS_MONTH_WEIGHT + " + " + monthJoins + " * " + weight + ", "
+                + COLUMN_STATS_MONTH_SUM + " = " + COLUMN_STATS_MONTH_SUM + " + " + sign + " * " + weight + " * " + amount + ", "
+                + COLUMN_STATS_MONTH_SQUARES + " = " + COLUMN_STATS_MONTH_SQUARES + " + " + weight + " * ("
+                + newTotal + " * " + newTotal + " - " + monthTotal + " * " + monthTotal + ")"
+                + " WHERE " + key + isExpense + "; "
+                + "UPDATE " + TABLE_CATEGORY_MONTHS + " SET "
+                + COLUMN_CATEGORY_MONTH_TOTAL + " = " + COLUMN_CATEGORY_MONTH_TOTAL + " + " + sign + " * " + amount + ", "
+                + COLUMN_CATEGORY_MONTH_COUNT + " = " + COLUMN_CATEGORY_MONTH_COUNT + " + " + sign
+                + " WHERE " + monthKey + isExpense + "; "
+                // Emptied rows go, which also clears any rounding left in their sums
+                + "DELETE FROM " + TABLE_CATEGORY_MONTHS + " WHERE " + monthKey + " AND " + COLUMN_CATEGORY_MONTH_COUNT + " = 0; "
+                + "DELETE FROM " + TABLE_CATEGORY_STATS + " WHERE " + key + " AND " + COLUMN_STATS_COUNT + " = 0;";
+    }
+
+    /**
+     * Recomputes the statistics from the expenses table in two set-based passes; used when the
+     * tables are created on an existing database, and by the tests to check the triggers.
+     */
+    static void rebuildSpendingStats(SQLiteDatabase db) {
+        String group = COLUMN_EXPENSE_USER_EMAIL + ", " + COLUMN_EXPENSE_CATEGORY + ", " + COLUMN_EXPENSE_CURRENCY;
+        String weightOf = "COALESCE((SELECT " + COLUMN_DECAY_WEIGHT + " FROM " + TABLE_DECAY_WEIGHTS + " w WHERE w."
+                + COLUMN_DECAY_MONTH + " = %s), 0)";
+        db.execSQL("DELETE FROM " + TABLE_CATEGORY_MONTHS);
+        db.execSQL("DELETE FROM " + TABLE_CATEGORY_STATS);
+        db.execSQL("INSERT INTO " + TABLE_CATEGORY_MONTHS + " SELECT " + group + ", substr(" + COLUMN_EXPENSE_DATE + ", 1, 7), SUM("
+                + COLUMN_EXPENSE_AMOUNT + "), COUNT(*) FROM " + TABLE_EXPENSES + " WHERE " + COLUMN_EXPENSE_TYPE + " = '"
+                + Categories.TYPE_EXPENSE + "' GROUP BY " + group + ", substr(" + COLUMN_EXPENSE_DATE + ", 1, 7)");
+        String rowWeight = String.format(weightOf, "substr(e." + COLUMN_EXPENSE_DATE + ", 1, 7)");
+        String monthWeight = String.format(weightOf, "m." + COLUMN_CATEGORY_MONTH);
+        String sameCategory = "m." + COLUMN_STATS_USER_EMAIL + " = e." + COLUMN_EXPENSE_USER_EMAIL
+                + " AND m." + COLUMN_STATS_CATEGORY + " = e." + COLUMN_EXPENSE_CATEGORY
+                + " AND m." + COLUMN_STATS_CURRENCY + " = e." + COLUMN_EXPENSE_CURRENCY;
+        String fromMonths = " FROM " + TABLE_CATEGORY_MONTHS + " m WHERE " + sameCategory;
+        String total = "m." + COLUMN_CATEGORY_MONTH_TOTAL;
+        db.execSQL("INSERT INTO " + TABLE_CATEGORY_STATS + " SELECT e." + COLUMN_EXPENSE_USER_EMAIL + ", e." + COLUMN_EXPENSE_CATEGORY
+                + ", e." + COLUMN_EXPENSE_CURRENCY + ", COUNT(*), SUM(" + rowWeight + "), SUM(" + rowWeight + " * e." + COLUMN_EXPENSE_AMOUNT
+                + "), SUM(" + rowWeight + " * e." + COLUMN_EXPENSE_AMOUNT + " * e." + COLUMN_EXPENSE_AMOUNT + "), "
+                + "(SELECT COUNT(*)" + fromMonths + "), "
+                + "(SELECT SUM(" + monthWeight + ")" + fromMonths + "), "
+                + "(SELECT SUM(" + monthWeight + " * " + total + ")" + fromMonths + "), "
+                + "(SELECT SUM(" + monthWeight + " * " + total + " * " + total + ")" + fromMonths + ")"
+                + " FROM " + TABLE_EXPENSES + " e WHERE e." + COLUMN_EXPENSE_TYPE + " = '" + Categories.TYPE_EXPENSE + "'"
+                + " GROUP BY e." + COLUMN_EXPENSE_USER_EMAIL + ", e." + COLUMN_EXPENSE_CATEGORY + ", e." + COLUMN_EXPENSE_CURRENCY);
+    }
 
-        // *** HASH THE PASSWORD BEFORE STORING ***
-        String hashedPassword = hashPassword(password);
-        values.put(COLUMN_USER_PASSWORD, hashedPassword);
+    /**
+     * Keys of imported statement lines, so importing an overlapping statement skips what is
+     * already here. The key is the rowid, so the table is a single B-tree of 8-byte integers.
+     * Keys outlive their transactions: a deleted import stays deleted when the file is
+     * imported again.
+     */
+    private void createImportKeysTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_IMPORT_KEYS + "(" + COLUMN_IMPORT_KEY + " INTEGER PRIMARY KEY)");
+    }
 
-        long result = writeDb.insert(TABLE_USERS, null, values);
+    /**
+     * The user's keyword rules. One rule per keyword and type; adding it again changes its
+     * category.
+     */
+    private void createCategoryRulesTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_CATEGORY_RULES + "("
+                + COLUMN_CATEGORY_RULE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COLUMN_CATEGORY_RULE_KEYWORD + " TEXT NOT NULL,"
+                + COLUMN_CATEGORY_RULE_TYPE + " TEXT NOT NULL,"
+                + COLUMN_CATEGORY_RULE_CATEGORY + " TEXT NOT NULL,"
+                + "UNIQUE (" + COLUMN_CATEGORY_RULE_KEYWORD + ", " + COLUMN_CATEGORY_RULE_TYPE + "))");
+    }
 
-        // Explicitly close after write operation
-        if (writeDb != null && writeDb.isOpen()) {
-            writeDb.close();
-        }
+    /**
+     * Totals of the transactions moved to cold storage, which stand in for them in every
+     * aggregate (see {@link #moveToColdStorage}), and the flag that keeps the expenses triggers
+     * quiet while rows cross over. The key leads like the covering type index, so per-type
+     * sums need no sort step.
+     */
+    private void createColdStorageTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_COLD_TOTALS + "("
+                + COLUMN_COLD_USER_EMAIL + " TEXT NOT NULL,"
+                + COLUMN_COLD_TYPE + " TEXT NOT NULL,"
+                + COLUMN_COLD_DATE + " TEXT NOT NULL,"
+                + COLUMN_COLD_CATEGORY + " TEXT NOT NULL,"
+                + COLUMN_COLD_CURRENCY + " TEXT NOT NULL,"
+                + COLUMN_COLD_TOTAL + " REAL NOT NULL,"
+                + COLUMN_COLD_COUNT + " INTEGER NOT NULL,"
+                + "PRIMARY KEY (" + COLUMN_COLD_USER_EMAIL + ", " + COLUMN_COLD_TYPE + ", " + COLUMN_COLD_DATE + ", "
+                + COLUMN_COLD_CATEGORY + ", " + COLUMN_COLD_CURRENCY + ")) WITHOUT ROWID");
+        db.execSQL("CREATE TABLE " + TABLE_COLD_STATE + "("
+                + "id INTEGER PRIMARY KEY CHECK (id = 0),"
+                + COLUMN_COLD_MOVING + " INTEGER NOT NULL)");
+        db.execSQL("INSERT INTO " + TABLE_COLD_STATE + " VALUES (0, 0)");
+    }
 
-        return (result != -1) ? 1 : -2;
+    /**
+     * Day-of-month cash-flow profiles for the month-end forecast (see {@link CashFlowForecast}).
+     * Like the spending statistics, triggers keep them current on every write. Occurrences of
+     * recurring rules are left out; the forecast adds the rules themselves.
+     */
+    private void createForecastTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_DAILY_FLOWS + "("
+                + COLUMN_FLOW_USER_EMAIL + " TEXT NOT NULL,"
+                + COLUMN_FLOW_DATE + " TEXT NOT NULL,"
+                + COLUMN_FLOW_TYPE + " TEXT NOT NULL,"
+                + COLUMN_FLOW_CURRENCY + " TEXT NOT NULL,"
+                + COLUMN_FLOW_TOTAL + " REAL NOT NULL,"
+                + COLUMN_FLOW_COUNT + " INTEGER NOT NULL,"
+                // Date second, so the forecast can read the current month's dates as one range
+                + "PRIMARY KEY (" + COLUMN_FLOW_USER_EMAIL + ", " + COLUMN_FLOW_DATE + ", " + COLUMN_FLOW_TYPE + ", "
+                + COLUMN_FLOW_CURRENCY + ")) WITHOUT ROWID");
+        db.execSQL("CREATE TABLE " + TABLE_DAY_PROFILES + "("
+                + COLUMN_PROFILE_USER_EMAIL + " TEXT NOT NULL,"
+                + COLUMN_PROFILE_TYPE + " TEXT NOT NULL,"
+                + COLUMN_PROFILE_CURRENCY + " TEXT NOT NULL,"
+                + COLUMN_PROFILE_DAY + " INTEGER NOT NULL,"
+                + COLUMN_PROFILE_DATES + " INTEGER NOT NULL,"
+                + COLUMN_PROFILE_SUM + " REAL NOT NULL,"
+                + COLUMN_PROFILE_SQUARES + " REAL NOT NULL,"
+                + "PRIMARY KEY (" + COLUMN_PROFILE_USER_EMAIL + ", " + COLUMN_PROFILE_TYPE + ", " + COLUMN_PROFILE_CURRENCY + ", "
+                + COLUMN_PROFILE_DAY + ")) WITHOUT ROWID");
+        rebuildDayProfiles(db);
+        createDayProfileTriggers(db);
     }
 
+    private void createDayProfileTriggers(SQLiteDatabase db) {
+        String manual = "." + COLUMN_EXPENSE_RULE_ID + " IS NULL";
+        db.execSQL("CREATE TRIGGER profile_expense_insert AFTER INSERT ON " + TABLE_EXPENSES
+                + " WHEN NEW" + manual + " AND " + SQL_NOT_MOVING + " BEGIN " + adjustDayProfile("NEW", 1) + " END");
+        db.execSQL("CREATE TRIGGER profile_expense_update AFTER UPDATE OF "
+                + COLUMN_EXPENSE_USER_EMAIL + ", " + COLUMN_EXPENSE_TYPE + ", " + COLUMN_EXPENSE_AMOUNT + ", "
+                + COLUMN_EXPENSE_CURRENCY + ", " + COLUMN_EXPENSE_DATE + ", " + COLUMN_EXPENSE_RULE_ID + " ON " + TABLE_EXPENSES
+                + " WHEN OLD" + manual + " OR NEW" + manual
+                + " BEGIN " + adjustDayProfile("OLD", -1) + " " + adjustDayProfile("NEW", 1) + " END");
+        db.execSQL("CREATE TRIGGER profile_expense_delete AFTER DELETE ON " + TABLE_EXPENSES
+                + " WHEN OLD" + manual + " AND " + SQL_NOT_MOVING + " BEGIN " + adjustDayProfile("OLD", -1) + " END");
+    }
 
     /**
-     * Fetches user details by email.
+     * Trigger statements that add ({@code sign} 1) or take out (-1) one transaction's share of
+     * its date's total and of that day of the month's profile, the same way
+     * {@link #adjustSpendingStats} maintains the month sums.
      */
-    public UserDetails getUserDetails(String email) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        String[] columns = {COLUMN_USER_EMAIL, COLUMN_USER_NAME};
-        String selection = COLUMN_USER_EMAIL + " = ?";
-        String[] selectionArgs = {email};
-        UserDetails userDetails = null;
-        Cursor cursor = null;
+    private static String adjustDayProfile(String row, int sign) {
+        String profileKey = COLUMN_PROFILE_USER_EMAIL + " = " + row + "." + COLUMN_EXPENSE_USER_EMAIL
+                + " AND " + COLUMN_PROFILE_TYPE + " = " + row + "." + COLUMN_EXPENSE_TYPE
+                + " AND " + COLUMN_PROFILE_CURRENCY + " = " + row + "." + COLUMN_EXPENSE_CURRENCY
+                + " AND " + COLUMN_PROFILE_DAY + " = CAST(substr(" + row + "." + COLUMN_EXPENSE_DATE + ", 9, 2) AS INTEGER)";
+        String flowKey = COLUMN_FLOW_USER_EMAIL + " = " + row + "." + COLUMN_EXPENSE_USER_EMAIL
+                + " AND " + COLUMN_FLOW_DATE + " = " + row + "." + COLUMN_EXPENSE_DATE
+                + " AND " + COLUMN_FLOW_TYPE + " = " + row + "." + COLUMN_EXPENSE_TYPE
+                + " AND " + COLUMN_FLOW_CURRENCY + " = " + row + "." + COLUMN_EXPENSE_CURRENCY;
+        String isManual = " AND " + row + "." + COLUMN_EXPENSE_RULE_ID + " IS NULL";
+        String amount = row + "." + COLUMN_EXPENSE_AMOUNT;
+        String weight = "COALESCE((SELECT " + COLUMN_DECAY_WEIGHT + " FROM " + TABLE_DECAY_WEIGHTS + " WHERE "
+                + COLUMN_DECAY_MONTH + " = substr(" + row + "." + COLUMN_EXPENSE_DATE + ", 1, 7)), 0)";
+        String dayTotal = "(SELECT " + COLUMN_FLOW_TOTAL + " FROM " + TABLE_DAILY_FLOWS + " WHERE " + flowKey + ")";
+        String dayCount = "(SELECT " + COLUMN_FLOW_COUNT + " FROM " + TABLE_DAILY_FLOWS + " WHERE " + flowKey + ")";
+        String dateJoins = sign > 0
+                ? "(CASE WHEN " + dayCount + " = 0 THEN 1 ELSE 0 END)"
+                : "(CASE WHEN " + dayCount + " = 1 THEN -1 ELSE 0 END)";
+        String newTotal = "(" + dayTotal + " + " + sign + " * " + amount + ")";
+
+        return "INSERT OR IGNORE INTO " + TABLE_DAY_PROFILES + " SELECT " + row + "." + COLUMN_EXPENSE_USER_EMAIL + ", "
+                + row + "." + COLUMN_EXPENSE_TYPE + ", " + row + "." + COLUMN_EXPENSE_CURRENCY + ", CAST(substr("
+                + row + "." + COLUMN_EXPENSE_DATE + ", 9, 2) AS INTEGER), 0, 0, 0 WHERE 1" + isManual + "; "
+                + "INSERT OR IGNORE INTO " + TABLE_DAILY_FLOWS + " SELECT " + row + "." + COLUMN_EXPENSE_USER_EMAIL + ", "
+                + row + "." + COLUMN_EXPENSE_DATE + ", " + row + "." + COLUMN_EXPENSE_TYPE + ", " + row + "." + COLUMN_EXPENSE_CURRENCY
+                + ", 0, 0 WHERE 1" + isManual + "; "
+                + "UPDATE " + TABLE_DAY_PROFILES + " SET "
+                + COLUMN_PROFILE_DATES + " = " + COLUMN_PROFILE_DATES + " + " + dateJoins + ", "
+                + COLUMN_PROFILE_SUM + " = " + COLUMN_PROFILE_SUM + " + " + sign + " * " + weight + " * " + amount + ", "
+                + COLUMN_PROFILE_SQUARES + " = " + COLUMN_PROFILE_SQUARES + " + " + weight + " * ("
+                + newTotal + " * " + newTotal + " - " + dayTotal + " * " + dayTotal + ")"
+                + " WHERE " + profileKey + isManual + "; "
+                + "UPDATE " + TABLE_DAILY_FLOWS + " SET "
+                + COLUMN_FLOW_TOTAL + " = " + COLUMN_FLOW_TOTAL + " + " + sign + " * " + amount + ", "
+                + COLUMN_FLOW_COUNT + " = " + COLUMN_FLOW_COUNT + " + " + sign
+                + " WHERE " + flowKey + isManual + "; "
+                + "DELETE FROM " + TABLE_DAILY_FLOWS + " WHERE " + flowKey + " AND " + COLUMN_FLOW_COUNT + " = 0; "
+                + "DELETE FROM " + TABLE_DAY_PROFILES + " WHERE " + profileKey + " AND " + COLUMN_PROFILE_DATES + " = 0;";
+    }
 
-        try {
-            cursor = db.query(TABLE_USERS, columns, selection, selectionArgs, null, null, null);
-            if (cursor.moveToFirst()) {
-                int emailIndex = cursor.getColumnIndexOrThrow(COLUMN_USER_EMAIL);
-                int userNameIndex = cursor.getColumnIndexOrThrow(COLUMN_USER_NAME);
+    /**
+     * Recomputes the daily totals and day-of-month profiles from the expenses table; used when
+     * the tables are created on an existing database, and by the tests to check the triggers.
+     */
+    static void rebuildDayProfiles(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLE_DAILY_FLOWS);
+        db.execSQL("DELETE FROM " + TABLE_DAY_PROFILES);
+        db.execSQL("INSERT INTO " + TABLE_DAILY_FLOWS + " SELECT " + COLUMN_EXPENSE_USER_EMAIL + ", " + COLUMN_EXPENSE_DATE + ", "
+                + COLUMN_EXPENSE_TYPE + ", " + COLUMN_EXPENSE_CURRENCY + ", SUM(" + COLUMN_EXPENSE_AMOUNT + "), COUNT(*) FROM "
+                + TABLE_EXPENSES + " WHERE " + COLUMN_EXPENSE_RULE_ID + " IS NULL GROUP BY " + COLUMN_EXPENSE_USER_EMAIL + ", "
+                + COLUMN_EXPENSE_DATE + ", " + COLUMN_EXPENSE_TYPE + ", " + COLUMN_EXPENSE_CURRENCY);
+        String weight = "COALESCE((SELECT " + COLUMN_DECAY_WEIGHT + " FROM " + TABLE_DECAY_WEIGHTS + " w WHERE w."
+                + COLUMN_DECAY_MONTH + " = substr(f." + COLUMN_FLOW_DATE + ", 1, 7)), 0)";
+        String total = "f." + COLUMN_FLOW_TOTAL;
+        db.execSQL("INSERT INTO " + TABLE_DAY_PROFILES + " SELECT f." + COLUMN_FLOW_USER_EMAIL + ", f." + COLUMN_FLOW_TYPE + ", f."
+                + COLUMN_FLOW_CURRENCY + ", CAST(substr(f." + COLUMN_FLOW_DATE + ", 9, 2) AS INTEGER), COUNT(*), SUM("
+                + weight + " * " + total + "), SUM(" + weight + " * " + total + " * " + total + ") FROM " + TABLE_DAILY_FLOWS
+                + " f GROUP BY 1, 2, 3, 4");
+    }
 
-                String userEmail = cursor.getString(emailIndex);
-                String userName = cursor.getString(userNameIndex);
-                userDetails = new UserDetails(userEmail, userName);
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Every step is additive so existing data survives upgrades
+        if (oldVersion < 14) {
+            // First, so the triggers the steps below create can read cold_state
+            createColdStorageTables(db);
+        }
+        if (oldVersion < 4) {
+            createRecurringTable(db);
+        }
+        // Indexes added in version 5 are created by the version 7 rebuild below
+        if (oldVersion < 6) {
+            createMaintenanceLogTable(db);
+        }
+        if (oldVersion < 7) {
+            // ALTER TABLE cannot add columns with expression defaults, so copy into a new table
+            String columns = COLUMN_EXPENSE_ID + ", " + COLUMN_EXPENSE_USER_EMAIL + ", " + COLUMN_EXPENSE_TYPE + ", "
+                    + COLUMN_EXPENSE_CATEGORY + ", " + COLUMN_EXPENSE_AMOUNT + ", " + COLUMN_EXPENSE_DATE + ", " + COLUMN_EXPENSE_NOTE;
+            // Already has the version 8 currency column, defaulting to the base currency
+            createExpensesTable(db, "expenses_v7");
+            db.execSQL("INSERT INTO expenses_v7(" + columns + ") SELECT " + columns + " FROM " + TABLE_EXPENSES);
+            db.execSQL("DROP TABLE " + TABLE_EXPENSES);
+            db.execSQL("ALTER TABLE expenses_v7 RENAME TO " + TABLE_EXPENSES);
+            createExpenseIndexes(db);
+            createSyncTables(db);
+            // Everything already on the device is new to the server
+            db.execSQL("INSERT INTO " + TABLE_CHANGE_LOG + "(" + COLUMN_CHANGE_SYNC_ID + ", " + COLUMN_CHANGE_DELETED + ", "
+                    + COLUMN_CHANGE_CHANGED_AT + ") SELECT " + COLUMN_EXPENSE_SYNC_ID + ", 0, " + COLUMN_EXPENSE_MODIFIED_AT
+                    + " FROM " + TABLE_EXPENSES + " ORDER BY " + COLUMN_EXPENSE_ID);
+        }
+        if (oldVersion < 8) {
+            if (oldVersion >= 7) {
+                // Every existing transaction was recorded in the base currency
+                db.execSQL("ALTER TABLE " + TABLE_EXPENSES + " ADD COLUMN " + COLUMN_EXPENSE_CURRENCY
+                        + " TEXT NOT NULL DEFAULT '" + Currencies.BASE + "'");
+                db.execSQL("DROP INDEX " + INDEX_EXPENSES_USER_TYPE_DATE);
+                db.execSQL("DROP TRIGGER expenses_log_update");
+                createExpenseIndexes(db);
+                createChangeLogUpdateTrigger(db);
             }
-        } finally {
-            if (cursor != null) {
-                cursor.close();
+            createCurrencyTables(db);
+        }
+        if (oldVersion < 9) {
+            // Builds the statistics from the transactions already on the device
+            createSpendingStatsTables(db);
+        }
+        if (oldVersion < 10) {
+            if (oldVersion >= 7) {
+                // Occurrences materialized before this are indistinguishable from manual entries
+                db.execSQL("ALTER TABLE " + TABLE_EXPENSES + " ADD COLUMN " + COLUMN_EXPENSE_RULE_ID + " INTEGER");
             }
-            if (db != null && db.isOpen()) {
-                db.close();
+            createForecastTables(db);
+        }
+        if (oldVersion < 11 && oldVersion >= 7) {
+            db.execSQL("ALTER TABLE " + TABLE_EXPENSES + " ADD COLUMN " + COLUMN_EXPENSE_RECEIPT_HASH + " TEXT");
+        }
+        if (oldVersion < 12) {
+            createImportKeysTable(db);
+        }
+        if (oldVersion < 13) {
+            createCategoryRulesTable(db);
+        }
+        if (oldVersion < 14) {
+            // The insert and delete triggers learn to ignore moves to and from cold storage
+            for (String trigger : new String[]{"expenses_log_insert", "expenses_log_delete", "stats_expense_insert",
+                    "stats_expense_update", "stats_expense_delete", "profile_expense_insert", "profile_expense_update",
+                    "profile_expense_delete"}) {
+                db.execSQL("DROP TRIGGER IF EXISTS " + trigger);
             }
+            createChangeLogTriggers(db);
+            createSpendingStatsTriggers(db);
+            createDayProfileTriggers(db);
+        }
+        if (oldVersion < 15 && oldVersion >= 7) {
+            db.execSQL("ALTER TABLE " + TABLE_EXPENSES + " ADD COLUMN " + COLUMN_EXPENSE_AUTO_CATEGORY
+                    + " INTEGER NOT NULL DEFAULT 0");
+        }
+        if (oldVersion < 15) {
+            // Nothing recorded how older rows got their category, so they count as chosen by hand,
+            // except that the user may let the rules have the catch-all ones once
+            // (settleUntrackedCategories)
+            db.execSQL("UPDATE " + TABLE_EXPENSES + " SET " + COLUMN_EXPENSE_AUTO_CATEGORY + " = " + AUTO_CATEGORY_UNTRACKED
+                    + " WHERE " + SQL_CATCH_ALL, new Object[]{Categories.fallbackFor(Categories.TYPE_EXPENSE),
+                    Categories.fallbackFor(Categories.TYPE_INCOME)});
         }
-        return userDetails;
     }
 
-
     /**
-     * Checks if a user exists with the given email and password*/
-    public boolean checkUser(String email, String password) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        String[] columns = {COLUMN_USER_EMAIL};
-
-        // *** HASH THE LOGIN PASSWORD ATTEMPT ***
-        String hashedPasswordAttempt = hashPassword(password);
-        String selection = COLUMN_USER_EMAIL + " = ?" + " AND " + COLUMN_USER_PASSWORD + " = ?";
-
-        String lowerCaseEmail = email.toLowerCase(Locale.ROOT);
-        String[] selectionArgs = {lowerCaseEmail, hashedPasswordAttempt};
-
-        Cursor cursor = null;
-        int cursorCount = 0;
+     * The SQLite library version, e.g. "3.39.2". It comes with the OS, so features such as
+     * VACUUM INTO or PRAGMA optimize depend on the Android release.
+     */
+    String sqliteVersion() {
+        return DatabaseUtils.stringForQuery(getReadableDatabase(), "SELECT sqlite_version()", null);
+    }
 
+    /**
+     * True if {@code version} is SQLite 3.{@code minor} or newer.
+     */
+    static boolean isSqliteAtLeast(String version, int minor) {
+        String[] parts = version.split("\\.");
         try {
-            cursor = db.query(TABLE_USERS, columns, selection, selectionArgs, null, null, null);
-            cursorCount = cursor.getCount();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            if (db != null && db.isOpen()) {
-                db.close();
-            }
+            int major = Integer.parseInt(parts[0]);
+            int actualMinor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            return major > 3 || (major == 3 && actualMinor >= minor);
+        } catch (NumberFormatException e) {
+            return false;
         }
-        return cursorCount > 0;
     }
 
     // -------------------------------------------------------------------------
@@ -272,26 +1027,20 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     public double getTotalBalance(String userEmail) {
         double totalBalance = 0.0;
+        QueryTracer.Span span = QueryTracer.begin("getTotalBalance");
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = null;
-
-        String query = "SELECT " + COLUMN_EXPENSE_TYPE + ", SUM(" + COLUMN_EXPENSE_AMOUNT + ") AS TotalAmount FROM " + TABLE_EXPENSES +
-                " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ? " +
-                " GROUP BY " + COLUMN_EXPENSE_TYPE;
+        int rows = 0;
 
         try {
-            cursor = db.rawQuery(query, new String[]{userEmail});
+            cursor = db.rawQuery(SQL_TOTAL_BALANCE, new String[]{userEmail});
+            rows = cursor.getCount();
 
             if (cursor.moveToFirst()) {
                 do {
                     String type = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_TYPE));
                     double total = cursor.getDouble(cursor.getColumnIndexOrThrow("TotalAmount"));
-
-                    if (type.equals("Income")) {
-                        totalBalance += total;
-                    } else if (type.equals("Expense")) {
-                        totalBalance -= total;
-                    }
+                    totalBalance += TransactionAggregator.signedAmount(type, total);
                 } while (cursor.moveToNext());
             }
         } catch (Exception e) {
@@ -300,45 +1049,68 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null) {
                 cursor.close();
             }
-            if (db != null && db.isOpen()) {
-                db.close();
-            }
+            span.end(rows, 8L * rows);
         }
         return totalBalance;
     }
 
     /**
      * Calculates the total amount for a given transaction type (Income/Expense)
-     * for a specific user and month.
+     * for a specific user and month, in the base currency.
      */
     public double getMonthlyTotal(String userEmail, String monthYearFilter, String type) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        double total = 0.0;
-        Cursor cursor = null;
+        // Timed through getMonthlyTotals, which answers both types at once
+        Double total = getMonthlyTotals(userEmail, monthYearFilter).get(type);
+        return total != null ? total : 0.0;
+    }
 
-        // LIKE ? to match transactions for the entire month (e.g., '2025-10%')
-        String query = "SELECT SUM(" + COLUMN_EXPENSE_AMOUNT + ") FROM " + TABLE_EXPENSES +
-                " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ?" +
-                " AND " + COLUMN_EXPENSE_DATE + " LIKE ?" +
-                " AND " + COLUMN_EXPENSE_TYPE + " = ?";
+    /**
+     * Income and expense totals for a month in the base currency, keyed by type. A cached month
+     * is one primary-key lookup in monthly_totals. Otherwise both types are converted and summed
+     * in one query and cached in the same transaction, so an edit made meanwhile cannot leave a
+     * stale entry behind.
+     */
+    public Map<String, Double> getMonthlyTotals(String userEmail, String monthYearFilter) {
+        Map<String, Double> totals = new HashMap<>();
+        QueryTracer.Span span = QueryTracer.begin("getMonthlyTotals");
+        SQLiteDatabase db = this.getReadableDatabase();
 
         try {
-            cursor = db.rawQuery(query, new String[]{userEmail, monthYearFilter + "%", type});
-
-            if (cursor.moveToFirst()) {
-                total = cursor.getDouble(0);
+            readTotals(db, SQL_CACHED_MONTHLY_TOTALS, new String[]{userEmail, monthYearFilter}, totals);
+            if (totals.isEmpty()) {
+                db = this.getWritableDatabase();
+                db.beginTransaction();
+                try {
+                    // Date range covering the entire month (e.g., '2025-10' <= date < '2025-11')
+                    readTotals(db, SQL_MONTHLY_TOTALS, new String[]{userEmail,
+                            MonthRange.start(monthYearFilter), MonthRange.end(monthYearFilter)}, totals);
+                    for (String type : new String[]{Categories.TYPE_INCOME, Categories.TYPE_EXPENSE}) {
+                        if (!totals.containsKey(type)) {
+                            totals.put(type, 0.0);
+                        }
+                        db.execSQL("INSERT OR REPLACE INTO " + TABLE_MONTHLY_TOTALS + " VALUES (?, ?, ?, ?)",
+                                new Object[]{userEmail, monthYearFilter, type, totals.get(type)});
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
             }
         } catch (Exception e) {
-            Log.e(TAG, "Error calculating monthly total for type " + type + ": " + e.getMessage());
+            Log.e(TAG, "Error calculating monthly totals: " + e.getMessage());
         } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            if (db != null && db.isOpen()) {
-                db.close();
+            span.end(totals.size(), 16L * totals.size());
+        }
+        return totals;
+    }
+
+    private static void readTotals(SQLiteDatabase db, String sql, String[] args, Map<String, Double> totals) {
+        try (Cursor cursor = db.rawQuery(sql, args)) {
+            while (cursor.moveToNext()) {
+                // Hot and cold rows of the same type add up
+                totals.merge(cursor.getString(0), cursor.isNull(1) ? 0.0 : cursor.getDouble(1), Double::sum);
             }
         }
-        return total;
     }
 
     /**
@@ -354,6 +1126,24 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * Inserts a new expense/income transaction.
      */
     public boolean insertExpense(String userEmail, String category, double amount, String date, String note, String type) {
+        return insertExpenseAndGetId(userEmail, category, amount, date, note, type) != -1;
+    }
+
+    /**
+     * Same as {@link #insertExpense}, but returns the new row id (-1 on failure) for callers
+     * that need to refer to the row later, such as trace replay.
+     */
+    public long insertExpenseAndGetId(String userEmail, String category, double amount, String date, String note, String type) {
+        return insertExpenseAndGetId(userEmail, category, amount, date, note, type, Currencies.BASE);
+    }
+
+    /**
+     * Inserts a transaction recorded in {@code currency} (an ISO 4217 code); returns the row id
+     * or -1. Totals convert it with {@link #setFxRate} rates.
+     */
+    public long insertExpenseAndGetId(String userEmail, String category, double amount, String date, String note, String type,
+                                      String currency) {
+        QueryTracer.Span span = QueryTracer.begin("insertExpense");
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COLUMN_EXPENSE_USER_EMAIL, userEmail);
@@ -362,18 +1152,31 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_EXPENSE_DATE, date);
         values.put(COLUMN_EXPENSE_NOTE, note);
         values.put(COLUMN_EXPENSE_TYPE, type);
+        values.put(COLUMN_EXPENSE_CURRENCY, currency);
 
         long result = db.insert(TABLE_EXPENSES, null, values);
-        if (db != null && db.isOpen()) {
-            db.close();
+        span.end(result != -1 ? 1 : 0, 0);
+        if (result != -1) {
+            dataChanged();
         }
-        return result != -1;
+        return result;
     }
 
     /**
      * Updates an existing expense/income transaction.
      */
     public boolean updateExpense(long id, String userEmail, String category, double amount, String date, String note, String type) {
+        // Keeps the transaction's currency
+        return updateExpense(id, userEmail, category, amount, date, note, type, null);
+    }
+
+    /**
+     * Updates a transaction, including its currency unless {@code currency} is null. The
+     * category counts as chosen by hand from then on, so {@link #autoCategorizeHistory} leaves it.
+     */
+    public boolean updateExpense(long id, String userEmail, String category, double amount, String date, String note, String type,
+                                 String currency) {
+        QueryTracer.Span span = QueryTracer.begin("updateExpense");
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COLUMN_EXPENSE_USER_EMAIL, userEmail);
@@ -382,11 +1185,16 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_EXPENSE_DATE, date);
         values.put(COLUMN_EXPENSE_NOTE, note);
         values.put(COLUMN_EXPENSE_TYPE, type);
+        values.put(COLUMN_EXPENSE_AUTO_CATEGORY, 0);
+        if (currency != null) {
+            values.put(COLUMN_EXPENSE_CURRENCY, currency);
+        }
 
         int rowsAffected = db.update(TABLE_EXPENSES, values, COLUMN_EXPENSE_ID + " = ?",
                 new String[]{String.valueOf(id)});
-        if (db != null && db.isOpen()) {
-            db.close();
+        span.end(rowsAffected, 0);
+        if (rowsAffected > 0) {
+            dataChanged();
         }
         return rowsAffected > 0;
     }
@@ -395,25 +1203,17 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * Fetches a single transaction by its ID. (FIXED RESOURCE CLOSURE)
      */
     public Transaction getTransactionById(long id) {
+        QueryTracer.Span span = QueryTracer.begin("getTransactionById");
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = null;
         Transaction transaction = null;
 
-        String selectQuery = "SELECT * FROM " + TABLE_EXPENSES + " WHERE " + COLUMN_EXPENSE_ID + " = ?";
-
         try {
-            cursor = db.rawQuery(selectQuery, new String[]{String.valueOf(id)});
+            cursor = db.rawQuery(SQL_TRANSACTION_BY_ID, new String[]{String.valueOf(id)});
 
             if (cursor.moveToFirst()) {
-                long transactionId = id;
-                String userEmail = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_USER_EMAIL));
-                String type = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_TYPE));
-                String category = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_CATEGORY));
-                double amount = cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_AMOUNT));
-                String date = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_DATE));
-                String note = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_NOTE));
-
-                transaction = new Transaction(transactionId, userEmail, type, category, amount, date, note);
+                CursorRow row = new CursorRow(cursor);
+                transaction = new TransactionRowMapper<>(row, Transaction::new).map(row);
             } else {
                 Log.w(TAG, "Transaction not found for ID: " + id);
             }
@@ -424,10 +1224,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null) {
                 cursor.close();
             }
-            // *** CRITICAL FIX: Ensure the database connection is closed safely ***
-            if (db != null && db.isOpen()) {
-                db.close();
-            }
+            span.end(transaction != null ? 1 : 0, QueryTracer.approximateBytes(transaction));
         }
         return transaction;
     }
@@ -436,11 +1233,13 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * Deletes a transaction by its ID.
      */
     public boolean deleteTransaction(long transactionId) {
+        QueryTracer.Span span = QueryTracer.begin("deleteTransaction");
         SQLiteDatabase db = this.getWritableDatabase();
         int result = db.delete(TABLE_EXPENSES, COLUMN_EXPENSE_ID + " = ?",
                 new String[]{String.valueOf(transactionId)});
-        if (db != null && db.isOpen()) {
-            db.close();
+        span.end(result, 0);
+        if (result > 0) {
+            dataChanged();
         }
         return result > 0;
     }
@@ -450,29 +1249,26 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     public List<Transaction> getMonthlyTransactions(String userEmail, String monthYearFilter) {
         List<Transaction> transactionList = new ArrayList<>();
+        QueryTracer.Span span = QueryTracer.begin("getMonthlyTransactions");
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = null;
 
-        String selectQuery = "SELECT * FROM " + TABLE_EXPENSES
-                + " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ? AND "
-                + COLUMN_EXPENSE_DATE + " LIKE ?"
-                + " ORDER BY " + COLUMN_EXPENSE_DATE + " DESC, " + COLUMN_EXPENSE_ID + " DESC";
-
         try {
-            cursor = db.rawQuery(selectQuery, new String[]{userEmail, monthYearFilter + "%"});
+            cursor = db.rawQuery(SQL_MONTHLY_TRANSACTIONS, new String[]{userEmail,
+                    MonthRange.start(monthYearFilter), MonthRange.end(monthYearFilter)});
 
             if (cursor.moveToFirst()) {
-                do {
-                    long id = cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_ID));
-                    String type = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_TYPE));
-                    String category = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_CATEGORY));
-                    double amount = cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_AMOUNT));
-                    String date = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_DATE));
-                    String note = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_NOTE));
-
-                    Transaction transaction = new Transaction(id, userEmail, type, category, amount, date, note);
-                    transactionList.add(transaction);
-                } while (cursor.moveToNext());
+                // Column indices are resolved once, not once per row and column
+                CursorRow row = new CursorRow(cursor);
+                TransactionRowMapper<Transaction> mapper = new TransactionRowMapper<>(row, Transaction::new);
+                TraceSection.begin(TraceSection.MAP);
+                try {
+                    do {
+                        transactionList.add(mapper.map(row));
+                    } while (cursor.moveToNext());
+                } finally {
+                    TraceSection.end();
+                }
             }
         } catch (Exception e) {
             Log.e(TAG, "Error fetching monthly transactions: " + e.getMessage());
@@ -480,9 +1276,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null) {
                 cursor.close();
             }
-            if (db != null && db.isOpen()) {
-                db.close();
-            }
+            span.end(transactionList.size(), QueryTracer.approximateBytes(transactionList));
         }
         return transactionList;
     }
@@ -491,9 +1285,11 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * Calculates the total income and total expense for a given month and year.
      */
     public Map<String, Double> getMonthlySummary(String userEmail, String monthYearFilter) {
+        // Timed through getMonthlyTotals rather than as its own method
+        Map<String, Double> totals = getMonthlyTotals(userEmail, monthYearFilter);
         Map<String, Double> summary = new HashMap<>();
-        summary.put("monthly_income", getMonthlyTotal(userEmail, monthYearFilter, "Income"));
-        summary.put("monthly_expense", getMonthlyTotal(userEmail, monthYearFilter, "Expense"));
+        summary.put("monthly_income", totals.containsKey("Income") ? totals.get("Income") : 0.0);
+        summary.put("monthly_expense", totals.containsKey("Expense") ? totals.get("Expense") : 0.0);
         return summary;
     }
 
@@ -502,24 +1298,21 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     public Map<String, Double> getMonthlyCategoryExpenses(String userEmail, String monthYearFilter) {
         Map<String, Double> categoryExpenses = new HashMap<>();
+        QueryTracer.Span span = QueryTracer.begin("getMonthlyCategoryExpenses");
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = null;
-
-        String query = "SELECT " + COLUMN_EXPENSE_CATEGORY + ", SUM(" + COLUMN_EXPENSE_AMOUNT + ") AS TotalAmount FROM " + TABLE_EXPENSES +
-                " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ? AND " +
-                COLUMN_EXPENSE_DATE + " LIKE ? AND " +
-                COLUMN_EXPENSE_TYPE + " = 'Expense' " +
-                " GROUP BY " + COLUMN_EXPENSE_CATEGORY +
-                " ORDER BY TotalAmount DESC";
+        long bytes = 0;
 
         try {
-            cursor = db.rawQuery(query, new String[]{userEmail, monthYearFilter + "%"});
+            cursor = db.rawQuery(SQL_MONTHLY_CATEGORY_EXPENSES, new String[]{userEmail,
+                    MonthRange.start(monthYearFilter), MonthRange.end(monthYearFilter)});
 
             if (cursor.moveToFirst()) {
                 do {
                     String category = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_CATEGORY));
                     double total = cursor.getDouble(cursor.getColumnIndexOrThrow("TotalAmount"));
                     categoryExpenses.put(category, total);
+                    bytes += QueryTracer.approximateBytes(category) + 8;
                 } while (cursor.moveToNext());
             }
         } catch (Exception e) {
@@ -528,9 +1321,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null) {
                 cursor.close();
             }
-            if (db != null && db.isOpen()) {
-                db.close();
-            }
+            span.end(categoryExpenses.size(), bytes);
         }
         return categoryExpenses;
     }
@@ -540,29 +1331,25 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     public List<Transaction> getRecentTransactions(String userEmail, int limit) {
         List<Transaction> transactionList = new ArrayList<>();
+        QueryTracer.Span span = QueryTracer.begin("getRecentTransactions");
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = null;
 
-        String selectQuery = "SELECT * FROM " + TABLE_EXPENSES
-                + " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ? "
-                + " ORDER BY " + COLUMN_EXPENSE_DATE + " DESC, " + COLUMN_EXPENSE_ID + " DESC"
-                + " LIMIT " + limit;
-
         try {
-            cursor = db.rawQuery(selectQuery, new String[]{userEmail});
+            cursor = db.rawQuery(SQL_RECENT_TRANSACTIONS_PREFIX + limit, new String[]{userEmail});
 
             if (cursor.moveToFirst()) {
-                do {
-                    long id = cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_ID));
-                    String type = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_TYPE));
-                    String category = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_CATEGORY));
-                    double amount = cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_AMOUNT));
-                    String date = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_DATE));
-                    String note = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_NOTE));
-
-                    Transaction transaction = new Transaction(id, userEmail, type, category, amount, date, note);
-                    transactionList.add(transaction);
-                } while (cursor.moveToNext());
+                // Column indices are resolved once, not once per row and column
+                CursorRow row = new CursorRow(cursor);
+                TransactionRowMapper<Transaction> mapper = new TransactionRowMapper<>(row, Transaction::new);
+                TraceSection.begin(TraceSection.MAP);
+                try {
+                    do {
+                        transactionList.add(mapper.map(row));
+                    } while (cursor.moveToNext());
+                } finally {
+                    TraceSection.end();
+                }
             }
         } catch (Exception e) {
             Log.e(TAG, "Error fetching recent transactions: " + e.getMessage());
@@ -570,10 +1357,1802 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null) {
                 cursor.close();
             }
-            if (db != null && db.isOpen()) {
-                db.close();
+            span.end(transactionList.size(), QueryTracer.approximateBytes(transactionList));
+        }
+        return transactionList;
+    }
+
+    /**
+     * The dashboard for {@code monthYearFilter}: balance, the month's totals and the newest
+     * transactions, read with a single query ({@link #SQL_DASHBOARD}).
+     *
+     * @return the snapshot, or null if the query failed.
+     */
+    public WidgetSnapshot getDashboard(String userEmail, String monthYearFilter) {
+        QueryTracer.Span span = QueryTracer.begin("getDashboard");
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        WidgetSnapshot snapshot = null;
+        int rows = 0;
+
+        try {
+            cursor = db.rawQuery(SQL_DASHBOARD, new String[]{userEmail,
+                    MonthRange.start(monthYearFilter), MonthRange.end(monthYearFilter)});
+            rows = cursor.getCount();
+            double balance = 0;
+            double monthIncome = 0;
+            double monthExpense = 0;
+            List<WidgetSnapshot.Item> recent = new ArrayList<>();
+            while (cursor.moveToNext()) {
+                String type = cursor.getString(1);
+                double amount = cursor.getDouble(2);
+                switch (cursor.getInt(0)) {
+                    case 0:
+                        balance += TransactionAggregator.signedAmount(type, amount);
+                        break;
+                    case 1:
+                        if (Categories.TYPE_INCOME.equals(type)) {
+                            monthIncome = amount;
+                        } else {
+                            monthExpense = amount;
+                        }
+                        break;
+                    default:
+                        // Compound parts come back in order, so these are still newest first
+                        recent.add(new WidgetSnapshot.Item(cursor.getLong(6), type, cursor.getString(3), amount,
+                                cursor.getString(4), cursor.getString(5), cursor.isNull(7) ? "" : cursor.getString(7)));
+                        break;
+                }
+            }
+            snapshot = new WidgetSnapshot(System.currentTimeMillis(), monthYearFilter, balance, monthIncome, monthExpense, recent);
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading dashboard: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            span.end(rows, 48L * rows);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Runs a {@link TransactionQuery}, handing each row to {@code sink} as it is read, so callers
+     * that aggregate or export never hold the whole result in memory.
+     *
+     * @return the number of rows delivered.
+     */
+    public int queryTransactions(TransactionQuery query, Consumer<? super Transaction> sink) {
+        return queryTransactions(query, null, sink);
+    }
+
+    /**
+     * As {@link #queryTransactions(TransactionQuery, Consumer)}, stopping early once
+     * {@code cancellationSignal} is cancelled; the rows delivered by then are a partial result.
+     */
+    public int queryTransactions(TransactionQuery query, CancellationSignal cancellationSignal,
+                                 Consumer<? super Transaction> sink) {
+        return runTransactionQuery("queryTransactions", this.getReadableDatabase(), query, cancellationSignal, sink);
+    }
+
+    private static int runTransactionQuery(String method, SQLiteDatabase db, TransactionQuery query,
+                                           CancellationSignal cancellationSignal, Consumer<? super Transaction> sink) {
+        QueryTracer.Span span = QueryTracer.begin(method);
+        Cursor cursor = null;
+        int rows = 0;
+        long bytes = 0;
+
+        try {
+            cursor = db.rawQuery(query.sql(), query.args(), cancellationSignal);
+
+            if (cursor.moveToFirst()) {
+                CursorRow row = new CursorRow(cursor);
+                TransactionRowMapper<Transaction> mapper = new TransactionRowMapper<>(row, Transaction::new);
+                TraceSection.begin(TraceSection.MAP);
+                try {
+                    do {
+                        Transaction transaction = mapper.map(row);
+                        bytes += QueryTracer.approximateBytes(transaction);
+                        rows++;
+                        sink.accept(transaction);
+                    } while (cursor.moveToNext());
+                } finally {
+                    TraceSection.end();
+                }
+            }
+        } catch (OperationCanceledException e) {
+            // Superseded; the caller throws the partial result away
+        } catch (Exception e) {
+            Log.e(TAG, "Error running transaction query: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
             }
+            span.end(rows, bytes);
         }
+        return rows;
+    }
+
+    /**
+     * Every row of a {@link TransactionQuery}, for lists.
+     */
+    public List<Transaction> getTransactions(TransactionQuery query) {
+        return getTransactions(query, null);
+    }
+
+    public List<Transaction> getTransactions(TransactionQuery query, CancellationSignal cancellationSignal) {
+        List<Transaction> transactionList = new ArrayList<>();
+        queryTransactions(query, cancellationSignal, transactionList::add);
         return transactionList;
     }
-}
\ No newline at end of file
+
+    // -------------------------------------------------------------------------
+    // --- Batch Methods ---
+    // -------------------------------------------------------------------------
+
+    /**
+     * Deletes every listed transaction in one SQL transaction.
+     *
+     * @return rows deleted; 0 if the batch failed and was rolled back.
+     */
+    public int deleteTransactions(Collection<Long> ids) {
+        return updateBatch("deleteTransactions", "DELETE FROM " + TABLE_EXPENSES, "", ids);
+    }
+
+    /**
+     * Moves every listed transaction of {@code type} to {@code category}; rows of the other
+     * type are left alone, since categories are only valid for one type.
+     */
+    public int recategorizeTransactions(Collection<Long> ids, String type, String category) {
+        return updateBatch("recategorizeTransactions", "UPDATE " + TABLE_EXPENSES
+                        + " SET " + COLUMN_EXPENSE_CATEGORY + " = ?, " + COLUMN_EXPENSE_AUTO_CATEGORY + " = 0",
+                COLUMN_EXPENSE_TYPE + " = ? AND ", ids, category, type);
+    }
+
+    /**
+     * Moves every listed transaction by {@code days} (negative moves back), letting SQLite's
+     * date() carry across month and year ends.
+     */
+    public int shiftTransactionDates(Collection<Long> ids, int days) {
+        return updateBatch("shiftTransactionDates", "UPDATE " + TABLE_EXPENSES
+                        + " SET " + COLUMN_EXPENSE_DATE + " = date(" + COLUMN_EXPENSE_DATE + ", ?)",
+                "", ids, String.format(Locale.US, "%+d days", days));
+    }
+
+    /**
+     * Runs {@code statement} against the listed rows as a few set-based statements, one per
+     * {@link #BATCH_ID_CHUNK} ids, inside a single transaction: one commit and one WAL sync
+     * whatever the selection size. {@code filter} is prepended to the id list in the WHERE
+     * clause; {@code args} bind the parameters of {@code statement} and {@code filter}, in order.
+     */
+    private int updateBatch(String method, String statement, String filter, Collection<Long> ids, String... args) {
+        QueryTracer.Span span = QueryTracer.begin(method);
+        int affected = 0;
+        if (ids.isEmpty()) {
+            span.end(0, 0);
+            return 0;
+        }
+        String prefix = statement + " WHERE " + filter + COLUMN_EXPENSE_ID + " IN (";
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement fullChunk = null;
+        db.beginTransaction();
+        try {
+            Long[] pending = ids.toArray(new Long[0]);
+            for (int start = 0; start < pending.length; start += BATCH_ID_CHUNK) {
+                int size = Math.min(BATCH_ID_CHUNK, pending.length - start);
+                SQLiteStatement chunk;
+                if (size == BATCH_ID_CHUNK) {
+                    // Every full chunk reuses one compiled statement
+                    if (fullChunk == null) {
+                        fullChunk = db.compileStatement(prefix + placeholders(size) + ")");
+                    }
+                    chunk = fullChunk;
+                } else {
+                    chunk = db.compileStatement(prefix + placeholders(size) + ")");
+                }
+                try {
+                    chunk.clearBindings();
+                    for (int i = 0; i < args.length; i++) {
+                        chunk.bindString(i + 1, args[i]);
+                    }
+                    for (int i = 0; i < size; i++) {
+                        chunk.bindLong(args.length + i + 1, pending[start + i]);
+                    }
+                    affected += chunk.executeUpdateDelete();
+                } finally {
+                    if (chunk != fullChunk) {
+                        chunk.close();
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "Error in " + method + ": " + e.getMessage());
+            affected = 0;
+        } finally {
+            db.endTransaction();
+            if (fullChunk != null) {
+                fullChunk.close();
+            }
+            span.end(affected, 0);
+        }
+        if (affected > 0) {
+            dataChanged();
+        }
+        return affected;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder builder = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "?" : ", ?");
+        }
+        return builder.toString();
+    }
+
+    // -------------------------------------------------------------------------
+    // --- Currency Methods ---
+    // -------------------------------------------------------------------------
+
+    /**
+     * Records that one unit of {@code currency} is worth {@code rate} units of the base currency
+     * from {@code date} (YYYY-MM-DD) until the next recorded rate. Replaces a rate already
+     * recorded for that day.
+     */
+    public boolean setFxRate(String currency, String date, double rate) {
+        if (Currencies.BASE.equals(currency) || rate <= 0) {
+            return false;
+        }
+        QueryTracer.Span span = QueryTracer.begin("setFxRate");
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_FX_CURRENCY, currency);
+        values.put(COLUMN_FX_DATE, date);
+        values.put(COLUMN_FX_RATE, rate);
+
+        long result = db.insertWithOnConflict(TABLE_FX_RATES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        span.end(result != -1 ? 1 : 0, 0);
+        if (result != -1) {
+            dataChanged();
+        }
+        return result != -1;
+    }
+
+    /**
+     * The rate totals use for {@code currency} on {@code date}: 1 for the base currency, 0 if
+     * no rate was ever recorded for it.
+     */
+    public double getFxRate(String currency, String date) {
+        if (Currencies.BASE.equals(currency)) {
+            return 1.0;
+        }
+        SQLiteDatabase db = this.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT " + rateLookup("?1", "?2"), new String[]{currency, date})) {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getDouble(0) : 0.0;
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading FX rate for " + currency + ": " + e.getMessage());
+            return 0.0;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // --- Anomaly Methods ---
+    // -------------------------------------------------------------------------
+
+    private static final String SQL_SPENDING_STATS = "SELECT " + COLUMN_STATS_COUNT + ", " + COLUMN_STATS_WEIGHT + ", "
+            + COLUMN_STATS_SUM + ", " + COLUMN_STATS_SQUARES + ", " + COLUMN_STATS_MONTHS + ", " + COLUMN_STATS_MONTH_WEIGHT + ", "
+            + COLUMN_STATS_MONTH_SUM + ", " + COLUMN_STATS_MONTH_SQUARES;
+
+    /**
+     * The transaction with its category's statistics and month total: three primary-key
+     * lookups, whatever the size of the history.
+     */
+    static final String SQL_ANOMALY_CHECK = SQL_SPENDING_STATS + ", e." + COLUMN_EXPENSE_AMOUNT + ", e." + COLUMN_EXPENSE_DATE
+            + ", m." + COLUMN_CATEGORY_MONTH_TOTAL + " FROM " + TABLE_EXPENSES + " e"
+            + " JOIN " + TABLE_CATEGORY_STATS + " s ON s." + COLUMN_STATS_USER_EMAIL + " = e." + COLUMN_EXPENSE_USER_EMAIL
+            + " AND s." + COLUMN_STATS_CATEGORY + " = e." + COLUMN_EXPENSE_CATEGORY
+            + " AND s." + COLUMN_STATS_CURRENCY + " = e." + COLUMN_EXPENSE_CURRENCY
+            + " JOIN " + TABLE_CATEGORY_MONTHS + " m ON m." + COLUMN_STATS_USER_EMAIL + " = e." + COLUMN_EXPENSE_USER_EMAIL
+            + " AND m." + COLUMN_STATS_CATEGORY + " = e." + COLUMN_EXPENSE_CATEGORY
+            + " AND m." + COLUMN_STATS_CURRENCY + " = e." + COLUMN_EXPENSE_CURRENCY
+            + " AND m." + COLUMN_CATEGORY_MONTH + " = substr(e." + COLUMN_EXPENSE_DATE + ", 1, 7)"
+            + " WHERE e." + COLUMN_EXPENSE_ID + " = ? AND e." + COLUMN_EXPENSE_TYPE + " = '" + Categories.TYPE_EXPENSE + "'";
+
+    /**
+     * The trigger-maintained statistics for one category's expenses in one currency, or null if
+     * it has none.
+     */
+    public SpendingStats getSpendingStats(String userEmail, String category, String currency) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        SpendingStats stats = null;
+
+        try {
+            cursor = db.rawQuery(SQL_SPENDING_STATS + " FROM " + TABLE_CATEGORY_STATS + " WHERE " + COLUMN_STATS_USER_EMAIL
+                    + " = ? AND " + COLUMN_STATS_CATEGORY + " = ? AND " + COLUMN_STATS_CURRENCY + " = ?",
+                    new String[]{userEmail, category, currency});
+            if (cursor.moveToFirst()) {
+                stats = readSpendingStats(cursor);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading spending stats: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Checks a saved expense against its category's history, in the expense's own currency.
+     *
+     * @return the anomaly, or null if nothing stands out, the transaction is income, or on error.
+     */
+    public SpendingStats.Anomaly findAnomaly(long transactionId) {
+        QueryTracer.Span span = QueryTracer.begin("findAnomaly");
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        SpendingStats.Anomaly anomaly = null;
+        int rows = 0;
+
+        try {
+            cursor = db.rawQuery(SQL_ANOMALY_CHECK, new String[]{String.valueOf(transactionId)});
+            rows = cursor.getCount();
+            if (cursor.moveToFirst()) {
+                anomaly = readSpendingStats(cursor).check(cursor.getDouble(8), cursor.getString(9).substring(0, 7), cursor.getDouble(10));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error checking transaction " + transactionId + " for anomalies: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            span.end(rows, 88L * rows);
+        }
+        return anomaly;
+    }
+
+    private static SpendingStats readSpendingStats(Cursor cursor) {
+        return new SpendingStats(cursor.getInt(0), cursor.getDouble(1), cursor.getDouble(2), cursor.getDouble(3),
+                cursor.getInt(4), cursor.getDouble(5), cursor.getDouble(6), cursor.getDouble(7));
+    }
+
+    // -------------------------------------------------------------------------
+    // --- Category Rule Methods ---
+    // -------------------------------------------------------------------------
+
+    /**
+     * Adds a keyword rule, or changes the category of an existing one for the same keyword.
+     *
+     * @return the rule id, or -1 if the keyword is blank, the category is not valid for
+     * {@code type}, or the insert failed.
+     */
+    public long insertCategoryRule(String keyword, String type, String category) {
+        String normalized = keyword == null ? "" : CategoryMatcher.normalize(keyword);
+        if (normalized.isEmpty() || !Categories.isValid(type, category)) {
+            return -1;
+        }
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_CATEGORY_RULE_KEYWORD, normalized);
+        values.put(COLUMN_CATEGORY_RULE_TYPE, type);
+        values.put(COLUMN_CATEGORY_RULE_CATEGORY, category);
+        long id = db.insertWithOnConflict(TABLE_CATEGORY_RULES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        categoryMatcher = null;
+        return id;
+    }
+
+    public boolean deleteCategoryRule(long ruleId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int result = db.delete(TABLE_CATEGORY_RULES, COLUMN_CATEGORY_RULE_ID + " = ?", new String[]{String.valueOf(ruleId)});
+        categoryMatcher = null;
+        return result > 0;
+    }
+
+    /**
+     * The user's own rules, by keyword. The built-in ones are {@link CategoryMatcher#SYSTEM_RULES}.
+     */
+    public List<CategoryMatcher.Rule> getCategoryRules() {
+        List<CategoryMatcher.Rule> rules = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE_CATEGORY_RULES, new String[]{COLUMN_CATEGORY_RULE_ID, COLUMN_CATEGORY_RULE_KEYWORD,
+                COLUMN_CATEGORY_RULE_TYPE, COLUMN_CATEGORY_RULE_CATEGORY}, null, null, null, null, COLUMN_CATEGORY_RULE_KEYWORD)) {
+            while (cursor.moveToNext()) {
+                rules.add(new CategoryMatcher.Rule(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getString(3)));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading category rules: " + e.getMessage());
+        }
+        return rules;
+    }
+
+    /**
+     * The built-in and user rules as one matcher, compiled on first use after a rule changes.
+     */
+    public CategoryMatcher getCategoryMatcher() {
+        CategoryMatcher matcher = categoryMatcher;
+        if (matcher == null) {
+            matcher = CategoryMatcher.compile(getCategoryRules());
+            categoryMatcher = matcher;
+        }
+        return matcher;
+    }
+
+    /**
+     * Gives imported transactions still in their type's catch-all category (see
+     * {@link Categories#fallbackFor}) the category a rule now picks from their note. Runs in
+     * transactions of {@link #CATEGORIZE_CHUNK} rows walking up the primary key, so it can be
+     * stopped between any two and a large history never holds the write lock for long. Only
+     * rows whose category the import chose are changed: anything entered, edited or
+     * re-categorized by the user, or synced from another device, keeps its category, even
+     * Miscellaneous or Other. Catch-all rows from before that was recorded join in only once the
+     * user lets them, through {@link #settleUntrackedCategories}.
+     *
+     * @param cancelled polled between chunks.
+     * @return the number of transactions re-categorized.
+     */
+    public int autoCategorizeHistory(BooleanSupplier cancelled) {
+        QueryTracer.Span span = QueryTracer.begin("autoCategorizeHistory");
+        CategoryMatcher matcher = getCategoryMatcher();
+        SQLiteDatabase db = this.getWritableDatabase();
+        String expenseFallback = Categories.fallbackFor(Categories.TYPE_EXPENSE);
+        String incomeFallback = Categories.fallbackFor(Categories.TYPE_INCOME);
+        String select = "SELECT " + COLUMN_EXPENSE_ID + ", " + COLUMN_EXPENSE_TYPE + ", " + COLUMN_EXPENSE_NOTE + " FROM " + TABLE_EXPENSES + " WHERE " + COLUMN_EXPENSE_ID + " > ?"
+                + " AND " + SQL_CATCH_ALL + " AND " + COLUMN_EXPENSE_AUTO_CATEGORY + " = 1"
+                + " ORDER BY " + COLUMN_EXPENSE_ID + " LIMIT " + CATEGORIZE_CHUNK;
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_EXPENSES + " SET " + COLUMN_EXPENSE_CATEGORY
+                + " = ? WHERE " + COLUMN_EXPENSE_ID + " = ?");
+        long lastId = 0;
+        int changed = 0;
+
+        try {
+            while (!cancelled.getAsBoolean()) {
+                int rows = 0;
+                // Read and written in one transaction, so an edit cannot land in between
+                db.beginTransaction();
+                try (Cursor cursor = db.rawQuery(select, new String[]{String.valueOf(lastId), expenseFallback, incomeFallback})) {
+                    while (cursor.moveToNext()) {
+                        rows++;
+                        lastId = cursor.getLong(0);
+                        String category = matcher.match(cursor.getString(1), cursor.getString(2));
+                        if (category == null) {
+                            continue;
+                        }
+                        update.bindString(1, category);
+                        update.bindLong(2, lastId);
+                        changed += update.executeUpdateDelete();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                if (rows < CATEGORIZE_CHUNK) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error categorizing history: " + e.getMessage());
+        } finally {
+            update.close();
+            span.end(changed, 0);
+        }
+        if (changed > 0) {
+            dataChanged();
+        }
+        return changed;
+    }
+
+    /**
+     * Catch-all transactions from before the database recorded whether the user or an import
+     * chose their category; the user has not yet said whether the rules may have them.
+     */
+    public int getUntrackedCategoryCount() {
+        QueryTracer.Span span = QueryTracer.begin("getUntrackedCategoryCount");
+        int count = (int) DatabaseUtils.longForQuery(this.getReadableDatabase(), "SELECT COUNT(*) FROM " + TABLE_EXPENSES
+                + " WHERE " + COLUMN_EXPENSE_AUTO_CATEGORY + " = " + AUTO_CATEGORY_UNTRACKED, null);
+        span.end(count, 0);
+        return count;
+    }
+
+    /**
+     * Records the user's one-time answer for the transactions {@link #getUntrackedCategoryCount}
+     * counts: with {@code byRules} they are treated as imported, so {@link #autoCategorizeHistory}
+     * and later rules re-categorize them; otherwise as chosen by hand.
+     *
+     * @return the number of transactions settled.
+     */
+    public int settleUntrackedCategories(boolean byRules) {
+        QueryTracer.Span span = QueryTracer.begin("settleUntrackedCategories");
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_EXPENSE_AUTO_CATEGORY, byRules ? 1 : 0);
+        int settled = this.getWritableDatabase().update(TABLE_EXPENSES, values,
+                COLUMN_EXPENSE_AUTO_CATEGORY + " = " + AUTO_CATEGORY_UNTRACKED, null);
+        span.end(settled, 0);
+        return settled;
+    }
+
+    // -------------------------------------------------------------------------
+    // --- Receipt Methods ---
+    // -------------------------------------------------------------------------
+
+    /**
+     * Attaches a receipt, stored in {@link ReceiptStore} under {@code receiptHash}, to a
+     * transaction, or removes it if the hash is null. Receipts stay on this device; they are
+     * not part of the transaction's synced fields.
+     */
+    public boolean setReceipt(long transactionId, String receiptHash) {
+        QueryTracer.Span span = QueryTracer.begin("setReceipt");
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_EXPENSE_RECEIPT_HASH, receiptHash);
+        int result = db.update(TABLE_EXPENSES, values, COLUMN_EXPENSE_ID + " = ?",
+                new String[]{String.valueOf(transactionId)});
+        span.end(result, 0);
+        return result > 0;
+    }
+
+    /**
+     * Every receipt hash the account's transactions reference, in cold storage too, for
+     * {@link ReceiptStore#deleteUnreferenced}.
+     *
+     * @return the hashes, or null on error.
+     */
+    public Set<String> getReceiptHashes() {
+        Set<String> hashes = new HashSet<>();
+        SQLiteDatabase cold = openColdStorage(SQLiteDatabase.OPEN_READONLY);
+        if (cold == null && coldStorageFile().exists()) {
+            // Unknown references must not let the caller delete files
+            return null;
+        }
+        List<SQLiteDatabase> sources = new ArrayList<>();
+        sources.add(this.getReadableDatabase());
+        if (cold != null) {
+            sources.add(cold);
+        }
+        try {
+            for (SQLiteDatabase db : sources) {
+                try (Cursor cursor = db.rawQuery("SELECT DISTINCT " + COLUMN_EXPENSE_RECEIPT_HASH + " FROM " + TABLE_EXPENSES
+                        + " WHERE " + COLUMN_EXPENSE_RECEIPT_HASH + " IS NOT NULL", null)) {
+                    while (cursor.moveToNext()) {
+                        hashes.add(cursor.getString(0));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading receipt hashes: " + e.getMessage());
+            return null;
+        } finally {
+            if (cold != null) {
+                cold.close();
+            }
+        }
+        return hashes;
+    }
+
+    // -------------------------------------------------------------------------
+    // --- Forecast Methods ---
+    // -------------------------------------------------------------------------
+
+    static final String SQL_DAY_PROFILES = "SELECT " + COLUMN_PROFILE_TYPE + ", " + COLUMN_PROFILE_CURRENCY + ", "
+            + COLUMN_PROFILE_DAY + ", " + COLUMN_PROFILE_SUM + ", " + COLUMN_PROFILE_SQUARES + " FROM " + TABLE_DAY_PROFILES
+            + " WHERE " + COLUMN_PROFILE_USER_EMAIL + " = ?";
+
+    // This month's and any later dates, which the profiles must not count as history
+    static final String SQL_DAILY_FLOWS_FROM = "SELECT " + COLUMN_FLOW_TYPE + ", " + COLUMN_FLOW_CURRENCY + ", "
+            + COLUMN_FLOW_DATE + ", " + COLUMN_FLOW_TOTAL + " FROM " + TABLE_DAILY_FLOWS
+            + " WHERE " + COLUMN_FLOW_USER_EMAIL + " = ? AND " + COLUMN_FLOW_DATE + " >= ?";
+
+    // Cold storage holds the oldest dates, if it holds any
+    static final String SQL_FIRST_DATE = "SELECT MIN(" + COLUMN_EXPENSE_DATE + ") FROM (SELECT MIN(" + COLUMN_EXPENSE_DATE
+            + ") AS " + COLUMN_EXPENSE_DATE + " FROM " + TABLE_EXPENSES + " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ?1"
+            + " UNION ALL SELECT MIN(" + COLUMN_COLD_DATE + ") FROM " + TABLE_COLD_TOTALS + " WHERE " + COLUMN_COLD_USER_EMAIL + " = ?1)";
+
+    /**
+     * Forecasts the rest of {@code today}'s month from the stored day-of-month profiles and the
+     * user's recurring rules. The work depends on the number of days, currencies and rules, not
+     * on the length of the history, so it is cheap to redo whenever the dashboard refreshes.
+     *
+     * @param today yyyy-MM-dd; the forecast covers the days after it.
+     * @return the forecast, or null on error.
+     */
+    public CashFlowForecast getForecast(String userEmail, String today) {
+        QueryTracer.Span span = QueryTracer.begin("getForecast");
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        CashFlowForecast forecast = null;
+        int rows = 0;
+        String month = today.substring(0, 7);
+        String lastDay = month + "-" + CashFlowForecast.daysIn(month);
+
+        try {
+            String firstDate = DatabaseUtils.stringForQuery(db, SQL_FIRST_DATE, new String[]{userEmail});
+            CashFlowForecast.Builder builder = new CashFlowForecast.Builder(today, firstDate == null ? null : firstDate.substring(0, 7));
+
+            cursor = db.rawQuery(SQL_DAY_PROFILES, new String[]{userEmail});
+            rows += cursor.getCount();
+            while (cursor.moveToNext()) {
+                builder.profile(cursor.getString(0), cursor.getString(1), cursor.getInt(2), cursor.getDouble(3), cursor.getDouble(4));
+            }
+            cursor.close();
+
+            cursor = db.rawQuery(SQL_DAILY_FLOWS_FROM, new String[]{userEmail, MonthRange.start(month)});
+            rows += cursor.getCount();
+            while (cursor.moveToNext()) {
+                builder.exclude(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getDouble(3));
+            }
+            cursor.close();
+
+            // Rules not yet caught up this month still count from their next occurrence
+            cursor = db.rawQuery(SQL_DUE_RECURRING_RULES, new String[]{userEmail, lastDay});
+            rows += cursor.getCount();
+            int typeIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_TYPE);
+            int amountIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_AMOUNT);
+            int frequencyIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_FREQUENCY);
+            int intervalIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_INTERVAL_DAYS);
+            int anchorIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_ANCHOR_DAY);
+            int nextDateIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_NEXT_DATE);
+            while (cursor.moveToNext()) {
+                for (String date : Recurrence.occurrencesUpTo(cursor.getString(nextDateIndex), lastDay,
+                        cursor.getString(frequencyIndex), cursor.getInt(intervalIndex), cursor.getInt(anchorIndex))) {
+                    if (date.compareTo(MonthRange.start(month)) >= 0) {
+                        builder.recurring(cursor.getString(typeIndex), cursor.getDouble(amountIndex));
+                    }
+                }
+            }
+
+            forecast = builder.build(currency -> getFxRate(currency, today));
+        } catch (Exception e) {
+            Log.e(TAG, "Error forecasting " + month + ": " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            span.end(rows, 40L * rows);
+        }
+        return forecast;
+    }
+
+    // -------------------------------------------------------------------------
+    // --- Recurring Transaction Methods ---
+    // -------------------------------------------------------------------------
+
+    /**
+     * Stores a recurring rule once. Nothing is inserted into expenses here; occurrences are
+     * created by {@link #materializeRecurringTransactions(String, String)}.
+     */
+    public boolean insertRecurringRule(String userEmail, String category, double amount, String startDate, String note,
+                                       String type, String frequency, int intervalDays) {
+        QueryTracer.Span span = QueryTracer.begin("insertRecurringRule");
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_RULE_USER_EMAIL, userEmail);
+        values.put(COLUMN_RULE_CATEGORY, category);
+        values.put(COLUMN_RULE_AMOUNT, amount);
+        values.put(COLUMN_RULE_NOTE, note);
+        values.put(COLUMN_RULE_TYPE, type);
+        values.put(COLUMN_RULE_FREQUENCY, frequency);
+        values.put(COLUMN_RULE_INTERVAL_DAYS, intervalDays);
+        values.put(COLUMN_RULE_ANCHOR_DAY, Recurrence.dayOfMonth(startDate));
+        values.put(COLUMN_RULE_NEXT_DATE, startDate);
+
+        long result = db.insert(TABLE_RECURRING, null, values);
+        span.end(result != -1 ? 1 : 0, 0);
+        return result != -1;
+    }
+
+    /**
+     * Creates every due occurrence of the user's recurring rules up to and including {@code today}
+     * (yyyy-MM-dd). All inserts and rule updates run inside one SQL transaction through a single
+     * compiled statement, so catching up after months offline is still one bulk write.
+     *
+     * @return the number of transactions created.
+     */
+    public int materializeRecurringTransactions(String userEmail, String today) {
+        QueryTracer.Span span = QueryTracer.begin("materializeRecurringTransactions");
+        SQLiteDatabase db = this.getWritableDatabase();
+        Cursor cursor = null;
+        SQLiteStatement insertStatement = null;
+        SQLiteStatement advanceStatement = null;
+        int created = 0;
+
+        db.beginTransaction();
+        try {
+            cursor = db.rawQuery(SQL_DUE_RECURRING_RULES, new String[]{userEmail, today});
+            if (cursor.moveToFirst()) {
+                insertStatement = db.compileStatement(SQL_INSERT_RECURRING_EXPENSE);
+                advanceStatement = db.compileStatement("UPDATE " + TABLE_RECURRING + " SET "
+                        + COLUMN_RULE_NEXT_DATE + " = ? WHERE " + COLUMN_RULE_ID + " = ?");
+
+                int idIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_ID);
+                int typeIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_TYPE);
+                int categoryIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_CATEGORY);
+                int amountIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_AMOUNT);
+                int noteIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_NOTE);
+                int frequencyIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_FREQUENCY);
+                int intervalIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_INTERVAL_DAYS);
+                int anchorIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_ANCHOR_DAY);
+                int nextDateIndex = cursor.getColumnIndexOrThrow(COLUMN_RULE_NEXT_DATE);
+
+                do {
+                    String type = cursor.getString(typeIndex);
+                    String category = cursor.getString(categoryIndex);
+                    double amount = cursor.getDouble(amountIndex);
+                    String note = cursor.isNull(noteIndex) ? "" : cursor.getString(noteIndex);
+                    String frequency = cursor.getString(frequencyIndex);
+                    int intervalDays = cursor.getInt(intervalIndex);
+                    int anchorDay = cursor.getInt(anchorIndex);
+
+                    List<String> dates = Recurrence.occurrencesUpTo(cursor.getString(nextDateIndex), today,
+                            frequency, intervalDays, anchorDay);
+                    for (String date : dates) {
+                        insertStatement.bindString(1, userEmail);
+                        insertStatement.bindString(2, type);
+                        insertStatement.bindString(3, category);
+                        insertStatement.bindDouble(4, amount);
+                        insertStatement.bindString(5, date);
+                        insertStatement.bindString(6, note);
+                        insertStatement.bindLong(7, cursor.getLong(idIndex));
+                        insertStatement.executeInsert();
+                        created++;
+                    }
+
+                    String lastDate = dates.get(dates.size() - 1);
+                    advanceStatement.bindString(1, Recurrence.nextOccurrence(lastDate, frequency, intervalDays, anchorDay));
+                    advanceStatement.bindLong(2, cursor.getLong(idIndex));
+                    advanceStatement.executeUpdateDelete();
+                } while (cursor.moveToNext());
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            created = 0;
+            Log.e(TAG, "Error materializing recurring transactions: " + e.getMessage());
+        } finally {
+            db.endTransaction();
+            if (cursor != null) {
+                cursor.close();
+            }
+            if (insertStatement != null) {
+                insertStatement.close();
+            }
+            if (advanceStatement != null) {
+                advanceStatement.close();
+            }
+            span.end(created, 0);
+        }
+        if (created > 0) {
+            dataChanged();
+        }
+        return created;
+    }
+
+    // -------------------------------------------------------------------------
+    // --- Sync Methods ---
+    // -------------------------------------------------------------------------
+
+    /**
+     * This database's identity towards the sync server and how far it has synced each way.
+     */
+    public static final class SyncState {
+        public final String deviceId;
+        public final long pushedVersion;
+        public final long pulledVersion;
+
+        SyncState(String deviceId, long pushedVersion, long pulledVersion) {
+            this.deviceId = deviceId;
+            this.pushedVersion = pushedVersion;
+            this.pulledVersion = pulledVersion;
+        }
+    }
+
+    /**
+     * One batch of local changes to push, and the change_log version it ends at.
+     */
+    public static final class PendingChanges {
+        public final List<SyncRecord> records;
+        public final long lastVersion;
+
+        PendingChanges(List<SyncRecord> records, long lastVersion) {
+            this.records = records;
+            this.lastVersion = lastVersion;
+        }
+    }
+
+    public SyncState getSyncState() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_SYNC_DEVICE_ID + ", " + COLUMN_SYNC_PUSHED_VERSION + ", "
+                + COLUMN_SYNC_PULLED_VERSION + " FROM " + TABLE_SYNC_STATE, null)) {
+            cursor.moveToFirst();
+            return new SyncState(cursor.getString(0), cursor.getLong(1), cursor.getLong(2));
+        }
+    }
+
+    /**
+     * Local changes made after change_log version {@code afterVersion}, oldest first, at most
+     * {@code limit}. Each transaction appears once, in its current state, read from cold storage
+     * if it has moved there since. A moved transaction that cannot be read from cold storage ends
+     * the batch before it, so it is pushed on a later sync and never as a delete.
+     */
+    public PendingChanges getPendingChanges(long afterVersion, int limit) {
+        QueryTracer.Span span = QueryTracer.begin("getPendingChanges");
+        SQLiteDatabase db = this.getReadableDatabase();
+        List<SyncRecord> records = new ArrayList<>();
+        List<Long> versions = new ArrayList<>();
+        // Positions in records of changes whose row has moved to cold storage; null until read
+        Map<Integer, String> moved = new TreeMap<>();
+        // The log and cold storage are read with no row crossing between them
+        synchronized (coldStorageLock) {
+            try (Cursor cursor = db.rawQuery("SELECT c." + COLUMN_CHANGE_VERSION + ", c." + COLUMN_CHANGE_SYNC_ID
+                    + ", c." + COLUMN_CHANGE_DELETED + ", c." + COLUMN_CHANGE_CHANGED_AT
+                    + ", e." + COLUMN_EXPENSE_ID + ", e." + COLUMN_EXPENSE_TYPE + ", e." + COLUMN_EXPENSE_CATEGORY
+                    + ", e." + COLUMN_EXPENSE_AMOUNT + ", e." + COLUMN_EXPENSE_DATE + ", e." + COLUMN_EXPENSE_NOTE
+                    + ", e." + COLUMN_EXPENSE_CURRENCY
+                    + " FROM " + TABLE_CHANGE_LOG + " c LEFT JOIN " + TABLE_EXPENSES + " e ON e." + COLUMN_EXPENSE_SYNC_ID
+                    + " = c." + COLUMN_CHANGE_SYNC_ID + " WHERE c." + COLUMN_CHANGE_VERSION + " > ? ORDER BY c."
+                    + COLUMN_CHANGE_VERSION + " LIMIT " + limit, new String[]{String.valueOf(afterVersion)})) {
+                while (cursor.moveToNext()) {
+                    versions.add(cursor.getLong(0));
+                    String syncId = cursor.getString(1);
+                    long changedAt = cursor.getLong(3);
+                    if (cursor.getInt(2) != 0) {
+                        records.add(SyncRecord.tombstone(syncId, changedAt));
+                    } else if (cursor.isNull(4)) {
+                        // Moved: a delete rewrites its entry in the same transaction
+                        moved.put(records.size(), syncId);
+                        records.add(null);
+                    } else {
+                        records.add(SyncRecord.upsert(syncId, changedAt, cursor.getString(5), cursor.getString(6),
+                                cursor.getDouble(7), cursor.getString(10), cursor.getString(8), cursor.getString(9)));
+                    }
+                }
+                if (!moved.isEmpty()) {
+                    readMovedChanges(records, moved);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading pending changes: " + e.getMessage());
+                // Nothing rather than a batch with holes in it
+                records.clear();
+            }
+        }
+        int end = records.indexOf(null);
+        if (end >= 0) {
+            records = new ArrayList<>(records.subList(0, end));
+        }
+        long lastVersion = records.isEmpty() ? afterVersion : versions.get(records.size() - 1);
+        span.end(records.size(), 0);
+        return new PendingChanges(records, lastVersion);
+    }
+
+    /**
+     * Fills in the records of moved changes from cold storage, oldest first, up to the first one
+     * that cannot be read; that one and those after it stay null.
+     */
+    private void readMovedChanges(List<SyncRecord> records, Map<Integer, String> moved) {
+        SQLiteDatabase cold = openColdStorage(SQLiteDatabase.OPEN_READONLY);
+        if (cold == null) {
+            return;
+        }
+        try {
+            for (Map.Entry<Integer, String> entry : moved.entrySet()) {
+                SyncRecord record = rowSyncRecord(cold, entry.getValue());
+                if (record == null) {
+                    return;
+                }
+                records.set(entry.getKey(), record);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading moved changes: " + e.getMessage());
+        } finally {
+            cold.close();
+        }
+    }
+
+    public void markPushed(long version) {
+        updateSyncWatermark(COLUMN_SYNC_PUSHED_VERSION, version);
+    }
+
+    public void markPulled(long serverVersion) {
+        updateSyncWatermark(COLUMN_SYNC_PULLED_VERSION, serverVersion);
+    }
+
+    private void updateSyncWatermark(String column, long version) {
+        this.getWritableDatabase().execSQL("UPDATE " + TABLE_SYNC_STATE + " SET " + column
+                + " = MAX(" + column + ", ?)", new Object[]{version});
+    }
+
+    /**
+     * Applies changes from the server in one transaction, keeping whichever side wins under
+     * {@link SyncRecord#supersedes}. Winning remote changes replace any unpushed local change to
+     * the same transaction, and are not logged as local changes themselves. Applying the same
+     * change twice does nothing, so a batch can safely be retried. A transaction in cold storage
+     * that a remote change wins over comes back to expenses first.
+     *
+     * @return the number of changes that won and were written, or -1 if the batch failed and
+     * was rolled back.
+     */
+    public int applyRemoteChanges(List<SyncRecord> records) {
+        QueryTracer.Span span = QueryTracer.begin("applyRemoteChanges");
+        SQLiteDatabase db = this.getWritableDatabase();
+        int applied = 0;
+        SQLiteStatement update = null;
+        SQLiteStatement insert = null;
+        SQLiteStatement delete = null;
+        SQLiteStatement forget = null;
+        // A restored row leaves the cold file only after the transaction commits
+        synchronized (coldStorageLock) {
+            SQLiteDatabase cold = openColdStorage(SQLiteDatabase.OPEN_READWRITE);
+            List<String> restored = new ArrayList<>();
+
+            db.beginTransaction();
+            try {
+                db.execSQL("UPDATE " + TABLE_SYNC_STATE + " SET " + COLUMN_SYNC_APPLYING + " = 1");
+                update = db.compileStatement("UPDATE " + TABLE_EXPENSES + " SET " + COLUMN_EXPENSE_TYPE + " = ?, "
+                        + COLUMN_EXPENSE_CATEGORY + " = ?, " + COLUMN_EXPENSE_AMOUNT + " = ?, " + COLUMN_EXPENSE_DATE + " = ?, "
+                        + COLUMN_EXPENSE_NOTE + " = ?, " + COLUMN_EXPENSE_MODIFIED_AT + " = ?, " + COLUMN_EXPENSE_CURRENCY + " = ?, "
+                        // Whoever edited it on the other device chose its category
+                        + COLUMN_EXPENSE_AUTO_CATEGORY + " = 0 WHERE " + COLUMN_EXPENSE_SYNC_ID + " = ?");
+                insert = db.compileStatement("INSERT INTO " + TABLE_EXPENSES + "(" + COLUMN_EXPENSE_TYPE + ", "
+                        + COLUMN_EXPENSE_CATEGORY + ", " + COLUMN_EXPENSE_AMOUNT + ", " + COLUMN_EXPENSE_DATE + ", "
+                        + COLUMN_EXPENSE_NOTE + ", " + COLUMN_EXPENSE_MODIFIED_AT + ", " + COLUMN_EXPENSE_CURRENCY + ", "
+                        + COLUMN_EXPENSE_SYNC_ID + ", " + COLUMN_EXPENSE_USER_EMAIL + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                delete = db.compileStatement("DELETE FROM " + TABLE_EXPENSES + " WHERE " + COLUMN_EXPENSE_SYNC_ID + " = ?");
+                forget = db.compileStatement("DELETE FROM " + TABLE_CHANGE_LOG + " WHERE " + COLUMN_CHANGE_SYNC_ID + " = ?");
+
+                for (SyncRecord record : records) {
+                    SyncRecord local = localSyncRecord(db, cold, record.syncId);
+                    if (!record.supersedes(local)) {
+                        continue;
+                    }
+                    if (local != null && !local.deleted && cold != null && rowSyncRecord(db, record.syncId) == null) {
+                        restoreFromColdStorage(db, cold, record.syncId);
+                        restored.add(record.syncId);
+                    }
+                    if (record.deleted) {
+                        delete.bindString(1, record.syncId);
+                        delete.executeUpdateDelete();
+                    } else {
+                        SQLiteStatement write = local != null && !local.deleted ? update : insert;
+                        write.bindString(1, record.type);
+                        write.bindString(2, record.category);
+                        write.bindDouble(3, record.amount);
+                        write.bindString(4, record.date);
+                        write.bindString(5, record.note);
+                        write.bindLong(6, record.modifiedMillis);
+                        write.bindString(7, record.currency);
+                        write.bindString(8, record.syncId);
+                        if (write == insert) {
+                            write.bindString(9, userEmail);
+                            write.executeInsert();
+                        } else {
+                            write.executeUpdateDelete();
+                        }
+                    }
+                    forget.bindString(1, record.syncId);
+                    forget.executeUpdateDelete();
+                    applied++;
+                }
+                db.execSQL("UPDATE " + TABLE_SYNC_STATE + " SET " + COLUMN_SYNC_APPLYING + " = 0");
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e(TAG, "Error applying remote changes: " + e.getMessage());
+                applied = -1;
+            } finally {
+                db.endTransaction();
+                for (SQLiteStatement statement : new SQLiteStatement[]{update, insert, delete, forget}) {
+                    if (statement != null) {
+                        statement.close();
+                    }
+                }
+                if (cold != null) {
+                    if (applied >= 0 && !restored.isEmpty()) {
+                        deleteColdCopies(cold, restored);
+                    }
+                    cold.close();
+                }
+                span.end(Math.max(applied, 0), 0);
+            }
+        }
+        if (applied > 0) {
+            dataChanged();
+        }
+        return applied;
+    }
+
+    /**
+     * The local state of a transaction for conflict checks: its row, in expenses or else in
+     * {@code cold} if that is open, a tombstone if it was deleted here, or null if this device
+     * has never seen it.
+     */
+    private static SyncRecord localSyncRecord(SQLiteDatabase db, SQLiteDatabase cold, String syncId) {
+        SyncRecord row = rowSyncRecord(db, syncId);
+        if (row == null && cold != null) {
+            row = rowSyncRecord(cold, syncId);
+        }
+        if (row != null) {
+            return row;
+        }
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_CHANGE_CHANGED_AT + " FROM " + TABLE_CHANGE_LOG + " WHERE "
+                + COLUMN_CHANGE_SYNC_ID + " = ? AND " + COLUMN_CHANGE_DELETED + " = 1", new String[]{syncId})) {
+            return cursor.moveToFirst() ? SyncRecord.tombstone(syncId, cursor.getLong(0)) : null;
+        }
+    }
+
+    /**
+     * A transaction's row in {@code db}'s expenses table, hot or cold, as a sync record; null
+     * if it is not there.
+     */
+    private static SyncRecord rowSyncRecord(SQLiteDatabase db, String syncId) {
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_EXPENSE_MODIFIED_AT + ", " + COLUMN_EXPENSE_TYPE + ", "
+                + COLUMN_EXPENSE_CATEGORY + ", " + COLUMN_EXPENSE_AMOUNT + ", " + COLUMN_EXPENSE_DATE + ", "
+                + COLUMN_EXPENSE_NOTE + ", " + COLUMN_EXPENSE_CURRENCY + " FROM " + TABLE_EXPENSES
+                + " WHERE " + COLUMN_EXPENSE_SYNC_ID + " = ?", new String[]{syncId})) {
+            return cursor.moveToFirst() ? SyncRecord.upsert(syncId, cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                    cursor.getDouble(3), cursor.getString(6), cursor.getString(4), cursor.getString(5)) : null;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // --- Cold Storage Methods ---
+    // -------------------------------------------------------------------------
+
+    // The next rows to move, in index order from where the last chunk stopped: ?2 is the cutoff,
+    // ?3 and ?4 the date and id of the last row seen
+    static final String SQL_COLD_CANDIDATES = "SELECT " + COLUMN_EXPENSE_ID + ", " + COLUMN_EXPENSE_DATE
+            + " FROM main." + TABLE_EXPENSES + " WHERE " + COLUMN_EXPENSE_USER_EMAIL + " = ?1 AND " + COLUMN_EXPENSE_DATE + " < ?2"
+            + " AND " + COLUMN_EXPENSE_DATE + " >= ?3 AND (" + COLUMN_EXPENSE_DATE + " > ?3 OR " + COLUMN_EXPENSE_ID + " > ?4)"
+            + " AND " + COLUMN_EXPENSE_TYPE + " IN ('" + Categories.TYPE_INCOME + "', '" + Categories.TYPE_EXPENSE + "')"
+            + " AND " + COLUMN_EXPENSE_CATEGORY + " IS NOT NULL"
+            + " ORDER BY " + COLUMN_EXPENSE_DATE + ", " + COLUMN_EXPENSE_ID + " LIMIT " + COLD_STORAGE_CHUNK;
+
+    private static final String COLD_TOTALS_KEY = COLUMN_COLD_USER_EMAIL + " = ? AND " + COLUMN_COLD_TYPE + " = ? AND "
+            + COLUMN_COLD_DATE + " = ? AND " + COLUMN_COLD_CATEGORY + " = ? AND " + COLUMN_COLD_CURRENCY + " = ?";
+
+    /**
+     * First day of the oldest year kept hot; everything dated before it may move to cold storage.
+     *
+     * @param today    yyyy-MM-dd.
+     * @param hotYears full years kept besides the current one.
+     */
+    static String coldStorageCutoff(String today, int hotYears) {
+        return String.format(Locale.US, "%04d-01-01", Integer.parseInt(today.substring(0, 4)) - hotYears);
+    }
+
+    /**
+     * The date a moved row is totalled under in cold_totals: its month if it is in the base
+     * currency, which needs no rate, else its day, so it still converts at that day's rate.
+     */
+    static String coldDate(String date, String currency) {
+        return Currencies.BASE.equals(currency) ? date.substring(0, 7) : date;
+    }
+
+    /**
+     * The cold storage file, named after the database and next to it. It does not exist until
+     * something is moved.
+     */
+    File coldStorageFile() {
+        return coldStorageFile;
+    }
+
+    /**
+     * The cold storage file of the database in {@code databaseFile}.
+     */
+    static File coldStorageFile(File databaseFile) {
+        String name = databaseFile.getName();
+        return new File(databaseFile.getParentFile(), name.substring(0, name.length() - ".db".length()) + COLD_STORAGE_SUFFIX);
+    }
+
+    /**
+     * Held for every step that moves rows between the database and cold storage, so whoever
+     * holds it sees the two files agree: {@link DatabaseBackup} snapshots and restores both
+     * under it. Never take the helper's own lock (getWritableDatabase(), close()) while holding
+     * it; the restore takes them the other way round.
+     */
+    Object coldStorageLock() {
+        return coldStorageLock;
+    }
+
+    /**
+     * Moves {@code userEmail}'s transactions dated before {@code before} (yyyy-MM-dd, see
+     * {@link #coldStorageCutoff}) into the cold storage file, attached for the duration, at most
+     * {@link #COLD_STORAGE_CHUNK} rows per step. Each step copies its rows first, then, in one
+     * transaction, deletes the ones still unchanged from expenses and adds them to cold_totals,
+     * so every total stays exact and an interrupted run loses nothing; the next run carries on.
+     * The spending statistics, forecast profiles and change log do not notice the move.
+     *
+     * @param cancelled polled between steps.
+     * @return the number of rows moved, or -1 on error.
+     */
+    public int moveToColdStorage(String userEmail, String before, BooleanSupplier cancelled) {
+        QueryTracer.Span span = QueryTracer.begin("moveToColdStorage");
+        SQLiteDatabase db = null;
+        int moved = 0;
+        boolean failed = false;
+
+        try {
+            // Create or upgrade the file first, so cold_totals and the guarded triggers exist
+            String path = this.getWritableDatabase().getPath();
+            // A connection of our own: ATTACH on one of the helper's would turn WAL off for all of them.
+            // ATTACH inherits the open flags, so CREATE is needed for the first move's new file.
+            db = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READWRITE | SQLiteDatabase.CREATE_IF_NECESSARY);
+            db.execSQL("ATTACH DATABASE ? AS " + COLD_SCHEMA, new Object[]{coldStorageFile().getPath()});
+            createColdSchema(db);
+            String lastDate = "";
+            String lastId = "0";
+            while (!cancelled.getAsBoolean()) {
+                List<String> ids = new ArrayList<>();
+                try (Cursor cursor = db.rawQuery(SQL_COLD_CANDIDATES, new String[]{userEmail, before, lastDate, lastId})) {
+                    while (cursor.moveToNext()) {
+                        lastId = cursor.getString(0);
+                        lastDate = cursor.getString(1);
+                        ids.add(lastId);
+                    }
+                }
+                if (ids.isEmpty()) {
+                    break;
+                }
+                synchronized (coldStorageLock) {
+                    moved += moveChunkToColdStorage(db, ids);
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error moving to cold storage: " + e.getMessage());
+            failed = true;
+        } finally {
+            if (db != null) {
+                db.close();
+            }
+            span.end(moved, 0);
+        }
+        if (moved > 0) {
+            // Totals are unchanged, but the rows left the lists
+            dataChanged();
+        }
+        return failed ? -1 : moved;
+    }
+
+    /**
+     * One step of {@link #moveToColdStorage}.
+     *
+     * @return the number of rows moved; rows edited since they were chosen stay hot.
+     */
+    private static int moveChunkToColdStorage(SQLiteDatabase db, List<String> ids) {
+        String[] args = ids.toArray(new String[0]);
+        String chosen = " WHERE e." + COLUMN_EXPENSE_ID + " IN (" + placeholders(args.length) + ")";
+        String coldExpenses = COLD_SCHEMA + "." + TABLE_EXPENSES;
+
+        // A copy left by an interrupted step is replaced
+        db.beginTransaction();
+        try {
+            db.execSQL("INSERT OR REPLACE INTO " + coldExpenses + "(" + COLD_COPY_COLUMNS + ") SELECT " + COLD_COPY_COLUMNS
+                    + " FROM main." + TABLE_EXPENSES + " e" + chosen, args);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        StringBuilder unchanged = new StringBuilder();
+        for (String column : COLD_COPY_COLUMNS.split(", ")) {
+            unchanged.append(" AND c.").append(column).append(" IS e.").append(column);
+        }
+        List<String> movedIds = new ArrayList<>();
+        Map<List<String>, double[]> totals = new HashMap<>();
+        SQLiteStatement addKey = null;
+        SQLiteStatement addTotal = null;
+
+        db.beginTransaction();
+        try {
+            db.execSQL("UPDATE main." + TABLE_COLD_STATE + " SET " + COLUMN_COLD_MOVING + " = 1");
+            try (Cursor cursor = db.rawQuery("SELECT e." + COLUMN_EXPENSE_ID + ", e." + COLUMN_EXPENSE_USER_EMAIL + ", e."
+                    + COLUMN_EXPENSE_TYPE + ", e." + COLUMN_EXPENSE_DATE + ", e." + COLUMN_EXPENSE_CATEGORY + ", e."
+                    + COLUMN_EXPENSE_CURRENCY + ", e." + COLUMN_EXPENSE_AMOUNT + " FROM main." + TABLE_EXPENSES + " e JOIN "
+                    + coldExpenses + " c ON c." + COLUMN_EXPENSE_ID + " = e." + COLUMN_EXPENSE_ID + chosen + unchanged, args)) {
+                while (cursor.moveToNext()) {
+                    movedIds.add(cursor.getString(0));
+                    String currency = cursor.getString(5);
+                    // In cold_totals column order
+                    List<String> key = Arrays.asList(cursor.getString(1), cursor.getString(2),
+                            coldDate(cursor.getString(3), currency), cursor.getString(4), currency);
+                    double[] total = totals.computeIfAbsent(key, k -> new double[2]);
+                    total[0] += cursor.getDouble(6);
+                    total[1]++;
+                }
+            }
+            addKey = db.compileStatement("INSERT OR IGNORE INTO main." + TABLE_COLD_TOTALS + " VALUES (?, ?, ?, ?, ?, 0, 0)");
+            addTotal = db.compileStatement("UPDATE main." + TABLE_COLD_TOTALS + " SET " + COLUMN_COLD_TOTAL + " = "
+                    + COLUMN_COLD_TOTAL + " + ?, " + COLUMN_COLD_COUNT + " = " + COLUMN_COLD_COUNT + " + ? WHERE " + COLD_TOTALS_KEY);
+            for (Map.Entry<List<String>, double[]> entry : totals.entrySet()) {
+                List<String> key = entry.getKey();
+                for (int i = 0; i < key.size(); i++) {
+                    addKey.bindString(i + 1, key.get(i));
+                    addTotal.bindString(i + 3, key.get(i));
+                }
+                addKey.executeInsert();
+                addTotal.bindDouble(1, entry.getValue()[0]);
+                addTotal.bindLong(2, (long) entry.getValue()[1]);
+                addTotal.executeUpdateDelete();
+            }
+            if (!movedIds.isEmpty()) {
+                db.execSQL("DELETE FROM main." + TABLE_EXPENSES + " WHERE " + COLUMN_EXPENSE_ID + " IN ("
+                        + placeholders(movedIds.size()) + ")", movedIds.toArray());
+            }
+            db.execSQL("UPDATE main." + TABLE_COLD_STATE + " SET " + COLUMN_COLD_MOVING + " = 0");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            for (SQLiteStatement statement : new SQLiteStatement[]{addKey, addTotal}) {
+                if (statement != null) {
+                    statement.close();
+                }
+            }
+        }
+
+        if (movedIds.size() < ids.size()) {
+            // Copies of the rows that stayed; their next move copies them again
+            db.execSQL("DELETE FROM " + coldExpenses + " WHERE " + COLUMN_EXPENSE_ID + " IN (" + placeholders(args.length)
+                    + ") AND " + COLUMN_EXPENSE_ID + " IN (SELECT " + COLUMN_EXPENSE_ID + " FROM main." + TABLE_EXPENSES + ")", args);
+        }
+        return movedIds.size();
+    }
+
+    /**
+     * Creates the expenses table and its indexes in the attached cold storage file the first
+     * time, plus a unique sync_id index for sync lookups.
+     */
+    private void createColdSchema(SQLiteDatabase db) {
+        if (DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + COLD_SCHEMA + ".sqlite_master WHERE name = ?",
+                new String[]{TABLE_EXPENSES}) > 0) {
+            return;
+        }
+        db.beginTransaction();
+        try {
+            createExpensesTable(db, COLD_SCHEMA + "." + TABLE_EXPENSES);
+            createExpenseIndexes(db, COLD_SCHEMA);
+            db.execSQL("CREATE UNIQUE INDEX " + COLD_SCHEMA + ".idx_expenses_sync_id ON " + TABLE_EXPENSES
+                    + "(" + COLUMN_EXPENSE_SYNC_ID + ")");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Opens cold storage on a connection of its own, or returns null if nothing was ever moved
+     * or the file cannot be opened.
+     */
+    private SQLiteDatabase openColdStorage(int flags) {
+        File file = coldStorageFile();
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return SQLiteDatabase.openDatabase(file.getPath(), null, flags);
+        } catch (Exception e) {
+            Log.e(TAG, "Error opening cold storage: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Runs a {@link TransactionQuery} on cold storage, which has the same table and indexes as
+     * the database; for statements and exports that reach back past the hot years.
+     *
+     * @return the number of rows delivered; 0 if nothing was ever moved.
+     */
+    public int queryColdTransactions(TransactionQuery query, CancellationSignal cancellationSignal,
+                                     Consumer<? super Transaction> sink) {
+        SQLiteDatabase cold = openColdStorage(SQLiteDatabase.OPEN_READONLY);
+        if (cold == null) {
+            return 0;
+        }
+        try {
+            return runTransactionQuery("queryColdTransactions", cold, query, cancellationSignal, sink);
+        } finally {
+            cold.close();
+        }
+    }
+
+    /**
+     * How many of the user's transactions are in cold storage.
+     */
+    public long getColdTransactionCount(String userEmail) {
+        try {
+            return DatabaseUtils.longForQuery(this.getReadableDatabase(), "SELECT COALESCE(SUM(" + COLUMN_COLD_COUNT + "), 0) FROM "
+                    + TABLE_COLD_TOTALS + " WHERE " + COLUMN_COLD_USER_EMAIL + " = ?", new String[]{userEmail});
+        } catch (Exception e) {
+            Log.e(TAG, "Error counting cold transactions: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Puts a transaction back from cold storage into expenses, inside the caller's transaction,
+     * and takes it out of cold_totals. The statistics and the change log never lost it, so they
+     * do not see it come back. The caller deletes the cold copy once its transaction commits.
+     */
+    private static void restoreFromColdStorage(SQLiteDatabase db, SQLiteDatabase cold, String syncId) {
+        Object[] values;
+        Object[] key;
+        double amount;
+        try (Cursor cursor = cold.rawQuery("SELECT " + COLD_COPY_COLUMNS + " FROM " + TABLE_EXPENSES + " WHERE "
+                + COLUMN_EXPENSE_SYNC_ID + " = ?", new String[]{syncId})) {
+            cursor.moveToFirst();
+            values = new Object[cursor.getColumnCount()];
+            for (int i = 0; i < values.length; i++) {
+                switch (cursor.getType(i)) {
+                    case Cursor.FIELD_TYPE_NULL:
+                        values[i] = null;
+                        break;
+                    case Cursor.FIELD_TYPE_INTEGER:
+                        values[i] = cursor.getLong(i);
+                        break;
+                    case Cursor.FIELD_TYPE_FLOAT:
+                        values[i] = cursor.getDouble(i);
+                        break;
+                    default:
+                        values[i] = cursor.getString(i);
+                        break;
+                }
+            }
+            String currency = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_CURRENCY));
+            key = new Object[]{cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_USER_EMAIL)),
+                    cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_TYPE)),
+                    coldDate(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_DATE)), currency),
+                    cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_CATEGORY)), currency};
+            amount = cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_EXPENSE_AMOUNT));
+        }
+
+        db.execSQL("UPDATE " + TABLE_COLD_STATE + " SET " + COLUMN_COLD_MOVING + " = 1");
+        db.execSQL("INSERT INTO " + TABLE_EXPENSES + "(" + COLD_COPY_COLUMNS + ") VALUES (" + placeholders(values.length) + ")", values);
+        Object[] subtract = new Object[key.length + 1];
+        subtract[0] = amount;
+        System.arraycopy(key, 0, subtract, 1, key.length);
+        db.execSQL("UPDATE " + TABLE_COLD_TOTALS + " SET " + COLUMN_COLD_TOTAL + " = " + COLUMN_COLD_TOTAL + " - ?, "
+                + COLUMN_COLD_COUNT + " = " + COLUMN_COLD_COUNT + " - 1 WHERE " + COLD_TOTALS_KEY, subtract);
+        // Emptied totals go, which also clears any rounding left in them
+        db.execSQL("DELETE FROM " + TABLE_COLD_TOTALS + " WHERE " + COLD_TOTALS_KEY + " AND " + COLUMN_COLD_COUNT + " = 0", key);
+        db.execSQL("UPDATE " + TABLE_COLD_STATE + " SET " + COLUMN_COLD_MOVING + " = 0");
+    }
+
+    /**
+     * Deletes the cold copies of restored transactions. A copy that survives a failure here
+     * is replaced or deleted the next time its row is moved.
+     */
+    private static void deleteColdCopies(SQLiteDatabase cold, List<String> syncIds) {
+        cold.beginTransaction();
+        try {
+            for (String syncId : syncIds) {
+                cold.delete(TABLE_EXPENSES, COLUMN_EXPENSE_SYNC_ID + " = ?", new String[]{syncId});
+            }
+            cold.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "Error deleting restored cold copies: " + e.getMessage());
+        } finally {
+            cold.endTransaction();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // --- Statement Methods ---
+    // -------------------------------------------------------------------------
+
+    // A statement's transactions, hot and cold, oldest first: ?1 is the user, ?2 and ?3 the dates.
+    // Each arm reads the (user_email, date) index in order and SQLite merges the two as they
+    // stream, so nothing is sorted or held. Cold copies of rows that are back in expenses, or
+    // not yet deleted from it, are left out.
+    static final String SQL_STATEMENT_TRANSACTIONS = statementTransactions("main")
+            + " UNION ALL " + statementTransactions(COLD_SCHEMA) + " AND NOT EXISTS (SELECT 1 FROM main." + TABLE_EXPENSES
+            + " h WHERE h." + COLUMN_EXPENSE_SYNC_ID + " = " + COLD_SCHEMA + "." + TABLE_EXPENSES + "." + COLUMN_EXPENSE_SYNC_ID + ")"
+            + " ORDER BY " + COLUMN_EXPENSE_DATE + ", " + COLUMN_EXPENSE_ID;
+    // The same before anything was moved, when there is no cold file to attach
+    static final String SQL_STATEMENT_HOT_TRANSACTIONS = statementTransactions("main")
+            + " ORDER BY " + COLUMN_EXPENSE_DATE + ", " + COLUMN_EXPENSE_ID;
+
+    // Rows in a statement's period, for its progress: the hot ones and the moved ones' counts
+    static final String SQL_STATEMENT_COUNT = "SELECT (SELECT COUNT(*) FROM " + TABLE_EXPENSES + " WHERE "
+            + COLUMN_EXPENSE_USER_EMAIL + " = ?1 AND " + COLUMN_EXPENSE_DATE + " >= ?2 AND " + COLUMN_EXPENSE_DATE + " < ?3)"
+            + " + (SELECT COALESCE(SUM(" + COLUMN_COLD_COUNT + "), 0) FROM " + TABLE_COLD_TOTALS + " WHERE "
+            + COLUMN_COLD_USER_EMAIL + " = ?1 AND " + COLUMN_COLD_DATE + " >= ?2 AND " + COLUMN_COLD_DATE + " < ?3)";
+
+    private static String statementTransactions(String schema) {
+        return "SELECT " + COLD_COPY_COLUMNS + " FROM " + schema + "." + TABLE_EXPENSES + " WHERE "
+                + COLUMN_EXPENSE_USER_EMAIL + " = ?1 AND " + COLUMN_EXPENSE_DATE + " >= ?2 AND " + COLUMN_EXPENSE_DATE + " < ?3";
+    }
+
+    /**
+     * The totals, expenses by category and number of transactions for a statement of whole
+     * months, moved ones included, all from the aggregate queries.
+     *
+     * @param fromMonth first month, yyyy-MM.
+     * @param toMonth   last month, inclusive.
+     * @param today     yyyy-MM-dd, printed as the statement's date.
+     * @return the summary, or null on error.
+     */
+    public StatementPdf.Summary getStatementSummary(String userEmail, String fromMonth, String toMonth, String today) {
+        QueryTracer.Span span = QueryTracer.begin("getStatementSummary");
+        SQLiteDatabase db = this.getReadableDatabase();
+        String[] args = {userEmail, MonthRange.start(fromMonth), MonthRange.end(toMonth)};
+        Map<String, Double> totals = new HashMap<>();
+        Map<String, Double> categories = new HashMap<>();
+        StatementPdf.Summary summary = null;
+
+        try {
+            readTotals(db, SQL_MONTHLY_TOTALS, args, totals);
+            try (Cursor cursor = db.rawQuery(SQL_MONTHLY_CATEGORY_EXPENSES, args)) {
+                while (cursor.moveToNext()) {
+                    categories.put(cursor.getString(0), cursor.getDouble(1));
+                }
+            }
+            long transactions = DatabaseUtils.longForQuery(db, SQL_STATEMENT_COUNT, args);
+            summary = new StatementPdf.Summary(userEmail, StatementPdf.period(fromMonth, toMonth), today,
+                    totals.getOrDefault(Categories.TYPE_INCOME, 0.0), totals.getOrDefault(Categories.TYPE_EXPENSE, 0.0),
+                    categories, transactions);
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading statement summary: " + e.getMessage());
+        } finally {
+            span.end(categories.size(), 0);
+        }
+        return summary;
+    }
+
+    /**
+     * Streams every transaction of a statement of whole months to {@code sink}, oldest first,
+     * from the database and cold storage together. Only the row being handed over is in memory.
+     *
+     * @param fromMonth first month, yyyy-MM.
+     * @param toMonth   last month, inclusive.
+     * @return the number of rows delivered, which falls short if {@code cancellationSignal} was
+     * cancelled, or -1 on error.
+     */
+    public int queryStatementTransactions(String userEmail, String fromMonth, String toMonth,
+                                          CancellationSignal cancellationSignal, Consumer<? super Transaction> sink) {
+        QueryTracer.Span span = QueryTracer.begin("queryStatementTransactions");
+        SQLiteDatabase db = null;
+        Cursor cursor = null;
+        int rows = 0;
+        long bytes = 0;
+
+        try {
+            String path = this.getReadableDatabase().getPath();
+            File coldFile = coldStorageFile();
+            String sql = SQL_STATEMENT_HOT_TRANSACTIONS;
+            // A connection of our own, as for moving: ATTACH on one of the helper's would turn WAL off
+            db = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READWRITE);
+            if (coldFile.exists()) {
+                db.execSQL("ATTACH DATABASE ? AS " + COLD_SCHEMA, new Object[]{coldFile.getPath()});
+                sql = SQL_STATEMENT_TRANSACTIONS;
+            }
+            cursor = db.rawQuery(sql, new String[]{userEmail, MonthRange.start(fromMonth), MonthRange.end(toMonth)},
+                    cancellationSignal);
+            if (cursor.moveToFirst()) {
+                CursorRow row = new CursorRow(cursor);
+                TransactionRowMapper<Transaction> mapper = new TransactionRowMapper<>(row, Transaction::new);
+                do {
+                    // Rows already in the cursor window would otherwise still be handed over
+                    if (cancellationSignal != null) {
+                        cancellationSignal.throwIfCanceled();
+                    }
+                    Transaction transaction = mapper.map(row);
+                    bytes += QueryTracer.approximateBytes(transaction);
+                    rows++;
+                    sink.accept(transaction);
+                } while (cursor.moveToNext());
+            }
+        } catch (OperationCanceledException e) {
+            // The caller knows it cancelled
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading statement transactions: " + e.getMessage());
+            rows = -1;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            if (db != null) {
+                db.close();
+            }
+            span.end(Math.max(rows, 0), bytes);
+        }
+        return rows;
+    }
+
+    // -------------------------------------------------------------------------
+    // --- Maintenance Methods ---
+    // -------------------------------------------------------------------------
+
+    /**
+     * Checks integrity, gives free pages back to the file system, refreshes planner statistics
+     * and truncates the WAL, then records the outcome in the maintenance log. Heavy enough that
+     * it should only run on an idle, charging device ({@link DatabaseMaintenanceJobService}).
+     * A file created before incremental auto-vacuum is rebuilt once with VACUUM; a file that
+     * fails the integrity check is not compacted.
+     *
+     * @param cancelled polled between steps, so a stopped job gives the connection back quickly.
+     * @return the report, or null if maintenance failed.
+     */
+    public MaintenanceReport runMaintenance(BooleanSupplier cancelled) {
+        QueryTracer.Span span = QueryTracer.begin("runMaintenance");
+        long start = System.nanoTime();
+        MaintenanceReport report = null;
+
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            long bytesBefore = fileBytes(db);
+            long freePagesBefore = DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+            // integrity_check(1) stops at the first problem; the full list is not actionable here
+            String integrity = DatabaseUtils.stringForQuery(db, "PRAGMA integrity_check(1)", null);
+            boolean rebuilt = false;
+
+            if (MaintenanceReport.INTEGRITY_OK.equals(integrity) && !cancelled.getAsBoolean()) {
+                rebuilt = rebuildWithAutoVacuum(db.getPath(), AUTO_VACUUM_INCREMENTAL);
+                if (!rebuilt && freePagesBefore > 0) {
+                    runPragma(db, "PRAGMA incremental_vacuum");
+                }
+            } else if (!MaintenanceReport.INTEGRITY_OK.equals(integrity)) {
+                Log.e(TAG, "Integrity check failed, skipping compaction: " + integrity);
+            }
+            if (!cancelled.getAsBoolean()) {
+                // PRAGMA optimize (3.18+) only re-analyzes tables whose statistics went stale
+                if (isSqliteAtLeast(sqliteVersion(), 18)) {
+                    runPragma(db, "PRAGMA optimize");
+                } else {
+                    db.execSQL("ANALYZE");
+                }
+            }
+            if (!cancelled.getAsBoolean()) {
+                runPragma(db, "PRAGMA wal_checkpoint(TRUNCATE)");
+            }
+
+            long pagesReclaimed = rebuilt ? freePagesBefore
+                    : freePagesBefore - DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+            report = new MaintenanceReport(System.currentTimeMillis(), (System.nanoTime() - start) / 1_000_000,
+                    bytesBefore, fileBytes(db), pagesReclaimed, integrity, rebuilt);
+            recordMaintenance(db, report);
+        } catch (Exception e) {
+            Log.e(TAG, "Error running maintenance: " + e.getMessage());
+        } finally {
+            span.end(report != null ? 1 : 0, 0);
+        }
+        return report;
+    }
+
+    /**
+     * Most recent maintenance runs first.
+     */
+    public List<MaintenanceReport> getMaintenanceHistory(int limit) {
+        List<MaintenanceReport> history = new ArrayList<>();
+        QueryTracer.Span span = QueryTracer.begin("getMaintenanceHistory");
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+
+        try {
+            cursor = db.query(TABLE_MAINTENANCE_LOG, null, null, null, null, null,
+                    COLUMN_MAINTENANCE_RUN_AT + " DESC", String.valueOf(limit));
+            while (cursor.moveToNext()) {
+                history.add(new MaintenanceReport(
+                        cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_MAINTENANCE_RUN_AT)),
+                        cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_MAINTENANCE_DURATION_MS)),
+                        cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_MAINTENANCE_BYTES_BEFORE)),
+                        cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_MAINTENANCE_BYTES_AFTER)),
+                        cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_MAINTENANCE_PAGES_RECLAIMED)),
+                        cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_MAINTENANCE_INTEGRITY)),
+                        cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_MAINTENANCE_REBUILT)) != 0));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading maintenance history: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            span.end(history.size(), 64L * history.size());
+        }
+        return history;
+    }
+
+    private void recordMaintenance(SQLiteDatabase db, MaintenanceReport report) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_MAINTENANCE_RUN_AT, report.runAtMillis);
+        values.put(COLUMN_MAINTENANCE_DURATION_MS, report.durationMillis);
+        values.put(COLUMN_MAINTENANCE_BYTES_BEFORE, report.bytesBefore);
+        values.put(COLUMN_MAINTENANCE_BYTES_AFTER, report.bytesAfter);
+        values.put(COLUMN_MAINTENANCE_PAGES_RECLAIMED, report.pagesReclaimed);
+        values.put(COLUMN_MAINTENANCE_INTEGRITY, report.integrity);
+        values.put(COLUMN_MAINTENANCE_REBUILT, report.rebuilt ? 1 : 0);
+        db.beginTransaction();
+        try {
+            db.insertWithOnConflict(TABLE_MAINTENANCE_LOG, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            db.delete(TABLE_MAINTENANCE_LOG, COLUMN_MAINTENANCE_RUN_AT + " NOT IN (SELECT " + COLUMN_MAINTENANCE_RUN_AT
+                    + " FROM " + TABLE_MAINTENANCE_LOG + " ORDER BY " + COLUMN_MAINTENANCE_RUN_AT + " DESC LIMIT " + MAINTENANCE_LOG_SIZE + ")", null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Rebuilds the file with VACUUM if its auto_vacuum mode is not {@code mode}; VACUUM is the
+     * only way to change it once tables exist. Runs on a connection of its own: under WAL the
+     * helper's pool may hand the PRAGMA and the VACUUM to different connections, and pooled
+     * connections keep reporting the mode they were opened with.
+     *
+     * @return true if the file was rebuilt.
+     */
+    static boolean rebuildWithAutoVacuum(String path, int mode) {
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READWRITE);
+        try {
+            if (DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null) == mode) {
+                return false;
+            }
+            db.execSQL("PRAGMA auto_vacuum = " + mode);
+            db.execSQL("VACUUM");
+            return true;
+        } finally {
+            db.close();
+        }
+    }
+
+    /**
+     * Runs a PRAGMA that may return a row; execSQL() rejects statements that do.
+     */
+    private static void runPragma(SQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.rawQuery(pragma, null)) {
+            cursor.moveToFirst();
+        }
+    }
+
+    private static long fileBytes(SQLiteDatabase db) {
+        return new File(db.getPath()).length() + new File(db.getPath() + "-wal").length();
+    }
+
+    // -------------------------------------------------------------------------
+    // --- Bulk Load Methods ---
+    // -------------------------------------------------------------------------
+
+    /**
+     * Opens a writer for loading large volumes of transactions, used by statement imports and by
+     * the synthetic workload generator in debug builds and tests. The caller must close it to
+     * commit the tail, or abort it to drop the tail.
+     */
+    public BulkInserter openBulkInserter() {
+        return new BulkInserter(this.getWritableDatabase());
+    }
+
+    /**
+     * Writes rows through a compiled statement inside long transactions, committing every
+     * {@link #BULK_BATCH_SIZE} rows so the journal stays bounded however much is loaded.
+     */
+    public class BulkInserter implements Closeable {
+        private final SQLiteDatabase db;
+        private final SQLiteStatement insertExpense;
+        // Compiled on the first statement line
+        private SQLiteStatement insertImportKey;
+        private SQLiteStatement insertImportedExpense;
+        private final QueryTracer.Span span = QueryTracer.begin("bulkLoad");
+        private int pendingRows;
+        private int totalRows;
+        // Committed or rolled back; nothing more to do
+        private boolean finished;
+
+        private BulkInserter(SQLiteDatabase db) {
+            this.db = db;
+            insertExpense = db.compileStatement(SQL_INSERT_EXPENSE);
+            db.beginTransaction();
+        }
+
+        public void expense(String userEmail, String type, String category, double amount, String date, String note) {
+            insertExpense.bindString(1, userEmail);
+            insertExpense.bindString(2, type);
+            insertExpense.bindString(3, category);
+            insertExpense.bindDouble(4, amount);
+            insertExpense.bindString(5, date);
+            insertExpense.bindString(6, note == null ? "" : note);
+            insertExpense.executeInsert();
+            rowWritten();
+        }
+
+        /**
+         * Writes an imported statement line unless its {@link StatementImport#key} was imported
+         * before. The key and the row commit together, so an interrupted import never leaves
+         * one without the other.
+         *
+         * @return true if the row was written, false for a duplicate.
+         */
+        public boolean expenseIfNew(long importKey, String userEmail, String type, String category, double amount,
+                                    String currency, String date, String note) {
+            if (insertImportKey == null) {
+                insertImportKey = db.compileStatement(SQL_INSERT_IMPORT_KEY);
+                insertImportedExpense = db.compileStatement(SQL_INSERT_IMPORTED_EXPENSE);
+            }
+            insertImportKey.bindLong(1, importKey);
+            if (insertImportKey.executeInsert() == -1) {
+                return false;
+            }
+            insertImportedExpense.bindString(1, userEmail);
+            insertImportedExpense.bindString(2, type);
+            insertImportedExpense.bindString(3, category);
+            insertImportedExpense.bindDouble(4, amount);
+            insertImportedExpense.bindString(5, currency);
+            insertImportedExpense.bindString(6, date);
+            insertImportedExpense.bindString(7, note == null ? "" : note);
+            insertImportedExpense.executeInsert();
+            rowWritten();
+            return true;
+        }
+
+        private void rowWritten() {
+            totalRows++;
+            if (++pendingRows >= BULK_BATCH_SIZE) {
+                db.setTransactionSuccessful();
+                db.endTransaction();
+                db.beginTransaction();
+                pendingRows = 0;
+            }
+        }
+
+        /**
+         * Rows written so far.
+         */
+        public int getTotalRows() {
+            return totalRows;
+        }
+
+        /**
+         * Rows already committed, which stay if the writer is aborted now.
+         */
+        public int getCommittedRows() {
+            return totalRows - pendingRows;
+        }
+
+        /**
+         * Commits the last batch. After a load of at least a batch it refreshes planner
+         * statistics, so queries against the new volume use the same plans as on a long-lived
+         * device database; a few rows cannot change them.
+         */
+        @Override
+        public void close() {
+            if (finished) {
+                return;
+            }
+            try {
+                db.setTransactionSuccessful();
+            } finally {
+                finish();
+            }
+            if (totalRows >= BULK_BATCH_SIZE) {
+                db.execSQL("ANALYZE");
+            }
+            span.end(totalRows, 0);
+            dataChanged();
+        }
+
+        /**
+         * Rolls back the rows written since the last commit, for a load that failed part way.
+         * Earlier batches stay; {@link #getCommittedRows()} counts them. Closing afterwards does
+         * nothing.
+         */
+        public void abort() {
+            if (finished) {
+                return;
+            }
+            finish();
+            totalRows -= pendingRows;
+            pendingRows = 0;
+            span.end(totalRows, 0);
+            if (totalRows > 0) {
+                dataChanged();
+            }
+        }
+
+        private void finish() {
+            finished = true;
+            try {
+                db.endTransaction();
+            } finally {
+                insertExpense.close();
+                if (insertImportKey != null) {
+                    insertImportKey.close();
+                    insertImportedExpense.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.trackify;
+
+import androidx.lifecycle.LiveData;
+
+import java.util.function.Consumer;
+
+/**
+ * A query result that keeps itself current. It is read in the background when it first gets
+ * an observer and again after every committed write to the database, but never just because a
+ * screen was recreated or came back to the front. Writes made while nobody observed it, say on
+ * the add-expense screen, cost one read when an observer returns.
+ */
+final class DatabaseLiveData<T> extends LiveData<T> {
+
+    /**
+     * Starts reading the value off the main thread, usually through a
+     * {@link com.example.trackify.core.QueryScheduler}. A read superseded by a later one need
+     * never deliver; the newest always does, on any thread.
+     */
+    interface Loader<T> {
+        /**
+         * @param dataChanged whether the database was written since the last read was started,
+         *                    so cached results and reads in flight are stale.
+         */
+        void load(boolean dataChanged, Consumer<T> deliver);
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final Loader<T> loader;
+    private final Runnable changeListener = this::reload;
+    // DatabaseHelper.dataVersion() when the last read was started; -1 before the first
+    private long requestedVersion = -1;
+    // The same for the read that produced the current value
+    private volatile long readVersion = -1;
+
+    DatabaseLiveData(DatabaseHelper databaseHelper, Loader<T> loader) {
+        this.databaseHelper = databaseHelper;
+        this.loader = loader;
+    }
+
+    /**
+     * Reads the value again, whatever the data version; call it after the query itself changed.
+     */
+    synchronized void reload() {
+        long version = databaseHelper.dataVersion();
+        boolean dataChanged = version != requestedVersion;
+        requestedVersion = version;
+        loader.load(dataChanged, value -> {
+            readVersion = version;
+            postValue(value);
+        });
+    }
+
+    @Override
+    protected void onActive() {
+        // Listen first, so a write landing between the two is not missed
+        databaseHelper.addChangeListener(changeListener);
+        if (readVersion != databaseHelper.dataVersion()) {
+            reload();
+        }
+    }
+
+    @Override
+    protected void onInactive() {
+        databaseHelper.removeChangeListener(changeListener);
+    }
+}
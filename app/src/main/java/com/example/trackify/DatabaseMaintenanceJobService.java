@@ -0,0 +1,94 @@
+package com.example.trackify;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.trackify.core.MaintenanceReport;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily database maintenance for the logged-in account, deferred until the device is idle and
+ * charging so integrity checks and compaction never compete with the user for I/O or battery.
+ */
+public class DatabaseMaintenanceJobService extends JobService {
+
+    private static final String TAG = "MaintenanceJobService";
+    private static final int JOB_ID = 2602;
+
+    private static final String PREF_NAME = "TrackifyPrefs";
+    private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
+    // Years kept in the main database besides the current one; 0 keeps everything there
+    static final String KEY_HOT_YEARS = "hotYears";
+
+    private volatile boolean stopped;
+
+    /**
+     * Schedules the daily job. Safe to call repeatedly; an already scheduled job is left untouched.
+     */
+    public static void schedule(Context context) {
+        JobScheduler jobScheduler = context.getSystemService(JobScheduler.class);
+        if (jobScheduler == null || jobScheduler.getPendingJob(JOB_ID) != null) {
+            return;
+        }
+        JobInfo jobInfo = new JobInfo.Builder(JOB_ID, new ComponentName(context, DatabaseMaintenanceJobService.class))
+                .setPeriodic(TimeUnit.DAYS.toMillis(1))
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .setPersisted(true)
+                .build();
+        jobScheduler.schedule(jobInfo);
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        SharedPreferences sharedPreferences = getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        String userEmail = sharedPreferences.getString(KEY_LOGGED_IN_EMAIL, null);
+        if (userEmail == null) {
+            return false;
+        }
+        DatabaseHelper databaseHelper = UserSession.open(this, userEmail);
+        stopped = false;
+
+        // JobService callbacks arrive on the main thread, and VACUUM can take seconds
+        int hotYears = sharedPreferences.getInt(KEY_HOT_YEARS, DatabaseHelper.DEFAULT_HOT_YEARS);
+        new Thread(() -> {
+            // First, so compaction reclaims the pages the moved rows freed
+            if (hotYears > 0) {
+                int moved = databaseHelper.moveToColdStorage(userEmail,
+                        DatabaseHelper.coldStorageCutoff(RecurringTransactionJobService.today(), hotYears), () -> stopped);
+                if (moved != 0) {
+                    Log.i(TAG, "Moved " + moved + " transactions to cold storage");
+                }
+            }
+            MaintenanceReport report = databaseHelper.runMaintenance(() -> stopped);
+            if (report != null) {
+                Log.i(TAG, "Maintenance " + report.summary());
+            }
+            // Receipt files of deleted transactions
+            Set<String> receipts = stopped ? null : databaseHelper.getReceiptHashes();
+            if (receipts != null) {
+                int deleted = new ReceiptStore(this, userEmail).deleteUnreferenced(receipts);
+                if (deleted > 0) {
+                    Log.i(TAG, "Deleted " + deleted + " unreferenced receipts");
+                }
+            }
+            jobFinished(params, false);
+        }).start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The device left idle or charging; each step is atomic, so stop after the current one and retry later
+        stopped = true;
+        return true;
+    }
+}
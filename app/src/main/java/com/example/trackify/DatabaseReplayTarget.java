@@ -0,0 +1,39 @@
+package com.example.trackify;
+
+import com.example.trackify.core.WorkloadTrace;
+
+/**
+ * Replays workload traces through the same DatabaseHelper calls the screens make, so a replayed
+ * trace costs what the recorded session cost.
+ */
+public class DatabaseReplayTarget implements WorkloadTrace.Target {
+
+    private final DatabaseHelper databaseHelper;
+
+    public DatabaseReplayTarget(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    @Override
+    public long insert(String userEmail, String type, String category, double amount, String date, String note) {
+        return databaseHelper.insertExpenseAndGetId(userEmail, category, amount, date, note, type);
+    }
+
+    @Override
+    public boolean update(long id, String userEmail, String type, String category, double amount, String date, String note) {
+        return databaseHelper.updateExpense(id, userEmail, category, amount, date, note, type);
+    }
+
+    @Override
+    public boolean delete(long id) {
+        return databaseHelper.deleteTransaction(id);
+    }
+
+    @Override
+    public void switchMonth(String userEmail, String month) {
+        // What ViewTransactionsFragment loads when the month changes
+        databaseHelper.getMonthlyTotal(userEmail, month, "Income");
+        databaseHelper.getMonthlyTotal(userEmail, month, "Expense");
+        databaseHelper.getMonthlyTransactions(userEmail, month);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.trackify;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import com.example.trackify.core.FrameStats;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects per-screen frame durations from {@link Window#addOnFrameMetricsAvailableListener}
+ * (API 24) and blames each frame over budget on the costliest stage: the app's own
+ * {@link TraceSection} stages, or the framework's layout, draw, input and animation phases.
+ *
+ * <p>Stage times are drained each time a frame is reported, so work done just after a frame
+ * but before its metrics arrive is attributed to that frame. That is close enough to find the
+ * culprit. Debug builds only: {@link #install(Application)} does nothing in release.
+ */
+public final class FrameMonitor {
+
+    public static final String LAYOUT = "layout";
+    public static final String DRAW = "draw";
+    public static final String INPUT = "input";
+    public static final String ANIMATION = "animation";
+
+    private static final FrameStats STATS = new FrameStats();
+    private static boolean installed;
+
+    private FrameMonitor() {
+    }
+
+    public static FrameStats stats() {
+        return STATS;
+    }
+
+    /**
+     * Starts monitoring every activity's window while it is resumed. Safe to call repeatedly.
+     */
+    public static synchronized void install(Application application) {
+        if (!BuildConfig.DEBUG || installed) {
+            return;
+        }
+        installed = true;
+        HandlerThread thread = new HandlerThread("FrameMonitor");
+        thread.start();
+        application.registerActivityLifecycleCallbacks(new Callbacks(new Handler(thread.getLooper())));
+    }
+
+    /**
+     * Combines the app's stage times with the frame's own phases. Bind runs inside RecyclerView's
+     * layout pass, so it is taken out of layout rather than counted twice.
+     */
+    static Map<String, Long> stagesFor(FrameMetrics metrics, Map<String, Long> appStages) {
+        long bindNanos = appStages.containsKey(TraceSection.BIND) ? appStages.get(TraceSection.BIND) : 0;
+        appStages.put(LAYOUT, Math.max(0, metrics.getMetric(FrameMetrics.LAYOUT_MEASURE_DURATION) - bindNanos));
+        appStages.put(DRAW, metrics.getMetric(FrameMetrics.DRAW_DURATION)
+                + metrics.getMetric(FrameMetrics.SYNC_DURATION)
+                + metrics.getMetric(FrameMetrics.COMMAND_ISSUE_DURATION)
+                + metrics.getMetric(FrameMetrics.SWAP_BUFFERS_DURATION));
+        appStages.merge(INPUT, metrics.getMetric(FrameMetrics.INPUT_HANDLING_DURATION), Long::sum);
+        appStages.merge(ANIMATION, metrics.getMetric(FrameMetrics.ANIMATION_DURATION), Long::sum);
+        return appStages;
+    }
+
+    private static final class Callbacks implements Application.ActivityLifecycleCallbacks {
+        private final Handler handler;
+        private final Map<Activity, Window.OnFrameMetricsAvailableListener> listeners = new HashMap<>();
+
+        Callbacks(Handler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation") // Activity.getDisplay() needs API 30
+        public void onActivityResumed(Activity activity) {
+            String screen = activity.getClass().getSimpleName();
+            float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+            long budgetNanos = (long) (1_000_000_000L / (refreshRate > 0 ? refreshRate : 60f));
+
+            Window.OnFrameMetricsAvailableListener listener = (window, frameMetrics, dropCount) -> {
+                Map<String, Long> appStages = TraceSection.drainMainThreadStages();
+                // The first frame of a window includes inflation; it is start-up cost, not jank
+                if (frameMetrics.getMetric(FrameMetrics.FIRST_DRAW_FRAME) == 1) {
+                    return;
+                }
+                STATS.record(screen, frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION), budgetNanos,
+                        stagesFor(frameMetrics, appStages));
+            };
+            activity.getWindow().addOnFrameMetricsAvailableListener(listener, handler);
+            listeners.put(activity, listener);
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+            Window.OnFrameMetricsAvailableListener listener = listeners.remove(activity);
+            if (listener != null) {
+                activity.getWindow().removeOnFrameMetricsAvailableListener(listener);
+            }
+        }
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+        }
+    }
+}
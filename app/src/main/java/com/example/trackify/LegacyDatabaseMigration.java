@@ -0,0 +1,117 @@
+package com.example.trackify;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One-time split of the old shared trackify.db into the user directory plus one database per
+ * account. Every copy is INSERT OR IGNORE keyed on the original ids, and the shared file is only
+ * deleted once everything is copied, so an interrupted split simply runs again.
+ */
+final class LegacyDatabaseMigration {
+
+    private static final String TAG = "LegacyDbMigration";
+
+    static final String LEGACY_DATABASE_NAME = "trackify.db";
+    // Shared files before version 3 stored unhashed passwords and were wiped on upgrade anyway
+    private static final int FIRST_MIGRATABLE_VERSION = 3;
+
+    private static final String SQL_COPY_EXPENSES = "INSERT OR IGNORE INTO expenses"
+            + "(expense_id, user_email, type, category, amount, date, note)"
+            + " SELECT expense_id, user_email, type, category, amount, date, note"
+            + " FROM legacy.expenses WHERE user_email = ?";
+
+    private static final String SQL_COPY_RECURRING_RULES = "INSERT OR IGNORE INTO recurring_rules"
+            + "(rule_id, user_email, type, category, amount, note, frequency, interval_days, anchor_day, next_date)"
+            + " SELECT rule_id, user_email, type, category, amount, note, frequency, interval_days, anchor_day, next_date"
+            + " FROM legacy.recurring_rules WHERE user_email = ?";
+
+    private LegacyDatabaseMigration() {
+    }
+
+    static boolean isNeeded(Context context) {
+        return context.getDatabasePath(LEGACY_DATABASE_NAME).exists();
+    }
+
+    /**
+     * Copies accounts into {@code directory} and each account's rows into its own database, then
+     * deletes the shared file.
+     */
+    static void migrate(Context context, SQLiteDatabase directory) {
+        File legacyFile = context.getDatabasePath(LEGACY_DATABASE_NAME);
+        List<String> emails = new ArrayList<>();
+        boolean hasRecurringRules = false;
+
+        SQLiteDatabase legacy = SQLiteDatabase.openDatabase(legacyFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+        Cursor cursor = null;
+        try {
+            if (legacy.getVersion() >= FIRST_MIGRATABLE_VERSION) {
+                hasRecurringRules = tableExists(legacy, "recurring_rules");
+                cursor = legacy.rawQuery("SELECT email, name, password FROM users", null);
+                directory.beginTransaction();
+                try {
+                    ContentValues values = new ContentValues();
+                    while (cursor.moveToNext()) {
+                        values.put(UserDirectoryHelper.COLUMN_USER_EMAIL, cursor.getString(0));
+                        values.put(UserDirectoryHelper.COLUMN_USER_NAME, cursor.getString(1));
+                        values.put(UserDirectoryHelper.COLUMN_USER_PASSWORD, cursor.getString(2));
+                        directory.insertWithOnConflict(UserDirectoryHelper.TABLE_USERS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+                        emails.add(cursor.getString(0));
+                    }
+                    directory.setTransactionSuccessful();
+                } finally {
+                    directory.endTransaction();
+                }
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            legacy.close();
+        }
+
+        for (String email : emails) {
+            DatabaseHelper databaseHelper = new DatabaseHelper(context, email);
+            try {
+                copyAccount(databaseHelper.getWritableDatabase(), legacyFile, email, hasRecurringRules);
+            } finally {
+                databaseHelper.close();
+            }
+        }
+
+        SQLiteDatabase.deleteDatabase(legacyFile);
+        Log.i(TAG, "Split shared database into " + emails.size() + " account databases.");
+    }
+
+    private static void copyAccount(SQLiteDatabase db, File legacyFile, String email, boolean hasRecurringRules) {
+        // ATTACH is not allowed inside a transaction, so it wraps the copy rather than joining it
+        db.execSQL("ATTACH DATABASE ? AS legacy", new Object[]{legacyFile.getPath()});
+        try {
+            db.beginTransaction();
+            try {
+                db.execSQL(SQL_COPY_EXPENSES, new Object[]{email});
+                if (hasRecurringRules) {
+                    db.execSQL(SQL_COPY_RECURRING_RULES, new Object[]{email});
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            db.execSQL("DETACH DATABASE legacy");
+        }
+    }
+
+    private static boolean tableExists(SQLiteDatabase db, String table) {
+        try (Cursor cursor = db.rawQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?", new String[]{table})) {
+            return cursor.moveToFirst();
+        }
+    }
+}
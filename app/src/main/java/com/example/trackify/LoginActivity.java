@@ -13,7 +13,7 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.example.trackify.DatabaseHelper.UserDetails;
+import com.example.trackify.UserDirectoryHelper.UserDetails;
 import java.util.Locale; // Added for email conversion
 
 public class LoginActivity extends AppCompatActivity {
@@ -21,7 +21,7 @@ public class LoginActivity extends AppCompatActivity {
     private EditText editTextEmail, editTextPassword;
     private Button buttonLogin;
     private ProgressBar progressBar;
-    private DatabaseHelper databaseHelper;
+    private UserDirectoryHelper userDirectory;
     private SharedPreferences sharedPreferences;
     private static final String PREF_NAME = "TrackifyPrefs";
     private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
@@ -31,12 +31,10 @@ public class LoginActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_login);
-
-        databaseHelper = new DatabaseHelper(this);
         sharedPreferences = getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
 
-        // Check for existing session
+        // Check for existing session before inflating anything, so a logged-in launch goes
+        // straight to the dashboard
         if (sharedPreferences.contains(KEY_LOGGED_IN_EMAIL)) {
             Intent intent = new Intent(LoginActivity.this, MainActivity.class);
             startActivity(intent);
@@ -44,6 +42,9 @@ public class LoginActivity extends AppCompatActivity {
             return;
         }
 
+        setContentView(R.layout.activity_login);
+        userDirectory = new UserDirectoryHelper(this);
+
 
         editTextEmail = findViewById(R.id.edit_text_email_login); // CORRECT ID
         editTextPassword = findViewById(R.id.edit_text_password_login); // CORRECT ID
@@ -71,18 +72,18 @@ public class LoginActivity extends AppCompatActivity {
         progressBar.setVisibility(View.VISIBLE);
         buttonLogin.setEnabled(false);
 
-        // Convert email to lowercase before checking, matching the storage format in DatabaseHelper
+        // Convert email to lowercase before checking, matching the storage format in UserDirectoryHelper
         String lowerCaseEmail = email.toLowerCase(Locale.ROOT);
 
         // 1. Check User Credentials in SQLite
-        boolean isValid = databaseHelper.checkUser(lowerCaseEmail, password);
+        boolean isValid = userDirectory.checkUser(lowerCaseEmail, password);
 
         progressBar.setVisibility(View.GONE);
         buttonLogin.setEnabled(true);
 
         if (isValid) {
             // 2. Fetch User Details to get the name
-            UserDetails userDetails = databaseHelper.getUserDetails(lowerCaseEmail);
+            UserDetails userDetails = userDirectory.getUserDetails(lowerCaseEmail);
             String userName = (userDetails != null) ? userDetails.name : "User";
 
             // 3. Store session state and user name
@@ -91,6 +92,9 @@ public class LoginActivity extends AppCompatActivity {
             editor.putString(KEY_LOGGED_IN_NAME, userName);
             editor.apply();
 
+            // Start opening this account's database while the main screen inflates
+            UserSession.open(this, lowerCaseEmail);
+
             // 4. >>> NOTIFICATION ADDITION <<<
             // The call already exists, but we must ensure MainActivity has this method implemented.
             MainActivity.showWelcomeNotification(this, userName);
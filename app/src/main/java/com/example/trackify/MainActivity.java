@@ -10,6 +10,7 @@ import android.widget.Toast;
 
 import androidx.core.content.ContextCompat;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -26,28 +27,34 @@ import android.util.Log;
 
 import com.google.android.material.button.MaterialButton;
 
-import java.text.NumberFormat;
-import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
 import com.example.trackify.DatabaseHelper.Transaction;
 import com.example.trackify.TransactionAdapter.OnTransactionActionListener;
+import com.example.trackify.core.CashFlowForecast;
+import com.example.trackify.core.CurrencyFormatter;
+import com.example.trackify.core.WidgetSnapshot;
 
 public class MainActivity extends AppCompatActivity implements OnTransactionActionListener {
 
     // --- UI Variables ---
     private TextView textViewWelcome, textMonthlyExpenseAmount, textTotalBalanceAmount;
+    private TextView textMonthlyExpenseForecast, textTotalBalanceForecast;
     private TextView textNoRecentTransactions;
     private RecyclerView recyclerViewRecentTransactions;
 
     private MaterialButton buttonAddTransaction, buttonViewAllTransactions, buttonProfile;
 
-    private DatabaseHelper databaseHelper;
     private SharedPreferences sharedPreferences;
     private String userEmail;
     private String userName;
 
+    // Holds the dashboard across rotation and reloads it when the data changes
+    private DashboardViewModel viewModel;
+    private TransactionAdapter recentAdapter;
+
     // Constants for SharedPreferences
     private static final String PREF_NAME = "TrackifyPrefs";
     private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
@@ -66,7 +73,6 @@ public class MainActivity extends AppCompatActivity implements OnTransactionActi
         setContentView(R.layout.activity_main);
 
         // 1. Initialize Helpers
-        databaseHelper = new DatabaseHelper(this);
         sharedPreferences = getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
 
         // 2. Retrieve User Session Info
@@ -79,11 +85,14 @@ public class MainActivity extends AppCompatActivity implements OnTransactionActi
             finish();
             return;
         }
+        viewModel = new ViewModelProvider(this).get(DashboardViewModel.class);
 
         // 3. Initialize UI Elements
         textViewWelcome = findViewById(R.id.text_view_welcome);
         textMonthlyExpenseAmount = findViewById(R.id.text_monthly_expense_amount);
         textTotalBalanceAmount = findViewById(R.id.text_total_balance_amount);
+        textMonthlyExpenseForecast = findViewById(R.id.text_monthly_expense_forecast);
+        textTotalBalanceForecast = findViewById(R.id.text_total_balance_forecast);
         textNoRecentTransactions = findViewById(R.id.text_no_recent_transactions);
         recyclerViewRecentTransactions = findViewById(R.id.recycler_view_recent_transactions);
         buttonAddTransaction = findViewById(R.id.button_add_transaction);
@@ -102,60 +111,85 @@ public class MainActivity extends AppCompatActivity implements OnTransactionActi
         // 5. Setup RecyclerView
         recyclerViewRecentTransactions.setLayoutManager(new LinearLayoutManager(this));
 
+        // First frame: the last persisted dashboard, unless a fresh one is already held from
+        // before a rotation. The view model revalidates it in the background.
+        WidgetSnapshot persisted = viewModel.persistedSnapshot();
+        if (viewModel.dashboard().getValue() == null && persisted != null) {
+            showDashboard(persisted);
+        }
+        viewModel.dashboard().observe(this, this::onDashboardLoaded);
+
         // 6. Notification Setup
         createNotificationChannel();
         // Request permission for API 33+ devices
         requestNotificationPermission();
-    }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-        loadDashboardData();
+        // 7. Recurring Transactions: keep catching up daily in the background; the view model
+        // caught up once when it was created
+        RecurringTransactionJobService.schedule(this);
+
+        // 8. Keep the database compact and its statistics fresh while the device is idle
+        DatabaseMaintenanceJobService.schedule(this);
     }
 
     /**
-     * Loads and displays the total balance, monthly expense, and recent transactions.
+     * Shows a fresh read of the dashboard: when it is first shown, after a rotation, and after
+     * each change to the data.
      */
-    private void loadDashboardData() {
-
-        // --- CURRENCY SETUP ---
-        Locale indianLocale = new Locale("en", "IN");
-        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(indianLocale);
-        // ----------------------
-
-        // 1. Fetch total balance (Cumulative across all transactions)
-        // Note: Assuming databaseHelper.getTotalBalance(userEmail) returns Net Balance (Income - Expense)
-        double totalBalance = databaseHelper.getTotalBalance(userEmail);
-
-        // Display Total Balance
-        textTotalBalanceAmount.setText(currencyFormat.format(totalBalance));
-
-        // 🚨 LOW BALANCE CHECK 🚨
-        if (totalBalance < LOW_BALANCE_THRESHOLD) {
-            showLowBalanceNotification(this, totalBalance);
+    private void onDashboardLoaded(DashboardViewModel.Dashboard dashboard) {
+        if (dashboard == null) {
+            return;
         }
-
-        // 2. Fetch monthly expense (for the current month)
-        Calendar calendar = Calendar.getInstance();
-        int currentMonth = calendar.get(Calendar.MONTH) + 1;
-        int currentYear = calendar.get(Calendar.YEAR);
-        // Note: Assuming DatabaseHelper.getMonthlyExpense exists and returns only total expenses
-        double monthlyExpense = databaseHelper.getMonthlyExpense(userEmail, currentMonth, currentYear);
-
-        // Set the text color based on the expense being non-zero
-        if (monthlyExpense > 0) {
-            // Note: R.color.expense_red must be defined in your colors.xml
-            textMonthlyExpenseAmount.setTextColor(ContextCompat.getColor(this, R.color.expense_red));
-        } else {
-            textMonthlyExpenseAmount.setTextColor(ContextCompat.getColor(this, R.color.expense_red));
+        showDashboard(dashboard.snapshot);
+        showForecast(dashboard.forecast, dashboard.snapshot);
+        // 🚨 LOW BALANCE CHECK 🚨 (fresh figures only, never the persisted ones, once per read)
+        if (viewModel.firstShown(dashboard) && dashboard.snapshot.balance < LOW_BALANCE_THRESHOLD) {
+            showLowBalanceNotification(this, dashboard.snapshot.balance);
         }
+    }
 
-        // Display Monthly Expense
-        textMonthlyExpenseAmount.setText(currencyFormat.format(monthlyExpense));
+    /**
+     * Shows where the month's spending and the balance are expected to end, with an 80% range,
+     * under the current figures. Hidden when there is no forecast.
+     */
+    private void showForecast(CashFlowForecast forecast, WidgetSnapshot snapshot) {
+        if (forecast == null || !forecast.month.equals(snapshot.month)) {
+            textMonthlyExpenseForecast.setVisibility(View.GONE);
+            textTotalBalanceForecast.setVisibility(View.GONE);
+            return;
+        }
+        textMonthlyExpenseForecast.setText(String.format(Locale.getDefault(), "Month end ≈ %s\n(%s – %s)",
+                CurrencyFormatter.format(forecast.monthEndSpend(snapshot.monthExpense)),
+                CurrencyFormatter.format(forecast.monthEndSpendLow(snapshot.monthExpense)),
+                CurrencyFormatter.format(forecast.monthEndSpendHigh(snapshot.monthExpense))));
+        textTotalBalanceForecast.setText(String.format(Locale.getDefault(), "Month end ≈ %s\n(%s – %s)",
+                CurrencyFormatter.format(forecast.monthEndBalance(snapshot.balance)),
+                CurrencyFormatter.format(forecast.monthEndBalanceLow(snapshot.balance)),
+                CurrencyFormatter.format(forecast.monthEndBalanceHigh(snapshot.balance))));
+        textMonthlyExpenseForecast.setVisibility(View.VISIBLE);
+        textTotalBalanceForecast.setVisibility(View.VISIBLE);
+    }
 
-        // 3. Fetch and display recent transactions (limit 3)
-        List<Transaction> recentTransactions = databaseHelper.getRecentTransactions(userEmail, 3);
+    /**
+     * Displays the total balance, this month's expense and the recent transactions.
+     */
+    private void showDashboard(WidgetSnapshot snapshot) {
+        // 1. Total balance (Income - Expense, across all transactions)
+        textTotalBalanceAmount.setText(CurrencyFormatter.format(snapshot.balance));
+
+        // 2. Monthly expense; a snapshot from an earlier month has nothing for this one yet
+        String month = RecurringTransactionJobService.today().substring(0, 7);
+        double monthlyExpense = month.equals(snapshot.month) ? snapshot.monthExpense : 0;
+        textMonthlyExpenseAmount.setTextColor(ContextCompat.getColor(this, R.color.expense_red));
+        textMonthlyExpenseAmount.setText(CurrencyFormatter.format(monthlyExpense));
+
+        // 3. Recent transactions
+        List<Transaction> recentTransactions = new ArrayList<>(snapshot.recent.size());
+        for (WidgetSnapshot.Item item : snapshot.recent) {
+            Transaction transaction = new Transaction(item.id, userEmail, item.type, item.category, item.amount, item.date, item.note);
+            transaction.currency = item.currency;
+            recentTransactions.add(transaction);
+        }
 
         if (recentTransactions.isEmpty()) {
             recyclerViewRecentTransactions.setVisibility(View.GONE);
@@ -164,9 +198,13 @@ public class MainActivity extends AppCompatActivity implements OnTransactionActi
             recyclerViewRecentTransactions.setVisibility(View.VISIBLE);
             textNoRecentTransactions.setVisibility(View.GONE);
 
-            // ✅ FIX APPLIED: Set 'showActions' to 'false' to hide Edit/Delete buttons.
-            TransactionAdapter adapter = new TransactionAdapter(MainActivity.this, recentTransactions, this, false);
-            recyclerViewRecentTransactions.setAdapter(adapter);
+            if (recentAdapter == null) {
+                // ✅ FIX APPLIED: Set 'showActions' to 'false' to hide Edit/Delete buttons.
+                recentAdapter = new TransactionAdapter(MainActivity.this, recentTransactions, this, false);
+                recyclerViewRecentTransactions.setAdapter(recentAdapter);
+            } else {
+                recentAdapter.updateData(recentTransactions);
+            }
         }
     }
 
@@ -188,8 +226,7 @@ public class MainActivity extends AppCompatActivity implements OnTransactionActi
         }
 
         // 2. Format the balance for the message
-        Locale indianLocale = new Locale("en", "IN");
-        String formattedBalance = NumberFormat.getCurrencyInstance(indianLocale).format(balance);
+        String formattedBalance = CurrencyFormatter.format(balance);
 
         // 3. Build the notification content
         NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
@@ -205,6 +242,30 @@ public class MainActivity extends AppCompatActivity implements OnTransactionActi
         notificationManagerCompat.notify(NOTIFICATION_ID, builder.build());
     }
 
+    /**
+     * Alerts the user to unusual spending found when a transaction is saved.
+     */
+    public static void showSpendingAlertNotification(Context context, String title, String text) {
+        final int NOTIFICATION_ID = 103; // Unique ID for Spending Alerts
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            if (ContextCompat.checkSelfPermission(context, android.Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+                Log.w("MainActivity", "Notification permission not granted. Cannot show spending alert.");
+                return;
+            }
+        }
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.ic_dialog_info)
+                .setContentTitle(title)
+                .setContentText(text)
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(text))
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                .setAutoCancel(true);
+
+        NotificationManagerCompat.from(context).notify(NOTIFICATION_ID, builder.build());
+    }
+
     // ----------------------------------------------------------------------
     // --- Existing Notification Methods ---
     // ----------------------------------------------------------------------
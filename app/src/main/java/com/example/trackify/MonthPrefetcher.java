@@ -0,0 +1,162 @@
+package com.example.trackify;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.trackify.DatabaseHelper.Transaction;
+import com.example.trackify.core.MonthCache;
+import com.example.trackify.core.MonthRange;
+import com.example.trackify.core.QueryScheduler;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the transactions screen's recent months in memory and loads the months either side of
+ * the one on screen in the background, so stepping to the previous or next month renders without
+ * touching the database.
+ *
+ * <p>Every read goes through one {@link QueryScheduler}: the month on screen is read before any
+ * prefetch, only the month picked last is ever handed back, and a month already being read is
+ * not read twice.
+ *
+ * <p>The cache holds at most {@link #CAPACITY} months and gives memory back when the system asks:
+ * it keeps only the month on screen when memory runs low, and nothing once the app is in the
+ * background. Register it with {@code Context.registerComponentCallbacks} for that to happen.
+ */
+final class MonthPrefetcher implements ComponentCallbacks2 {
+
+    private static final String TAG = "MonthPrefetcher";
+
+    // The month on screen, both neighbours, and the two most recently left
+    static final int CAPACITY = 5;
+
+    /**
+     * Everything the transactions screen shows for one month.
+     */
+    static final class Month {
+        final double totalIncome;
+        final double totalExpense;
+        final List<Transaction> transactions;
+
+        Month(double totalIncome, double totalExpense, List<Transaction> transactions) {
+            this.totalIncome = totalIncome;
+            this.totalExpense = totalExpense;
+            this.transactions = Collections.unmodifiableList(transactions);
+        }
+    }
+
+    /**
+     * Reads one month from the database, on the executor, so it must not touch views. It may
+     * stop early once {@code cancellation} is set; the result is then thrown away.
+     */
+    interface Loader {
+        Month load(String month, QueryScheduler.Cancellation cancellation);
+    }
+
+    /**
+     * A month with the cache generation it was read at.
+     */
+    private static final class Read {
+        final long generation;
+        final Month month;
+
+        Read(long generation, Month month) {
+            this.generation = generation;
+            this.month = month;
+        }
+    }
+
+    private final MonthCache<Month> cache = new MonthCache<>(CAPACITY);
+    private final Loader loader;
+    private final QueryScheduler<String, Read> scheduler;
+
+    MonthPrefetcher(Loader loader, Executor executor) {
+        this.loader = loader;
+        this.scheduler = new QueryScheduler<>(this::read, executor);
+    }
+
+    /**
+     * Hands the month on screen to {@code onLoaded}: at once if it is cached, otherwise on the
+     * executor once it is read. A later call supersedes this one, which is then never answered.
+     */
+    void load(String month, Consumer<Month> onLoaded) {
+        Month cached = cache.get(month);
+        if (cached != null) {
+            scheduler.cancelVisible();
+            onLoaded.accept(cached);
+            return;
+        }
+        scheduler.request(month, QueryScheduler.Priority.VISIBLE, read -> {
+            cache.put(month, read.month, read.generation);
+            onLoaded.accept(read.month);
+        });
+    }
+
+    /**
+     * Queues reads of the months before and after {@code month}, behind anything on screen,
+     * unless they are cached or already being read.
+     */
+    void prefetchAround(String month) {
+        for (String neighbour : new String[]{MonthRange.previous(month), MonthRange.end(month)}) {
+            if (!cache.contains(neighbour)) {
+                scheduler.request(neighbour, QueryScheduler.Priority.PREFETCH,
+                        read -> cache.put(neighbour, read.month, read.generation));
+            }
+        }
+    }
+
+    /**
+     * Forgets every month; call after anything that may have changed the data or the filter.
+     * Reads already running are cancelled, and the month on screen is read again.
+     */
+    void invalidate() {
+        cache.invalidateAll();
+        scheduler.invalidate();
+    }
+
+    int cachedMonths() {
+        return cache.size();
+    }
+
+    /**
+     * Runs on the executor. The generation is taken first, so a read that overlaps an
+     * invalidation is not cached.
+     */
+    private Read read(String month, QueryScheduler.Cancellation cancellation) {
+        long generation = cache.generation();
+        try {
+            return new Read(generation, loader.load(month, cancellation));
+        } catch (RuntimeException e) {
+            // Nobody is answered; the month is read again when it is next shown
+            Log.e(TAG, "Error reading " + month + ": " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    // --- Memory pressure ---
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            cache.trimTo(0);
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            // The month on screen was read last, so it is the one kept
+            cache.trimTo(1);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        cache.trimTo(0);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+}
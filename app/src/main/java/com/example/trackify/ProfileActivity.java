@@ -3,31 +3,79 @@ package com.example.trackify;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.Bundle;
+import android.text.format.DateUtils;
+import android.util.Log;
+import android.view.View;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.example.trackify.core.BackupArchive;
+import com.example.trackify.core.CategoryMatcher;
+import com.example.trackify.core.Categories;
+import com.example.trackify.core.MonthRange;
+import com.example.trackify.core.StatementPdf;
 
 import com.google.android.material.button.MaterialButton;
+import com.google.android.material.textfield.TextInputEditText;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
-import com.example.trackify.DatabaseHelper.UserDetails; // Import UserDetails
+import com.example.trackify.UserDirectoryHelper.UserDetails; // Import UserDetails
 
 public class ProfileActivity extends AppCompatActivity {
 
+    private static final String TAG = "ProfileActivity";
+
     private TextView textUserName;
     private TextView textUserEmail;
+    private TextView textBackupStatus;
     private MaterialButton buttonLogout;
     private MaterialButton buttonBackToHome;
+    private MaterialButton buttonBackup;
+    private MaterialButton buttonRestore;
+    private TextView textImportStatus;
+    private ProgressBar progressImport;
+    private MaterialButton buttonImportStatement;
+    private TextView textCategoryRulesStatus;
+    private TextInputEditText editTextRuleKeyword;
+    private MaterialButton buttonAddCategoryRule;
+    private MaterialButton buttonManageCategoryRules;
+    private TextView textColdStorageStatus;
+    private MaterialButton buttonColdStorageYears;
+    private TextView textStatementStatus;
+    private ProgressBar progressStatement;
+    private MaterialButton buttonExportStatement;
 
-    private DatabaseHelper databaseHelper;
+    private UserDirectoryHelper userDirectory;
     private SharedPreferences sharedPreferences;
     private String userEmail;
+    // The statement import and export, kept running across rotation
+    private StatementImportViewModel statementImport;
+    private StatementExportViewModel statementExport;
 
     private static final String PREF_NAME = "TrackifyPrefs";
     private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
     private static final String KEY_LOGGED_IN_NAME = "loggedInName"; // Used for clearing
 
+    // Statement files come with all sorts of MIME types, OFX especially
+    private final ActivityResultLauncher<String> pickStatement =
+            registerForActivityResult(new ActivityResultContracts.GetContent(), this::onStatementPicked);
+    private final ActivityResultLauncher<String> createStatement =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument("application/pdf"), this::onStatementCreated);
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -38,9 +86,24 @@ public class ProfileActivity extends AppCompatActivity {
         textUserEmail = findViewById(R.id.text_user_email);
         buttonLogout = findViewById(R.id.button_profile_logout);
         buttonBackToHome = findViewById(R.id.button_back_to_home);
+        textBackupStatus = findViewById(R.id.text_backup_status);
+        buttonBackup = findViewById(R.id.button_backup);
+        buttonRestore = findViewById(R.id.button_restore);
+        textImportStatus = findViewById(R.id.text_import_status);
+        progressImport = findViewById(R.id.progress_import);
+        buttonImportStatement = findViewById(R.id.button_import_statement);
+        textCategoryRulesStatus = findViewById(R.id.text_category_rules_status);
+        editTextRuleKeyword = findViewById(R.id.edit_text_rule_keyword);
+        buttonAddCategoryRule = findViewById(R.id.button_add_category_rule);
+        buttonManageCategoryRules = findViewById(R.id.button_manage_category_rules);
+        textColdStorageStatus = findViewById(R.id.text_cold_storage_status);
+        buttonColdStorageYears = findViewById(R.id.button_cold_storage_years);
+        textStatementStatus = findViewById(R.id.text_statement_status);
+        progressStatement = findViewById(R.id.progress_statement);
+        buttonExportStatement = findViewById(R.id.button_export_statement);
 
         // Initialize helper objects
-        databaseHelper = new DatabaseHelper(this);
+        userDirectory = new UserDirectoryHelper(this);
         sharedPreferences = getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
 
         // Retrieve user email
@@ -49,6 +112,25 @@ public class ProfileActivity extends AppCompatActivity {
         // Setup Listeners
         buttonLogout.setOnClickListener(v -> logoutUser());
         buttonBackToHome.setOnClickListener(v -> finish());
+        buttonBackup.setOnClickListener(v -> backupDatabase());
+        buttonRestore.setOnClickListener(v -> confirmRestore());
+        buttonImportStatement.setOnClickListener(v -> pickStatement.launch("*/*"));
+        buttonAddCategoryRule.setOnClickListener(v -> chooseRuleCategory());
+        buttonManageCategoryRules.setOnClickListener(v -> showCategoryRules());
+        buttonColdStorageYears.setOnClickListener(v -> chooseHotYears());
+        buttonExportStatement.setOnClickListener(v -> {
+            if (statementExport.isRunning()) {
+                statementExport.cancel();
+            } else {
+                chooseStatementPeriod();
+            }
+        });
+
+        // A recreated screen picks up the import and export where they are
+        statementImport = new ViewModelProvider(this).get(StatementImportViewModel.class);
+        statementImport.progress().observe(this, this::showImport);
+        statementExport = new ViewModelProvider(this).get(StatementExportViewModel.class);
+        statementExport.export().observe(this, this::showExport);
     }
 
     @Override
@@ -56,6 +138,8 @@ public class ProfileActivity extends AppCompatActivity {
         super.onResume();
         // Load or reload user data every time the activity is resumed
         loadUserProfile();
+        showBackupStatus();
+        showColdStorageStatus();
     }
 
     private void loadUserProfile() {
@@ -67,8 +151,8 @@ public class ProfileActivity extends AppCompatActivity {
             return;
         }
 
-        // Fetch user details using the new method in DatabaseHelper
-        UserDetails userDetails = databaseHelper.getUserDetails(userEmail);
+        // Fetch user details using the user directory
+        UserDetails userDetails = userDirectory.getUserDetails(userEmail);
 
         if (userDetails != null) {
             textUserName.setText(userDetails.name);
@@ -80,12 +164,356 @@ public class ProfileActivity extends AppCompatActivity {
         }
     }
 
+    // --- Backup & Restore ---
+
+    private void showBackupStatus() {
+        DatabaseHelper databaseHelper = UserSession.database(this);
+        if (databaseHelper == null) {
+            return;
+        }
+        File archive = DatabaseBackup.defaultArchive(this, databaseHelper);
+        if (archive.exists()) {
+            CharSequence when = DateUtils.getRelativeTimeSpanString(archive.lastModified());
+            textBackupStatus.setText(String.format(Locale.getDefault(), "Last backup %s (%d KB)", when, archive.length() / 1024));
+        }
+        buttonRestore.setEnabled(archive.exists());
+    }
+
+    private void backupDatabase() {
+        DatabaseHelper databaseHelper = UserSession.database(this);
+        if (databaseHelper == null) {
+            return;
+        }
+        setBackupButtonsEnabled(false);
+        textBackupStatus.setText("Backing up...");
+        // Snapshot and compression scale with the data, so they never run on the main thread
+        new Thread(() -> {
+            String message;
+            try {
+                DatabaseBackup.backup(getApplicationContext(), databaseHelper, DatabaseBackup.defaultArchive(this, databaseHelper));
+                message = "Backup complete.";
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Backup failed: " + e.getMessage(), e);
+                message = "Backup failed: " + e.getMessage();
+            }
+            finishBackupTask(message);
+        }).start();
+    }
+
+    private void confirmRestore() {
+        new AlertDialog.Builder(this)
+                .setTitle("Restore Backup")
+                .setMessage("Replace all current transactions with the last backup? Changes made since then will be lost.")
+                .setPositiveButton("Restore", (dialog, which) -> restoreDatabase())
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void restoreDatabase() {
+        DatabaseHelper databaseHelper = UserSession.database(this);
+        if (databaseHelper == null) {
+            return;
+        }
+        setBackupButtonsEnabled(false);
+        textBackupStatus.setText("Restoring...");
+        new Thread(() -> {
+            String message;
+            try {
+                DatabaseBackup.restore(getApplicationContext(), databaseHelper, DatabaseBackup.defaultArchive(this, databaseHelper));
+                message = "Backup restored.";
+            } catch (BackupArchive.FormatException e) {
+                Log.e(TAG, "Rejected backup: " + e.getMessage(), e);
+                message = "Backup is damaged and was not restored.";
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Restore failed: " + e.getMessage(), e);
+                message = "Restore failed: " + e.getMessage();
+            }
+            finishBackupTask(message);
+        }).start();
+    }
+
+    private void finishBackupTask(String message) {
+        runOnUiThread(() -> {
+            if (isFinishing()) {
+                return;
+            }
+            setBackupButtonsEnabled(true);
+            showBackupStatus();
+            Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+        });
+    }
+
+    private void setBackupButtonsEnabled(boolean enabled) {
+        buttonBackup.setEnabled(enabled);
+        buttonRestore.setEnabled(enabled);
+    }
+
+    // --- Statement Import ---
+
+    private void onStatementPicked(Uri uri) {
+        if (uri != null) {
+            statementImport.start(uri);
+        }
+    }
+
+    private void showImport(StatementImportViewModel.Import progress) {
+        if (!progress.running) {
+            progressImport.setVisibility(View.GONE);
+            buttonImportStatement.setEnabled(true);
+            textImportStatus.setText(progress.message);
+            return;
+        }
+        buttonImportStatement.setEnabled(false);
+        progressImport.setIndeterminate(progress.totalBytes <= 0);
+        progressImport.setVisibility(View.VISIBLE);
+        if (progress.totalBytes > 0) {
+            progressImport.setProgress((int) (progressImport.getMax()
+                    * Math.min(1.0, (double) progress.bytesRead / progress.totalBytes)));
+        }
+        textImportStatus.setText(progress.lines > 0
+                ? String.format(Locale.getDefault(), "Importing... %d of %d lines added", progress.imported, progress.lines)
+                : "Importing...");
+    }
+
+    // --- Statement Export ---
+
+    private void chooseStatementPeriod() {
+        String month = RecurringTransactionJobService.today().substring(0, 7);
+        String year = month.substring(0, 4);
+        String lastYear = String.valueOf(Integer.parseInt(year) - 1);
+        String[][] periods = {
+                {month, month},
+                {MonthRange.previous(month), MonthRange.previous(month)},
+                {year + "-01", month},
+                {lastYear + "-01", lastYear + "-12"}};
+        String[] labels = {"This month", "Last month", "This year so far", "Last year"};
+        new AlertDialog.Builder(this)
+                .setTitle("Statement for")
+                .setItems(labels, (dialog, which) -> {
+                    statementExport.choosePeriod(periods[which][0], periods[which][1]);
+                    String period = StatementPdf.period(periods[which][0], periods[which][1]).replace(" to ", "_");
+                    createStatement.launch("trackify-statement-" + period + ".pdf");
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void onStatementCreated(Uri uri) {
+        if (uri != null) {
+            statementExport.start(uri);
+        }
+    }
+
+    private void showExport(StatementExportViewModel.Export export) {
+        if (!export.running) {
+            progressStatement.setVisibility(View.GONE);
+            buttonExportStatement.setText("Export Statement");
+            textStatementStatus.setText(export.message);
+            return;
+        }
+        buttonExportStatement.setText("Cancel Export");
+        progressStatement.setVisibility(View.VISIBLE);
+        if (export.total > 0) {
+            progressStatement.setProgress((int) (progressStatement.getMax() * Math.min(1.0, (double) export.written / export.total)));
+            textStatementStatus.setText(String.format(Locale.getDefault(), "Exporting... %d of %d transactions",
+                    export.written, export.total));
+        } else {
+            progressStatement.setProgress(0);
+            textStatementStatus.setText("Exporting...");
+        }
+    }
+
+    // --- Category Rules ---
+
+    /**
+     * Asks which category the typed keyword stands for; expense categories first, then income.
+     */
+    private void chooseRuleCategory() {
+        String keyword = editTextRuleKeyword.getText() == null ? "" : editTextRuleKeyword.getText().toString().trim();
+        if (keyword.isEmpty()) {
+            Toast.makeText(this, "Enter a keyword first.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        List<String> types = new ArrayList<>();
+        List<String> categories = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        for (String category : Categories.EXPENSE_CATEGORIES) {
+            types.add(Categories.TYPE_EXPENSE);
+            categories.add(category);
+            labels.add(category);
+        }
+        for (String category : Categories.INCOME_CATEGORIES) {
+            types.add(Categories.TYPE_INCOME);
+            categories.add(category);
+            labels.add(category + " (income)");
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("\"" + keyword + "\" means")
+                .setItems(labels.toArray(new String[0]),
+                        (dialog, which) -> addCategoryRule(keyword, types.get(which), categories.get(which)))
+                .show();
+    }
+
+    private void addCategoryRule(String keyword, String type, String category) {
+        DatabaseHelper databaseHelper = UserSession.database(this);
+        if (databaseHelper == null) {
+            return;
+        }
+        if (databaseHelper.insertCategoryRule(keyword, type, category) == -1) {
+            Toast.makeText(this, "Could not save the rule.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        editTextRuleKeyword.setText("");
+        categorizeHistory(databaseHelper);
+    }
+
+    private void showCategoryRules() {
+        DatabaseHelper databaseHelper = UserSession.database(this);
+        if (databaseHelper == null) {
+            return;
+        }
+        List<CategoryMatcher.Rule> rules = databaseHelper.getCategoryRules();
+        if (rules.isEmpty()) {
+            Toast.makeText(this, "No rules of your own yet.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String[] labels = new String[rules.size()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = rules.get(i).toString();
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Tap a rule to delete it")
+                .setItems(labels, (dialog, which) -> new AlertDialog.Builder(this)
+                        .setMessage("Delete the rule " + labels[which] + "? Transactions it already categorized keep their category.")
+                        .setPositiveButton("Delete", (confirm, button) -> databaseHelper.deleteCategoryRule(rules.get(which).id))
+                        .setNegativeButton("Cancel", null)
+                        .show())
+                .setNegativeButton("Close", null)
+                .show();
+    }
+
+    /**
+     * Applies the rules to imported transactions still in a catch-all category, in chunks on a
+     * background thread. Until the user has answered once, it first asks whether catch-all
+     * transactions from before the app recorded who chose their category may be changed too.
+     */
+    private void categorizeHistory(DatabaseHelper databaseHelper) {
+        buttonAddCategoryRule.setEnabled(false);
+        textCategoryRulesStatus.setText("Categorizing your history...");
+        new Thread(() -> {
+            int untracked = databaseHelper.getUntrackedCategoryCount();
+            if (untracked == 0) {
+                runCategorizeHistory(databaseHelper);
+                return;
+            }
+            runOnUiThread(() -> {
+                if (isFinishing()) {
+                    return;
+                }
+                new AlertDialog.Builder(this)
+                        .setTitle("Older transactions")
+                        .setMessage(String.format(Locale.getDefault(), "%d older transactions in Miscellaneous or Other"
+                                + " are from before the app kept track of who chose their category. Let your rules"
+                                + " re-categorize them too? Any you put there on purpose would change. You will only"
+                                + " be asked once.", untracked))
+                        .setPositiveButton("Categorize", (dialog, which) -> settleUntracked(databaseHelper, true))
+                        .setNegativeButton("Leave them", (dialog, which) -> settleUntracked(databaseHelper, false))
+                        .setOnCancelListener(dialog -> new Thread(() -> runCategorizeHistory(databaseHelper)).start())
+                        .show();
+            });
+        }).start();
+    }
+
+    private void settleUntracked(DatabaseHelper databaseHelper, boolean byRules) {
+        new Thread(() -> {
+            databaseHelper.settleUntrackedCategories(byRules);
+            runCategorizeHistory(databaseHelper);
+        }).start();
+    }
+
+    /**
+     * Runs on a background thread.
+     */
+    private void runCategorizeHistory(DatabaseHelper databaseHelper) {
+        int changed = databaseHelper.autoCategorizeHistory(this::isFinishing);
+        runOnUiThread(() -> {
+            if (isFinishing()) {
+                return;
+            }
+            buttonAddCategoryRule.setEnabled(true);
+            textCategoryRulesStatus.setText(String.format(Locale.getDefault(),
+                    "Rule saved. %d earlier transactions categorized.", changed));
+        });
+    }
+
+    // --- Cold Storage ---
+
+    private void showColdStorageStatus() {
+        DatabaseHelper databaseHelper = UserSession.database(this);
+        if (databaseHelper == null) {
+            return;
+        }
+        int hotYears = sharedPreferences.getInt(DatabaseMaintenanceJobService.KEY_HOT_YEARS, DatabaseHelper.DEFAULT_HOT_YEARS);
+        String kept = hotYears > 0
+                ? String.format(Locale.getDefault(), "This year and the %d before it are kept in the main database.", hotYears)
+                : "Everything is kept in the main database.";
+        textColdStorageStatus.setText(String.format(Locale.getDefault(), "%s %d older transactions in cold storage.",
+                kept, databaseHelper.getColdTransactionCount(userEmail)));
+    }
+
+    private void chooseHotYears() {
+        int[] years = {0, 1, 2, 3, 5};
+        String[] labels = {"Keep everything", "1 year", "2 years", "3 years", "5 years"};
+        new AlertDialog.Builder(this)
+                .setTitle("Years to keep besides this one")
+                .setItems(labels, (dialog, which) -> {
+                    sharedPreferences.edit().putInt(DatabaseMaintenanceJobService.KEY_HOT_YEARS, years[which]).apply();
+                    if (years[which] > 0) {
+                        moveToColdStorage(years[which]);
+                    } else {
+                        // Moved transactions stay where they are; only new moves stop
+                        showColdStorageStatus();
+                    }
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * Moves now rather than waiting for the nightly maintenance, in chunks on a background thread.
+     */
+    private void moveToColdStorage(int hotYears) {
+        DatabaseHelper databaseHelper = UserSession.database(this);
+        if (databaseHelper == null) {
+            return;
+        }
+        buttonColdStorageYears.setEnabled(false);
+        textColdStorageStatus.setText("Moving older transactions...");
+        new Thread(() -> {
+            int moved = databaseHelper.moveToColdStorage(userEmail,
+                    DatabaseHelper.coldStorageCutoff(RecurringTransactionJobService.today(), hotYears), this::isFinishing);
+            runOnUiThread(() -> {
+                if (isFinishing()) {
+                    return;
+                }
+                buttonColdStorageYears.setEnabled(true);
+                showColdStorageStatus();
+                if (moved < 0) {
+                    Toast.makeText(this, "Could not move older transactions.", Toast.LENGTH_SHORT).show();
+                }
+            });
+        }).start();
+    }
+
     private void logoutUser() {
         // Clear session data from SharedPreferences
         SharedPreferences.Editor editor = sharedPreferences.edit();
         editor.remove(KEY_LOGGED_IN_EMAIL);
         editor.remove(KEY_LOGGED_IN_NAME); // Clear the name as well
         editor.apply();
+        UserSession.close();
+        // Logged out: the widget drops the account's figures
+        BalanceWidgetProvider.refresh(this);
 
         // Navigate back to Login Activity and clear the stack
         Intent intent = new Intent(ProfileActivity.this, LoginActivity.class);
@@ -0,0 +1,92 @@
+package com.example.trackify;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.trackify.core.QueryMetrics;
+import com.example.trackify.core.TransactionRecord;
+
+import java.util.Collection;
+
+/**
+ * Times every DatabaseHelper operation into process-wide {@link QueryMetrics}. Always on: a call
+ * costs two clock reads and a few atomic increments, far below the cost of the query it measures.
+ * In debug builds each span is also a {@link TraceSection#QUERY} trace section.
+ * Slow calls on the main thread are also logged, since those are the ones that drop frames.
+ */
+public final class QueryTracer {
+
+    private static final String TAG = "QueryTracer";
+
+    // One frame at 60 Hz; anything slower on the main thread is visible jank
+    static final long DEFAULT_SLOW_THRESHOLD_MS = 16;
+    private static final int SLOW_LOG_CAPACITY = 200;
+
+    private static final QueryMetrics METRICS = new QueryMetrics(DEFAULT_SLOW_THRESHOLD_MS, SLOW_LOG_CAPACITY);
+
+    private QueryTracer() {
+    }
+
+    public static QueryMetrics metrics() {
+        return METRICS;
+    }
+
+    public static Span begin(String method) {
+        return new Span(method);
+    }
+
+    /**
+     * One timed operation. Call {@link #end(int, long)} exactly once, normally from a finally block.
+     */
+    public static final class Span {
+        private final String method;
+        private final long startNanos;
+
+        private Span(String method) {
+            this.method = method;
+            this.startNanos = SystemClock.elapsedRealtimeNanos();
+            TraceSection.begin(TraceSection.QUERY, method);
+        }
+
+        /**
+         * @param rows  rows returned, or rows written for inserts, updates and deletes.
+         * @param bytes approximate size of the result handed back to the caller.
+         */
+        public void end(int rows, long bytes) {
+            long durationNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+            TraceSection.end();
+            boolean mainThread = Looper.getMainLooper().isCurrentThread();
+            METRICS.record(method, durationNanos, Thread.currentThread().getName(), mainThread, rows, bytes);
+            if (mainThread && durationNanos >= METRICS.getSlowThresholdMillis() * 1_000_000L) {
+                Log.w(TAG, method + " took " + durationNanos / 1_000_000 + " ms on the main thread");
+            }
+        }
+    }
+
+    // --- Result size estimates (Java strings are UTF-16; numbers are counted as 8 bytes) ---
+
+    static long approximateBytes(TransactionRecord transaction) {
+        if (transaction == null) {
+            return 0;
+        }
+        return 16 + 2L * (length(transaction.userEmail) + length(transaction.type) + length(transaction.category)
+                + length(transaction.date) + length(transaction.note));
+    }
+
+    static long approximateBytes(Collection<? extends TransactionRecord> transactions) {
+        long bytes = 0;
+        for (TransactionRecord transaction : transactions) {
+            bytes += approximateBytes(transaction);
+        }
+        return bytes;
+    }
+
+    static long approximateBytes(String value) {
+        return 2L * length(value);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.trackify;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.trackify.core.FileLruCache;
+import com.example.trackify.core.PasswordHasher;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Receipt images for one account, stored as files named by the SHA-256 of their content. The
+ * expenses table only holds the hash, so rows stay small and the same photo attached twice is
+ * stored once. Files no longer referenced are removed by {@link #deleteUnreferenced}.
+ */
+final class ReceiptStore {
+
+    private static final String TAG = "ReceiptStore";
+    private static final String DIRECTORY = "receipts";
+    private static final String TEMP_PREFIX = "import_";
+
+    // A receipt picked but not saved yet is unreferenced for a while; leave it alone that long
+    static final long UNREFERENCED_GRACE_MS = 24 * 60 * 60 * 1000L;
+
+    private final File directory;
+
+    ReceiptStore(Context context, String userEmail) {
+        this.directory = directory(context, userEmail);
+    }
+
+    /**
+     * The account's receipt directory, named by a hash of the email like its database.
+     */
+    static File directory(Context context, String userEmail) {
+        return new File(new File(context.getFilesDir(), DIRECTORY),
+                PasswordHasher.hash(userEmail.toLowerCase(Locale.ROOT)).substring(0, 16));
+    }
+
+    /**
+     * The file for a receipt hash. It may not exist, e.g. for a row synced from another device.
+     */
+    File file(String hash) {
+        if (!FileLruCache.isKey(hash)) {
+            throw new IllegalArgumentException("Not a receipt hash: " + hash);
+        }
+        return new File(directory, hash);
+    }
+
+    /**
+     * Copies an image into the store, hashing it on the way.
+     *
+     * @return the receipt's hash, to store with the transaction.
+     */
+    String importReceipt(InputStream in) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File temp = File.createTempFile(TEMP_PREFIX, null, directory);
+        String hash;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (DigestInputStream hashing = new DigestInputStream(in, digest);
+                 OutputStream out = new FileOutputStream(temp)) {
+                byte[] buffer = new byte[16 * 1024];
+                int read;
+                while ((read = hashing.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            hash = toHex(digest.digest());
+            File target = new File(directory, hash);
+            if (target.exists()) {
+                // Same content already stored; refresh it so the grace period starts again
+                target.setLastModified(System.currentTimeMillis());
+            } else if (!temp.renameTo(target)) {
+                throw new IOException("Cannot store receipt " + hash);
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        } finally {
+            temp.delete();
+        }
+        return hash;
+    }
+
+    /**
+     * Deletes receipt files that no transaction references, other than recent ones.
+     *
+     * @param referenced every hash the account's transactions hold.
+     * @return the number of files deleted.
+     */
+    int deleteUnreferenced(Set<String> referenced) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long cutoff = System.currentTimeMillis() - UNREFERENCED_GRACE_MS;
+        int deleted = 0;
+        for (File file : files) {
+            if (!referenced.contains(file.getName()) && file.lastModified() < cutoff) {
+                if (file.delete()) {
+                    deleted++;
+                } else {
+                    Log.w(TAG, "Could not delete unreferenced receipt " + file.getName());
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.trackify;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Date arithmetic for recurring rules. Dates use the same yyyy-MM-dd format as the expenses table,
+ * so string comparison matches chronological order.
+ */
+public final class Recurrence {
+
+    public static final String FREQUENCY_DAILY = "Daily";
+    public static final String FREQUENCY_WEEKLY = "Weekly";
+    public static final String FREQUENCY_MONTHLY = "Monthly";
+    public static final String FREQUENCY_CUSTOM = "Custom";
+
+    private static final String DATE_FORMAT = "yyyy-MM-dd";
+
+    private Recurrence() {
+    }
+
+    /**
+     * Returns the occurrence that follows {@code date}.
+     *
+     * @param anchorDay day of month the rule was created on; monthly rules clamp to the last day
+     *                  of shorter months but snap back to the anchor afterwards (31st -> 28th -> 31st).
+     */
+    public static String nextOccurrence(String date, String frequency, int intervalDays, int anchorDay) {
+        SimpleDateFormat formatter = new SimpleDateFormat(DATE_FORMAT, Locale.US);
+        Calendar calendar = parse(date, formatter);
+        advance(calendar, frequency, intervalDays, anchorDay);
+        return formatter.format(calendar.getTime());
+    }
+
+    /**
+     * Lists every occurrence from {@code nextDate} up to and including {@code today}.
+     * The returned list is empty when the rule is not yet due.
+     */
+    public static List<String> occurrencesUpTo(String nextDate, String today, String frequency, int intervalDays, int anchorDay) {
+        List<String> dates = new ArrayList<>();
+        // One calendar and formatter for the whole walk; a long catch-up can produce hundreds of dates
+        SimpleDateFormat formatter = new SimpleDateFormat(DATE_FORMAT, Locale.US);
+        Calendar calendar = parse(nextDate, formatter);
+        String date = nextDate;
+        while (date.compareTo(today) <= 0) {
+            dates.add(date);
+            advance(calendar, frequency, intervalDays, anchorDay);
+            date = formatter.format(calendar.getTime());
+        }
+        return dates;
+    }
+
+    /**
+     * Day of month of a yyyy-MM-dd date, used as the anchor of monthly rules.
+     */
+    public static int dayOfMonth(String date) {
+        return parse(date, new SimpleDateFormat(DATE_FORMAT, Locale.US)).get(Calendar.DAY_OF_MONTH);
+    }
+
+    private static void advance(Calendar calendar, String frequency, int intervalDays, int anchorDay) {
+        if (FREQUENCY_DAILY.equals(frequency)) {
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        } else if (FREQUENCY_WEEKLY.equals(frequency)) {
+            calendar.add(Calendar.DAY_OF_MONTH, 7);
+        } else if (FREQUENCY_MONTHLY.equals(frequency)) {
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+            calendar.add(Calendar.MONTH, 1);
+            int lastDay = calendar.getActualMaximum(Calendar.DAY_OF_MONTH);
+            calendar.set(Calendar.DAY_OF_MONTH, Math.min(anchorDay, lastDay));
+        } else {
+            calendar.add(Calendar.DAY_OF_MONTH, Math.max(1, intervalDays));
+        }
+    }
+
+    private static Calendar parse(String date, SimpleDateFormat formatter) {
+        Calendar calendar = Calendar.getInstance();
+        try {
+            calendar.setTime(formatter.parse(date));
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + date, e);
+        }
+        return calendar;
+    }
+}
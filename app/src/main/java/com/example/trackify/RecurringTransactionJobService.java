@@ -0,0 +1,74 @@
+package com.example.trackify;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily background job that materializes due recurring transactions for the logged-in user,
+ * so rent and salary appear even if the app is not opened on the day they fall due.
+ */
+public class RecurringTransactionJobService extends JobService {
+
+    private static final String TAG = "RecurringJobService";
+    private static final int JOB_ID = 2601;
+
+    private static final String PREF_NAME = "TrackifyPrefs";
+    private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
+
+    /**
+     * Schedules the daily job. Safe to call repeatedly; an already scheduled job is left untouched.
+     */
+    public static void schedule(Context context) {
+        JobScheduler jobScheduler = context.getSystemService(JobScheduler.class);
+        if (jobScheduler == null || jobScheduler.getPendingJob(JOB_ID) != null) {
+            return;
+        }
+        JobInfo jobInfo = new JobInfo.Builder(JOB_ID, new ComponentName(context, RecurringTransactionJobService.class))
+                .setPeriodic(TimeUnit.DAYS.toMillis(1))
+                .setPersisted(true)
+                .build();
+        jobScheduler.schedule(jobInfo);
+    }
+
+    /**
+     * Today's date in the database format (yyyy-MM-dd).
+     */
+    public static String today() {
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        SharedPreferences sharedPreferences = getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        String userEmail = sharedPreferences.getString(KEY_LOGGED_IN_EMAIL, null);
+        if (userEmail == null) {
+            return false;
+        }
+        DatabaseHelper databaseHelper = UserSession.open(this, userEmail);
+
+        // JobService callbacks arrive on the main thread, so the write runs on its own thread
+        new Thread(() -> {
+            int created = databaseHelper.materializeRecurringTransactions(userEmail, today());
+            Log.i(TAG, "Materialized " + created + " recurring transactions");
+            jobFinished(params, false);
+        }).start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The write is a single transaction; if it was interrupted the next run picks it up again
+        return true;
+    }
+}
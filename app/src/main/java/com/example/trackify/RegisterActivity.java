@@ -18,7 +18,7 @@ public class RegisterActivity extends AppCompatActivity {
     private EditText editTextName, editTextEmail, editTextPassword;
     private Button buttonRegister;
     private ProgressBar progressBar;
-    private DatabaseHelper databaseHelper;
+    private UserDirectoryHelper userDirectory;
     private SharedPreferences sharedPreferences;
     private static final String PREF_NAME = "TrackifyPrefs";
     private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
@@ -28,7 +28,7 @@ public class RegisterActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_register);
 
-        databaseHelper = new DatabaseHelper(this);
+        userDirectory = new UserDirectoryHelper(this);
         sharedPreferences = getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
 
         // Initialize Views
@@ -71,7 +71,7 @@ public class RegisterActivity extends AppCompatActivity {
         buttonRegister.setEnabled(false);
 
         // 2. Insert User into SQLite Database
-        int result = databaseHelper.insertUser(name, email, password);
+        int result = userDirectory.insertUser(name, email, password);
 
         // Hide progress and re-enable button
         progressBar.setVisibility(View.GONE);
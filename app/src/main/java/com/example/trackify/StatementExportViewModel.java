@@ -0,0 +1,159 @@
+package com.example.trackify;
+
+import android.app.Application;
+import android.content.Context;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.SavedStateHandle;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link ProfileActivity}'s statement export, kept across rotation. The export runs on a thread
+ * this view model owns, so a recreated screen finds it still running and shows its progress
+ * again, and it is cancelled only when the screen is left for good. The chosen months are kept
+ * in saved state, since the document picker can outlive the process.
+ */
+public class StatementExportViewModel extends AndroidViewModel {
+
+    private static final String TAG = "StatementExport";
+    private static final String PREF_NAME = "TrackifyPrefs";
+    private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
+    // Saved state: the statement's first and last months, "yyyy-MM"
+    private static final String KEY_FROM_MONTH = "statementFromMonth";
+    private static final String KEY_TO_MONTH = "statementToMonth";
+
+    /**
+     * Where the export stands, as shown.
+     */
+    static final class Export {
+        final boolean running;
+        final int written;
+        // The period's transactions, 0 until the totals are read
+        final long total;
+        // The outcome once finished; null while running
+        final String message;
+
+        Export(boolean running, int written, long total, String message) {
+            this.running = running;
+            this.written = written;
+            this.total = total;
+            this.message = message;
+        }
+    }
+
+    private final SavedStateHandle savedState;
+    private final String userEmail;
+    private final MutableLiveData<Export> export = new MutableLiveData<>();
+    // The running export's cancellation; null when none is running
+    private final AtomicReference<CancellationSignal> running = new AtomicReference<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public StatementExportViewModel(@NonNull Application application, @NonNull SavedStateHandle savedState) {
+        super(application);
+        this.savedState = savedState;
+        userEmail = application.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).getString(KEY_LOGGED_IN_EMAIL, null);
+    }
+
+    /**
+     * The running or last export; no value until one starts.
+     */
+    LiveData<Export> export() {
+        return export;
+    }
+
+    boolean isRunning() {
+        return running.get() != null;
+    }
+
+    /**
+     * Remembers the months for the file the user is about to pick.
+     */
+    void choosePeriod(String fromMonth, String toMonth) {
+        savedState.set(KEY_FROM_MONTH, fromMonth);
+        savedState.set(KEY_TO_MONTH, toMonth);
+    }
+
+    /**
+     * Exports the chosen months to {@code uri} on a background thread. Returns false, leaving
+     * {@code uri} alone, if an export is already running or no months were chosen.
+     */
+    boolean start(Uri uri) {
+        String fromMonth = savedState.get(KEY_FROM_MONTH);
+        String toMonth = savedState.get(KEY_TO_MONTH);
+        DatabaseHelper databaseHelper = UserSession.database(getApplication());
+        if (fromMonth == null || toMonth == null || databaseHelper == null || userEmail == null) {
+            return false;
+        }
+        CancellationSignal cancellation = new CancellationSignal();
+        if (!running.compareAndSet(null, cancellation)) {
+            return false;
+        }
+        export.setValue(new Export(true, 0, 0, null));
+        // Years of transactions are read and laid out page by page, never on the main thread
+        new Thread(() -> run(databaseHelper, fromMonth, toMonth, uri, cancellation), "StatementExport").start();
+        return true;
+    }
+
+    void cancel() {
+        CancellationSignal cancellation = running.get();
+        if (cancellation != null) {
+            cancellation.cancel();
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        // The screen is gone for good; its export deletes its file as it stops
+        cancel();
+    }
+
+    private void run(DatabaseHelper databaseHelper, String fromMonth, String toMonth, Uri uri, CancellationSignal cancellation) {
+        String message;
+        boolean complete = false;
+        try (OutputStream out = getApplication().getContentResolver().openOutputStream(uri)) {
+            if (out == null) {
+                throw new IOException("Cannot open " + uri);
+            }
+            int pages = StatementExporter.export(databaseHelper, userEmail, fromMonth, toMonth, out, cancellation,
+                    (written, total) -> export.postValue(new Export(true, written, total, null)));
+            complete = pages > 0;
+            message = complete ? String.format(Locale.getDefault(), "Statement saved, %d pages.", pages) : "Export cancelled.";
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Export failed: " + e.getMessage(), e);
+            message = "Export failed: " + e.getMessage();
+        }
+        if (!complete) {
+            deleteDocument(uri);
+        }
+        Export finished = new Export(false, 0, 0, message);
+        // Together on the main thread, so an export started next is not shown as finished
+        mainHandler.post(() -> {
+            running.set(null);
+            export.setValue(finished);
+        });
+    }
+
+    /**
+     * Removes a cancelled or failed export, so no half-written statement is left behind.
+     */
+    private void deleteDocument(Uri uri) {
+        try {
+            DocumentsContract.deleteDocument(getApplication().getContentResolver(), uri);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Error deleting incomplete statement: " + e.getMessage());
+        }
+    }
+}
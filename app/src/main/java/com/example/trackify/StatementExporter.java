@@ -0,0 +1,79 @@
+package com.example.trackify;
+
+import android.os.CancellationSignal;
+
+import com.example.trackify.core.StatementPdf;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Exports an account statement of whole months as a PDF. The totals come from the aggregate
+ * queries; the transactions are then read from one cursor over the database and cold storage
+ * and laid out as they arrive, each full page going straight to the file, so a statement of
+ * several years takes as little memory as one of a month.
+ */
+final class StatementExporter {
+
+    /**
+     * Called on the exporting thread every {@link StatementPdf#PROGRESS_INTERVAL} transactions.
+     */
+    interface Listener {
+        /**
+         * @param total the period's transactions, from the summary.
+         */
+        void onProgress(int written, long total);
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private StatementExporter() {
+    }
+
+    /**
+     * Writes the whole statement to {@code out}; call it off the main thread. {@code out} is
+     * flushed but not closed.
+     *
+     * @param fromMonth first month, yyyy-MM.
+     * @param toMonth   last month, inclusive.
+     * @return the number of pages, or 0 if {@code cancellation} was cancelled, in which case
+     * {@code out} holds an incomplete file.
+     */
+    static int export(DatabaseHelper databaseHelper, String userEmail, String fromMonth, String toMonth, OutputStream out,
+                      CancellationSignal cancellation, Listener listener) throws IOException {
+        StatementPdf.Summary summary = databaseHelper.getStatementSummary(userEmail, fromMonth, toMonth,
+                RecurringTransactionJobService.today());
+        if (summary == null) {
+            throw new IOException("Cannot read the statement's totals");
+        }
+        StatementPdf statement = new StatementPdf(new BufferedOutputStream(out, BUFFER_SIZE), summary);
+        IOException[] failure = new IOException[1];
+        int rows = databaseHelper.queryStatementTransactions(userEmail, fromMonth, toMonth, cancellation, transaction -> {
+            if (failure[0] != null) {
+                return;
+            }
+            try {
+                statement.add(transaction);
+            } catch (IOException e) {
+                // Stops the cursor; rethrown below
+                failure[0] = e;
+                cancellation.cancel();
+                return;
+            }
+            if (statement.transactions() % StatementPdf.PROGRESS_INTERVAL == 0) {
+                listener.onProgress(statement.transactions(), summary.transactions);
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        if (cancellation.isCanceled()) {
+            return 0;
+        }
+        if (rows < 0) {
+            throw new IOException("Cannot read the statement's transactions");
+        }
+        return statement.finish();
+    }
+}
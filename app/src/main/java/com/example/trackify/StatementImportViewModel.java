@@ -0,0 +1,142 @@
+package com.example.trackify;
+
+import android.app.Application;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.trackify.core.StatementImport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link ProfileActivity}'s statement import, kept across rotation like
+ * {@link StatementExportViewModel}. The import runs on a thread this view model owns, so a
+ * recreated screen shows its progress and result again and cannot start a second one while it
+ * runs. An import cannot be stopped half way, so leaving the screen lets it finish.
+ */
+public class StatementImportViewModel extends AndroidViewModel {
+
+    private static final String TAG = "StatementImport";
+    private static final String PREF_NAME = "TrackifyPrefs";
+    private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
+
+    /**
+     * Where the import stands, as shown.
+     */
+    static final class Import {
+        final boolean running;
+        final long bytesRead;
+        // The file's size, or -1 if the provider does not say
+        final long totalBytes;
+        final int lines;
+        final int imported;
+        // The outcome once finished; null while running
+        final String message;
+
+        Import(boolean running, long bytesRead, long totalBytes, int lines, int imported, String message) {
+            this.running = running;
+            this.bytesRead = bytesRead;
+            this.totalBytes = totalBytes;
+            this.lines = lines;
+            this.imported = imported;
+            this.message = message;
+        }
+    }
+
+    private final String userEmail;
+    private final MutableLiveData<Import> progress = new MutableLiveData<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public StatementImportViewModel(@NonNull Application application) {
+        super(application);
+        userEmail = application.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).getString(KEY_LOGGED_IN_EMAIL, null);
+    }
+
+    /**
+     * The running or last import; no value until one starts.
+     */
+    LiveData<Import> progress() {
+        return progress;
+    }
+
+    boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Imports {@code uri} on a background thread. Returns false if an import is already running
+     * or nobody is logged in.
+     */
+    boolean start(Uri uri) {
+        DatabaseHelper databaseHelper = UserSession.database(getApplication());
+        if (databaseHelper == null || userEmail == null || !running.compareAndSet(false, true)) {
+            return false;
+        }
+        progress.setValue(new Import(true, 0, -1, 0, 0, null));
+        // Parsing and inserting scale with the file, so they never run on the main thread
+        new Thread(() -> run(databaseHelper, uri), "StatementImport").start();
+        return true;
+    }
+
+    private void run(DatabaseHelper databaseHelper, Uri uri) {
+        long totalBytes = statementSize(uri);
+        String message;
+        try (InputStream in = getApplication().getContentResolver().openInputStream(uri)) {
+            if (in == null) {
+                throw new IOException("Cannot open " + uri);
+            }
+            StatementImport.Result result = StatementImporter.importStatement(databaseHelper, userEmail, in, totalBytes,
+                    (bytesRead, total, soFar) -> progress.postValue(
+                            new Import(true, bytesRead, total, soFar.lines, soFar.imported, null)));
+            message = String.format(Locale.getDefault(), "Imported %d transactions, skipped %d duplicates",
+                    result.imported, result.duplicates);
+            if (result.rejected > 0) {
+                message += String.format(Locale.getDefault(), " and %d unreadable lines", result.rejected);
+            }
+            message += ".";
+        } catch (StatementImporter.StoppedException e) {
+            Log.e(TAG, "Import stopped: " + e.getMessage(), e);
+            message = (e.isFormatError() ? "Not a statement this app can read: " : "Import failed: ") + e.getMessage()
+                    + String.format(Locale.getDefault(), ". %d transactions from before the problem were imported.",
+                    e.imported);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Import failed: " + e.getMessage(), e);
+            message = "Import failed: " + e.getMessage();
+        }
+        Import finished = new Import(false, 0, totalBytes, 0, 0, message);
+        // Together on the main thread, so an import started next is not shown as finished
+        mainHandler.post(() -> {
+            running.set(false);
+            progress.setValue(finished);
+        });
+    }
+
+    /**
+     * The picked file's size, or -1 if the provider does not say.
+     */
+    private long statementSize(Uri uri) {
+        try (Cursor cursor = getApplication().getContentResolver().query(uri, new String[]{OpenableColumns.SIZE}, null,
+                null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error reading statement size: " + e.getMessage());
+        }
+        return -1;
+    }
+}
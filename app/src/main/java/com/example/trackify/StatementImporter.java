@@ -0,0 +1,142 @@
+package com.example.trackify;
+
+import com.example.trackify.core.Currencies;
+import com.example.trackify.core.StatementImport;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Imports a bank statement into an account through the database's bulk path: the file is
+ * parsed as it is read, and rows are committed thousands at a time. Lines imported before,
+ * from this file or an overlapping one, are skipped by their import key.
+ */
+final class StatementImporter implements StatementImport.Target {
+
+    /**
+     * Called on the importing thread every {@link StatementImport#PROGRESS_INTERVAL} lines.
+     */
+    interface Listener {
+        /**
+         * @param totalBytes the file's size, or -1 if it is not known.
+         */
+        void onProgress(long bytesRead, long totalBytes, StatementImport.Result soFar);
+    }
+
+    /**
+     * An import that stopped part way, on a line the parser refused or a failed read or write.
+     * The batch being written is rolled back; lines committed before it stay imported and are
+     * skipped as duplicates when the file is imported again.
+     */
+    static final class StoppedException extends IOException {
+        // Lines that stay imported
+        final int imported;
+
+        StoppedException(int imported, Exception cause) {
+            super(cause.getMessage(), cause);
+            this.imported = imported;
+        }
+
+        /**
+         * Whether the file itself is at fault rather than reading it or the database.
+         */
+        boolean isFormatError() {
+            return getCause() instanceof StatementImport.FormatException;
+        }
+    }
+
+    private final DatabaseHelper.BulkInserter inserter;
+    private final String userEmail;
+
+    private StatementImporter(DatabaseHelper.BulkInserter inserter, String userEmail) {
+        this.inserter = inserter;
+        this.userEmail = userEmail;
+    }
+
+    /**
+     * Reads the whole statement; call it off the main thread.
+     *
+     * @param totalBytes the file's size for progress reports, or -1 if it is not known.
+     * @throws StoppedException if the import failed part way.
+     */
+    static StatementImport.Result importStatement(DatabaseHelper databaseHelper, String userEmail, InputStream in,
+                                                  long totalBytes, Listener listener) throws StoppedException {
+        CountingInputStream counted = new CountingInputStream(in);
+        Reader reader = new InputStreamReader(counted, StandardCharsets.UTF_8);
+        DatabaseHelper.BulkInserter inserter = databaseHelper.openBulkInserter();
+        StatementImport.Result result;
+        try {
+            result = StatementImport.read(reader, isDayFirst(Locale.getDefault()), Currencies.BASE,
+                    databaseHelper.getCategoryMatcher(), new StatementImporter(inserter, userEmail),
+                    soFar -> listener.onProgress(counted.count, totalBytes, soFar));
+        } catch (IOException | RuntimeException e) {
+            inserter.abort();
+            throw new StoppedException(inserter.getCommittedRows(), e);
+        }
+        inserter.close();
+        return result;
+    }
+
+    /**
+     * Whether numeric dates in this locale put the day before the month. Only the US and a few
+     * neighbours write month first; elsewhere, India included, 03/04 is the 3rd of April.
+     */
+    static boolean isDayFirst(Locale locale) {
+        switch (locale.getCountry()) {
+            case "US":
+            case "PH":
+            case "BZ":
+            case "FM":
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public boolean insertIfNew(long key, String type, String category, double amount, String currency, String date,
+                               String note) {
+        return inserter.expenseIfNew(key, userEmail, type, category, amount, currency, date, note);
+    }
+
+    /**
+     * Counts the bytes read, for progress against the file's size.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
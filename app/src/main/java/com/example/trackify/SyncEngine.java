@@ -0,0 +1,111 @@
+package com.example.trackify;
+
+import android.util.Log;
+
+import com.example.trackify.core.SyncPayload;
+import com.example.trackify.core.SyncServer;
+
+import java.io.IOException;
+
+/**
+ * Two-way delta sync of one account's transactions with a {@link SyncServer}.
+ *
+ * <p>Every insert, update and delete is recorded in the database's change log by triggers. A sync
+ * pushes only the log entries after the pushed watermark, then pulls only the server changes
+ * after the pulled watermark, both in batches of {@link #BATCH_SIZE} compressed records.
+ * Conflicts are settled by last-writer-wins on both sides. Watermarks move only after a batch
+ * has been handled, and applying a batch twice is harmless, so an interrupted sync simply
+ * resumes. Does network and disk I/O: call it off the main thread.
+ */
+public final class SyncEngine {
+
+    private static final String TAG = "SyncEngine";
+
+    static final int BATCH_SIZE = 500;
+
+    private final DatabaseHelper databaseHelper;
+    private final SyncServer server;
+    private final String account;
+
+    /**
+     * What one {@link #sync()} did, including the bytes that went over the wire.
+     */
+    public static final class Result {
+        public int pushed;
+        public int rejected;
+        public int pulled;
+        public int applied;
+        public long bytesSent;
+        public long bytesReceived;
+
+        @Override
+        public String toString() {
+            return "pushed " + pushed + " (" + rejected + " rejected), pulled " + pulled + " (" + applied
+                    + " applied), " + bytesSent + " B sent, " + bytesReceived + " B received";
+        }
+    }
+
+    public SyncEngine(DatabaseHelper databaseHelper, SyncServer server, String account) {
+        this.databaseHelper = databaseHelper;
+        this.server = server;
+        this.account = account;
+    }
+
+    public Result sync() throws IOException {
+        Result result = new Result();
+        DatabaseHelper.SyncState state = databaseHelper.getSyncState();
+        push(state, result);
+        pull(state, result);
+        Log.i(TAG, "Synced " + account + ": " + result);
+        return result;
+    }
+
+    private void push(DatabaseHelper.SyncState state, Result result) throws IOException {
+        long pushedVersion = state.pushedVersion;
+        while (true) {
+            DatabaseHelper.PendingChanges batch = databaseHelper.getPendingChanges(pushedVersion, BATCH_SIZE);
+            if (batch.records.isEmpty()) {
+                return;
+            }
+            byte[] request = new SyncPayload(state.deviceId, 0, batch.records.size() == BATCH_SIZE, batch.records).encode();
+            byte[] response = server.push(account, request);
+            result.bytesSent += request.length;
+            result.bytesReceived += response.length;
+            result.pushed += batch.records.size();
+
+            // The server kept a newer version of these; take it instead of ours
+            SyncPayload rejected = SyncPayload.decode(response);
+            result.rejected += rejected.records.size();
+            apply(rejected);
+
+            databaseHelper.markPushed(batch.lastVersion);
+            pushedVersion = batch.lastVersion;
+        }
+    }
+
+    private void pull(DatabaseHelper.SyncState state, Result result) throws IOException {
+        long pulledVersion = state.pulledVersion;
+        SyncPayload changes;
+        do {
+            byte[] response = server.pull(account, state.deviceId, pulledVersion, BATCH_SIZE);
+            result.bytesReceived += response.length;
+            changes = SyncPayload.decode(response);
+            result.pulled += changes.records.size();
+            result.applied += apply(changes);
+
+            databaseHelper.markPulled(changes.highWater);
+            pulledVersion = changes.highWater;
+        } while (changes.hasMore);
+    }
+
+    /**
+     * Fails the sync rather than moving a watermark past changes that were not written.
+     */
+    private int apply(SyncPayload changes) throws IOException {
+        int applied = databaseHelper.applyRemoteChanges(changes.records);
+        if (applied < 0) {
+            throw new IOException("Could not apply " + changes.records.size() + " changes from the server");
+        }
+        return applied;
+    }
+}
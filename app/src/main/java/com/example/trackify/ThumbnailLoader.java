@@ -0,0 +1,189 @@
+package com.example.trackify;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import com.example.trackify.core.FileLruCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Receipt thumbnails for the transaction lists, in two tiers: decoded bitmaps in a memory LRU,
+ * and small JPEGs in a disk LRU under the cache directory. Only a miss in both decodes the
+ * full image, downsampled while decoding, and always on a background thread, so binding a row
+ * while scrolling costs at most a map lookup on the main thread.
+ */
+final class ThumbnailLoader {
+
+    private static final String TAG = "ThumbnailLoader";
+    private static final String DISK_DIRECTORY = "thumbnails";
+
+    // Long edge of a thumbnail; a little over the row's 40dp at xxhdpi
+    static final int THUMBNAIL_PX = 128;
+    private static final int JPEG_QUALITY = 85;
+    // A few thousand thumbnails on disk; a full list's worth plus plenty of scrolling in memory
+    static final long DISK_BUDGET_BYTES = 16L * 1024 * 1024;
+    private static final int MEMORY_BUDGET_DIVISOR = 16;
+    private static final int DECODE_THREADS = 2;
+
+    private static ThumbnailLoader instance;
+
+    private final LruCache<String, Bitmap> memory;
+    private final FileLruCache disk;
+    private final ExecutorService decoder = Executors.newFixedThreadPool(DECODE_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "ThumbnailDecoder");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    ThumbnailLoader(File diskDirectory, long diskBudgetBytes, int memoryBudgetBytes) {
+        this.disk = new FileLruCache(diskDirectory, diskBudgetBytes);
+        this.memory = new LruCache<String, Bitmap>(memoryBudgetBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * The process-wide loader; its caches are shared by every list.
+     */
+    static synchronized ThumbnailLoader get(Context context) {
+        if (instance == null) {
+            int memoryBudget = (int) (Runtime.getRuntime().maxMemory() / MEMORY_BUDGET_DIVISOR);
+            instance = new ThumbnailLoader(new File(context.getApplicationContext().getCacheDir(), DISK_DIRECTORY),
+                    DISK_BUDGET_BYTES, memoryBudget);
+        }
+        return instance;
+    }
+
+    /**
+     * Shows the receipt's thumbnail in {@code view}: at once from memory, otherwise once it has
+     * been loaded in the background. A recycled view that has moved on to another receipt by
+     * then is left alone.
+     */
+    void load(ImageView view, File receipt, String hash) {
+        view.setTag(R.id.image_receipt_thumbnail, hash);
+        Bitmap cached = memory.get(hash);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+        view.setImageDrawable(null);
+        decoder.execute(() -> {
+            Bitmap thumbnail = loadThumbnail(receipt, hash);
+            if (thumbnail == null) {
+                return;
+            }
+            mainHandler.post(() -> {
+                if (hash.equals(view.getTag(R.id.image_receipt_thumbnail))) {
+                    view.setImageBitmap(thumbnail);
+                }
+            });
+        });
+    }
+
+    /**
+     * Forgets which receipt {@code view} was waiting for, so a late load does not land in a row
+     * that no longer has one.
+     */
+    void clear(ImageView view) {
+        view.setTag(R.id.image_receipt_thumbnail, null);
+        view.setImageDrawable(null);
+    }
+
+    /**
+     * Builds the receipt's disk thumbnail in the background, e.g. right after it is attached,
+     * so the lists never have to decode the full image.
+     */
+    void prefetch(File receipt, String hash) {
+        decoder.execute(() -> loadThumbnail(receipt, hash));
+    }
+
+    /**
+     * Memory, then disk, then the full image. Runs on the decoder threads.
+     *
+     * @return the thumbnail, or null if the receipt is missing or not an image.
+     */
+    Bitmap loadThumbnail(File receipt, String hash) {
+        Bitmap thumbnail = memory.get(hash);
+        if (thumbnail != null) {
+            return thumbnail;
+        }
+        File cached = disk.get(hash);
+        if (cached != null) {
+            thumbnail = BitmapFactory.decodeFile(cached.getPath());
+        }
+        if (thumbnail == null) {
+            thumbnail = decodeDownsampled(receipt);
+            if (thumbnail == null) {
+                return null;
+            }
+            ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+            thumbnail.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, jpeg);
+            try {
+                disk.put(hash, jpeg.toByteArray());
+            } catch (IOException e) {
+                Log.e(TAG, "Error caching thumbnail " + hash + ": " + e.getMessage());
+            }
+        }
+        memory.put(hash, thumbnail);
+        return thumbnail;
+    }
+
+    /**
+     * Decodes at the largest power-of-two reduction that still covers the thumbnail size, then
+     * scales the rest of the way, so a 12-megapixel photo never becomes a full-size bitmap.
+     */
+    private static Bitmap decodeDownsampled(File receipt) {
+        if (!receipt.exists()) {
+            return null;
+        }
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(receipt.getPath(), bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return null;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize(bounds.outWidth, bounds.outHeight, THUMBNAIL_PX);
+        Bitmap sampled = BitmapFactory.decodeFile(receipt.getPath(), options);
+        if (sampled == null) {
+            return null;
+        }
+        float scale = Math.min(1f, (float) THUMBNAIL_PX / Math.max(sampled.getWidth(), sampled.getHeight()));
+        if (scale == 1f) {
+            return sampled;
+        }
+        Bitmap scaled = Bitmap.createScaledBitmap(sampled, Math.max(1, Math.round(sampled.getWidth() * scale)),
+                Math.max(1, Math.round(sampled.getHeight() * scale)), true);
+        if (scaled != sampled) {
+            sampled.recycle();
+        }
+        return scaled;
+    }
+
+    /**
+     * The largest power of two that keeps the long edge at or above {@code target}.
+     */
+    static int sampleSize(int width, int height, int target) {
+        int longEdge = Math.max(width, height);
+        int sampleSize = 1;
+        while (longEdge / (sampleSize * 2) >= target) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
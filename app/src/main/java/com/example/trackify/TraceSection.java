@@ -0,0 +1,110 @@
+package com.example.trackify;
+
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Named sections around the stages of the list pipeline (query, map, diff, bind). Each section
+ * shows up in systrace/Perfetto, and main-thread sections are also timed so {@link FrameMonitor}
+ * can say which stage blew a frame's budget.
+ *
+ * <p>Every body is guarded by {@link BuildConfig#DEBUG}, a compile-time constant, so release
+ * builds compile the calls down to nothing. Sections nest; a parent's recorded time excludes its
+ * children, so a map section inside a query is not counted twice.
+ */
+public final class TraceSection {
+
+    public static final String QUERY = "query";
+    public static final String MAP = "map";
+    public static final String DIFF = "diff";
+    public static final String BIND = "bind";
+
+    private static final String PREFIX = "Trackify:";
+
+    /**
+     * An open main-thread section. Only touched from the main thread.
+     */
+    private static final class Open {
+        final String stage;
+        final long startNanos;
+        long childNanos;
+
+        Open(String stage, long startNanos) {
+            this.stage = stage;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private static final ArrayDeque<Open> OPEN = new ArrayDeque<>();
+    // Exclusive main-thread time per stage since the last drain; read from the frame-metrics thread
+    private static final Map<String, Long> PENDING = new HashMap<>();
+
+    private TraceSection() {
+    }
+
+    public static void begin(String stage) {
+        if (BuildConfig.DEBUG) {
+            beginSection(stage, PREFIX + stage);
+        }
+    }
+
+    /**
+     * @param detail appended to the trace name, e.g. the query method.
+     */
+    public static void begin(String stage, String detail) {
+        if (BuildConfig.DEBUG) {
+            beginSection(stage, PREFIX + stage + ":" + detail);
+        }
+    }
+
+    /**
+     * Closes the innermost section. Must be called on the thread that opened it.
+     */
+    public static void end() {
+        if (BuildConfig.DEBUG) {
+            Trace.endSection();
+            if (isMainThread()) {
+                Open open = OPEN.pollFirst();
+                if (open == null) {
+                    return;
+                }
+                long totalNanos = SystemClock.elapsedRealtimeNanos() - open.startNanos;
+                Open parent = OPEN.peekFirst();
+                if (parent != null) {
+                    parent.childNanos += totalNanos;
+                }
+                synchronized (PENDING) {
+                    PENDING.merge(open.stage, totalNanos - open.childNanos, Long::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the main-thread time spent in each stage since the previous call, and starts over.
+     */
+    static Map<String, Long> drainMainThreadStages() {
+        synchronized (PENDING) {
+            Map<String, Long> stages = new HashMap<>(PENDING);
+            PENDING.clear();
+            return stages;
+        }
+    }
+
+    private static void beginSection(String stage, String name) {
+        // Trace names are capped at 127 characters
+        Trace.beginSection(name.length() > 127 ? name.substring(0, 127) : name);
+        if (isMainThread()) {
+            OPEN.addFirst(new Open(stage, SystemClock.elapsedRealtimeNanos()));
+        }
+    }
+
+    private static boolean isMainThread() {
+        return Looper.getMainLooper().isCurrentThread();
+    }
+}
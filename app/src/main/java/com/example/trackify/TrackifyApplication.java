@@ -0,0 +1,18 @@
+package com.example.trackify;
+
+import android.app.Application;
+
+/**
+ * Starts opening the logged-in account's database as soon as the process starts, on a background
+ * thread, so schema checks, WAL recovery and the first page reads are done before the dashboard
+ * asks for them. The dashboard's first frame comes from the persisted snapshot either way.
+ */
+public class TrackifyApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Reads preferences too, which is disk I/O of its own
+        new Thread(() -> UserSession.database(this), "DatabaseWarmup").start();
+    }
+}
@@ -6,17 +6,25 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageButton;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.constraintlayout.widget.ConstraintLayout;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.trackify.DatabaseHelper.Transaction;
+import com.example.trackify.core.CurrencyFormatter;
 
-import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
 
 public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.TransactionViewHolder> {
 
@@ -25,15 +33,28 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
     private final OnTransactionActionListener listener;
     // Field to control action button visibility
     private final boolean showActions;
+    private ReceiptStore receiptStore;
 
-    // Use Indian Locale for Rupee sign (₹) and currency formatting
-    private final NumberFormat currencyFormatter = NumberFormat.getCurrencyInstance(new Locale("en", "IN"));
+    // --- Multi-select (only offered when actions are shown) ---
+    // Partial rebind payload: only the highlight and action buttons change
+    private static final Object PAYLOAD_SELECTION = new Object();
+    private static final int COLOR_SELECTED = 0xFFE3F2FD;
+    private static final int COLOR_UNSELECTED = 0xFFFFFFFF;
+    private final Set<Long> selectedIds = new LinkedHashSet<>();
+    private OnSelectionChangedListener selectionListener;
 
     public interface OnTransactionActionListener {
         void onTransactionEdit(Transaction transaction);
         void onTransactionDelete(long transactionId);
     }
 
+    public interface OnSelectionChangedListener {
+        /**
+         * Called whenever rows are selected or deselected; 0 means selection mode has ended.
+         */
+        void onSelectionChanged(int selectedCount);
+    }
+
     /**
      * Constructor: Accepts a boolean to show/hide action buttons.
      */
@@ -42,13 +63,107 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
         this.transactionList = transactionList;
         this.listener = listener;
         this.showActions = showActions;
-        // Ensure decimal places are limited for clean display
-        this.currencyFormatter.setMaximumFractionDigits(2);
     }
 
+    /**
+     * Replaces the list, rebinding only rows that were added, removed or changed.
+     */
     public void updateData(List<Transaction> newTransactionList) {
+        List<Transaction> oldTransactionList = this.transactionList;
+        TraceSection.begin(TraceSection.DIFF);
+        DiffUtil.DiffResult diff;
+        try {
+            diff = DiffUtil.calculateDiff(new TransactionDiffCallback(oldTransactionList, newTransactionList));
+        } finally {
+            TraceSection.end();
+        }
         this.transactionList = newTransactionList;
-        notifyDataSetChanged();
+        diff.dispatchUpdatesTo(this);
+        pruneSelection();
+    }
+
+    // --- Selection ---
+
+    /**
+     * Enables long-press multi-select. While anything is selected, taps toggle rows instead of
+     * the per-row edit and delete buttons.
+     */
+    public void setOnSelectionChangedListener(OnSelectionChangedListener selectionListener) {
+        this.selectionListener = selectionListener;
+    }
+
+    public boolean isSelecting() {
+        return !selectedIds.isEmpty();
+    }
+
+    /**
+     * Ids of the selected rows, in the order they were selected.
+     */
+    public List<Long> getSelectedIds() {
+        return new ArrayList<>(selectedIds);
+    }
+
+    /**
+     * The selected rows that are currently in the list.
+     */
+    public List<Transaction> getSelectedTransactions() {
+        List<Transaction> selected = new ArrayList<>(selectedIds.size());
+        for (Transaction transaction : transactionList) {
+            if (selectedIds.contains(transaction.id)) {
+                selected.add(transaction);
+            }
+        }
+        return selected;
+    }
+
+    public void clearSelection() {
+        if (selectedIds.isEmpty()) {
+            return;
+        }
+        selectedIds.clear();
+        // Leaving selection mode brings every row's action buttons back
+        notifyItemRangeChanged(0, transactionList.size(), PAYLOAD_SELECTION);
+        dispatchSelectionChanged();
+    }
+
+    private void toggleSelection(int position) {
+        boolean wasSelecting = isSelecting();
+        long id = transactionList.get(position).id;
+        if (!selectedIds.remove(id)) {
+            selectedIds.add(id);
+        }
+        if (wasSelecting != isSelecting()) {
+            // Entering or leaving selection mode hides or shows every row's action buttons
+            notifyItemRangeChanged(0, transactionList.size(), PAYLOAD_SELECTION);
+        } else {
+            notifyItemChanged(position, PAYLOAD_SELECTION);
+        }
+        dispatchSelectionChanged();
+    }
+
+    /**
+     * Drops selected ids that are no longer listed, e.g. after a month change or a delete.
+     */
+    private void pruneSelection() {
+        if (selectedIds.isEmpty()) {
+            return;
+        }
+        Set<Long> listed = new HashSet<>(transactionList.size() * 2);
+        for (Transaction transaction : transactionList) {
+            listed.add(transaction.id);
+        }
+        if (selectedIds.retainAll(listed)) {
+            if (selectedIds.isEmpty()) {
+                notifyItemRangeChanged(0, transactionList.size(), PAYLOAD_SELECTION);
+            }
+            dispatchSelectionChanged();
+        }
+    }
+
+    private void dispatchSelectionChanged() {
+        if (selectionListener != null) {
+            selectionListener.onSelectionChanged(selectedIds.size());
+        }
     }
 
     @NonNull
@@ -61,14 +176,32 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
 
     @Override
     public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position) {
-        Transaction transaction = transactionList.get(position);
+        TraceSection.begin(TraceSection.BIND);
+        try {
+            bind(holder, transactionList.get(position));
+        } finally {
+            TraceSection.end();
+        }
+    }
 
+    @Override
+    public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position, @NonNull List<Object> payloads) {
+        // PAYLOAD_SELECTION is the only payload this adapter posts; DiffUtil changes come without one
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        bindSelection(holder, transactionList.get(position));
+    }
+
+    private void bind(TransactionViewHolder holder, Transaction transaction) {
         holder.categoryText.setText(transaction.category);
         holder.noteText.setText(transaction.note.isEmpty() ? "No Note" : transaction.note);
         holder.dateText.setText(transaction.date);
 
         // --- Amount Formatting and Coloring ---
-        holder.amountText.setText(currencyFormatter.format(transaction.amount));
+        // In the currency it was recorded in; rupees keep the Indian grouping
+        holder.amountText.setText(CurrencyFormatter.format(transaction.amount, transaction.currency));
 
         int iconColor;
         // Use the first letter of the category for the icon text
@@ -91,9 +224,52 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
         }
         holder.iconText.setText(iconLetter);
 
+        // --- Receipt thumbnail: from the memory or disk cache, never a full decode on this thread ---
+        if (holder.receiptImage != null) {
+            if (transaction.receiptHash != null) {
+                holder.receiptImage.setVisibility(View.VISIBLE);
+                if (receiptStore == null) {
+                    // Every row belongs to the logged-in account
+                    receiptStore = new ReceiptStore(context, transaction.userEmail);
+                }
+                ThumbnailLoader.get(context).load(holder.receiptImage, receiptStore.file(transaction.receiptHash), transaction.receiptHash);
+            } else {
+                holder.receiptImage.setVisibility(View.GONE);
+                ThumbnailLoader.get(context).clear(holder.receiptImage);
+            }
+        }
+
         // --- Action Button Visibility and Listeners ---
+        bindSelection(holder, transaction);
+    }
+
+    private void bindSelection(TransactionViewHolder holder, Transaction transaction) {
+        boolean selectable = showActions && selectionListener != null;
+        if (holder.contentLayout != null) {
+            holder.contentLayout.setBackgroundColor(selectable && selectedIds.contains(transaction.id)
+                    ? COLOR_SELECTED : COLOR_UNSELECTED);
+        }
+        if (selectable) {
+            holder.itemView.setOnLongClickListener(v -> {
+                int position = holder.getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    toggleSelection(position);
+                }
+                return true;
+            });
+            holder.itemView.setOnClickListener(v -> {
+                int position = holder.getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION && isSelecting()) {
+                    toggleSelection(position);
+                }
+            });
+        } else {
+            holder.itemView.setOnLongClickListener(null);
+            holder.itemView.setOnClickListener(null);
+        }
+
         if (holder.layoutActions != null) {
-            if (showActions) {
+            if (showActions && !isSelecting()) {
                 holder.layoutActions.setVisibility(View.VISIBLE);
 
                 // Set separate listeners for edit and delete buttons ONLY if visible
@@ -122,10 +298,53 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
         return transactionList.size();
     }
 
+    /**
+     * Rows are the same transaction when their ids match, and unchanged when every displayed field matches.
+     */
+    private static class TransactionDiffCallback extends DiffUtil.Callback {
+        private final List<Transaction> oldList;
+        private final List<Transaction> newList;
+
+        TransactionDiffCallback(List<Transaction> oldList, List<Transaction> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldList.get(oldItemPosition).id == newList.get(newItemPosition).id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            Transaction oldItem = oldList.get(oldItemPosition);
+            Transaction newItem = newList.get(newItemPosition);
+            return oldItem.amount == newItem.amount
+                    && Objects.equals(oldItem.type, newItem.type)
+                    && Objects.equals(oldItem.category, newItem.category)
+                    && Objects.equals(oldItem.date, newItem.date)
+                    && Objects.equals(oldItem.note, newItem.note)
+                    && Objects.equals(oldItem.currency, newItem.currency)
+                    && Objects.equals(oldItem.receiptHash, newItem.receiptHash);
+        }
+    }
+
     public static class TransactionViewHolder extends RecyclerView.ViewHolder {
         public TextView categoryText, noteText, amountText, dateText, iconText;
         public ImageButton editButton, deleteButton;
         public LinearLayout layoutActions; // Reference to the actions layout
+        public ConstraintLayout contentLayout; // Highlighted while selected
+        public ImageView receiptImage; // Shown only for transactions with a receipt
 
         public TransactionViewHolder(View view) {
             super(view);
@@ -140,6 +359,8 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
             editButton = view.findViewById(R.id.button_edit);
             deleteButton = view.findViewById(R.id.button_delete);
             layoutActions = view.findViewById(R.id.layout_actions);
+            contentLayout = view.findViewById(R.id.layout_transaction_content);
+            receiptImage = view.findViewById(R.id.image_receipt_thumbnail);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,191 @@
+package com.example.trackify;
+
+import android.app.Application;
+import android.content.Context;
+
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.SavedStateHandle;
+
+import com.example.trackify.core.QueryScheduler;
+import com.example.trackify.core.TransactionQuery;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * What {@link ViewTransactionsFragment} shows, kept across rotation and trips to other screens:
+ * the month, the filter, the month's totals and transactions, and the months cached around it.
+ * The screen is read again only when the month or filter changes or the data does. The month
+ * is also kept in saved state, so it survives the process being killed in the background.
+ */
+public class TransactionsViewModel extends AndroidViewModel {
+
+    private static final String PREF_NAME = "TrackifyPrefs";
+    private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
+    private static final String DATE_FORMAT_DB = "yyyy-MM";
+    // Saved state: the month on screen, as "yyyy-MM"
+    private static final String KEY_MONTH = "month";
+
+    /**
+     * One month as shown, with the month and filter it was read for.
+     */
+    static final class Screen {
+        final String month;
+        final TransactionQuery filter;
+        final MonthPrefetcher.Month data;
+
+        Screen(String month, TransactionQuery filter, MonthPrefetcher.Month data) {
+            this.month = month;
+            this.filter = filter;
+            this.data = data;
+        }
+    }
+
+    private final SavedStateHandle savedState;
+    private final DatabaseHelper databaseHelper;
+    private final String userEmail;
+    // Every read, on screen or prefetched, one at a time in the prefetcher's scheduler order
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "TransactionsLoad"));
+    private final MonthPrefetcher monthPrefetcher;
+    private final DatabaseLiveData<Screen> screen;
+    // The month on screen, "yyyy-MM", mirrored in saved state; read on the load thread
+    private volatile String month;
+    // Everything but the month; read by prefetches too
+    private volatile TransactionQuery filter;
+
+    public TransactionsViewModel(@NonNull Application application, @NonNull SavedStateHandle savedState) {
+        super(application);
+        this.savedState = savedState;
+        databaseHelper = UserSession.database(application);
+        userEmail = application.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE).getString(KEY_LOGGED_IN_EMAIL, null);
+        if (userEmail != null) {
+            filter = TransactionQuery.forUser(userEmail).build();
+        }
+        String savedMonth = savedState.get(KEY_MONTH);
+        month = savedMonth != null ? savedMonth
+                : new SimpleDateFormat(DATE_FORMAT_DB, Locale.US).format(Calendar.getInstance().getTime());
+        monthPrefetcher = new MonthPrefetcher(this::loadMonth, loadExecutor);
+        application.registerComponentCallbacks(monthPrefetcher);
+        screen = new DatabaseLiveData<>(databaseHelper, this::loadScreen);
+    }
+
+    /**
+     * The screen for the current month and filter. Observe it only when someone is logged in.
+     */
+    LiveData<Screen> screen() {
+        return screen;
+    }
+
+    String userEmail() {
+        return userEmail;
+    }
+
+    /**
+     * The month on screen, "yyyy-MM"; this month until one is picked.
+     */
+    String month() {
+        return month;
+    }
+
+    void setMonth(String month) {
+        this.month = month;
+        savedState.set(KEY_MONTH, month);
+        screen.reload();
+    }
+
+    TransactionQuery filter() {
+        return filter;
+    }
+
+    /**
+     * Replaces everything but the month. Cached months were read with the old filter, so they go.
+     */
+    void setFilter(TransactionQuery filter) {
+        this.filter = filter;
+        monthPrefetcher.invalidate();
+        screen.reload();
+    }
+
+    /**
+     * Runs a batch edit on the load thread, then hands its count of changed rows to
+     * {@code done} on the main thread. The list reloads itself once the edit commits.
+     */
+    void runBatch(IntSupplier edit, IntConsumer done) {
+        loadExecutor.execute(new BatchEdit(edit, changed -> mainHandler.post(() -> done.accept(changed))));
+    }
+
+    @Override
+    protected void onCleared() {
+        getApplication().unregisterComponentCallbacks(monthPrefetcher);
+        // Queued reads are no longer wanted, but a confirmed edit still has to happen
+        List<Runnable> edits = new ArrayList<>();
+        for (Runnable task : loadExecutor.shutdownNow()) {
+            if (task instanceof BatchEdit) {
+                edits.add(task);
+            }
+        }
+        if (!edits.isEmpty()) {
+            new Thread(() -> edits.forEach(Runnable::run), "TransactionsBatch").start();
+        }
+    }
+
+    /**
+     * A batch edit queued behind the reads, told apart from them when the view model is cleared.
+     */
+    private static final class BatchEdit implements Runnable {
+        private final IntSupplier edit;
+        private final IntConsumer done;
+
+        BatchEdit(IntSupplier edit, IntConsumer done) {
+            this.edit = edit;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            done.accept(edit.getAsInt());
+        }
+    }
+
+    /**
+     * Asks for the month on screen, usually already cached by a prefetch unless the data changed
+     * since, then queues its neighbours behind it.
+     */
+    private void loadScreen(boolean dataChanged, Consumer<Screen> deliver) {
+        String month = this.month;
+        TransactionQuery query = filter;
+        if (dataChanged) {
+            monthPrefetcher.invalidate();
+        }
+        monthPrefetcher.load(month, data -> deliver.accept(new Screen(month, query, data)));
+        monthPrefetcher.prefetchAround(month);
+    }
+
+    /**
+     * Runs on the load thread. The list, the expensive part, stops early if the read is
+     * superseded.
+     */
+    private MonthPrefetcher.Month loadMonth(String monthYearFilter, QueryScheduler.Cancellation cancellation) {
+        CancellationSignal cancellationSignal = new CancellationSignal();
+        cancellation.setOnCancelListener(cancellationSignal::cancel);
+        return new MonthPrefetcher.Month(
+                databaseHelper.getMonthlyTotal(userEmail, monthYearFilter, "Income"),
+                databaseHelper.getMonthlyTotal(userEmail, monthYearFilter, "Expense"),
+                databaseHelper.getTransactions(filter.toBuilder().month(monthYearFilter).build(), cancellationSignal));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.trackify;
+
+import android.content.Context;
+
+import com.example.trackify.core.WorkloadGenerator;
+
+import java.io.Closeable;
+
+/**
+ * Loads generated workloads across accounts: each user goes into the directory, and their rows
+ * into their own database through its bulk path. Expects each user's rows to follow the user,
+ * which is the order {@link WorkloadGenerator} produces.
+ */
+public class UserBulkLoader implements WorkloadGenerator.Sink, Closeable {
+
+    private final Context context;
+    private final UserDirectoryHelper userDirectory;
+    private String currentEmail;
+    private DatabaseHelper currentDatabase;
+    private DatabaseHelper.BulkInserter currentInserter;
+
+    public UserBulkLoader(Context context) {
+        this.context = context.getApplicationContext();
+        this.userDirectory = new UserDirectoryHelper(this.context);
+    }
+
+    @Override
+    public void user(String email, String name, String password) {
+        closeCurrent();
+        userDirectory.insertUserIfAbsent(email, name, password);
+        currentEmail = email;
+        currentDatabase = new DatabaseHelper(context, email);
+        currentInserter = currentDatabase.openBulkInserter();
+    }
+
+    @Override
+    public void expense(String userEmail, String type, String category, double amount, String date, String note) {
+        if (!userEmail.equals(currentEmail)) {
+            throw new IllegalStateException("Rows for " + userEmail + " must follow that user");
+        }
+        currentInserter.expense(userEmail, type, category, amount, date, note);
+    }
+
+    @Override
+    public void close() {
+        closeCurrent();
+        userDirectory.close();
+    }
+
+    private void closeCurrent() {
+        if (currentInserter != null) {
+            currentInserter.close();
+            currentDatabase.close();
+            currentInserter = null;
+            currentDatabase = null;
+        }
+    }
+}
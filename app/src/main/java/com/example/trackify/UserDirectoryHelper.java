@@ -0,0 +1,241 @@
+package com.example.trackify;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+import android.util.Patterns;
+
+import com.example.trackify.core.PasswordHasher;
+
+import java.util.Locale;
+
+/**
+ * The small shared database of accounts and credentials. Each account's transactions live in
+ * its own {@link DatabaseHelper} file; this directory is all that login and registration touch.
+ */
+public class UserDirectoryHelper extends SQLiteOpenHelper {
+
+    // Database Info
+    private static final String DATABASE_NAME = "trackify_users.db";
+    private static final int DATABASE_VERSION = 1;
+    private static final String TAG = "UserDirectoryHelper";
+
+    // Table Names
+    static final String TABLE_USERS = "users";
+
+    // User Table Columns
+    static final String COLUMN_USER_EMAIL = "email";
+    static final String COLUMN_USER_PASSWORD = "password";
+    static final String COLUMN_USER_NAME = "name";
+
+    private final Context context;
+
+    //  UserDetails ---
+    public static class UserDetails {
+        public String email;
+        public String name;
+
+        public UserDetails(String email, String name) {
+            this.email = email;
+            this.name = name;
+        }
+    }
+
+    public UserDirectoryHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        String CREATE_USERS_TABLE = "CREATE TABLE " + TABLE_USERS + "("
+                + COLUMN_USER_EMAIL + " TEXT PRIMARY KEY,"
+                + COLUMN_USER_NAME + " TEXT,"
+                + COLUMN_USER_PASSWORD + " TEXT)";
+        db.execSQL(CREATE_USERS_TABLE);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Version 1 is the first directory schema; future steps go here, additively
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        // A file-existence check per open; the split itself runs once
+        if (LegacyDatabaseMigration.isNeeded(context)) {
+            try {
+                LegacyDatabaseMigration.migrate(context, db);
+            } catch (RuntimeException e) {
+                // Every step is idempotent and the shared file is only deleted at the end, so the next open retries
+                Log.e(TAG, "Error splitting the shared database: " + e.getMessage());
+            }
+        }
+    }
+
+    // ---PASSWORD HASHING METHOD ---//
+
+    /**
+     * Converts a plain text password into a secure SHA-256 hash string.
+     */
+    private String hashPassword(String password) {
+        return PasswordHasher.hash(password);
+    }
+
+
+    // -------------------------------------------------------------------------
+    // --- User Management Methods (MODIFIED FOR HASHING) ---
+    // -------------------------------------------------------------------------
+
+    /**
+     * Attempts to insert a new user. Password is now HASHED before storage.
+     */
+    public int insertUser(String name, String email, String password) {
+        QueryTracer.Span span = QueryTracer.begin("insertUser");
+        int status = -2;
+        try {
+            status = insertUserUntraced(name, email, password);
+            return status;
+        } finally {
+            span.end(status == 1 ? 1 : 0, 0);
+        }
+    }
+
+    private int insertUserUntraced(String name, String email, String password) {
+        // 1. Validation check for email
+        if (!Patterns.EMAIL_ADDRESS.matcher(email).matches()) {
+            return -1;
+        }
+
+        String lowerCaseEmail = email.toLowerCase(Locale.ROOT);
+
+        // 2. Check for duplicate email
+        SQLiteDatabase readDb = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = readDb.query(TABLE_USERS, new String[]{COLUMN_USER_EMAIL}, COLUMN_USER_EMAIL + " = ?", new String[]{lowerCaseEmail}, null, null, null);
+            if (cursor != null && cursor.getCount() > 0) {
+                return 0; // Duplicate email
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            // Explicitly close after read operation
+            if (readDb != null && readDb.isOpen()) {
+                readDb.close();
+            }
+        }
+
+        // 3. Insert user
+        SQLiteDatabase writeDb = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_USER_EMAIL, lowerCaseEmail);
+        values.put(COLUMN_USER_NAME, name);
+
+        // *** HASH THE PASSWORD BEFORE STORING ***
+        String hashedPassword = hashPassword(password);
+        values.put(COLUMN_USER_PASSWORD, hashedPassword);
+
+        long result = writeDb.insert(TABLE_USERS, null, values);
+
+        // Explicitly close after write operation
+        if (writeDb != null && writeDb.isOpen()) {
+            writeDb.close();
+        }
+
+        return (result != -1) ? 1 : -2;
+    }
+
+
+    /**
+     * Fetches user details by email.
+     */
+    public UserDetails getUserDetails(String email) {
+        QueryTracer.Span span = QueryTracer.begin("getUserDetails");
+        SQLiteDatabase db = this.getReadableDatabase();
+        String[] columns = {COLUMN_USER_EMAIL, COLUMN_USER_NAME};
+        String selection = COLUMN_USER_EMAIL + " = ?";
+        String[] selectionArgs = {email};
+        UserDetails userDetails = null;
+        Cursor cursor = null;
+
+        try {
+            cursor = db.query(TABLE_USERS, columns, selection, selectionArgs, null, null, null);
+            if (cursor.moveToFirst()) {
+                int emailIndex = cursor.getColumnIndexOrThrow(COLUMN_USER_EMAIL);
+                int userNameIndex = cursor.getColumnIndexOrThrow(COLUMN_USER_NAME);
+
+                String userEmail = cursor.getString(emailIndex);
+                String userName = cursor.getString(userNameIndex);
+                userDetails = new UserDetails(userEmail, userName);
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            if (db != null && db.isOpen()) {
+                db.close();
+            }
+            span.end(userDetails != null ? 1 : 0, userDetails != null
+                    ? QueryTracer.approximateBytes(userDetails.email) + QueryTracer.approximateBytes(userDetails.name) : 0);
+        }
+        return userDetails;
+    }
+
+
+    /**
+     * Checks if a user exists with the given email and password*/
+    public boolean checkUser(String email, String password) {
+        QueryTracer.Span span = QueryTracer.begin("checkUser");
+        SQLiteDatabase db = this.getReadableDatabase();
+        String[] columns = {COLUMN_USER_EMAIL};
+
+        // *** HASH THE LOGIN PASSWORD ATTEMPT ***
+        String hashedPasswordAttempt = hashPassword(password);
+        String selection = COLUMN_USER_EMAIL + " = ?" + " AND " + COLUMN_USER_PASSWORD + " = ?";
+
+        String lowerCaseEmail = email.toLowerCase(Locale.ROOT);
+        String[] selectionArgs = {lowerCaseEmail, hashedPasswordAttempt};
+
+        Cursor cursor = null;
+        int cursorCount = 0;
+
+        try {
+            cursor = db.query(TABLE_USERS, columns, selection, selectionArgs, null, null, null);
+            cursorCount = cursor.getCount();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            if (db != null && db.isOpen()) {
+                db.close();
+            }
+            span.end(cursorCount, 0);
+        }
+        return cursorCount > 0;
+    }
+
+    /**
+     * Adds an account unless the email is already registered. Used by bulk loads, which skip the
+     * per-call validation of {@link #insertUser}.
+     */
+    public void insertUserIfAbsent(String email, String name, String password) {
+        QueryTracer.Span span = QueryTracer.begin("insertUserIfAbsent");
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_USER_EMAIL, email.toLowerCase(Locale.ROOT));
+        values.put(COLUMN_USER_NAME, name);
+        values.put(COLUMN_USER_PASSWORD, hashPassword(password));
+
+        long result = db.insertWithOnConflict(TABLE_USERS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        if (db != null && db.isOpen()) {
+            db.close();
+        }
+        span.end(result != -1 ? 1 : 0, 0);
+    }
+}
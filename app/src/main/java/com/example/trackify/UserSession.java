@@ -0,0 +1,89 @@
+package com.example.trackify;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+/**
+ * Owns the logged-in account's database. It is opened at login and closed at logout, so the
+ * connection, its page cache and its compiled statements live exactly as long as the session.
+ */
+public final class UserSession {
+
+    private static final String PREF_NAME = "TrackifyPrefs";
+    private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
+
+    private static DatabaseHelper database;
+    private static String databaseEmail;
+    private static WidgetSnapshotWriter widgetSnapshotWriter;
+    // Widget snapshots are rebuilt here, off whichever thread wrote the data
+    private static Handler widgetHandler;
+
+    private UserSession() {
+    }
+
+    /**
+     * Opens {@code userEmail}'s database, closing any other account's first. The file itself is
+     * opened on a background thread so the first screen does not pay for it.
+     */
+    public static synchronized DatabaseHelper open(Context context, String userEmail) {
+        if (database != null && userEmail.equals(databaseEmail)) {
+            return database;
+        }
+        close();
+        DatabaseHelper helper = new DatabaseHelper(context.getApplicationContext(), userEmail);
+        database = helper;
+        databaseEmail = userEmail;
+        Context appContext = context.getApplicationContext();
+        widgetSnapshotWriter = new WidgetSnapshotWriter(appContext, helper, userEmail, widgetHandler(),
+                () -> BalanceWidgetProvider.refresh(appContext));
+        helper.addChangeListener(widgetSnapshotWriter::requestUpdate);
+        new Thread(helper::getWritableDatabase, "UserSessionOpen").start();
+        // The widget may be showing another account, or nothing yet
+        widgetSnapshotWriter.requestUpdate();
+        return helper;
+    }
+
+    /**
+     * The logged-in account's database, reopened after process death. Returns null when nobody
+     * is logged in.
+     */
+    public static synchronized DatabaseHelper database(Context context) {
+        SharedPreferences sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        String userEmail = sharedPreferences.getString(KEY_LOGGED_IN_EMAIL, null);
+        if (userEmail == null) {
+            return null;
+        }
+        return open(context, userEmail);
+    }
+
+    /**
+     * Closes the session's database and releases its memory. Safe to call when nothing is open.
+     */
+    public static synchronized void close() {
+        if (database != null) {
+            widgetSnapshotWriter.cancel();
+            widgetSnapshotWriter = null;
+            database.close();
+            database = null;
+            databaseEmail = null;
+        }
+    }
+
+    /**
+     * Writes the session's widget snapshot, or null when nobody is logged in.
+     */
+    static synchronized WidgetSnapshotWriter snapshotWriter() {
+        return widgetSnapshotWriter;
+    }
+
+    private static Handler widgetHandler() {
+        if (widgetHandler == null) {
+            HandlerThread thread = new HandlerThread("WidgetSnapshot");
+            thread.start();
+            widgetHandler = new Handler(thread.getLooper());
+        }
+        return widgetHandler;
+    }
+}
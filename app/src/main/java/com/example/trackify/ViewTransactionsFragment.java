@@ -1,14 +1,14 @@
 package com.example.trackify;
 
 import android.app.DatePickerDialog;
-import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.text.TextUtils;
 import android.view.LayoutInflater; // Fragment Imports
 import android.view.View;           // Fragment Imports
 import android.view.ViewGroup;        // Fragment Imports
 import android.widget.DatePicker;
+import android.widget.RadioGroup;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -16,6 +16,7 @@ import androidx.annotation.NonNull; // Fragment Annotations
 import androidx.annotation.Nullable; // Fragment Annotations
 import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment; // *** KEY CHANGE: Fragment Base Class ***
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -23,15 +24,23 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntSupplier;
 
 import com.example.trackify.DatabaseHelper.Transaction;
 import com.example.trackify.TransactionAdapter.OnTransactionActionListener;
+import com.example.trackify.core.Categories;
+import com.example.trackify.core.CurrencyFormatter;
+import com.example.trackify.core.TransactionQuery;
 
 // *** KEY CHANGE: Class now extends Fragment ***
-public class ViewTransactionsFragment extends Fragment implements OnTransactionActionListener {
+public class ViewTransactionsFragment extends Fragment implements OnTransactionActionListener,
+        TransactionAdapter.OnSelectionChangedListener {
 
     private RecyclerView recyclerView;
     private TransactionAdapter adapter;
@@ -39,17 +48,28 @@ public class ViewTransactionsFragment extends Fragment implements OnTransactionA
     private TextInputEditText editTextMonthYear;
     private TextView textViewTotalExpense;
     private TextView textViewAvailableBalance;
+    private View layoutBatchActions;
+    private TextView textSelectionCount;
+    private TextView textTransactionsHeader;
+    private MaterialButton buttonFilter;
 
     private DatabaseHelper databaseHelper;
     private String userEmail;
     private Calendar selectedMonth;
-    private SharedPreferences sharedPreferences;
+    // Holds the month, filter and loaded transactions across rotation and other screens
+    private TransactionsViewModel viewModel;
 
-    private static final String PREF_NAME = "TrackifyPrefs";
-    private static final String KEY_LOGGED_IN_EMAIL = "loggedInEmail";
     private static final String DATE_FORMAT_DB = "yyyy-MM";
     private static final String DATE_FORMAT_DISPLAY = "MMMM yyyy";
 
+    // Date shifts offered for a selection, in days
+    private static final int[] SHIFT_DAYS = {-7, -1, 1, 7};
+    private static final String[] SHIFT_LABELS = {"1 week earlier", "1 day earlier", "1 day later", "1 week later"};
+
+    // Sort options in the filter dialog, by radio button
+    private static final int[] SORT_BUTTONS = {R.id.radio_sort_newest, R.id.radio_sort_oldest,
+            R.id.radio_sort_largest, R.id.radio_sort_smallest};
+
     // *** KEY CHANGE: onCreateView() replaces setContentView() ***
     @Nullable
     @Override
@@ -58,10 +78,10 @@ public class ViewTransactionsFragment extends Fragment implements OnTransactionA
         View view = inflater.inflate(R.layout.activity_view_transactions, container, false);
 
         // 2. Initialize context-dependent fields (using getContext())
-        databaseHelper = new DatabaseHelper(getContext());
-        sharedPreferences = getContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        userEmail = sharedPreferences.getString(KEY_LOGGED_IN_EMAIL, null);
-        selectedMonth = Calendar.getInstance();
+        databaseHelper = UserSession.database(requireContext());
+        viewModel = new ViewModelProvider(this).get(TransactionsViewModel.class);
+        userEmail = viewModel.userEmail();
+        selectedMonth = calendarFor(viewModel.month());
 
         // 3. Initialize UI components using 'view.findViewById'
         MaterialButton buttonBackToHome = view.findViewById(R.id.button_back_to_home);
@@ -70,6 +90,10 @@ public class ViewTransactionsFragment extends Fragment implements OnTransactionA
         editTextMonthYear = view.findViewById(R.id.edit_text_month_year);
         textViewTotalExpense = view.findViewById(R.id.text_view_total_expense);
         textViewAvailableBalance = view.findViewById(R.id.text_view_available_balance);
+        layoutBatchActions = view.findViewById(R.id.layout_batch_actions);
+        textSelectionCount = view.findViewById(R.id.text_selection_count);
+        textTransactionsHeader = view.findViewById(R.id.text_transactions_header);
+        buttonFilter = view.findViewById(R.id.button_filter);
 
         updateMonthInView();
 
@@ -82,17 +106,30 @@ public class ViewTransactionsFragment extends Fragment implements OnTransactionA
             }
         });
         editTextMonthYear.setOnClickListener(v -> showMonthYearPickerDialog());
+        view.findViewById(R.id.button_batch_cancel).setOnClickListener(v -> adapter.clearSelection());
+        view.findViewById(R.id.button_batch_delete).setOnClickListener(v -> confirmBatchDelete());
+        view.findViewById(R.id.button_batch_recategorize).setOnClickListener(v -> showBatchRecategorizeDialog());
+        view.findViewById(R.id.button_batch_shift_date).setOnClickListener(v -> showBatchShiftDialog());
+        buttonFilter.setOnClickListener(v -> showFilterDialog());
 
         // Note: The getSupportActionBar().hide() call is removed, as it's the Host Activity's job.
 
+        // 5. Show the month whenever it is read: on the first start, after the month or filter
+        // changes, and after any write to the data, here or on another screen
+        if (userEmail == null) {
+            Toast.makeText(getContext(), "User session not found.", Toast.LENGTH_SHORT).show();
+        } else {
+            viewModel.screen().observe(getViewLifecycleOwner(), this::showScreen);
+        }
+
         return view;
     }
 
-    // *** KEY CHANGE: onResume is still used to load data ***
     @Override
-    public void onResume() {
-        super.onResume();
-        loadTransactions();
+    public void onDestroyView() {
+        // The next view gets a new RecyclerView, and a new adapter with it
+        adapter = null;
+        super.onDestroyView();
     }
 
     private void showMonthYearPickerDialog() {
@@ -102,7 +139,7 @@ public class ViewTransactionsFragment extends Fragment implements OnTransactionA
             selectedMonth.set(Calendar.DAY_OF_MONTH, 1);
 
             updateMonthInView();
-            loadTransactions();
+            viewModel.setMonth(new SimpleDateFormat(DATE_FORMAT_DB, Locale.US).format(selectedMonth.getTime()));
         };
 
         // *** KEY CHANGE: Use getActivity() for the DatePickerDialog ***
@@ -162,31 +199,43 @@ public class ViewTransactionsFragment extends Fragment implements OnTransactionA
         editTextMonthYear.setText(sdf.format(selectedMonth.getTime()));
     }
 
-    private void loadTransactions() {
-        if (userEmail == null) {
-            // *** KEY CHANGE: Use getContext() for Toast ***
-            Toast.makeText(getContext(), "User session not found.", Toast.LENGTH_SHORT).show();
+    /**
+     * The first day of a "yyyy-MM" month.
+     */
+    private static Calendar calendarFor(String month) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(Integer.parseInt(month.substring(0, 4)), Integer.parseInt(month.substring(5, 7)) - 1, 1);
+        return calendar;
+    }
+
+    private void showScreen(TransactionsViewModel.Screen screen) {
+        if (!screen.month.equals(viewModel.month()) || screen.filter != viewModel.filter()) {
+            // Read before the month or filter changed; the new read is on its way
             return;
         }
-
-        SimpleDateFormat sdfDb = new SimpleDateFormat(DATE_FORMAT_DB, Locale.US);
-        String monthYearFilter = sdfDb.format(selectedMonth.getTime());
+        MonthPrefetcher.Month month = screen.data;
 
         // Fetch and Display Summary
-        double totalIncome = databaseHelper.getMonthlyTotal(userEmail, monthYearFilter, "Income");
-        double totalExpense = databaseHelper.getMonthlyTotal(userEmail, monthYearFilter, "Expense");
+        double totalIncome = month.totalIncome;
+        double totalExpense = month.totalExpense;
         double availableBalance = totalIncome - totalExpense;
 
-        // Format and display the values
-        String currencyFormat = "₹ %.2f";
-
-        textViewTotalExpense.setText(String.format(Locale.US, currencyFormat, totalExpense));
-        textViewAvailableBalance.setText(String.format(Locale.US, currencyFormat, availableBalance));
+        // Format and display the values ("₹ 1234.50")
+        textViewTotalExpense.setText(CurrencyFormatter.formatPlain(totalExpense));
+        textViewAvailableBalance.setText(CurrencyFormatter.formatPlain(availableBalance));
 
-        List<Transaction> transactions = databaseHelper.getMonthlyTransactions(userEmail, monthYearFilter);
+        List<Transaction> transactions = month.transactions;
+        updateFilterInView(screen.filter, transactions.size());
 
         if (transactions.isEmpty()) {
-            emptyStateText.setText("No transactions recorded for " + editTextMonthYear.getText().toString() + ".");
+            if (adapter != null) {
+                // Drops any selection left over from the previous month
+                adapter.updateData(transactions);
+            }
+            emptyStateText.setText(screen.filter.isFiltered()
+                    ? "No transactions in " + editTextMonthYear.getText().toString() + " match the filter."
+                    : "No transactions recorded for " + editTextMonthYear.getText().toString() + ".");
             emptyStateText.setVisibility(View.VISIBLE);
             recyclerView.setVisibility(View.GONE);
         } else {
@@ -195,6 +244,7 @@ public class ViewTransactionsFragment extends Fragment implements OnTransactionA
             if (adapter == null) {
                 // *** KEY CHANGE: Use getContext() for TransactionAdapter constructor ***
                 adapter = new TransactionAdapter(getContext(), transactions, this, true);
+                adapter.setOnSelectionChangedListener(this);
                 recyclerView.setAdapter(adapter);
             } else {
                 adapter.updateData(transactions);
@@ -242,7 +292,7 @@ public class ViewTransactionsFragment extends Fragment implements OnTransactionA
                     if (databaseHelper.deleteTransaction(transactionId)) {
                         // *** KEY CHANGE: Use getContext() for Toast ***
                         Toast.makeText(getContext(), "Transaction deleted successfully.", Toast.LENGTH_SHORT).show();
-                        loadTransactions(); // Refresh the list
+                        // The list reloads itself once the delete commits
                     } else {
                         // *** KEY CHANGE: Use getContext() for Toast ***
                         Toast.makeText(getContext(), "Failed to delete transaction.", Toast.LENGTH_SHORT).show();
@@ -253,4 +303,212 @@ public class ViewTransactionsFragment extends Fragment implements OnTransactionA
                 })
                 .show();
     }
-}
\ No newline at end of file
+
+    // -------------------------------------------------------------------------
+    // --- Batch Actions (long-press multi-select) ---
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void onSelectionChanged(int selectedCount) {
+        layoutBatchActions.setVisibility(selectedCount > 0 ? View.VISIBLE : View.GONE);
+        textSelectionCount.setText(selectedCount + " selected");
+    }
+
+    private void confirmBatchDelete() {
+        List<Long> ids = adapter.getSelectedIds();
+        new AlertDialog.Builder(getContext())
+                .setTitle("Confirm Deletion")
+                .setMessage("Permanently delete " + ids.size() + " transactions? This action cannot be undone.")
+                .setPositiveButton("Delete", (dialog, which) ->
+                        runBatch(() -> databaseHelper.deleteTransactions(ids), "deleted"))
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.dismiss())
+                .show();
+    }
+
+    /**
+     * Categories only apply to one type, so a selection mixing income and expenses is refused.
+     */
+    private void showBatchRecategorizeDialog() {
+        Set<String> types = new TreeSet<>();
+        for (Transaction transaction : adapter.getSelectedTransactions()) {
+            types.add(transaction.type);
+        }
+        if (types.size() != 1) {
+            Toast.makeText(getContext(), "Select only expenses or only income to change their category.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String type = types.iterator().next();
+        String[] categories = Categories.forType(type).toArray(new String[0]);
+        List<Long> ids = adapter.getSelectedIds();
+        new AlertDialog.Builder(getContext())
+                .setTitle("Move " + ids.size() + " to category")
+                .setItems(categories, (dialog, which) ->
+                        runBatch(() -> databaseHelper.recategorizeTransactions(ids, type, categories[which]), "recategorized"))
+                .show();
+    }
+
+    private void showBatchShiftDialog() {
+        List<Long> ids = adapter.getSelectedIds();
+        new AlertDialog.Builder(getContext())
+                .setTitle("Move " + ids.size() + " transactions")
+                .setItems(SHIFT_LABELS, (dialog, which) ->
+                        runBatch(() -> databaseHelper.shiftTransactionDates(ids, SHIFT_DAYS[which]), "moved"))
+                .show();
+    }
+
+    /**
+     * Every selected row fires the log and summary triggers, so the batch is written off the
+     * main thread. It commits as one write, so the list and summaries reload once for all of it.
+     */
+    private void runBatch(IntSupplier edit, String verb) {
+        viewModel.runBatch(edit, changed -> {
+            if (isAdded()) {
+                finishBatch(changed, verb);
+            }
+        });
+    }
+
+    private void finishBatch(int changed, String verb) {
+        if (changed > 0) {
+            Toast.makeText(getContext(), changed + " transactions " + verb + ".", Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(getContext(), "No transactions were changed.", Toast.LENGTH_SHORT).show();
+        }
+        adapter.clearSelection();
+    }
+
+    // -------------------------------------------------------------------------
+    // --- Filter ---
+    // -------------------------------------------------------------------------
+
+    private void updateFilterInView(TransactionQuery filter, int count) {
+        if (filter.isFiltered()) {
+            textTransactionsHeader.setText("Filtered (" + count + ")");
+            buttonFilter.setText("Edit filter");
+        } else {
+            textTransactionsHeader.setText("Transactions List");
+            buttonFilter.setText("Filter");
+        }
+    }
+
+    /**
+     * Edits the view model's filter; the month stays with the month picker.
+     */
+    private void showFilterDialog() {
+        TransactionQuery filter = viewModel.filter();
+        if (filter == null) {
+            Toast.makeText(getContext(), "User session not found.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        View content = LayoutInflater.from(getContext()).inflate(R.layout.dialog_transaction_filter, null);
+        RadioGroup typeGroup = content.findViewById(R.id.radio_filter_type);
+        RadioGroup sortGroup = content.findViewById(R.id.radio_filter_sort);
+        MaterialButton categoriesButton = content.findViewById(R.id.button_filter_categories);
+        TextInputEditText minAmount = content.findViewById(R.id.edit_filter_min_amount);
+        TextInputEditText maxAmount = content.findViewById(R.id.edit_filter_max_amount);
+        TextInputEditText note = content.findViewById(R.id.edit_filter_note);
+
+        Set<String> categories = new TreeSet<>(filter.categories);
+        if (Categories.TYPE_EXPENSE.equals(filter.type)) {
+            typeGroup.check(R.id.radio_filter_type_expense);
+        } else if (Categories.TYPE_INCOME.equals(filter.type)) {
+            typeGroup.check(R.id.radio_filter_type_income);
+        }
+        sortGroup.check(SORT_BUTTONS[filter.sort.ordinal()]);
+        minAmount.setText(filter.minAmount != null ? String.valueOf(filter.minAmount) : "");
+        maxAmount.setText(filter.maxAmount != null ? String.valueOf(filter.maxAmount) : "");
+        note.setText(filter.noteContains != null ? filter.noteContains : "");
+        updateCategoriesButton(categoriesButton, categories);
+
+        categoriesButton.setOnClickListener(v -> showCategoryPicker(selectedType(typeGroup), categories,
+                () -> updateCategoriesButton(categoriesButton, categories)));
+        typeGroup.setOnCheckedChangeListener((group, checkedId) -> {
+            // Categories of the other type can no longer match
+            String type = selectedType(typeGroup);
+            if (type != null) {
+                categories.retainAll(Categories.forType(type));
+                updateCategoriesButton(categoriesButton, categories);
+            }
+        });
+
+        new AlertDialog.Builder(getContext())
+                .setTitle("Filter Transactions")
+                .setView(content)
+                .setPositiveButton("Apply", (dialog, which) -> {
+                    TransactionQuery.Sort sort = TransactionQuery.Sort.NEWEST_FIRST;
+                    for (int i = 0; i < SORT_BUTTONS.length; i++) {
+                        if (sortGroup.getCheckedRadioButtonId() == SORT_BUTTONS[i]) {
+                            sort = TransactionQuery.Sort.values()[i];
+                        }
+                    }
+                    viewModel.setFilter(TransactionQuery.forUser(userEmail)
+                            .type(selectedType(typeGroup))
+                            .categories(categories)
+                            .amountBetween(parseAmount(minAmount), parseAmount(maxAmount))
+                            .noteContains(note.getText() != null ? note.getText().toString() : null)
+                            .sortBy(sort)
+                            .build());
+                })
+                .setNeutralButton("Clear", (dialog, which) -> viewModel.setFilter(TransactionQuery.forUser(userEmail).build()))
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.dismiss())
+                .show();
+    }
+
+    private void showCategoryPicker(String type, Set<String> selected, Runnable onDone) {
+        List<String> options = new ArrayList<>();
+        if (type == null || Categories.TYPE_EXPENSE.equals(type)) {
+            options.addAll(Categories.EXPENSE_CATEGORIES);
+        }
+        if (type == null || Categories.TYPE_INCOME.equals(type)) {
+            options.addAll(Categories.INCOME_CATEGORIES);
+        }
+        String[] items = options.toArray(new String[0]);
+        boolean[] checked = new boolean[items.length];
+        for (int i = 0; i < items.length; i++) {
+            checked[i] = selected.contains(items[i]);
+        }
+        new AlertDialog.Builder(getContext())
+                .setTitle("Categories")
+                .setMultiChoiceItems(items, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton("OK", (dialog, which) -> {
+                    selected.clear();
+                    for (int i = 0; i < items.length; i++) {
+                        if (checked[i]) {
+                            selected.add(items[i]);
+                        }
+                    }
+                    onDone.run();
+                })
+                .setNegativeButton("Cancel", (dialog, which) -> dialog.dismiss())
+                .show();
+    }
+
+    private static void updateCategoriesButton(MaterialButton button, Set<String> categories) {
+        button.setText(categories.isEmpty() ? "Any category" : TextUtils.join(", ", categories));
+    }
+
+    private static String selectedType(RadioGroup typeGroup) {
+        int checkedId = typeGroup.getCheckedRadioButtonId();
+        if (checkedId == R.id.radio_filter_type_expense) {
+            return Categories.TYPE_EXPENSE;
+        } else if (checkedId == R.id.radio_filter_type_income) {
+            return Categories.TYPE_INCOME;
+        }
+        return null;
+    }
+
+    /**
+     * Null for an empty or unreadable field, which leaves that bound open.
+     */
+    private static Double parseAmount(TextInputEditText field) {
+        String text = field.getText() != null ? field.getText().toString().trim() : "";
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.trackify;
+
+import android.content.Context;
+import android.os.Handler;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.example.trackify.core.PasswordHasher;
+import com.example.trackify.core.WidgetSnapshot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Keeps one account's {@link WidgetSnapshot} file current, so the home-screen widget and the
+ * dashboard's first frame can draw from a single small read instead of querying the database.
+ *
+ * <p>{@link DatabaseHelper} reports every committed write through {@link #requestUpdate()}. The
+ * snapshot is rebuilt on {@code handler}'s thread once writes have been quiet for
+ * {@link #COALESCE_MS}, so a burst of edits, a batch or a sync pull costs one rebuild and one
+ * widget refresh.
+ */
+final class WidgetSnapshotWriter {
+
+    private static final String TAG = "WidgetSnapshotWriter";
+    private static final String FILE_PREFIX = "widget_";
+
+    // Long enough to cover a burst of saves or a multi-batch sync, short enough to feel live
+    static final long COALESCE_MS = 500;
+
+    private final DatabaseHelper databaseHelper;
+    private final String userEmail;
+    private final AtomicFile file;
+    private final Handler handler;
+    private final Runnable onWritten;
+    private final Runnable rebuild = this::writeNow;
+    private volatile boolean cancelled;
+
+    /**
+     * @param onWritten runs after each snapshot is written, normally to refresh the widgets.
+     */
+    WidgetSnapshotWriter(Context context, DatabaseHelper databaseHelper, String userEmail, Handler handler,
+                         Runnable onWritten) {
+        this.databaseHelper = databaseHelper;
+        this.userEmail = userEmail;
+        this.file = new AtomicFile(snapshotFile(context, userEmail));
+        this.handler = handler;
+        this.onWritten = onWritten;
+    }
+
+    /**
+     * The snapshot file for an account, named by a hash of the email like its database.
+     */
+    static File snapshotFile(Context context, String userEmail) {
+        return new File(context.getFilesDir(), FILE_PREFIX
+                + PasswordHasher.hash(userEmail.toLowerCase(Locale.ROOT)).substring(0, 16) + ".snapshot");
+    }
+
+    /**
+     * The account's last snapshot, or null if there is none or it cannot be read.
+     */
+    static WidgetSnapshot read(Context context, String userEmail) {
+        AtomicFile snapshot = new AtomicFile(snapshotFile(context, userEmail));
+        if (!snapshot.getBaseFile().exists()) {
+            return null;
+        }
+        try {
+            return WidgetSnapshot.decode(snapshot.readFully());
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading widget snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Schedules a rebuild, replacing any that has not started yet. Safe on any thread.
+     */
+    void requestUpdate() {
+        if (cancelled) {
+            return;
+        }
+        handler.removeCallbacks(rebuild);
+        handler.postDelayed(rebuild, COALESCE_MS);
+    }
+
+    /**
+     * Drops any pending rebuild and waits for a running one, so the database can be closed
+     * without a late rebuild reopening it.
+     */
+    synchronized void cancel() {
+        cancelled = true;
+        handler.removeCallbacks(rebuild);
+    }
+
+    /**
+     * Rebuilds and writes the snapshot on the calling thread.
+     */
+    synchronized void writeNow() {
+        if (cancelled) {
+            return;
+        }
+        WidgetSnapshot snapshot = databaseHelper.getDashboard(userEmail, RecurringTransactionJobService.today().substring(0, 7));
+        if (snapshot != null) {
+            save(snapshot);
+        }
+    }
+
+    /**
+     * Writes a snapshot the caller already read, such as the dashboard's own refresh.
+     */
+    synchronized void save(WidgetSnapshot snapshot) {
+        if (cancelled) {
+            return;
+        }
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            out.write(snapshot.encode());
+            file.finishWrite(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing widget snapshot: " + e.getMessage());
+            if (out != null) {
+                file.failWrite(out);
+            }
+            return;
+        }
+        onWritten.run();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.trackify;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.trackify.core.BackupArchive;
+import com.example.trackify.core.TransactionQuery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Snapshot, archive and restore of an account database through {@link DatabaseBackup}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseBackupTest {
+
+    private static final String USER = LargeDatabaseFixture.userEmail(0);
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+    private File archive;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        LargeDatabaseFixture.seed(context, 1, 0.5);
+        databaseHelper = new DatabaseHelper(context, USER);
+        archive = DatabaseBackup.defaultArchive(context, databaseHelper);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void restore_bringsBackTheBackedUpRows() throws IOException {
+        int rows = count();
+        BackupArchive.Header header = DatabaseBackup.backup(context, databaseHelper, archive);
+        assertEquals(DatabaseHelper.DATABASE_VERSION, header.schemaVersion);
+        assertTrue("Archive should be smaller than the database", archive.length() < header.rawLength);
+
+        databaseHelper.deleteTransaction(databaseHelper.getRecentTransactions(USER, 1).get(0).id);
+        databaseHelper.insertExpense(USER, "Food", 99, "2025-10-01", "After backup", "Expense");
+        databaseHelper.insertExpense(USER, "Food", 99, "2025-10-02", "After backup", "Expense");
+        assertEquals(rows + 1, count());
+
+        DatabaseBackup.restore(context, databaseHelper, archive);
+
+        // The same helper transparently reopens the restored file
+        assertEquals(rows, count());
+        assertTrue(databaseHelper.insertExpense(USER, "Food", 10, "2025-10-03", "", "Expense"));
+    }
+
+    @Test
+    public void restoreOnFreshInstall_bringsBackColdStorage() throws IOException {
+        assertTrue(databaseHelper.moveToColdStorage(USER, "2024-01-01", () -> false) > 0);
+        long coldRows = databaseHelper.getColdTransactionCount(USER);
+        int hotRows = count();
+        double balance = databaseHelper.getTotalBalance(USER);
+        List<Long> coldIds = coldIds();
+        BackupArchive.Header header = DatabaseBackup.backup(context, databaseHelper, archive);
+        assertTrue(header.coldLength > 0);
+
+        // A new device: neither file is there until the restore
+        File coldFile = databaseHelper.coldStorageFile();
+        databaseHelper.close();
+        context.deleteDatabase(databaseHelper.getDatabaseName());
+        SQLiteDatabase.deleteDatabase(coldFile);
+        databaseHelper = new DatabaseHelper(context, USER);
+        assertEquals(0, count());
+
+        DatabaseBackup.restore(context, databaseHelper, archive);
+
+        assertTrue(coldFile.exists());
+        assertEquals(hotRows, count());
+        assertEquals(coldRows, databaseHelper.getColdTransactionCount(USER));
+        assertEquals(coldIds, coldIds());
+        assertEquals(balance, databaseHelper.getTotalBalance(USER), 0.001);
+    }
+
+    @Test
+    public void damagedArchive_leavesDatabaseUntouched() throws IOException {
+        DatabaseBackup.backup(context, databaseHelper, archive);
+        databaseHelper.insertExpense(USER, "Food", 99, "2025-10-01", "Keep me", "Expense");
+        int rows = count();
+        try (RandomAccessFile file = new RandomAccessFile(archive, "rw")) {
+            file.seek(file.length() / 2);
+            int value = file.read();
+            file.seek(file.length() / 2);
+            file.write(~value);
+        }
+
+        try {
+            DatabaseBackup.restore(context, databaseHelper, archive);
+            fail("Damaged archive was restored");
+        } catch (BackupArchive.FormatException expected) {
+            // Expected
+        }
+        assertEquals(rows, count());
+        assertFalse(new File(context.getDatabasePath(databaseHelper.getDatabaseName()).getPath() + ".restoring").exists());
+    }
+
+    @Test
+    public void archiveSize_growsWithData() throws IOException {
+        DatabaseBackup.backup(context, databaseHelper, archive);
+        long smallArchive = archive.length();
+
+        LargeDatabaseFixture.seed(context, 1, 4.0);
+        DatabaseBackup.backup(context, databaseHelper, archive);
+
+        assertTrue(archive.length() > smallArchive * 3);
+    }
+
+    @Test
+    public void copyFallback_matchesVacuumInto() {
+        File databaseFile = new File(databaseHelper.getWritableDatabase().getPath());
+        File vacuumed = new File(context.getCacheDir(), "vacuumed.db");
+        File copied = new File(context.getCacheDir(), "copied.db");
+
+        assertEquals(DatabaseHelper.DATABASE_VERSION, DatabaseBackup.snapshot(databaseFile, vacuumed, true));
+        assertEquals(DatabaseHelper.DATABASE_VERSION, DatabaseBackup.snapshot(databaseFile, copied, false));
+
+        String query = "SELECT COUNT(*) || ':' || SUM(amount) || ':' || MAX(expense_id) FROM expenses";
+        String schema = "SELECT group_concat(name) FROM (SELECT name FROM sqlite_master ORDER BY name)";
+        SQLiteDatabase a = SQLiteDatabase.openDatabase(vacuumed.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+        SQLiteDatabase b = SQLiteDatabase.openDatabase(copied.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+        try {
+            assertEquals(DatabaseUtils.stringForQuery(a, query, null), DatabaseUtils.stringForQuery(b, query, null));
+            assertEquals(DatabaseUtils.stringForQuery(a, schema, null), DatabaseUtils.stringForQuery(b, schema, null));
+            assertEquals(a.getVersion(), b.getVersion());
+        } finally {
+            a.close();
+            b.close();
+        }
+    }
+
+    @Test
+    public void vacuumIntoSupport_followsSqliteVersion() {
+        assertTrue(DatabaseBackup.supportsVacuumInto("3.27.0"));
+        assertTrue(DatabaseBackup.supportsVacuumInto("3.44.2"));
+        assertFalse(DatabaseBackup.supportsVacuumInto("3.22.0"));
+        assertFalse(DatabaseBackup.supportsVacuumInto("unknown"));
+    }
+
+    private List<Long> coldIds() {
+        List<Long> ids = new ArrayList<>();
+        databaseHelper.queryColdTransactions(TransactionQuery.forUser(USER).build(), null, transaction -> ids.add(transaction.id));
+        return ids;
+    }
+
+    private int count() {
+        return databaseHelper.getRecentTransactions(USER, 100_000).size();
+    }
+}
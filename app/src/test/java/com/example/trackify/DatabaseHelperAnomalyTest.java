@@ -0,0 +1,120 @@
+package com.example.trackify;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.trackify.core.SpendingStats;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * The per-category spending statistics the triggers keep, and the anomaly check that reads them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseHelperAnomalyTest {
+
+    private static final String USER = "anomaly@example.com";
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        databaseHelper = new DatabaseHelper(context, USER);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void triggers_matchARebuildAfterEveryKindOfWrite() {
+        List<Long> ids = new ArrayList<>();
+        String[] months = {"2025-05", "2025-06", "2025-07", "2025-08", "2025-09", "2025-10"};
+        for (int i = 0; i < 30; i++) {
+            ids.add(databaseHelper.insertExpenseAndGetId(USER, i % 3 == 0 ? "Travel" : "Food", 100 + i * 7,
+                    months[i % months.length] + "-1" + (i % 9), "", "Expense", i % 5 == 0 ? "USD" : "INR"));
+        }
+        databaseHelper.insertExpense(USER, "Salary", 50_000, "2025-10-01", "", "Income");
+        databaseHelper.updateExpense(ids.get(1), USER, "Food", 999, "2025-03-02", "", "Expense", "INR");
+        databaseHelper.updateExpense(ids.get(2), USER, "Freelance", 500, "2025-06-02", "", "Income", "INR");
+        databaseHelper.deleteTransaction(ids.get(3));
+        databaseHelper.deleteTransactions(Arrays.asList(ids.get(4), ids.get(5)));
+        databaseHelper.recategorizeTransactions(Arrays.asList(ids.get(6), ids.get(7)), "Expense", "Shopping");
+        databaseHelper.shiftTransactionDates(Arrays.asList(ids.get(8), ids.get(9), ids.get(10)), 45);
+
+        List<String> maintained = dump();
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        DatabaseHelper.rebuildSpendingStats(db);
+
+        assertEquals(dump(), maintained);
+    }
+
+    @Test
+    public void largeExpense_isFlaggedAndOrdinaryOnesAreNot() {
+        String[] months = {"2025-05", "2025-06", "2025-07", "2025-08", "2025-09"};
+        for (int i = 0; i < months.length; i++) {
+            databaseHelper.insertExpense(USER, "Food", 400 + i * 20, months[i] + "-03", "", "Expense");
+            databaseHelper.insertExpense(USER, "Food", 380 + i * 15, months[i] + "-17", "", "Expense");
+        }
+        long ordinary = databaseHelper.insertExpenseAndGetId(USER, "Food", 450, "2025-10-03", "", "Expense");
+        long income = databaseHelper.insertExpenseAndGetId(USER, "Salary", 90_000, "2025-10-01", "", "Income");
+        assertNull(databaseHelper.findAnomaly(ordinary));
+        assertNull(databaseHelper.findAnomaly(income));
+
+        long large = databaseHelper.insertExpenseAndGetId(USER, "Food", 4_000, "2025-10-05", "", "Expense");
+        SpendingStats.Anomaly anomaly = databaseHelper.findAnomaly(large);
+
+        assertEquals(SpendingStats.Anomaly.Kind.LARGE_TRANSACTION, anomaly.kind);
+        assertEquals(4_000, anomaly.amount, 0.001);
+        assertEquals(12, databaseHelper.getSpendingStats(USER, "Food", "INR").count);
+
+        databaseHelper.deleteTransaction(large);
+
+        assertEquals(11, databaseHelper.getSpendingStats(USER, "Food", "INR").count);
+        assertNull(databaseHelper.getSpendingStats(USER, "Salary", "INR"));
+    }
+
+    /**
+     * Every statistics row, rounded so sums built up in a different order compare equal.
+     */
+    private List<String> dump() {
+        List<String> rows = new ArrayList<>();
+        SQLiteDatabase db = databaseHelper.getReadableDatabase();
+        for (String table : new String[]{"category_stats", "category_months"}) {
+            try (Cursor cursor = db.rawQuery("SELECT * FROM " + table + " ORDER BY 1, 2, 3, 4", null)) {
+                while (cursor.moveToNext()) {
+                    StringBuilder row = new StringBuilder(table);
+                    for (int i = 0; i < cursor.getColumnCount(); i++) {
+                        row.append('|');
+                        if (cursor.getType(i) == Cursor.FIELD_TYPE_FLOAT) {
+                            row.append(String.format(Locale.US, "%.6g", cursor.getDouble(i)));
+                        } else {
+                            row.append(cursor.getString(i));
+                        }
+                    }
+                    rows.add(row.toString());
+                }
+            }
+        }
+        return rows;
+    }
+}
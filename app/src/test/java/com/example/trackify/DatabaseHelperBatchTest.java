@@ -0,0 +1,112 @@
+package com.example.trackify;
+
+import com.example.trackify.DatabaseHelper.Transaction;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Multi-select edits through {@link DatabaseHelper}'s batch methods.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseHelperBatchTest {
+
+    private static final String USER = LargeDatabaseFixture.userEmail(0);
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        LargeDatabaseFixture.seed(RuntimeEnvironment.getApplication(), 1, 1.0);
+        databaseHelper = new DatabaseHelper(RuntimeEnvironment.getApplication(), USER);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void deleteTransactions_removesEverySelectedRowAcrossChunks() {
+        List<Transaction> all = databaseHelper.getRecentTransactions(USER, 100_000);
+        int selected = DatabaseHelper.BATCH_ID_CHUNK * 2 + 37;
+        assertTrue(all.size() > selected);
+        List<Long> ids = new ArrayList<>();
+        for (Transaction transaction : all.subList(0, selected)) {
+            ids.add(transaction.id);
+        }
+
+        assertEquals(selected, databaseHelper.deleteTransactions(ids));
+
+        assertEquals(all.size() - selected, databaseHelper.getRecentTransactions(USER, 100_000).size());
+        assertNull(databaseHelper.getTransactionById(ids.get(0)));
+        assertNull(databaseHelper.getTransactionById(ids.get(selected - 1)));
+        assertEquals(all.get(selected).id, databaseHelper.getTransactionById(all.get(selected).id).id);
+    }
+
+    @Test
+    public void recategorizeTransactions_onlyTouchesTheGivenType() {
+        long expense = databaseHelper.insertExpenseAndGetId(USER, "Food", 100, "2025-10-05", "", "Expense");
+        long otherExpense = databaseHelper.insertExpenseAndGetId(USER, "Rent", 200, "2025-10-06", "", "Expense");
+        long income = databaseHelper.insertExpenseAndGetId(USER, "Salary", 300, "2025-10-07", "", "Income");
+
+        int changed = databaseHelper.recategorizeTransactions(Arrays.asList(expense, otherExpense, income), "Expense", "Travel");
+
+        assertEquals(2, changed);
+        assertEquals("Travel", databaseHelper.getTransactionById(expense).category);
+        assertEquals("Travel", databaseHelper.getTransactionById(otherExpense).category);
+        assertEquals("Salary", databaseHelper.getTransactionById(income).category);
+    }
+
+    @Test
+    public void shiftTransactionDates_carriesAcrossMonthAndYearEnds() {
+        long monthEnd = databaseHelper.insertExpenseAndGetId(USER, "Food", 10, "2025-01-31", "", "Expense");
+        long yearEnd = databaseHelper.insertExpenseAndGetId(USER, "Food", 10, "2025-12-28", "", "Expense");
+        long leapDay = databaseHelper.insertExpenseAndGetId(USER, "Food", 10, "2024-03-01", "", "Expense");
+
+        assertEquals(2, databaseHelper.shiftTransactionDates(Arrays.asList(monthEnd, yearEnd), 7));
+        assertEquals(1, databaseHelper.shiftTransactionDates(Collections.singletonList(leapDay), -1));
+
+        assertEquals("2025-02-07", databaseHelper.getTransactionById(monthEnd).date);
+        assertEquals("2026-01-04", databaseHelper.getTransactionById(yearEnd).date);
+        assertEquals("2024-02-29", databaseHelper.getTransactionById(leapDay).date);
+    }
+
+    @Test
+    public void batchEdits_moveMonthlyTotalsTogether() {
+        double octoberBefore = databaseHelper.getMonthlyTotal(USER, "2025-10", "Expense");
+        Set<Long> ids = new HashSet<>();
+        double moved = 0;
+        for (Transaction transaction : databaseHelper.getMonthlyTransactions(USER, "2025-10")) {
+            if ("Expense".equals(transaction.type) && transaction.date.compareTo("2025-10-25") >= 0) {
+                ids.add(transaction.id);
+                moved += transaction.amount;
+            }
+        }
+        assertFalse(ids.isEmpty());
+
+        // Seven days later pushes every one of them into November
+        assertEquals(ids.size(), databaseHelper.shiftTransactionDates(ids, 7));
+
+        assertEquals(octoberBefore - moved, databaseHelper.getMonthlyTotal(USER, "2025-10", "Expense"), 0.001);
+        assertEquals(0, databaseHelper.deleteTransactions(Collections.emptyList()));
+    }
+}
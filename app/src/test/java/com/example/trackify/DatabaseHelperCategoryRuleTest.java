@@ -0,0 +1,181 @@
+package com.example.trackify;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.trackify.core.CategoryMatcher;
+import com.example.trackify.core.Categories;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * User category rules: stored one per keyword, preferred over the built-in ones, and applied
+ * back over history to imported transactions still in a catch-all category.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseHelperCategoryRuleTest {
+
+    private static final String USER = "rules@example.com";
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        databaseHelper = new DatabaseHelper(RuntimeEnvironment.getApplication(), USER);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void rules_areOnePerKeyword_andBeatTheBuiltInOnes() {
+        assertEquals("Food", databaseHelper.getCategoryMatcher().match(Categories.TYPE_EXPENSE, "Swiggy order"));
+
+        databaseHelper.insertCategoryRule("  SWIGGY ", Categories.TYPE_EXPENSE, "Shopping");
+        databaseHelper.insertCategoryRule("swiggy", Categories.TYPE_EXPENSE, "Groceries");
+        List<CategoryMatcher.Rule> rules = databaseHelper.getCategoryRules();
+
+        assertEquals(1, rules.size());
+        assertEquals("swiggy", rules.get(0).keyword);
+        assertEquals("Groceries", databaseHelper.getCategoryMatcher().match(Categories.TYPE_EXPENSE, "Swiggy order"));
+        assertEquals(-1, databaseHelper.insertCategoryRule("rent", Categories.TYPE_EXPENSE, "Salary"));
+
+        databaseHelper.deleteCategoryRule(rules.get(0).id);
+        assertEquals("Food", databaseHelper.getCategoryMatcher().match(Categories.TYPE_EXPENSE, "Swiggy order"));
+    }
+
+    @Test
+    public void importedHistory_isCategorizedAcrossChunks_leavingChosenCategoriesAlone() {
+        int rows = DatabaseHelper.CATEGORIZE_CHUNK * 2 + 7;
+        try (DatabaseHelper.BulkInserter inserter = databaseHelper.openBulkInserter()) {
+            for (int i = 0; i < rows; i++) {
+                inserter.expenseIfNew(i, USER, Categories.TYPE_EXPENSE, "Miscellaneous", 10, "INR", "2025-02-01", "CHAI POINT " + i);
+            }
+        }
+        databaseHelper.insertExpense(USER, "Entertainment", 10, "2025-02-02", "Chai point team outing", Categories.TYPE_EXPENSE);
+        databaseHelper.insertExpense(USER, "Miscellaneous", 10, "2025-02-02", "Stationery", Categories.TYPE_EXPENSE);
+
+        databaseHelper.insertCategoryRule("chai point", Categories.TYPE_EXPENSE, "Food");
+        int changed = databaseHelper.autoCategorizeHistory(() -> false);
+
+        assertEquals(rows, changed);
+        assertEquals(rows, count("Food"));
+        assertEquals(1, count("Entertainment"));
+        assertEquals(1, count("Miscellaneous"));
+        assertEquals(0, databaseHelper.autoCategorizeHistory(() -> false));
+    }
+
+    @Test
+    public void handPickedFallbackCategory_survivesTheBackfill() {
+        // Entered as Miscellaneous on purpose, though the note names a merchant
+        databaseHelper.insertExpense(USER, "Miscellaneous", 10, "2025-02-01", "Chai point gift card", Categories.TYPE_EXPENSE);
+        // Imported, then kept as Miscellaneous in the edit screen
+        try (DatabaseHelper.BulkInserter inserter = databaseHelper.openBulkInserter()) {
+            inserter.expenseIfNew(1, USER, Categories.TYPE_EXPENSE, "Miscellaneous", 10, "INR", "2025-02-02", "CHAI POINT 1");
+            inserter.expenseIfNew(2, USER, Categories.TYPE_EXPENSE, "Miscellaneous", 10, "INR", "2025-02-03", "CHAI POINT 2");
+            inserter.expenseIfNew(3, USER, Categories.TYPE_EXPENSE, "Food", 10, "INR", "2025-02-04", "CHAI POINT 3");
+        }
+        long edited = DatabaseUtils.longForQuery(databaseHelper.getReadableDatabase(),
+                "SELECT expense_id FROM expenses WHERE note = 'CHAI POINT 1'", null);
+        databaseHelper.updateExpense(edited, USER, "Miscellaneous", 12, "2025-02-02", "CHAI POINT 1", Categories.TYPE_EXPENSE);
+        // Imported, then moved back to Miscellaneous from the list
+        long recategorized = DatabaseUtils.longForQuery(databaseHelper.getReadableDatabase(),
+                "SELECT expense_id FROM expenses WHERE note = 'CHAI POINT 3'", null);
+        databaseHelper.recategorizeTransactions(Collections.singletonList(recategorized), Categories.TYPE_EXPENSE, "Miscellaneous");
+
+        databaseHelper.insertCategoryRule("chai point", Categories.TYPE_EXPENSE, "Food");
+
+        // Only the untouched import changes
+        assertEquals(1, databaseHelper.autoCategorizeHistory(() -> false));
+        assertEquals(1, count("Food"));
+        assertEquals(3, count("Miscellaneous"));
+        assertEquals("Food", DatabaseUtils.stringForQuery(databaseHelper.getReadableDatabase(),
+                "SELECT category FROM expenses WHERE note = 'CHAI POINT 2'", null));
+    }
+
+    @Test
+    public void historyFromBeforeTracking_isCategorizedOnlyOnceTheUserAgrees() {
+        reopenUpgradedFrom(
+                "(1, 'Expense', 'Miscellaneous', 'Chai point')",
+                "(2, 'Expense', 'Miscellaneous', 'Chai point again')",
+                "(3, 'Expense', 'Food', 'Chai point')");
+        databaseHelper.insertCategoryRule("chai point", Categories.TYPE_EXPENSE, "Food");
+
+        assertEquals(2, databaseHelper.getUntrackedCategoryCount());
+        assertEquals(0, databaseHelper.autoCategorizeHistory(() -> false));
+
+        assertEquals(2, databaseHelper.settleUntrackedCategories(true));
+        assertEquals(2, databaseHelper.autoCategorizeHistory(() -> false));
+        assertEquals(3, count("Food"));
+        // Asked once only
+        assertEquals(0, databaseHelper.getUntrackedCategoryCount());
+    }
+
+    @Test
+    public void declinedHistory_keepsItsCategory() {
+        reopenUpgradedFrom("(1, 'Expense', 'Miscellaneous', 'Chai point')");
+        databaseHelper.insertCategoryRule("chai point", Categories.TYPE_EXPENSE, "Food");
+
+        assertEquals(1, databaseHelper.settleUntrackedCategories(false));
+
+        assertEquals(0, databaseHelper.autoCategorizeHistory(() -> false));
+        assertEquals(1, count("Miscellaneous"));
+        assertEquals(0, databaseHelper.getUntrackedCategoryCount());
+    }
+
+    @Test
+    public void cancelledBackfill_changesNothing() {
+        try (DatabaseHelper.BulkInserter inserter = databaseHelper.openBulkInserter()) {
+            inserter.expenseIfNew(1, USER, Categories.TYPE_EXPENSE, "Miscellaneous", 10, "INR", "2025-02-01", "Uber home");
+        }
+
+        assertEquals(0, databaseHelper.autoCategorizeHistory(() -> true));
+        assertEquals(1, count("Miscellaneous"));
+    }
+
+    /**
+     * Replaces the account's file with one from schema version 5, long before auto_category,
+     * holding {@code rows} of (id, type, category, note), and reopens it through the upgrade.
+     */
+    private void reopenUpgradedFrom(String... rows) {
+        databaseHelper.close();
+        File file = RuntimeEnvironment.getApplication().getDatabasePath(DatabaseHelper.databaseNameFor(USER));
+        SQLiteDatabase.deleteDatabase(file);
+        SQLiteDatabase legacy = SQLiteDatabase.openOrCreateDatabase(file, null);
+        try {
+            legacy.execSQL("CREATE TABLE expenses(expense_id INTEGER PRIMARY KEY AUTOINCREMENT, user_email TEXT,"
+                    + " type TEXT, category TEXT, amount REAL, date TEXT, note TEXT)");
+            legacy.execSQL("CREATE TABLE recurring_rules(rule_id INTEGER PRIMARY KEY AUTOINCREMENT, user_email TEXT,"
+                    + " type TEXT, category TEXT, amount REAL, note TEXT, frequency TEXT, interval_days INTEGER,"
+                    + " anchor_day INTEGER, next_date TEXT)");
+            for (String row : rows) {
+                legacy.execSQL("INSERT INTO expenses(expense_id, type, category, note) VALUES " + row);
+            }
+            legacy.execSQL("UPDATE expenses SET user_email = ?, amount = 10, date = '2025-02-01'", new Object[]{USER});
+            legacy.setVersion(5);
+        } finally {
+            legacy.close();
+        }
+        databaseHelper = new DatabaseHelper(RuntimeEnvironment.getApplication(), USER);
+    }
+
+    private long count(String category) {
+        return DatabaseUtils.longForQuery(databaseHelper.getReadableDatabase(),
+                "SELECT COUNT(*) FROM expenses WHERE category = ?", new String[]{category});
+    }
+}
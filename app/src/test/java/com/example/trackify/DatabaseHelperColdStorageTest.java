@@ -0,0 +1,175 @@
+package com.example.trackify;
+
+import android.database.DatabaseUtils;
+
+import com.example.trackify.core.SpendingStats;
+import com.example.trackify.core.SyncRecord;
+import com.example.trackify.core.TransactionQuery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Old years moved to the cold storage file: every aggregate stays exact through cold_totals,
+ * the rows themselves stay reachable, and sync still sees them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseHelperColdStorageTest {
+
+    private static final String USER = "archivist@example.com";
+    private static final String CUTOFF = "2024-01-01";
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        databaseHelper = new DatabaseHelper(RuntimeEnvironment.getApplication(), USER);
+        databaseHelper.setFxRate("USD", "2022-01-01", 80);
+        databaseHelper.setFxRate("USD", "2022-06-01", 82);
+        databaseHelper.insertExpense(USER, "Salary", 50000, "2022-03-01", "", "Income");
+        databaseHelper.insertExpense(USER, "Food", 1200, "2022-03-04", "Groceries", "Expense");
+        databaseHelper.insertExpense(USER, "Food", 300, "2022-03-18", "Lunch", "Expense");
+        databaseHelper.insertExpenseAndGetId(USER, "Travel", 10, "2022-03-20", "Taxi", "Expense", "USD");
+        databaseHelper.insertExpenseAndGetId(USER, "Travel", 10, "2022-07-02", "Taxi", "Expense", "USD");
+        databaseHelper.insertExpense(USER, "Food", 900, "2025-03-04", "Groceries", "Expense");
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void aggregates_areUnchangedByTheMove() {
+        double balance = databaseHelper.getTotalBalance(USER);
+        double march = databaseHelper.getMonthlyTotal(USER, "2022-03", "Expense");
+        Map<String, Double> categories = databaseHelper.getMonthlyCategoryExpenses(USER, "2022-03");
+        SpendingStats food = databaseHelper.getSpendingStats(USER, "Food", "INR");
+
+        assertEquals(5, databaseHelper.moveToColdStorage(USER, CUTOFF, () -> false));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM expenses WHERE date < '" + CUTOFF + "'"));
+        assertEquals(5, databaseHelper.getColdTransactionCount(USER));
+        assertEquals(balance, databaseHelper.getTotalBalance(USER), 0.001);
+        assertEquals(march, databaseHelper.getMonthlyTotal(USER, "2022-03", "Expense"), 0.001);
+        // The dollar amounts still convert at their own day's rate
+        assertEquals(820, databaseHelper.getMonthlyTotal(USER, "2022-07", "Expense"), 0.001);
+        assertEquals(categories, databaseHelper.getMonthlyCategoryExpenses(USER, "2022-03"));
+        SpendingStats after = databaseHelper.getSpendingStats(USER, "Food", "INR");
+        assertEquals(food.count, after.count);
+        assertEquals(food.weightedSum, after.weightedSum, 0.001);
+
+        // Nothing left to move
+        assertEquals(0, databaseHelper.moveToColdStorage(USER, CUTOFF, () -> false));
+        assertEquals(balance, databaseHelper.getTotalBalance(USER), 0.001);
+    }
+
+    @Test
+    public void movedRows_areQueriedFromTheColdFile() {
+        databaseHelper.moveToColdStorage(USER, CUTOFF, () -> false);
+        TransactionQuery march = TransactionQuery.forUser(USER).month("2022-03").build();
+
+        assertTrue(databaseHelper.getTransactions(march).isEmpty());
+        List<DatabaseHelper.Transaction> cold = new ArrayList<>();
+        assertEquals(4, databaseHelper.queryColdTransactions(march, null, cold::add));
+        assertEquals("Taxi", cold.get(0).note);
+        assertEquals(1, databaseHelper.getTransactions(TransactionQuery.forUser(USER).build()).size());
+    }
+
+    @Test
+    public void cancelledMove_movesNothing() {
+        assertEquals(0, databaseHelper.moveToColdStorage(USER, CUTOFF, () -> true));
+        assertEquals(6, count("SELECT COUNT(*) FROM expenses"));
+    }
+
+    @Test
+    public void unpushedChanges_toMovedRows_arePushedAsEdits() {
+        databaseHelper.moveToColdStorage(USER, CUTOFF, () -> false);
+
+        List<SyncRecord> pending = databaseHelper.getPendingChanges(0, 100).records;
+
+        assertEquals(6, pending.size());
+        for (SyncRecord record : pending) {
+            assertFalse(record.deleted);
+        }
+    }
+
+    @Test
+    public void unreadableColdStorage_endsTheBatchBeforeTheMovedRows() throws IOException {
+        databaseHelper.moveToColdStorage(USER, CUTOFF, () -> false);
+        try (RandomAccessFile file = new RandomAccessFile(databaseHelper.coldStorageFile(), "rw")) {
+            file.write(new byte[4096]);
+        }
+
+        DatabaseHelper.PendingChanges pending = databaseHelper.getPendingChanges(0, 100);
+
+        // The moved rows were logged first, so nothing can go out yet
+        assertTrue(pending.records.isEmpty());
+        assertEquals(0, pending.lastVersion);
+    }
+
+    @Test
+    public void missingColdStorage_pushesOnlyTheChangesBeforeIt() {
+        // Logged again after the 2025 row, so it comes after it
+        long lunch = Long.parseLong(DatabaseUtils.stringForQuery(databaseHelper.getReadableDatabase(),
+                "SELECT expense_id FROM expenses WHERE note = 'Lunch'", null));
+        databaseHelper.updateExpense(lunch, USER, "Food", 350, "2022-03-18", "Lunch", "Expense");
+        databaseHelper.moveToColdStorage(USER, CUTOFF, () -> false);
+        long pushed = databaseHelper.getPendingChanges(0, 4).lastVersion;
+        assertTrue(databaseHelper.coldStorageFile().delete());
+
+        DatabaseHelper.PendingChanges pending = databaseHelper.getPendingChanges(pushed, 100);
+
+        assertEquals(1, pending.records.size());
+        assertFalse(pending.records.get(0).deleted);
+        assertEquals("Groceries", pending.records.get(0).note);
+        // The next batch starts at the lunch again
+        assertTrue(databaseHelper.getPendingChanges(pending.lastVersion, 100).records.isEmpty());
+        assertTrue(pending.lastVersion > pushed);
+    }
+
+    @Test
+    public void remoteEdit_toMovedRow_bringsItBack() {
+        String syncId = DatabaseUtils.stringForQuery(databaseHelper.getReadableDatabase(),
+                "SELECT sync_id FROM expenses WHERE note = 'Lunch'", null);
+        databaseHelper.moveToColdStorage(USER, CUTOFF, () -> false);
+
+        SyncRecord edit = SyncRecord.upsert(syncId, System.currentTimeMillis() + 60_000, "Expense", "Food", 450,
+                "2022-03-18", "Lunch with team");
+        assertEquals(1, databaseHelper.applyRemoteChanges(Collections.singletonList(edit)));
+
+        assertEquals(1200 + 450 + 800, databaseHelper.getMonthlyTotal(USER, "2022-03", "Expense"), 0.001);
+        assertEquals(4, databaseHelper.getColdTransactionCount(USER));
+        List<DatabaseHelper.Transaction> hot = databaseHelper.getTransactions(TransactionQuery.forUser(USER).month("2022-03").build());
+        assertEquals(1, hot.size());
+        assertEquals("Lunch with team", hot.get(0).note);
+        List<DatabaseHelper.Transaction> cold = new ArrayList<>();
+        databaseHelper.queryColdTransactions(TransactionQuery.forUser(USER).month("2022-03").build(), null, cold::add);
+        assertEquals(3, cold.size());
+        SpendingStats food = databaseHelper.getSpendingStats(USER, "Food", "INR");
+        assertNotNull(food);
+        assertEquals(3, food.count);
+    }
+
+    private long count(String sql) {
+        return DatabaseUtils.longForQuery(databaseHelper.getReadableDatabase(), sql, null);
+    }
+}
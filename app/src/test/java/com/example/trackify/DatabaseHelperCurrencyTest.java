@@ -0,0 +1,138 @@
+package com.example.trackify;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.trackify.core.Currencies;
+import com.example.trackify.core.SyncRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Transactions in several currencies, converted to the base currency inside the aggregate
+ * queries, and the monthly_totals cache in front of them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseHelperCurrencyTest {
+
+    private static final String USER = "traveller@example.com";
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        databaseHelper = new DatabaseHelper(context, USER);
+        databaseHelper.setFxRate("USD", "2025-10-01", 83);
+        databaseHelper.setFxRate("USD", "2025-10-15", 84);
+        databaseHelper.setFxRate("EUR", "2025-10-01", 90);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void totals_convertWithTheRateInEffectOnEachDate() {
+        insert("Salary", 5000, "INR", "2025-10-01", "Income");
+        insert("Food", 1000, "INR", "2025-10-02", "Expense");
+        insert("Travel", 10, "USD", "2025-10-05", "Expense");
+        insert("Travel", 10, "USD", "2025-10-20", "Expense");
+        // Older than every EUR rate, so it falls back to the first one
+        insert("Shopping", 5, "EUR", "2025-09-30", "Expense");
+
+        assertEquals(1000 + 830 + 840, databaseHelper.getMonthlyTotal(USER, "2025-10", "Expense"), 0.001);
+        assertEquals(450, databaseHelper.getMonthlyTotal(USER, "2025-09", "Expense"), 0.001);
+        assertEquals(5000 - 2670 - 450, databaseHelper.getTotalBalance(USER), 0.001);
+        Map<String, Double> categories = databaseHelper.getMonthlyCategoryExpenses(USER, "2025-10");
+        assertEquals(1670, categories.get("Travel"), 0.001);
+        assertEquals("USD", databaseHelper.getTransactionById(3).currency);
+        assertEquals(84, databaseHelper.getFxRate("USD", "2025-12-31"), 0);
+    }
+
+    @Test
+    public void cachedTotals_areServedUntilTheMonthOrARateChanges() {
+        insert("Food", 1000, "INR", "2025-10-02", "Expense");
+        assertEquals(1000, databaseHelper.getMonthlyTotal(USER, "2025-10", "Expense"), 0.001);
+        assertEquals(2, count("SELECT COUNT(*) FROM monthly_totals"));
+
+        // A tampered cache entry is what comes back, so the expenses were not summed again
+        databaseHelper.getWritableDatabase().execSQL("UPDATE monthly_totals SET total = 1 WHERE type = 'Expense'");
+        assertEquals(1, databaseHelper.getMonthlyTotal(USER, "2025-10", "Expense"), 0.001);
+
+        long dollars = databaseHelper.insertExpenseAndGetId(USER, "Travel", 10, "2025-10-20", "", "Expense", "USD");
+        assertEquals(1840, databaseHelper.getMonthlyTotal(USER, "2025-10", "Expense"), 0.001);
+
+        databaseHelper.setFxRate("USD", "2025-10-15", 85);
+        assertEquals(1850, databaseHelper.getMonthlyTotal(USER, "2025-10", "Expense"), 0.001);
+
+        // Moving a transaction clears both the month it left and the one it joined
+        assertEquals(0, databaseHelper.getMonthlyTotal(USER, "2025-11", "Expense"), 0.001);
+        databaseHelper.updateExpense(dollars, USER, "Travel", 10, "2025-11-02", "", "Expense", "EUR");
+        assertEquals(1000, databaseHelper.getMonthlyTotal(USER, "2025-10", "Expense"), 0.001);
+        assertEquals(900, databaseHelper.getMonthlyTotal(USER, "2025-11", "Expense"), 0.001);
+
+        databaseHelper.deleteTransaction(dollars);
+        assertEquals(0, databaseHelper.getMonthlyTotal(USER, "2025-11", "Expense"), 0.001);
+    }
+
+    @Test
+    public void upgradeFromVersion7_keepsRowsInTheBaseCurrency() {
+        String email = "v7@example.com";
+        SQLiteDatabase old = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(DatabaseHelper.databaseNameFor(email)), null);
+        old.execSQL("CREATE TABLE expenses(expense_id INTEGER PRIMARY KEY AUTOINCREMENT, user_email TEXT, type TEXT, category TEXT,"
+                + " amount REAL, date TEXT, note TEXT, sync_id TEXT NOT NULL DEFAULT (lower(hex(randomblob(16)))),"
+                + " modified_at INTEGER NOT NULL DEFAULT 0)");
+        old.execSQL("CREATE INDEX idx_expenses_user_date ON expenses(user_email, date)");
+        old.execSQL("CREATE INDEX idx_expenses_user_type_date ON expenses(user_email, type, date, category, amount)");
+        old.execSQL("CREATE TABLE change_log(version INTEGER PRIMARY KEY AUTOINCREMENT, sync_id TEXT NOT NULL UNIQUE,"
+                + " deleted INTEGER NOT NULL, changed_at INTEGER NOT NULL)");
+        old.execSQL("CREATE TABLE sync_state(id INTEGER PRIMARY KEY CHECK (id = 0), device_id TEXT NOT NULL,"
+                + " pushed_version INTEGER NOT NULL, pulled_version INTEGER NOT NULL, applying INTEGER NOT NULL)");
+        old.execSQL("INSERT INTO sync_state VALUES (0, 'device', 0, 0, 0)");
+        old.execSQL("CREATE TRIGGER expenses_log_update AFTER UPDATE OF amount ON expenses BEGIN"
+                + " INSERT OR REPLACE INTO change_log(sync_id, deleted, changed_at) VALUES (NEW.sync_id, 0, 1); END");
+        old.execSQL("INSERT INTO expenses(user_email, type, category, amount, date, note) VALUES (?, 'Expense', 'Food', 250, '2025-10-04', '')",
+                new Object[]{email});
+        old.setVersion(7);
+        old.close();
+
+        DatabaseHelper upgraded = new DatabaseHelper(context, email);
+        try {
+            assertEquals(Currencies.BASE, upgraded.getTransactionById(1).currency);
+            assertEquals(250, upgraded.getMonthlyTotal(email, "2025-10", "Expense"), 0.001);
+
+            // Changing only the currency is an edit to sync
+            upgraded.setFxRate("USD", "2025-10-01", 80);
+            assertTrue(upgraded.updateExpense(1, email, "Food", 3, "2025-10-04", "", "Expense", "USD"));
+            SyncRecord pending = upgraded.getPendingChanges(0, 10).records.get(0);
+            assertEquals("USD", pending.currency);
+            assertEquals(240, upgraded.getMonthlyTotal(email, "2025-10", "Expense"), 0.001);
+        } finally {
+            upgraded.close();
+        }
+    }
+
+    private void insert(String category, double amount, String currency, String date, String type) {
+        assertTrue(databaseHelper.insertExpenseAndGetId(USER, category, amount, date, "", type, currency) != -1);
+    }
+
+    private long count(String sql) {
+        return DatabaseUtils.longForQuery(databaseHelper.getReadableDatabase(), sql, null);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.trackify;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.trackify.core.CashFlowForecast;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The day-of-month profiles the triggers keep, and the month-end forecast built from them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseHelperForecastTest {
+
+    private static final String USER = "forecast@example.com";
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        databaseHelper = new DatabaseHelper(context, USER);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void triggers_matchARebuildAfterEveryKindOfWrite() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ids.add(databaseHelper.insertExpenseAndGetId(USER, "Food", 50 + i * 3,
+                    String.format(Locale.US, "2025-%02d-%02d", 6 + i % 4, 1 + i % 7), "", i % 6 == 0 ? "Income" : "Expense",
+                    i % 5 == 0 ? "USD" : "INR"));
+        }
+        databaseHelper.insertRecurringRule(USER, "Rent", 15_000, "2025-06-01", "", "Expense", Recurrence.FREQUENCY_MONTHLY, 0);
+        databaseHelper.materializeRecurringTransactions(USER, "2025-09-30");
+        databaseHelper.updateExpense(ids.get(1), USER, "Food", 999, "2025-08-03", "", "Expense", "INR");
+        databaseHelper.updateExpense(ids.get(2), USER, "Freelance", 500, "2025-06-02", "", "Income", "USD");
+        databaseHelper.deleteTransaction(ids.get(3));
+        databaseHelper.deleteTransactions(Arrays.asList(ids.get(4), ids.get(5)));
+        databaseHelper.shiftTransactionDates(Arrays.asList(ids.get(8), ids.get(9), ids.get(10)), 12);
+
+        List<String> maintained = dump();
+        DatabaseHelper.rebuildDayProfiles(databaseHelper.getWritableDatabase());
+
+        assertEquals(dump(), maintained);
+        assertTrue(maintained.stream().noneMatch(row -> row.contains("15000")));
+    }
+
+    @Test
+    public void forecast_addsTheProfileAndTheRulesStillDue() {
+        // 200 on the 20th and 300 on the 25th of each of three past months, plus a salary rule
+        for (String month : new String[]{"2025-07", "2025-08", "2025-09"}) {
+            databaseHelper.insertExpense(USER, "Food", 200, month + "-20", "", "Expense");
+            databaseHelper.insertExpense(USER, "Shopping", 300, month + "-25", "", "Expense");
+        }
+        databaseHelper.insertRecurringRule(USER, "Salary", 50_000, "2025-07-28", "", "Income", Recurrence.FREQUENCY_MONTHLY, 0);
+        databaseHelper.materializeRecurringTransactions(USER, "2025-10-10");
+        // Already happened this month, so not part of what is left
+        databaseHelper.insertExpense(USER, "Food", 1_000, "2025-10-05", "", "Expense");
+
+        CashFlowForecast forecast = databaseHelper.getForecast(USER, "2025-10-10");
+
+        assertEquals(500, forecast.expectedExpense, 1e-6);
+        assertEquals(50_000, forecast.expectedIncome, 1e-6);
+        assertEquals(50_000, forecast.recurringIncome, 0);
+        assertEquals(0, forecast.expenseVariance, 1e-6);
+        assertEquals(1_500, forecast.monthEndSpend(databaseHelper.getMonthlyTotal(USER, "2025-10", "Expense")), 1e-6);
+
+        // After the 25th nothing but the salary is left
+        assertEquals(0, databaseHelper.getForecast(USER, "2025-10-26").expectedExpense, 1e-6);
+    }
+
+    /**
+     * Every profile and daily total, rounded so sums built up in a different order compare equal.
+     */
+    private List<String> dump() {
+        List<String> rows = new ArrayList<>();
+        SQLiteDatabase db = databaseHelper.getReadableDatabase();
+        for (String table : new String[]{"day_profiles", "daily_flows"}) {
+            try (Cursor cursor = db.rawQuery("SELECT * FROM " + table + " ORDER BY 1, 2, 3, 4", null)) {
+                while (cursor.moveToNext()) {
+                    StringBuilder row = new StringBuilder(table);
+                    for (int i = 0; i < cursor.getColumnCount(); i++) {
+                        row.append('|');
+                        if (cursor.getType(i) == Cursor.FIELD_TYPE_FLOAT) {
+                            row.append(String.format(Locale.US, "%.6g", cursor.getDouble(i)));
+                        } else {
+                            row.append(cursor.getString(i));
+                        }
+                    }
+                    rows.add(row.toString());
+                }
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.trackify;
+
+import android.database.DatabaseUtils;
+
+import com.example.trackify.core.StatementImport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Statement imports through {@link StatementImporter}: the bulk path, the import keys that
+ * make a second import of the same lines a no-op, and progress against the file size.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseHelperImportTest {
+
+    private static final String USER = "import@example.com";
+    private static final int LINES = 20_000;
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        databaseHelper = new DatabaseHelper(RuntimeEnvironment.getApplication(), USER);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void importingTwice_addsEachLineOnce() throws IOException {
+        byte[] statement = statement(LINES);
+        List<Long> bytesRead = new ArrayList<>();
+
+        StatementImport.Result first = importStatement(statement, bytesRead);
+        StatementImport.Result second = importStatement(statement, new ArrayList<>());
+
+        assertEquals(LINES, first.imported);
+        assertEquals(0, second.imported);
+        assertEquals(LINES, second.duplicates);
+        assertEquals(LINES, rowCount());
+        assertEquals(LINES / StatementImport.PROGRESS_INTERVAL, bytesRead.size());
+        assertTrue(bytesRead.get(bytesRead.size() - 1) <= statement.length);
+        // Line i is an expense of i + 1 on day 1 + i % 28; January holds every line
+        assertEquals((double) LINES * (LINES + 1) / 2, databaseHelper.getMonthlyTotal(USER, "2025-01", "Expense"), 0.01);
+    }
+
+    @Test
+    public void deletedImports_stayDeletedOnReimport() throws IOException {
+        byte[] statement = statement(10);
+        importStatement(statement, new ArrayList<>());
+        long id = databaseHelper.getRecentTransactions(USER, 1).get(0).id;
+        databaseHelper.deleteTransaction(id);
+
+        StatementImport.Result again = importStatement(statement, new ArrayList<>());
+
+        assertEquals(0, again.imported);
+        assertEquals(9, rowCount());
+    }
+
+    @Test
+    public void rejectedLine_keepsOnlyCommittedBatches_andSaysHowMany() throws IOException {
+        int lines = 7_000;
+        byte[] good = statement(lines);
+        StringBuilder tooLong = new StringBuilder(new String(good, StandardCharsets.UTF_8)).append("2025-01-01,");
+        for (int i = 0; i < 20_000; i++) {
+            tooLong.append('x');
+        }
+        byte[] bad = tooLong.append(",-1.00\n").toString().getBytes(StandardCharsets.UTF_8);
+
+        try {
+            importStatement(bad, new ArrayList<>());
+            fail("Oversized record was accepted");
+        } catch (StatementImporter.StoppedException e) {
+            assertTrue(e.isFormatError());
+            // The first batch of 5,000 was committed; the 2,000 after it were rolled back
+            assertEquals(5_000, e.imported);
+        }
+        assertEquals(5_000, rowCount());
+
+        StatementImport.Result fixed = importStatement(good, new ArrayList<>());
+        assertEquals(2_000, fixed.imported);
+        assertEquals(5_000, fixed.duplicates);
+    }
+
+    private StatementImport.Result importStatement(byte[] statement, List<Long> bytesRead) throws IOException {
+        return StatementImporter.importStatement(databaseHelper, USER, new ByteArrayInputStream(statement), statement.length,
+                (read, total, soFar) -> bytesRead.add(read));
+    }
+
+    private static byte[] statement(int lines) {
+        StringBuilder csv = new StringBuilder("Date,Description,Amount\n");
+        for (int i = 0; i < lines; i++) {
+            csv.append(String.format(Locale.US, "2025-01-%02d,Card purchase %d,-%d.00\n", 1 + i % 28, i, i + 1));
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private long rowCount() {
+        return DatabaseUtils.longForQuery(databaseHelper.getReadableDatabase(), "SELECT COUNT(*) FROM expenses", null);
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.trackify;
+
+import com.example.trackify.core.Currencies;
+import com.example.trackify.core.SyncRecord;
+import com.example.trackify.core.TransactionQuery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Times each public DatabaseHelper method against one user's 20k-row database (100k rows over
+ * five users in all), plus the login lookups against the user directory, and writes
+ * the medians to build/reports/db-performance.txt, so runs can be compared across commits.
+ * Overloads that only fill in defaults are timed through the overload they call; the test fails
+ * if a public method is added without being timed here. Query shape is enforced by
+ * {@link DatabaseHelperQueryPlanTest}; this suite records the cost.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseHelperPerformanceTest {
+
+    private static final int USERS = 5;
+    // About 20k transactions per user over the fixture's three years
+    private static final double ACTIVITY = 7.0;
+    private static final int RUNS = 7;
+    private static final String USER = LargeDatabaseFixture.userEmail(2);
+    private static final String MONTH = "2024-12";
+    private static final String TODAY = "2025-10-31";
+    // SQLiteOpenHelper callbacks, run by the framework rather than called
+    private static final Set<String> CALLBACKS = new HashSet<>(Arrays.asList("onConfigure", "onCreate", "onUpgrade"));
+
+    private UserDirectoryHelper userDirectory;
+    private DatabaseHelper databaseHelper;
+    private int rows;
+    private final Map<String, Double> medianMillis = new LinkedHashMap<>();
+
+    @Before
+    public void setUp() {
+        rows = LargeDatabaseFixture.seed(RuntimeEnvironment.getApplication(), USERS, ACTIVITY);
+        userDirectory = new UserDirectoryHelper(RuntimeEnvironment.getApplication());
+        // Register through the public API so checkUser/getUserDetails have a real hash to find
+        userDirectory.insertUser("Perf User", "perf@example.com", "secret");
+        databaseHelper = new DatabaseHelper(RuntimeEnvironment.getApplication(), USER);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        userDirectory.close();
+    }
+
+    @Test
+    public void timesEveryPublicMethodAtScale() throws IOException {
+        long middleId = databaseHelper.getRecentTransactions(USER, 1).get(0).id / 2;
+        TransactionQuery month = TransactionQuery.forUser(USER).month(MONTH).build();
+        List<Long> monthIds = new ArrayList<>();
+        for (DatabaseHelper.Transaction transaction : databaseHelper.getMonthlyTransactions(USER, MONTH)) {
+            monthIds.add(transaction.id);
+        }
+
+        time("checkUser", () -> userDirectory.checkUser("perf@example.com", "secret"));
+        time("getUserDetails", () -> userDirectory.getUserDetails("perf@example.com"));
+
+        // Reads
+        time("getTotalBalance", () -> databaseHelper.getTotalBalance(USER));
+        time("getMonthlyTotal", () -> databaseHelper.getMonthlyTotal(USER, MONTH, "Expense"));
+        time("getMonthlyTotals", () -> databaseHelper.getMonthlyTotals(USER, MONTH));
+        time("getMonthlyExpense", () -> databaseHelper.getMonthlyExpense(USER, 12, 2024));
+        time("getMonthlySummary", () -> databaseHelper.getMonthlySummary(USER, MONTH));
+        time("getMonthlyCategoryExpenses", () -> databaseHelper.getMonthlyCategoryExpenses(USER, MONTH));
+        time("getMonthlyTransactions", () -> databaseHelper.getMonthlyTransactions(USER, MONTH));
+        time("getRecentTransactions", () -> databaseHelper.getRecentTransactions(USER, 3));
+        time("getTransactionById", () -> databaseHelper.getTransactionById(middleId));
+        time("getDashboard", () -> databaseHelper.getDashboard(USER, MONTH));
+        time("queryTransactions", () -> databaseHelper.queryTransactions(month, null, transaction -> {
+        }));
+        time("getTransactions", () -> databaseHelper.getTransactions(month, null));
+        time("getSpendingStats", () -> databaseHelper.getSpendingStats(USER, "Food", Currencies.BASE));
+        time("findAnomaly", () -> databaseHelper.findAnomaly(middleId));
+        time("getForecast", () -> databaseHelper.getForecast(USER, TODAY));
+        time("getStatementSummary", () -> databaseHelper.getStatementSummary(USER, "2024-01", "2024-12", TODAY));
+
+        // Writes
+        time("setFxRate", () -> databaseHelper.setFxRate("USD", "2025-10-01", 83.1));
+        time("getFxRate", () -> databaseHelper.getFxRate("USD", "2025-10-05"));
+        time("insertExpense", () -> databaseHelper.insertExpense(USER, "Food", 120, "2025-10-05", "Lunch", "Expense"));
+        time("insertExpenseAndGetId", () -> databaseHelper.insertExpenseAndGetId(USER, "Travel", 12, "2025-10-05", "Taxi",
+                "Expense", "USD"));
+        time("updateExpense", () -> databaseHelper.updateExpense(1, USER, "Rent", 15000, "2024-12-01", "", "Expense",
+                Currencies.BASE));
+        Iterator<Long> recentIds = recentIds(RUNS + 1).iterator();
+        time("deleteTransaction", () -> databaseHelper.deleteTransaction(recentIds.next()));
+        Iterator<List<Long>> batches = batches(recentIds(50 * (RUNS + 1)), 50);
+        time("deleteTransactions", () -> databaseHelper.deleteTransactions(batches.next()));
+        time("recategorizeTransactions", () -> databaseHelper.recategorizeTransactions(monthIds, "Expense", "Food"));
+        time("shiftTransactionDates", () -> databaseHelper.shiftTransactionDates(monthIds, 0));
+        time("setReceipt", () -> databaseHelper.setReceipt(middleId, "0123456789abcdef0123456789abcdef"));
+        time("getReceiptHashes", () -> databaseHelper.getReceiptHashes());
+        time("insertRecurringRule", () -> databaseHelper.insertRecurringRule(USER, "Rent", 15000, "2025-10-01", "", "Expense",
+                Recurrence.FREQUENCY_MONTHLY, 0));
+        time("materializeRecurringTransactions", () -> databaseHelper.materializeRecurringTransactions(USER, TODAY));
+        time("openBulkInserter", () -> {
+            try (DatabaseHelper.BulkInserter inserter = databaseHelper.openBulkInserter()) {
+                for (int i = 0; i < 1000; i++) {
+                    inserter.expense(USER, "Expense", "Food", 50, "2025-10-06", "Bulk " + i);
+                }
+            }
+        });
+
+        // Category rules
+        List<Long> ruleIds = new ArrayList<>();
+        time("insertCategoryRule", () -> ruleIds.add(databaseHelper.insertCategoryRule("keyword" + ruleIds.size(),
+                "Expense", "Food")));
+        time("getCategoryRules", () -> databaseHelper.getCategoryRules());
+        time("getCategoryMatcher", () -> databaseHelper.getCategoryMatcher());
+        time("autoCategorizeHistory", () -> databaseHelper.autoCategorizeHistory(() -> false));
+        time("getUntrackedCategoryCount", () -> databaseHelper.getUntrackedCategoryCount());
+        time("settleUntrackedCategories", () -> databaseHelper.settleUntrackedCategories(false));
+        Iterator<Long> rules = ruleIds.iterator();
+        time("deleteCategoryRule", () -> databaseHelper.deleteCategoryRule(rules.next()));
+
+        // Sync
+        time("getSyncState", () -> databaseHelper.getSyncState());
+        time("getPendingChanges", () -> databaseHelper.getPendingChanges(0, 500));
+        long[] version = new long[1];
+        time("markPushed", () -> databaseHelper.markPushed(++version[0]));
+        time("markPulled", () -> databaseHelper.markPulled(++version[0]));
+        long[] modified = {System.currentTimeMillis()};
+        time("applyRemoteChanges", () -> databaseHelper.applyRemoteChanges(Collections.singletonList(
+                SyncRecord.upsert("perf-remote-change", ++modified[0], "Expense", "Food", 99, "2025-10-07", "Remote"))));
+
+        // Cold storage: the first move takes the fixture's first year, later calls find nothing
+        timeOnce("moveToColdStorage", () -> databaseHelper.moveToColdStorage(USER, "2024-01-01", () -> false));
+        time("getColdTransactionCount", () -> databaseHelper.getColdTransactionCount(USER));
+        TransactionQuery coldMonth = TransactionQuery.forUser(USER).month("2023-06").build();
+        time("queryColdTransactions", () -> databaseHelper.queryColdTransactions(coldMonth, null, transaction -> {
+        }));
+        time("queryStatementTransactions", () -> databaseHelper.queryStatementTransactions(USER, "2023-07", "2024-06", null,
+                transaction -> {
+                }));
+
+        // Maintenance compacts the whole file, so once is enough
+        timeOnce("runMaintenance", () -> databaseHelper.runMaintenance(() -> false));
+        time("getMaintenanceHistory", () -> databaseHelper.getMaintenanceHistory(10));
+
+        writeReport();
+        assertEquals("public methods without a timing", Collections.emptySet(), untimedMethods());
+    }
+
+    private void time(String name, Runnable call) {
+        // One warm-up run so the first measurement does not include opening the database
+        call.run();
+        double[] samples = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            call.run();
+            samples[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(samples);
+        medianMillis.put(name, samples[RUNS / 2]);
+    }
+
+    private void timeOnce(String name, Runnable call) {
+        long start = System.nanoTime();
+        call.run();
+        medianMillis.put(name, (System.nanoTime() - start) / 1_000_000.0);
+    }
+
+    /**
+     * The newest {@code count} transaction ids, for writes that use up their rows.
+     */
+    private List<Long> recentIds(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (DatabaseHelper.Transaction transaction : databaseHelper.getRecentTransactions(USER, count)) {
+            ids.add(transaction.id);
+        }
+        return ids;
+    }
+
+    private static Iterator<List<Long>> batches(List<Long> ids, int size) {
+        List<List<Long>> batches = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += size) {
+            batches.add(ids.subList(i, Math.min(ids.size(), i + size)));
+        }
+        return batches.iterator();
+    }
+
+    private Set<String> untimedMethods() {
+        Set<String> untimed = new TreeSet<>();
+        for (Method method : DatabaseHelper.class.getDeclaredMethods()) {
+            int modifiers = method.getModifiers();
+            if (Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers) && !method.isSynthetic()
+                    && !CALLBACKS.contains(method.getName()) && !medianMillis.containsKey(method.getName())) {
+                untimed.add(method.getName());
+            }
+        }
+        return untimed;
+    }
+
+    private void writeReport() throws IOException {
+        File reportDir = new File("build/reports");
+        if (!reportDir.isDirectory() && !reportDir.mkdirs()) {
+            throw new IOException("Cannot create " + reportDir.getAbsolutePath());
+        }
+        try (Writer writer = new FileWriter(new File(reportDir, "db-performance.txt"))) {
+            writer.write(String.format(Locale.US, "# %d users, %d rows, median of %d runs%n", USERS, rows, RUNS));
+            for (Map.Entry<String, Double> entry : medianMillis.entrySet()) {
+                writer.write(String.format(Locale.US, "%-34s %10.3f ms%n", entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.trackify;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.trackify.core.MonthRange;
+import com.example.trackify.core.TransactionQuery;
+import com.example.trackify.core.WidgetSnapshot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Guards the shape of every DatabaseHelper query: each must be answered from an index, and list
+ * queries must come out of the index already sorted. A change that makes SQLite fall back to a
+ * full scan or a temp sort fails the build here.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseHelperQueryPlanTest {
+
+    private static final String USER = LargeDatabaseFixture.userEmail(0);
+    private static final String MONTH = "2024-02";
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        LargeDatabaseFixture.seed(RuntimeEnvironment.getApplication(), 4, 0.5);
+        databaseHelper = new DatabaseHelper(RuntimeEnvironment.getApplication(), USER);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void monthlyTotal_usesCoveringIndex() {
+        String plan = plan(DatabaseHelper.SQL_MONTHLY_TOTALS, USER, MonthRange.start(MONTH), MonthRange.end(MONTH));
+        assertUsesIndex(plan, "COVERING INDEX " + DatabaseHelper.INDEX_EXPENSES_USER_TYPE_DATE);
+        // Each foreign-currency row costs one seek on the rate table ("SEARCH r" or "SEARCH TABLE fx_rates AS r")
+        assertUsesIndex(plan, " r USING PRIMARY KEY");
+    }
+
+    @Test
+    public void cachedMonthlyTotals_usePrimaryKey() {
+        String plan = plan(DatabaseHelper.SQL_CACHED_MONTHLY_TOTALS, USER, MONTH);
+        assertUsesIndex(plan, "USING PRIMARY KEY");
+    }
+
+    @Test
+    public void anomalyCheck_isPrimaryKeyLookups() {
+        String plan = plan(DatabaseHelper.SQL_ANOMALY_CHECK, "1");
+        assertUsesIndex(plan, " e USING INTEGER PRIMARY KEY");
+        assertUsesIndex(plan, " s USING PRIMARY KEY");
+        assertUsesIndex(plan, " m USING PRIMARY KEY");
+    }
+
+    @Test
+    public void forecast_readsOnlyTheCurrentMonthsDates() {
+        assertUsesIndex(plan(DatabaseHelper.SQL_DAY_PROFILES, USER), "USING PRIMARY KEY");
+        String flows = plan(DatabaseHelper.SQL_DAILY_FLOWS_FROM, USER, MonthRange.start(MONTH));
+        assertUsesIndex(flows, "USING PRIMARY KEY (user_email=? AND date>?)");
+        assertUsesIndex(plan(DatabaseHelper.SQL_FIRST_DATE, USER), DatabaseHelper.INDEX_EXPENSES_USER_DATE);
+    }
+
+    @Test
+    public void totalBalance_usesCoveringIndex() {
+        String plan = plan(DatabaseHelper.SQL_TOTAL_BALANCE, USER);
+        assertUsesIndex(plan, "COVERING INDEX " + DatabaseHelper.INDEX_EXPENSES_USER_TYPE_DATE);
+    }
+
+    @Test
+    public void monthlyCategoryExpenses_usesCoveringIndex() {
+        String plan = plan(DatabaseHelper.SQL_MONTHLY_CATEGORY_EXPENSES, USER, MonthRange.start(MONTH), MonthRange.end(MONTH));
+        assertUsesIndex(plan, "COVERING INDEX " + DatabaseHelper.INDEX_EXPENSES_USER_TYPE_DATE);
+    }
+
+    @Test
+    public void monthlyTransactions_usesDateIndexWithoutSorting() {
+        String plan = plan(DatabaseHelper.SQL_MONTHLY_TRANSACTIONS, USER, MonthRange.start(MONTH), MonthRange.end(MONTH));
+        assertUsesIndex(plan, DatabaseHelper.INDEX_EXPENSES_USER_DATE);
+        assertFalse("Month list needs a sort step:\n" + plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void recentTransactions_usesDateIndexWithoutSorting() {
+        String plan = plan(DatabaseHelper.SQL_RECENT_TRANSACTIONS_PREFIX + 3, USER);
+        assertUsesIndex(plan, DatabaseHelper.INDEX_EXPENSES_USER_DATE);
+        assertFalse("Recent list needs a sort step:\n" + plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void statementTransactions_mergeIndexOrderedArmsWithoutSorting() {
+        // Both arms on the main file, which has the same indexes as cold storage
+        String sql = DatabaseHelper.SQL_STATEMENT_TRANSACTIONS.replace(DatabaseHelper.COLD_SCHEMA + ".", "main.");
+        String plan = plan(sql, USER, "2023-01", "2025-01");
+        assertUsesIndex(plan, DatabaseHelper.INDEX_EXPENSES_USER_DATE);
+        assertUsesIndex(plan, "idx_expenses_sync_id");
+        assertFalse("Statement needs a sort step:\n" + plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void dashboard_usesIndexesWithoutSorting() {
+        String plan = plan(DatabaseHelper.SQL_DASHBOARD, USER, MonthRange.start(MONTH), MonthRange.end(MONTH));
+        assertUsesIndex(plan, "COVERING INDEX " + DatabaseHelper.INDEX_EXPENSES_USER_TYPE_DATE);
+        assertUsesIndex(plan, DatabaseHelper.INDEX_EXPENSES_USER_DATE);
+        assertFalse("Dashboard needs a sort step:\n" + plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void dashboard_matchesTheSeparateQueries() {
+        WidgetSnapshot dashboard = databaseHelper.getDashboard(USER, MONTH);
+
+        assertEquals(databaseHelper.getTotalBalance(USER), dashboard.balance, 0.001);
+        assertEquals(databaseHelper.getMonthlyTotal(USER, MONTH, "Income"), dashboard.monthIncome, 0.001);
+        assertEquals(databaseHelper.getMonthlyTotal(USER, MONTH, "Expense"), dashboard.monthExpense, 0.001);
+        List<Long> expected = new ArrayList<>();
+        for (DatabaseHelper.Transaction transaction : databaseHelper.getRecentTransactions(USER, WidgetSnapshot.MAX_RECENT)) {
+            expected.add(transaction.id);
+        }
+        List<Long> actual = new ArrayList<>();
+        for (WidgetSnapshot.Item item : dashboard.recent) {
+            actual.add(item.id);
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void transactionById_usesPrimaryKey() {
+        String plan = plan(DatabaseHelper.SQL_TRANSACTION_BY_ID, "1");
+        assertUsesIndex(plan, "INTEGER PRIMARY KEY");
+    }
+
+    @Test
+    public void dueRecurringRules_usesRuleIndex() {
+        String plan = plan(DatabaseHelper.SQL_DUE_RECURRING_RULES, USER, "2025-10-01");
+        assertUsesIndex(plan, "idx_recurring_user_next");
+    }
+
+    @Test
+    public void typedTransactionQuery_usesTypeIndexWithoutSorting() {
+        TransactionQuery query = TransactionQuery.forUser(USER).month(MONTH)
+                .categories(Arrays.asList("Food", "Groceries"))
+                .amountBetween(100.0, null)
+                .build();
+        String plan = plan(query.sql(), query.args());
+        assertUsesIndex(plan, DatabaseHelper.INDEX_EXPENSES_USER_TYPE_DATE);
+        // Rows come out in date order; only same-day rows are put in id order ("RIGHT PART")
+        assertFalse("Filtered list needs a sort step:\n" + plan, plan.contains("TEMP B-TREE FOR ORDER BY"));
+    }
+
+    @Test
+    public void untypedTransactionQuery_usesDateIndexWithoutSorting() {
+        TransactionQuery query = TransactionQuery.forUser(USER).month(MONTH).noteContains("a").limit(50).build();
+        String plan = plan(query.sql(), query.args());
+        assertUsesIndex(plan, DatabaseHelper.INDEX_EXPENSES_USER_DATE);
+        assertFalse("Filtered list needs a sort step:\n" + plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void transactionQuery_selectsTheSameRowsAsFilteringTheMonth() {
+        TransactionQuery query = TransactionQuery.forUser(USER).month(MONTH)
+                .categories(Arrays.asList("Food", "Salary"))
+                .amountBetween(50.0, 2_000.0)
+                .build();
+
+        List<Long> expected = new ArrayList<>();
+        for (DatabaseHelper.Transaction transaction : databaseHelper.getMonthlyTransactions(USER, MONTH)) {
+            if (query.categories.contains(transaction.category) && transaction.amount >= 50 && transaction.amount <= 2_000) {
+                expected.add(transaction.id);
+            }
+        }
+        List<Long> actual = new ArrayList<>();
+        databaseHelper.queryTransactions(query, transaction -> actual.add(transaction.id));
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void monthRange_selectsTheSameRowsAsTheOldLikeFilter() {
+        for (String month : LargeDatabaseFixture.MONTHS) {
+            long expected = count("SELECT COUNT(*) FROM expenses WHERE user_email = ? AND date LIKE ?", USER, month + "%");
+            List<DatabaseHelper.Transaction> transactions = databaseHelper.getMonthlyTransactions(USER, month);
+            assertEquals(month, expected, transactions.size());
+        }
+    }
+
+    // --- Helpers ---
+
+    private String plan(String sql, String... args) {
+        SQLiteDatabase readDb = databaseHelper.getReadableDatabase();
+        List<String> lines = new ArrayList<>();
+        try (Cursor cursor = readDb.rawQuery("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                lines.add(cursor.getString(detailIndex));
+            }
+        }
+        return String.join("\n", lines);
+    }
+
+    private long count(String sql, String... args) {
+        SQLiteDatabase readDb = databaseHelper.getReadableDatabase();
+        try (Cursor cursor = readDb.rawQuery(sql, args)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+
+    private static void assertUsesIndex(String plan, String index) {
+        assertTrue("Expected plan to use " + index + ":\n" + plan, plan.contains(index));
+        for (String line : plan.split("\n")) {
+            // "SCAN expenses" / "SCAN TABLE expenses" without USING means every row is read.
+            // Scanning a subquery's few already-limited rows ("SCAN SUBQUERY 7", "SCAN (subquery-7)") is fine.
+            if (line.startsWith("SCAN") && !line.contains("USING") && !line.toLowerCase().contains("subquery")) {
+                fail("Full table scan in plan:\n" + plan);
+            }
+        }
+    }
+}
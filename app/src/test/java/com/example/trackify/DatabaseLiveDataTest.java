@@ -0,0 +1,100 @@
+package com.example.trackify;
+
+import android.os.Looper;
+
+import androidx.lifecycle.Observer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Screens read their data when it changes, not when they are recreated or come back to the
+ * front: {@link DatabaseLiveData} against real writes.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseLiveDataTest {
+
+    private static final String USER = "screens@example.com";
+
+    private DatabaseHelper databaseHelper;
+    private DatabaseLiveData<Double> balance;
+    private int reads;
+
+    @Before
+    public void setUp() {
+        databaseHelper = new DatabaseHelper(RuntimeEnvironment.getApplication(), USER);
+        balance = new DatabaseLiveData<>(databaseHelper, (dataChanged, deliver) -> {
+            reads++;
+            deliver.accept(databaseHelper.getMonthlyTotal(USER, "2025-03", "Income")
+                    - databaseHelper.getMonthlyTotal(USER, "2025-03", "Expense"));
+        });
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void observersReturningWithoutChanges_doNotReadAgain() {
+        Observer<Double> first = value -> {
+        };
+        balance.observeForever(first);
+        idle();
+        balance.removeObserver(first);
+
+        // A rotation: the old screen stops observing, the new one starts
+        balance.observeForever(value -> {
+        });
+        idle();
+
+        assertEquals(1, reads);
+        assertEquals(0, balance.getValue(), 0.001);
+    }
+
+    @Test
+    public void writes_areReadWhileObserved_andOnceOnReturnOtherwise() {
+        Observer<Double> screen = value -> {
+        };
+        balance.observeForever(screen);
+        databaseHelper.insertExpense(USER, "Salary", 1000, "2025-03-01", "", "Income");
+        idle();
+        assertEquals(2, reads);
+        assertEquals(1000, balance.getValue(), 0.001);
+
+        // Another screen adds and edits while this one is in the background
+        balance.removeObserver(screen);
+        long id = databaseHelper.insertExpenseAndGetId(USER, "Food", 100, "2025-03-02", "Lunch", "Expense");
+        databaseHelper.updateExpense(id, USER, "Food", 150, "2025-03-02", "Lunch", "Expense");
+        assertEquals(2, reads);
+
+        balance.observeForever(screen);
+        idle();
+
+        assertEquals(3, reads);
+        assertEquals(850, balance.getValue(), 0.001);
+    }
+
+    @Test
+    public void reload_readsEvenWithoutWrites() {
+        balance.observeForever(value -> {
+        });
+        balance.reload();
+        idle();
+
+        assertEquals(2, reads);
+    }
+
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+}
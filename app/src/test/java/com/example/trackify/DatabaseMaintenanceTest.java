@@ -0,0 +1,124 @@
+package com.example.trackify;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.trackify.core.MaintenanceReport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link DatabaseHelper#runMaintenance} after the kind of churn months of edits and deletes leave.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DatabaseMaintenanceTest {
+
+    private static final String USER = LargeDatabaseFixture.userEmail(0);
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        LargeDatabaseFixture.seed(RuntimeEnvironment.getApplication(), 1, 2.0);
+        databaseHelper = new DatabaseHelper(RuntimeEnvironment.getApplication(), USER);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void newDatabases_useIncrementalAutoVacuum() {
+        assertEquals(DatabaseHelper.AUTO_VACUUM_INCREMENTAL, autoVacuum());
+    }
+
+    @Test
+    public void maintenance_givesDeletedPagesBack() {
+        databaseHelper.runMaintenance(() -> false);
+        deleteHalf();
+
+        MaintenanceReport report = databaseHelper.runMaintenance(() -> false);
+
+        assertNotNull(report);
+        assertTrue(report.isHealthy());
+        assertFalse(report.rebuilt);
+        assertTrue(report.pagesReclaimed > 0);
+        assertTrue(report.bytesAfter < report.bytesBefore);
+        assertEquals(0, DatabaseUtils.longForQuery(databaseHelper.getReadableDatabase(), "PRAGMA freelist_count", null));
+    }
+
+    @Test
+    public void maintenance_convertsFilesWithoutAutoVacuum() {
+        assertTrue(DatabaseHelper.rebuildWithAutoVacuum(databaseHelper.getWritableDatabase().getPath(), 0));
+        assertEquals(0, autoVacuum());
+        deleteHalf();
+
+        MaintenanceReport report = databaseHelper.runMaintenance(() -> false);
+
+        assertTrue(report.rebuilt);
+        assertTrue(report.bytesReclaimed() > 0);
+        assertEquals(DatabaseHelper.AUTO_VACUUM_INCREMENTAL, autoVacuum());
+        assertEquals("wal", DatabaseUtils.stringForQuery(databaseHelper.getReadableDatabase(), "PRAGMA journal_mode", null));
+    }
+
+    @Test
+    public void cancelledRun_onlyChecksIntegrity() {
+        deleteHalf();
+
+        MaintenanceReport report = databaseHelper.runMaintenance(() -> true);
+
+        assertTrue(report.isHealthy());
+        assertEquals(0, report.pagesReclaimed);
+    }
+
+    @Test
+    public void history_keepsMostRecentRunsFirst() throws InterruptedException {
+        databaseHelper.runMaintenance(() -> false);
+        // Runs are keyed by wall-clock millis
+        Thread.sleep(2);
+        deleteHalf();
+        databaseHelper.runMaintenance(() -> false);
+
+        List<MaintenanceReport> history = databaseHelper.getMaintenanceHistory(10);
+
+        assertEquals(2, history.size());
+        assertTrue(history.get(0).runAtMillis >= history.get(1).runAtMillis);
+        assertTrue(history.get(0).pagesReclaimed > 0);
+    }
+
+    /**
+     * Deletes the older half. Every other row would leave pages half full rather than free, and
+     * the delete's own change-log writes can take up the few that do empty.
+     */
+    private void deleteHalf() {
+        databaseHelper.getWritableDatabase().execSQL(
+                "DELETE FROM expenses WHERE expense_id <= (SELECT MAX(expense_id) / 2 FROM expenses)");
+    }
+
+    /**
+     * Read on a fresh connection; pooled ones keep reporting the mode they were opened with.
+     */
+    private long autoVacuum() {
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(databaseHelper.getWritableDatabase().getPath(), null, SQLiteDatabase.OPEN_READONLY);
+        try {
+            return DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null);
+        } finally {
+            db.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.trackify;
+
+import android.content.Context;
+
+import com.example.trackify.core.WorkloadGenerator;
+
+/**
+ * Fills the app with realistic volumes for the query tests: several users with three years of
+ * seasonal history each, each in their own database, produced by the seeded
+ * {@link WorkloadGenerator} and written through the same bulk path the debug tools use.
+ */
+final class LargeDatabaseFixture {
+
+    static final long SEED = 42L;
+    static final int START_YEAR = 2023;
+    static final int YEARS = 3;
+    static final String[] MONTHS = {"2023-01", "2023-06", "2024-02", "2024-12", "2025-10"};
+
+    private LargeDatabaseFixture() {
+    }
+
+    static String userEmail(int user) {
+        return WorkloadGenerator.userEmail(user);
+    }
+
+    /**
+     * @return the number of transactions written across all users.
+     */
+    static int seed(Context context, int users, double activity) {
+        try (UserBulkLoader loader = new UserBulkLoader(context)) {
+            return new WorkloadGenerator(SEED).generate(loader, users, START_YEAR, YEARS, activity);
+        }
+    }
+}
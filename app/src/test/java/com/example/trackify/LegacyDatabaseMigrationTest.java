@@ -0,0 +1,95 @@
+package com.example.trackify;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.trackify.core.PasswordHasher;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Splitting the old shared trackify.db into the user directory and per-account databases.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class LegacyDatabaseMigrationTest {
+
+    private static final String ALICE = "alice@example.com";
+    private static final String BOB = "bob@example.com";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        writeLegacyDatabase();
+    }
+
+    @Test
+    public void openingDirectory_splitsAccountsAndDeletesSharedFile() {
+        UserDirectoryHelper userDirectory = new UserDirectoryHelper(context);
+        try {
+            assertTrue(userDirectory.checkUser(ALICE, "alice-secret"));
+            assertTrue(userDirectory.checkUser(BOB, "bob-secret"));
+        } finally {
+            userDirectory.close();
+        }
+        assertFalse(LegacyDatabaseMigration.isNeeded(context));
+
+        DatabaseHelper alice = new DatabaseHelper(context, ALICE);
+        DatabaseHelper bob = new DatabaseHelper(context, BOB);
+        try {
+            List<DatabaseHelper.Transaction> aliceRows = alice.getRecentTransactions(ALICE, 10);
+            assertEquals(2, aliceRows.size());
+            assertEquals("Rent", alice.getTransactionById(1).category);
+            assertEquals(0, alice.getRecentTransactions(BOB, 10).size());
+
+            assertEquals(1, bob.getRecentTransactions(BOB, 10).size());
+            assertEquals("Salary", bob.getTransactionById(2).category);
+            assertEquals(1, bob.materializeRecurringTransactions(BOB, "2025-10-01"));
+        } finally {
+            alice.close();
+            bob.close();
+        }
+    }
+
+    @Test
+    public void accountDatabases_areSeparateFiles() {
+        assertNotEquals(DatabaseHelper.databaseNameFor(ALICE), DatabaseHelper.databaseNameFor(BOB));
+        assertEquals(DatabaseHelper.databaseNameFor(ALICE), DatabaseHelper.databaseNameFor("Alice@Example.com"));
+    }
+
+    private void writeLegacyDatabase() {
+        SQLiteDatabase legacy = SQLiteDatabase.openOrCreateDatabase(
+                context.getDatabasePath(LegacyDatabaseMigration.LEGACY_DATABASE_NAME), null);
+        try {
+            legacy.execSQL("CREATE TABLE users(email TEXT PRIMARY KEY, name TEXT, password TEXT)");
+            legacy.execSQL("CREATE TABLE expenses(expense_id INTEGER PRIMARY KEY AUTOINCREMENT, user_email TEXT,"
+                    + " type TEXT, category TEXT, amount REAL, date TEXT, note TEXT)");
+            legacy.execSQL("CREATE TABLE recurring_rules(rule_id INTEGER PRIMARY KEY AUTOINCREMENT, user_email TEXT,"
+                    + " type TEXT, category TEXT, amount REAL, note TEXT, frequency TEXT, interval_days INTEGER,"
+                    + " anchor_day INTEGER, next_date TEXT)");
+            legacy.execSQL("INSERT INTO users VALUES (?, 'Alice', ?)", new Object[]{ALICE, PasswordHasher.hash("alice-secret")});
+            legacy.execSQL("INSERT INTO users VALUES (?, 'Bob', ?)", new Object[]{BOB, PasswordHasher.hash("bob-secret")});
+            legacy.execSQL("INSERT INTO expenses VALUES (1, ?, 'Expense', 'Rent', 15000, '2025-09-05', '')", new Object[]{ALICE});
+            legacy.execSQL("INSERT INTO expenses VALUES (2, ?, 'Income', 'Salary', 80000, '2025-09-01', '')", new Object[]{BOB});
+            legacy.execSQL("INSERT INTO expenses VALUES (3, ?, 'Expense', 'Food', 250, '2025-09-02', 'Lunch')", new Object[]{ALICE});
+            legacy.execSQL("INSERT INTO recurring_rules VALUES (1, ?, 'Income', 'Salary', 80000, '', 'Monthly', 0, 1, '2025-10-01')", new Object[]{BOB});
+            legacy.setVersion(5);
+        } finally {
+            legacy.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.trackify;
+
+import android.content.ComponentCallbacks2;
+
+import com.example.trackify.core.QueryScheduler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class MonthPrefetcherTest {
+
+    private final List<String> loads = new ArrayList<>();
+    private final Queue<Runnable> background = new ArrayDeque<>();
+    private final MonthPrefetcher prefetcher = new MonthPrefetcher(this::load, background::add);
+    // Runs inside the next load, as a write on another thread would
+    private Runnable duringLoad;
+
+    @Test
+    public void neighbours_areServedFromTheCache() {
+        show("2025-10");
+        prefetcher.prefetchAround("2025-10");
+        runBackground();
+
+        MonthPrefetcher.Month september = show("2025-09");
+        MonthPrefetcher.Month november = show("2025-11");
+
+        assertEquals(Arrays.asList("2025-10", "2025-09", "2025-11"), loads);
+        assertEquals(2025_09, september.totalIncome, 0);
+        assertEquals(2025_11, november.totalIncome, 0);
+    }
+
+    @Test
+    public void repeatedPrefetches_readEachMonthOnce() {
+        prefetcher.prefetchAround("2025-10");
+        prefetcher.prefetchAround("2025-10");
+        runBackground();
+
+        assertEquals(Arrays.asList("2025-09", "2025-11"), loads);
+        assertEquals(2, prefetcher.cachedMonths());
+    }
+
+    @Test
+    public void prefetchStartedBeforeAChange_isDiscarded() {
+        prefetcher.prefetchAround("2025-10");
+        duringLoad = prefetcher::invalidate;
+        runBackground();
+
+        // The read running at the change is thrown away, the queued one never starts
+        assertEquals(Collections.singletonList("2025-09"), loads);
+        assertEquals(0, prefetcher.cachedMonths());
+        MonthPrefetcher.Month first = show("2025-09");
+        assertSame(first, show("2025-09"));
+        assertNotSame(first, load("2025-09", new QueryScheduler.Cancellation()));
+    }
+
+    @Test
+    public void onlyTheMonthPickedLast_isShown() {
+        show("2025-10");
+        List<MonthPrefetcher.Month> shown = new ArrayList<>();
+
+        prefetcher.load("2025-07", shown::add);
+        prefetcher.load("2025-08", shown::add);
+        runBackground();
+        prefetcher.load("2025-06", shown::add);
+        prefetcher.load("2025-10", shown::add);
+        runBackground();
+
+        assertEquals(Arrays.asList("2025-10", "2025-08"), loads);
+        assertEquals(2, shown.size());
+        assertEquals(2025_08, shown.get(0).totalIncome, 0);
+        assertEquals(2025_10, shown.get(1).totalIncome, 0);
+    }
+
+    @Test
+    public void memoryPressure_keepsOnlyTheMonthOnScreen() {
+        for (String month : new String[]{"2025-08", "2025-09", "2025-10"}) {
+            show(month);
+        }
+        show("2025-09");
+
+        prefetcher.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(1, prefetcher.cachedMonths());
+        int loadsBefore = loads.size();
+        show("2025-09");
+        assertEquals(loadsBefore, loads.size());
+
+        prefetcher.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(0, prefetcher.cachedMonths());
+    }
+
+    /**
+     * Puts {@code month} on screen and waits for it.
+     */
+    private MonthPrefetcher.Month show(String month) {
+        List<MonthPrefetcher.Month> shown = new ArrayList<>();
+        prefetcher.load(month, shown::add);
+        runBackground();
+        assertEquals(1, shown.size());
+        return shown.get(0);
+    }
+
+    private MonthPrefetcher.Month load(String month, QueryScheduler.Cancellation cancellation) {
+        loads.add(month);
+        if (duringLoad != null) {
+            Runnable action = duringLoad;
+            duringLoad = null;
+            action.run();
+        }
+        return new MonthPrefetcher.Month(Integer.parseInt(month.replace("-", "")), 0, Collections.emptyList());
+    }
+
+    private void runBackground() {
+        while (!background.isEmpty()) {
+            background.poll().run();
+        }
+    }
+}
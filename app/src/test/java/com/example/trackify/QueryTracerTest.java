@@ -0,0 +1,82 @@
+package com.example.trackify;
+
+import com.example.trackify.core.QueryMetrics;
+import com.example.trackify.core.SlowQueryLog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DatabaseHelper operations feed {@link QueryTracer}. Robolectric runs tests on the main looper
+ * thread, so every call here also counts as a main-thread call.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class QueryTracerTest {
+
+    private static final String USER = "trace@example.com";
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        databaseHelper = new DatabaseHelper(RuntimeEnvironment.getApplication(), USER);
+        QueryTracer.metrics().reset();
+        QueryTracer.metrics().setSlowThresholdMillis(QueryTracer.DEFAULT_SLOW_THRESHOLD_MS);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        QueryTracer.metrics().setSlowThresholdMillis(QueryTracer.DEFAULT_SLOW_THRESHOLD_MS);
+    }
+
+    @Test
+    public void operations_recordRowsBytesAndThread() {
+        databaseHelper.insertExpense(USER, "Food", 120, "2025-10-01", "Lunch", "Expense");
+        databaseHelper.insertExpense(USER, "Rent", 15000, "2025-10-05", "", "Expense");
+        List<DatabaseHelper.Transaction> transactions = databaseHelper.getMonthlyTransactions(USER, "2025-10");
+
+        Map<String, QueryMetrics.MethodStats> stats = QueryTracer.metrics().methodStats();
+        assertEquals(2, stats.get("insertExpense").latency.count());
+        QueryMetrics.MethodStats monthly = stats.get("getMonthlyTransactions");
+        assertEquals(1, monthly.latency.count());
+        assertEquals(2, transactions.size());
+        assertEquals(2, monthly.rows());
+        assertTrue(monthly.bytes() > 0);
+        assertEquals(1, monthly.mainThreadCalls());
+    }
+
+    @Test
+    public void delegatingMethods_areTimedThroughTheirQueries() {
+        databaseHelper.getMonthlySummary(USER, "2025-10");
+
+        Map<String, QueryMetrics.MethodStats> stats = QueryTracer.metrics().methodStats();
+        // Both totals come from one (cached) query
+        assertEquals(1, stats.get("getMonthlyTotals").latency.count());
+        assertFalse(stats.containsKey("getMonthlySummary"));
+    }
+
+    @Test
+    public void zeroThreshold_logsEveryOperationAsSlow() {
+        QueryTracer.metrics().setSlowThresholdMillis(0);
+        databaseHelper.getTotalBalance(USER);
+
+        List<SlowQueryLog.Entry> slow = QueryTracer.metrics().slowQueries();
+        assertEquals(1, slow.size());
+        assertEquals("getTotalBalance", slow.get(0).method);
+        assertTrue(slow.get(0).mainThread);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.trackify;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import com.example.trackify.DatabaseHelper.Transaction;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Receipt files addressed by content hash, the hash column that links them to transactions,
+ * and the thumbnail tiers in front of them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class ReceiptStoreTest {
+
+    private static final String USER = "receipts@example.com";
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+    private ReceiptStore store;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        databaseHelper = new DatabaseHelper(context, USER);
+        store = new ReceiptStore(context, USER);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void sameContent_isStoredOnceUnderItsHash() throws IOException {
+        String first = store.importReceipt(stream("receipt one"));
+        String again = store.importReceipt(stream("receipt one"));
+        String other = store.importReceipt(stream("receipt two"));
+
+        assertEquals(first, again);
+        assertEquals(64, first.length());
+        assertFalse(first.equals(other));
+        assertEquals(2, ReceiptStore.directory(context, USER).listFiles().length);
+        assertEquals("receipt one".length(), store.file(first).length());
+    }
+
+    @Test
+    public void receiptHash_travelsWithTheTransactionButNotIntoItsRow() throws IOException {
+        String hash = store.importReceipt(stream("lunch receipt"));
+        long id = databaseHelper.insertExpenseAndGetId(USER, "Food", 250, "2025-10-04", "Lunch", "Expense");
+
+        assertTrue(databaseHelper.setReceipt(id, hash));
+        databaseHelper.updateExpense(id, USER, "Food", 300, "2025-10-04", "Lunch", "Expense", "INR");
+
+        List<Transaction> month = databaseHelper.getMonthlyTransactions(USER, "2025-10");
+        assertEquals(hash, month.get(0).receiptHash);
+        assertEquals(hash, databaseHelper.getTransactionById(id).receiptHash);
+        assertEquals(Collections.singleton(hash), databaseHelper.getReceiptHashes());
+
+        databaseHelper.setReceipt(id, null);
+        assertNull(databaseHelper.getTransactionById(id).receiptHash);
+        assertTrue(databaseHelper.getReceiptHashes().isEmpty());
+    }
+
+    @Test
+    public void unreferencedReceipts_areDeletedAfterTheGracePeriod() throws IOException {
+        String kept = store.importReceipt(stream("kept"));
+        String orphan = store.importReceipt(stream("orphan"));
+        String pending = store.importReceipt(stream("picked but not saved yet"));
+        long old = System.currentTimeMillis() - ReceiptStore.UNREFERENCED_GRACE_MS - 1_000;
+        store.file(kept).setLastModified(old);
+        store.file(orphan).setLastModified(old);
+
+        int deleted = store.deleteUnreferenced(Collections.singleton(kept));
+
+        assertEquals(1, deleted);
+        assertTrue(store.file(kept).exists());
+        assertFalse(store.file(orphan).exists());
+        assertTrue(store.file(pending).exists());
+    }
+
+    @Test
+    public void thumbnail_isDownsampledOnceAndThenServedFromTheCaches() throws IOException {
+        File receipt = store.file(store.importReceipt(stream("placeholder")));
+        Bitmap photo = Bitmap.createBitmap(1_600, 1_200, Bitmap.Config.ARGB_8888);
+        try (java.io.FileOutputStream out = new java.io.FileOutputStream(receipt)) {
+            photo.compress(Bitmap.CompressFormat.PNG, 100, out);
+        }
+        File diskDirectory = new File(context.getCacheDir(), "thumbnails-test");
+        ThumbnailLoader loader = new ThumbnailLoader(diskDirectory, ThumbnailLoader.DISK_BUDGET_BYTES, 4 * 1024 * 1024);
+
+        Bitmap thumbnail = loader.loadThumbnail(receipt, "abc123");
+
+        assertNotNull(thumbnail);
+        assertTrue(Math.max(thumbnail.getWidth(), thumbnail.getHeight()) <= ThumbnailLoader.THUMBNAIL_PX);
+        assertTrue(new File(diskDirectory, "abc123").exists());
+        // A second loader has an empty memory tier but finds the disk copy, even without the photo
+        assertTrue(receipt.delete());
+        ThumbnailLoader restarted = new ThumbnailLoader(diskDirectory, ThumbnailLoader.DISK_BUDGET_BYTES, 4 * 1024 * 1024);
+        assertNotNull(restarted.loadThumbnail(receipt, "abc123"));
+    }
+
+    @Test
+    public void sampleSize_keepsTheLongEdgeAboveTheTarget() {
+        assertEquals(1, ThumbnailLoader.sampleSize(200, 100, 128));
+        assertEquals(2, ThumbnailLoader.sampleSize(300, 100, 128));
+        assertEquals(16, ThumbnailLoader.sampleSize(4_032, 3_024, 128));
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
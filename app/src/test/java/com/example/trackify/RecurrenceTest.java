@@ -0,0 +1,89 @@
+package com.example.trackify;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RecurrenceTest {
+
+    @Test
+    public void monthly_clampsToShortMonths_andSnapsBackToTheAnchor() {
+        int anchor = Recurrence.dayOfMonth("2025-01-31");
+
+        String february = Recurrence.nextOccurrence("2025-01-31", Recurrence.FREQUENCY_MONTHLY, 0, anchor);
+        String march = Recurrence.nextOccurrence(february, Recurrence.FREQUENCY_MONTHLY, 0, anchor);
+        String april = Recurrence.nextOccurrence(march, Recurrence.FREQUENCY_MONTHLY, 0, anchor);
+
+        assertEquals(31, anchor);
+        assertEquals("2025-02-28", february);
+        assertEquals("2025-03-31", march);
+        assertEquals("2025-04-30", april);
+    }
+
+    @Test
+    public void monthly_landsOnTheLeapDay() {
+        assertEquals("2024-02-29", Recurrence.nextOccurrence("2024-01-31", Recurrence.FREQUENCY_MONTHLY, 0, 31));
+        assertEquals("2024-03-31", Recurrence.nextOccurrence("2024-02-29", Recurrence.FREQUENCY_MONTHLY, 0, 31));
+        // An anchor on the 29th only holds in leap years
+        assertEquals("2025-02-28", Recurrence.nextOccurrence("2025-01-29", Recurrence.FREQUENCY_MONTHLY, 0, 29));
+        assertEquals("2025-03-29", Recurrence.nextOccurrence("2025-02-28", Recurrence.FREQUENCY_MONTHLY, 0, 29));
+    }
+
+    @Test
+    public void daily_crossesTheLeapDay() {
+        assertEquals("2024-02-29", Recurrence.nextOccurrence("2024-02-28", Recurrence.FREQUENCY_DAILY, 0, 28));
+        assertEquals("2024-03-01", Recurrence.nextOccurrence("2024-02-29", Recurrence.FREQUENCY_DAILY, 0, 28));
+        assertEquals("2023-03-01", Recurrence.nextOccurrence("2023-02-28", Recurrence.FREQUENCY_DAILY, 0, 28));
+    }
+
+    @Test
+    public void weekly_crossesMonthsAndYears() {
+        assertEquals("2025-01-06", Recurrence.nextOccurrence("2024-12-30", Recurrence.FREQUENCY_WEEKLY, 0, 30));
+        assertEquals("2024-03-04", Recurrence.nextOccurrence("2024-02-26", Recurrence.FREQUENCY_WEEKLY, 0, 26));
+    }
+
+    @Test
+    public void custom_addsItsInterval() {
+        assertEquals("2025-03-07", Recurrence.nextOccurrence("2025-02-25", Recurrence.FREQUENCY_CUSTOM, 10, 25));
+        assertEquals("2024-03-06", Recurrence.nextOccurrence("2024-02-25", Recurrence.FREQUENCY_CUSTOM, 10, 25));
+        // A missing interval still moves forward, so a catch-up cannot loop forever
+        assertEquals("2025-02-26", Recurrence.nextOccurrence("2025-02-25", Recurrence.FREQUENCY_CUSTOM, 0, 25));
+    }
+
+    @Test
+    public void ruleNotYetDue_hasNoOccurrences() {
+        assertTrue(Recurrence.occurrencesUpTo("2025-06-01", "2025-05-31", Recurrence.FREQUENCY_MONTHLY, 0, 1).isEmpty());
+    }
+
+    @Test
+    public void backDatedRule_catchesUpThroughToday() {
+        List<String> dates = Recurrence.occurrencesUpTo("2024-11-30", "2025-03-30", Recurrence.FREQUENCY_MONTHLY, 0, 30);
+
+        assertEquals(Arrays.asList("2024-11-30", "2024-12-30", "2025-01-30", "2025-02-28", "2025-03-30"), dates);
+    }
+
+    @Test
+    public void weeklyCatchUp_coversTheWholeYear() {
+        List<String> dates = Recurrence.occurrencesUpTo("2025-01-01", "2025-12-31", Recurrence.FREQUENCY_WEEKLY, 0, 1);
+
+        assertEquals(53, dates.size());
+        assertEquals("2025-01-08", dates.get(1));
+        assertEquals("2025-12-31", dates.get(52));
+    }
+
+    @Test
+    public void customCatchUp_stopsBeforeTomorrow() {
+        List<String> dates = Recurrence.occurrencesUpTo("2025-01-01", "2025-01-30", Recurrence.FREQUENCY_CUSTOM, 14, 1);
+
+        assertEquals(Arrays.asList("2025-01-01", "2025-01-15", "2025-01-29"), dates);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidDate_isRejected() {
+        Recurrence.nextOccurrence("31/01/2025", Recurrence.FREQUENCY_MONTHLY, 0, 31);
+    }
+}
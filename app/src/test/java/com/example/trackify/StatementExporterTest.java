@@ -0,0 +1,106 @@
+package com.example.trackify;
+
+import android.os.CancellationSignal;
+
+import com.example.trackify.core.StatementPdf;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Statements over the database and cold storage together: exact totals, every transaction in
+ * date order, and an export that can be stopped part way.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class StatementExporterTest {
+
+    private static final String USER = "statements@example.com";
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        databaseHelper = new DatabaseHelper(RuntimeEnvironment.getApplication(), USER);
+        databaseHelper.insertExpense(USER, "Salary", 50000, "2023-12-01", "", "Income");
+        databaseHelper.insertExpense(USER, "Food", 1200, "2023-12-20", "Groceries", "Expense");
+        databaseHelper.insertExpense(USER, "Food", 300, "2024-01-05", "Lunch", "Expense");
+        databaseHelper.insertExpense(USER, "Rent", 20000, "2024-01-02", "January", "Expense");
+        databaseHelper.insertExpense(USER, "Food", 700, "2024-02-01", "Out of range", "Expense");
+        // December goes cold, January stays hot
+        databaseHelper.moveToColdStorage(USER, "2024-01-01", () -> false);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void summary_countsHotAndColdTransactions() {
+        StatementPdf.Summary summary = databaseHelper.getStatementSummary(USER, "2023-12", "2024-01", "2024-03-01");
+
+        assertEquals("2023-12 to 2024-01", summary.period);
+        assertEquals(50000, summary.income, 0.001);
+        assertEquals(21500, summary.expense, 0.001);
+        assertEquals(1500, summary.categoryExpenses.get("Food"), 0.001);
+        assertEquals(4, summary.transactions);
+    }
+
+    @Test
+    public void transactions_streamFromBothFilesInDateOrder() {
+        List<String> dates = new ArrayList<>();
+
+        int rows = databaseHelper.queryStatementTransactions(USER, "2023-12", "2024-01", null, t -> dates.add(t.date));
+
+        assertEquals(4, rows);
+        assertEquals(Arrays.asList("2023-12-01", "2023-12-20", "2024-01-02", "2024-01-05"), dates);
+    }
+
+    @Test
+    public void export_writesACompletePdf() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int pages = StatementExporter.export(databaseHelper, USER, "2023-12", "2024-01", out, new CancellationSignal(),
+                (written, total) -> {
+                });
+
+        assertEquals(1, pages);
+        String pdf = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(pdf.startsWith("%PDF-1.4"));
+        assertTrue(pdf.endsWith("%%EOF\n"));
+    }
+
+    @Test
+    public void cancelledExport_returnsNoPages() throws IOException {
+        for (int i = 0; i < 2 * StatementPdf.PROGRESS_INTERVAL; i++) {
+            databaseHelper.insertExpense(USER, "Food", 10, "2024-01-10", "Snack " + i, "Expense");
+        }
+        CancellationSignal cancellation = new CancellationSignal();
+        int[] reports = new int[1];
+
+        int pages = StatementExporter.export(databaseHelper, USER, "2024-01", "2024-01", new ByteArrayOutputStream(),
+                cancellation, (written, total) -> {
+                    reports[0]++;
+                    cancellation.cancel();
+                });
+
+        assertEquals(0, pages);
+        assertEquals(1, reports[0]);
+    }
+}
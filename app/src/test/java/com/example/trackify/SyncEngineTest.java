@@ -0,0 +1,205 @@
+package com.example.trackify;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.trackify.DatabaseHelper.Transaction;
+import com.example.trackify.core.ReferenceSyncServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Two devices of one account syncing through the {@link ReferenceSyncServer}. Each device is a
+ * separate database file; the fixture's second user stands in for the second device.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class SyncEngineTest {
+
+    private static final String ACCOUNT = "account@example.com";
+    private static final String PHONE = LargeDatabaseFixture.userEmail(0);
+    private static final String TABLET = LargeDatabaseFixture.userEmail(1);
+
+    private Context context;
+    private ReferenceSyncServer server;
+    private DatabaseHelper phone;
+    private DatabaseHelper tablet;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        // Three years of history on the phone only; the tablet starts empty
+        LargeDatabaseFixture.seed(context, 1, 1.0);
+        server = new ReferenceSyncServer();
+        phone = new DatabaseHelper(context, PHONE);
+        tablet = new DatabaseHelper(context, TABLET);
+    }
+
+    @After
+    public void tearDown() {
+        phone.close();
+        tablet.close();
+    }
+
+    @Test
+    public void firstSync_copiesEverythingToANewDevice() throws IOException {
+        int rows = all(phone, PHONE).size();
+
+        SyncEngine.Result pushed = sync(phone, PHONE);
+        SyncEngine.Result pulled = sync(tablet, TABLET);
+
+        assertEquals(rows, pushed.pushed);
+        assertEquals(rows, pulled.applied);
+        assertEquals(rows, all(tablet, TABLET).size());
+        assertEquals(phone.getTotalBalance(PHONE), tablet.getTotalBalance(TABLET), 0.001);
+        // Nothing left to send either way
+        assertEquals(0, sync(phone, PHONE).pushed + sync(tablet, TABLET).pushed);
+    }
+
+    @Test
+    public void weekOffline_sendsOnlyTheDelta() throws IOException {
+        long initialBytes = sync(phone, PHONE).bytesSent;
+        sync(tablet, TABLET);
+
+        // A week of use: new entries, a few corrections and a few deletions
+        for (int day = 1; day <= 7; day++) {
+            for (int i = 0; i < 4; i++) {
+                phone.insertExpense(PHONE, "Food", 120 + i, "2025-11-0" + day, "Lunch", "Expense");
+            }
+        }
+        List<Long> older = new ArrayList<>();
+        for (Transaction transaction : all(phone, PHONE).subList(40, 55)) {
+            older.add(transaction.id);
+        }
+        phone.recategorizeTransactions(older.subList(0, 10), "Expense", "Miscellaneous");
+        phone.deleteTransactions(older.subList(10, 15));
+
+        SyncEngine.Result delta = sync(phone, PHONE);
+        SyncEngine.Result pulled = sync(tablet, TABLET);
+
+        assertTrue("Delta sent " + delta.bytesSent + " bytes", delta.bytesSent < 4 * 1024);
+        assertTrue(delta.bytesSent * 50 < initialBytes);
+        assertTrue(delta.pushed <= 28 + 15);
+        assertEquals(delta.pushed, pulled.applied);
+        assertEquals(all(phone, PHONE).size(), all(tablet, TABLET).size());
+        assertEquals(phone.getTotalBalance(PHONE), tablet.getTotalBalance(TABLET), 0.001);
+    }
+
+    @Test
+    public void concurrentEdits_convergeOnTheLastWriter() throws Exception {
+        sync(phone, PHONE);
+        sync(tablet, TABLET);
+        Transaction onPhone = all(phone, PHONE).get(0);
+        Transaction onTablet = findSame(onPhone);
+
+        tablet.updateExpense(onTablet.id, TABLET, "Travel", onTablet.amount, onTablet.date, "Tablet edit", onTablet.type);
+        Thread.sleep(5);
+        phone.updateExpense(onPhone.id, PHONE, "Rent", onPhone.amount, onPhone.date, "Phone edit", onPhone.type);
+
+        sync(tablet, TABLET);
+        SyncEngine.Result phoneSync = sync(phone, PHONE);
+        sync(tablet, TABLET);
+
+        assertEquals(0, phoneSync.rejected);
+        assertEquals("Phone edit", phone.getTransactionById(onPhone.id).note);
+        assertEquals("Phone edit", tablet.getTransactionById(onTablet.id).note);
+        assertEquals("Rent", tablet.getTransactionById(onTablet.id).category);
+    }
+
+    @Test
+    public void staleEdit_losesToNewerDelete() throws Exception {
+        sync(phone, PHONE);
+        sync(tablet, TABLET);
+        Transaction onPhone = all(phone, PHONE).get(0);
+        Transaction onTablet = findSame(onPhone);
+
+        tablet.updateExpense(onTablet.id, TABLET, "Travel", onTablet.amount, onTablet.date, "Edited offline", onTablet.type);
+        Thread.sleep(5);
+        phone.deleteTransactions(Collections.singletonList(onPhone.id));
+
+        sync(phone, PHONE);
+        SyncEngine.Result tabletSync = sync(tablet, TABLET);
+
+        // The server already has the newer delete, so the tablet's edit comes back rejected
+        assertEquals(1, tabletSync.rejected);
+        assertNull(tablet.getTransactionById(onTablet.id));
+        assertNull(phone.getTransactionById(onPhone.id));
+        assertEquals(all(phone, PHONE).size(), all(tablet, TABLET).size());
+    }
+
+    @Test
+    public void currency_travelsWithTheTransaction() throws IOException {
+        sync(phone, PHONE);
+        sync(tablet, TABLET);
+        long id = phone.insertExpenseAndGetId(PHONE, "Travel", 12.5, "2025-11-03", "Airport taxi", "Expense", "USD");
+
+        sync(phone, PHONE);
+        sync(tablet, TABLET);
+
+        Transaction onTablet = findSame(phone.getTransactionById(id));
+        assertEquals("USD", onTablet.currency);
+    }
+
+    @Test
+    public void upgradeFromVersion6_queuesExistingRowsForSync() {
+        String email = "legacy@example.com";
+        SQLiteDatabase old = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(DatabaseHelper.databaseNameFor(email)), null);
+        old.execSQL("CREATE TABLE expenses(expense_id INTEGER PRIMARY KEY AUTOINCREMENT, user_email TEXT, type TEXT,"
+                + " category TEXT, amount REAL, date TEXT, note TEXT)");
+        for (int i = 1; i <= 3; i++) {
+            old.execSQL("INSERT INTO expenses(user_email, type, category, amount, date, note) VALUES (?, 'Expense', 'Food', ?, '2025-09-0" + i + "', '')",
+                    new Object[]{email, i * 100});
+        }
+        old.setVersion(6);
+        old.close();
+
+        DatabaseHelper upgraded = new DatabaseHelper(context, email);
+        try {
+            DatabaseHelper.PendingChanges pending = upgraded.getPendingChanges(0, 100);
+
+            assertEquals(3, pending.records.size());
+            assertEquals(200, pending.records.get(1).amount, 0);
+            assertEquals("2025-09-02", upgraded.getTransactionById(2).date);
+            assertTrue(upgraded.insertExpense(email, "Food", 50, "2025-09-04", "", "Expense"));
+            assertEquals(4, upgraded.getPendingChanges(0, 100).records.size());
+        } finally {
+            upgraded.close();
+        }
+    }
+
+    private SyncEngine.Result sync(DatabaseHelper device, String email) throws IOException {
+        return new SyncEngine(device, server, ACCOUNT).sync();
+    }
+
+    private static List<Transaction> all(DatabaseHelper device, String email) {
+        return device.getRecentTransactions(email, 100_000);
+    }
+
+    /**
+     * The tablet's copy of a phone transaction; local ids differ, so match on the fields.
+     */
+    private Transaction findSame(Transaction onPhone) {
+        for (Transaction candidate : all(tablet, TABLET)) {
+            if (candidate.date.equals(onPhone.date) && candidate.amount == onPhone.amount
+                    && candidate.category.equals(onPhone.category) && candidate.note.equals(onPhone.note)) {
+                return candidate;
+            }
+        }
+        throw new AssertionError("Not synced: " + onPhone.id);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.trackify;
+
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Main-thread stage accounting behind frame blame. Robolectric's clock only moves when told to,
+ * so SystemClock.sleep() gives exact durations.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TraceSectionTest {
+
+    @Before
+    public void setUp() {
+        TraceSection.drainMainThreadStages();
+    }
+
+    @Test
+    public void nestedSections_recordExclusiveTime() {
+        TraceSection.begin(TraceSection.QUERY, "getMonthlyTransactions");
+        SystemClock.sleep(10);
+        TraceSection.begin(TraceSection.MAP);
+        SystemClock.sleep(4);
+        TraceSection.end();
+        TraceSection.end();
+
+        Map<String, Long> stages = TraceSection.drainMainThreadStages();
+        assertEquals(10_000_000L, stages.get(TraceSection.QUERY).longValue());
+        assertEquals(4_000_000L, stages.get(TraceSection.MAP).longValue());
+    }
+
+    @Test
+    public void drain_startsOver() {
+        TraceSection.begin(TraceSection.BIND);
+        SystemClock.sleep(1);
+        TraceSection.end();
+        TraceSection.begin(TraceSection.BIND);
+        SystemClock.sleep(2);
+        TraceSection.end();
+
+        assertEquals(3_000_000L, TraceSection.drainMainThreadStages().get(TraceSection.BIND).longValue());
+        assertTrue(TraceSection.drainMainThreadStages().isEmpty());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.trackify;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.trackify.core.WidgetSnapshot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class WidgetSnapshotWriterTest {
+
+    private static final String USER = "widget@example.com";
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+    private WidgetSnapshotWriter writer;
+    private int refreshes;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        databaseHelper = new DatabaseHelper(context, USER);
+        writer = new WidgetSnapshotWriter(context, databaseHelper, USER, new Handler(Looper.getMainLooper()), () -> refreshes++);
+        databaseHelper.addChangeListener(writer::requestUpdate);
+    }
+
+    @After
+    public void tearDown() {
+        writer.cancel();
+        databaseHelper.close();
+    }
+
+    @Test
+    public void burstOfWrites_isOneSnapshotAndOneRefresh() {
+        String today = RecurringTransactionJobService.today();
+        databaseHelper.insertExpense(USER, "Salary", 50_000, today, "", "Income");
+        for (int i = 1; i <= 20; i++) {
+            databaseHelper.insertExpense(USER, "Food", i, today, "Lunch " + i, "Expense");
+        }
+        long last = databaseHelper.insertExpenseAndGetId(USER, "Travel", 10, today, "", "Expense", "USD");
+        databaseHelper.setFxRate("USD", today, 80);
+        assertNull(WidgetSnapshotWriter.read(context, USER));
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(WidgetSnapshotWriter.COALESCE_MS));
+
+        assertEquals(1, refreshes);
+        WidgetSnapshot snapshot = WidgetSnapshotWriter.read(context, USER);
+        assertEquals(today.substring(0, 7), snapshot.month);
+        assertEquals(50_000 - 210 - 800, snapshot.balance, 0.001);
+        assertEquals(50_000, snapshot.monthIncome, 0.001);
+        assertEquals(210 + 800, snapshot.monthExpense, 0.001);
+        assertEquals(WidgetSnapshot.MAX_RECENT, snapshot.recent.size());
+        assertEquals("USD", snapshot.recent.get(0).currency);
+
+        databaseHelper.deleteTransactions(Arrays.asList(last));
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(WidgetSnapshotWriter.COALESCE_MS));
+
+        assertEquals(2, refreshes);
+        assertEquals(50_000 - 210, WidgetSnapshotWriter.read(context, USER).balance, 0.001);
+    }
+
+    @Test
+    public void cancelledWriter_dropsThePendingRebuild() {
+        databaseHelper.insertExpense(USER, "Food", 100, RecurringTransactionJobService.today(), "", "Expense");
+
+        writer.cancel();
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(WidgetSnapshotWriter.COALESCE_MS));
+
+        assertEquals(0, refreshes);
+        assertFalse(WidgetSnapshotWriter.snapshotFile(context, USER).exists());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.trackify;
+
+import com.example.trackify.core.WorkloadGenerator;
+import com.example.trackify.core.WorkloadTrace;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Bulk loading across per-user databases and trace replay through DatabaseHelper.
+ */
+@RunWith(RobolectricTestRunner.class)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class WorkloadReplayTest {
+
+    private static final String USER = LargeDatabaseFixture.userEmail(0);
+
+    private UserDirectoryHelper userDirectory;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        userDirectory = new UserDirectoryHelper(RuntimeEnvironment.getApplication());
+        databaseHelper = new DatabaseHelper(RuntimeEnvironment.getApplication(), USER);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        userDirectory.close();
+    }
+
+    @Test
+    public void bulkLoad_writesUsersThatCanLogIn() {
+        int rows = LargeDatabaseFixture.seed(RuntimeEnvironment.getApplication(), 2, 1.0);
+
+        assertTrue(rows > 5_000);
+        assertTrue(userDirectory.checkUser(USER, WorkloadGenerator.DEFAULT_PASSWORD));
+        String otherUser = LargeDatabaseFixture.userEmail(1);
+        DatabaseHelper otherDatabase = new DatabaseHelper(RuntimeEnvironment.getApplication(), otherUser);
+        try {
+            assertEquals(rows, databaseHelper.getRecentTransactions(USER, 10_000).size()
+                    + otherDatabase.getRecentTransactions(otherUser, 10_000).size());
+        } finally {
+            otherDatabase.close();
+        }
+    }
+
+    @Test
+    public void bulkLoad_isRepeatableForExistingUsers() {
+        int first = LargeDatabaseFixture.seed(RuntimeEnvironment.getApplication(), 1, 0.2);
+        int second = LargeDatabaseFixture.seed(RuntimeEnvironment.getApplication(), 1, 0.2);
+
+        assertEquals(first, second);
+        assertEquals(first * 2, databaseHelper.getRecentTransactions(USER, 10_000).size());
+    }
+
+    @Test
+    public void replay_appliesEveryOperationOfAGeneratedTrace() throws IOException {
+        StringWriter trace = new StringWriter();
+        new WorkloadGenerator(11).generateTrace(new WorkloadTrace.Writer(trace), USER, 2025, 500);
+
+        WorkloadTrace.Result result = WorkloadTrace.replay(new StringReader(trace.toString()),
+                new DatabaseReplayTarget(databaseHelper));
+
+        assertEquals(500, result.operations() + result.skipped);
+        assertTrue(result.inserts > 300);
+        assertEquals(result.inserts - result.deletes, databaseHelper.getRecentTransactions(USER, 1_000).size());
+    }
+}
@@ -0,0 +1,32 @@
+// Plain JVM module: everything here must run without the Android framework,
+// so it can be unit tested and benchmarked on any Linux box.
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// Sources contain the rupee sign; do not depend on the host's default charset
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// Run with: ./gradlew :core:jmh   (results in core/build/results/jmh/results.json)
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    warmupIterations = 3
+    iterations = 5
+    fork = 2
+    // Fixed heap so GC behaviour, and therefore the numbers, do not depend on the host's RAM
+    jvmArgs = listOf("-Xms1g", "-Xmx1g")
+    resultFormat = "JSON"
+    includeTests = false
+}
@@ -0,0 +1,48 @@
+package com.example.trackify.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory totals over a month (100), a heavy user's history (10k) and a stress-size list (100k).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AggregationBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private List<TransactionRecord> transactions;
+
+    @Setup
+    public void setUp() {
+        transactions = SyntheticTransactions.records(size);
+    }
+
+    @Benchmark
+    public TransactionAggregator.Summary summarize() {
+        return TransactionAggregator.summarize(transactions);
+    }
+
+    @Benchmark
+    public Map<String, Double> totalsByCategory() {
+        return TransactionAggregator.totalsByCategory(transactions, Categories.TYPE_EXPENSE);
+    }
+
+    @Benchmark
+    public Map<String, Double> netByMonth() {
+        return TransactionAggregator.netByMonth(transactions);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.trackify.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates 10,000 (type, category) pairs, as a bulk import would, including some invalid ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CategoryValidationBenchmark {
+
+    private String[] types;
+    private String[] categories;
+
+    @Setup
+    public void setUp() {
+        List<TransactionRecord> records = SyntheticTransactions.records(10_000);
+        types = new String[records.size()];
+        categories = new String[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            types[i] = records.get(i).type;
+            // Every tenth category is misspelled so the miss path is measured too
+            categories[i] = i % 10 == 0 ? records.get(i).category.toLowerCase() : records.get(i).category;
+        }
+    }
+
+    @Benchmark
+    public int isValid() {
+        int valid = 0;
+        for (int i = 0; i < types.length; i++) {
+            if (Categories.isValid(types[i], categories[i])) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public int legacyListContains() {
+        int valid = 0;
+        for (int i = 0; i < types.length; i++) {
+            if (Categories.forType(types[i]).contains(categories[i])) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.trackify.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formats one screenful-plus of amounts (1,000) per invocation, the work done while binding a
+ * scrolled transaction list. The "legacy" variants are the implementations the app used before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FormattingBenchmark {
+
+    private double[] amounts;
+
+    @Setup
+    public void setUp() {
+        List<TransactionRecord> records = SyntheticTransactions.records(1000);
+        amounts = new double[records.size()];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = records.get(i).amount;
+        }
+    }
+
+    @Benchmark
+    public void currencyFormat(Blackhole blackhole) {
+        for (double amount : amounts) {
+            blackhole.consume(CurrencyFormatter.format(amount));
+        }
+    }
+
+    @Benchmark
+    public void legacyCurrencyInstancePerCall(Blackhole blackhole) {
+        // MainActivity used to create a new currency instance on every dashboard load
+        for (double amount : amounts) {
+            blackhole.consume(NumberFormat.getCurrencyInstance(CurrencyFormatter.INDIA_LOCALE).format(amount));
+        }
+    }
+
+    @Benchmark
+    public void plainFormat(Blackhole blackhole) {
+        for (double amount : amounts) {
+            blackhole.consume(CurrencyFormatter.formatPlain(amount));
+        }
+    }
+
+    @Benchmark
+    public void legacyStringFormat(Blackhole blackhole) {
+        for (double amount : amounts) {
+            blackhole.consume(String.format(Locale.US, "₹ %.2f", amount));
+        }
+    }
+}
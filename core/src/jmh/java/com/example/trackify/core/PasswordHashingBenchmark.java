@@ -0,0 +1,56 @@
+package com.example.trackify.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Formatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing cost per login/registration, against the Formatter-based hex encoding it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PasswordHashingBenchmark {
+
+    @Param({"8", "32", "128"})
+    public int passwordLength;
+
+    private String password;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder(passwordLength);
+        for (int i = 0; i < passwordLength; i++) {
+            builder.append((char) ('a' + (i * 7) % 26));
+        }
+        password = builder.toString();
+    }
+
+    @Benchmark
+    public String hash() {
+        return PasswordHasher.hash(password);
+    }
+
+    @Benchmark
+    public String legacyFormatterHash() throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        md.update(password.getBytes());
+        Formatter formatter = new Formatter();
+        for (byte b : md.digest()) {
+            formatter.format("%02x", b);
+        }
+        String sha256 = formatter.toString();
+        formatter.close();
+        return sha256;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.trackify.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row-to-object mapping for a month list (100) and a full history export (10k, 100k).
+ * "legacy" resolves every column index on every row, as DatabaseHelper used to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RowMappingBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private ArrayRow row;
+
+    @Setup
+    public void setUp() {
+        row = new ArrayRow(SyntheticTransactions.COLUMNS, SyntheticTransactions.rows(size));
+    }
+
+    @Benchmark
+    public List<TransactionRecord> mapper() {
+        List<TransactionRecord> result = new ArrayList<>(size);
+        TransactionRowMapper<TransactionRecord> mapper = new TransactionRowMapper<>(row, TransactionRecord::new);
+        for (int i = 0; i < size; i++) {
+            row.moveTo(i);
+            result.add(mapper.map(row));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<TransactionRecord> legacyPerRowLookup() {
+        List<TransactionRecord> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            row.moveTo(i);
+            result.add(new TransactionRecord(
+                    row.getLong(row.columnIndex(TransactionRowMapper.COLUMN_ID)),
+                    row.getString(row.columnIndex(TransactionRowMapper.COLUMN_USER_EMAIL)),
+                    row.getString(row.columnIndex(TransactionRowMapper.COLUMN_TYPE)),
+                    row.getString(row.columnIndex(TransactionRowMapper.COLUMN_CATEGORY)),
+                    row.getDouble(row.columnIndex(TransactionRowMapper.COLUMN_AMOUNT)),
+                    row.getString(row.columnIndex(TransactionRowMapper.COLUMN_DATE)),
+                    row.getString(row.columnIndex(TransactionRowMapper.COLUMN_NOTE))));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.trackify.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Seeded synthetic data for the benchmarks. The mix roughly follows a real account: about one
+ * income row per twenty, amounts spread from small food spends to rent-sized payments, and
+ * dates spread over three years so per-month grouping has realistic cardinality.
+ */
+final class SyntheticTransactions {
+
+    static final long SEED = 20251001L;
+
+    static final String[] COLUMNS = {
+            TransactionRowMapper.COLUMN_ID, TransactionRowMapper.COLUMN_USER_EMAIL, TransactionRowMapper.COLUMN_TYPE,
+            TransactionRowMapper.COLUMN_CATEGORY, TransactionRowMapper.COLUMN_AMOUNT, TransactionRowMapper.COLUMN_DATE,
+            TransactionRowMapper.COLUMN_NOTE
+    };
+
+    private static final String[] NOTES = {"", "Lunch", "Uber to office", "Monthly rent", "Groceries at DMart", "Movie night"};
+
+    private SyntheticTransactions() {
+    }
+
+    static List<TransactionRecord> records(int size) {
+        List<Object[]> rows = rows(size);
+        List<TransactionRecord> records = new ArrayList<>(size);
+        for (Object[] row : rows) {
+            records.add(new TransactionRecord((Long) row[0], (String) row[1], (String) row[2], (String) row[3],
+                    (Double) row[4], (String) row[5], (String) row[6]));
+        }
+        return records;
+    }
+
+    static List<Object[]> rows(int size) {
+        Random random = new Random(SEED);
+        List<Object[]> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            boolean income = random.nextInt(20) == 0;
+            String type = income ? Categories.TYPE_INCOME : Categories.TYPE_EXPENSE;
+            List<String> categories = Categories.forType(type);
+            String category = categories.get(random.nextInt(categories.size()));
+            // Log-normal-ish amounts: mostly small spends with a long tail
+            double amount = Math.round(Math.exp(3 + random.nextGaussian() * 1.5) * 100) / 100.0;
+            if (income) {
+                amount *= 20;
+            }
+            String date = String.format(Locale.US, "%d-%02d-%02d",
+                    2023 + random.nextInt(3), 1 + random.nextInt(12), 1 + random.nextInt(28));
+            rows.add(new Object[]{(long) i + 1, "user@example.com", type, category, amount, date,
+                    NOTES[random.nextInt(NOTES.length)]});
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.trackify.core;
+
+import java.util.List;
+
+/**
+ * {@link Row} over in-memory Object[] rows, for tests and benchmarks that exercise row mapping
+ * without a database. Call {@link #moveTo(int)} to select the current row.
+ */
+public final class ArrayRow implements Row {
+
+    private final String[] columnNames;
+    private final List<Object[]> rows;
+    private Object[] current;
+
+    public ArrayRow(String[] columnNames, List<Object[]> rows) {
+        this.columnNames = columnNames;
+        this.rows = rows;
+        this.current = rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public void moveTo(int position) {
+        current = rows.get(position);
+    }
+
+    @Override
+    public int columnIndex(String columnName) {
+        for (int i = 0; i < columnNames.length; i++) {
+            if (columnNames[i].equals(columnName)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        return ((Number) current[columnIndex]).longValue();
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        return ((Number) current[columnIndex]).doubleValue();
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        Object value = current[columnIndex];
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+        return current[columnIndex] == null;
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.trackify.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Compressed, checksummed container for a database snapshot and, optionally, a snapshot of its
+ * cold storage file.
+ *
+ * <p>A fixed 44-byte header is followed by the GZIP-compressed snapshots, the cold one last:
+ * <pre>
+ * magic "TRKB" | format version | schema version | created (epoch ms) | raw length | raw CRC32 | cold length | header CRC32
+ * </pre>
+ * The raw length and checksum cover both snapshots. Format 1 archives have a 36-byte header
+ * without the cold length and hold the database alone; they are still read. The header is
+ * written last, once the length and checksum of the streamed data are known, so a half-written
+ * archive never validates. Data is streamed in fixed-size chunks; memory use does not depend on
+ * the database size.
+ */
+public final class BackupArchive {
+
+    public static final int FORMAT_VERSION = 2;
+    static final int MAGIC = 0x54524B42; // "TRKB"
+    static final int HEADER_SIZE = 44;
+    // Format 1, before cold storage
+    static final int V1_HEADER_SIZE = 36;
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // Takes what extract() was not asked to keep
+    private static final WritableByteChannel DISCARD = new WritableByteChannel() {
+        @Override
+        public int write(ByteBuffer buffer) {
+            int remaining = buffer.remaining();
+            buffer.position(buffer.limit());
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private BackupArchive() {
+    }
+
+    /**
+     * Thrown when an archive is truncated, corrupt, or from a newer format.
+     */
+    public static class FormatException extends IOException {
+        public FormatException(String message) {
+            super(message);
+        }
+
+        public FormatException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * What an archive's header says about the snapshot inside it.
+     */
+    public static final class Header {
+        public final int formatVersion;
+        public final int schemaVersion;
+        public final long createdMillis;
+        /** Both snapshots together. */
+        public final long rawLength;
+        public final int rawCrc32;
+        /** The cold storage snapshot at the end of the raw data; 0 if there is none. */
+        public final long coldLength;
+
+        Header(int formatVersion, int schemaVersion, long createdMillis, long rawLength, int rawCrc32, long coldLength) {
+            this.formatVersion = formatVersion;
+            this.schemaVersion = schemaVersion;
+            this.createdMillis = createdMillis;
+            this.rawLength = rawLength;
+            this.rawCrc32 = rawCrc32;
+            this.coldLength = coldLength;
+        }
+    }
+
+    /**
+     * Compresses everything {@code source} yields into {@code archive}, starting at position 0.
+     * The archive channel is left open.
+     */
+    public static Header write(ReadableByteChannel source, FileChannel archive, int schemaVersion, long createdMillis) throws IOException {
+        return write(source, null, archive, schemaVersion, createdMillis);
+    }
+
+    /**
+     * Compresses everything {@code source} yields, then everything {@code cold} yields unless it
+     * is null, into {@code archive}, starting at position 0. The archive channel is left open.
+     */
+    public static Header write(ReadableByteChannel source, ReadableByteChannel cold, FileChannel archive, int schemaVersion,
+                               long createdMillis) throws IOException {
+        archive.truncate(0);
+        archive.position(HEADER_SIZE);
+
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        // Not closed: closing the stream would close the caller's channel
+        GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(archive), CHUNK_SIZE);
+        long databaseLength = copy(source, gzip, crc, buffer);
+        long coldLength = cold == null ? 0 : copy(cold, gzip, crc, buffer);
+        gzip.finish();
+        gzip.flush();
+
+        Header header = new Header(FORMAT_VERSION, schemaVersion, createdMillis, databaseLength + coldLength,
+                (int) crc.getValue(), coldLength);
+        writeFully(archive, encode(header), 0);
+        return header;
+    }
+
+    /**
+     * Reads and validates the header only; cheap enough to list archives with.
+     */
+    public static Header readHeader(FileChannel archive) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        read(archive, buffer, 8);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new FormatException("Not a Trackify backup");
+        }
+        int formatVersion = buffer.getInt(4);
+        if (formatVersion > FORMAT_VERSION) {
+            throw new FormatException("Archive format " + formatVersion + " is newer than this app supports");
+        }
+        int size = headerSize(formatVersion);
+        read(archive, buffer, size);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, size - 4);
+        if ((int) crc.getValue() != buffer.getInt(size - 4)) {
+            throw new FormatException("Archive header is corrupt");
+        }
+        long rawLength = buffer.getLong(20);
+        long coldLength = size > V1_HEADER_SIZE ? buffer.getLong(32) : 0;
+        if (coldLength < 0 || coldLength > rawLength) {
+            throw new FormatException("Archive header is corrupt");
+        }
+        return new Header(formatVersion, buffer.getInt(8), buffer.getLong(12), rawLength, buffer.getInt(28), coldLength);
+    }
+
+    /**
+     * Decompresses the database snapshot into {@code target}, verifying the archive's length
+     * and checksum; any cold storage snapshot is read and checked but not kept. On a
+     * {@link FormatException} the target holds partial data and must be discarded.
+     */
+    public static Header extract(FileChannel archive, WritableByteChannel target) throws IOException {
+        return extract(archive, target, DISCARD);
+    }
+
+    /**
+     * Decompresses the database snapshot into {@code target} and the cold storage snapshot, if
+     * {@link Header#coldLength} is not 0, into {@code cold}, verifying their length and checksum.
+     * On a {@link FormatException} both hold partial data and must be discarded.
+     */
+    public static Header extract(FileChannel archive, WritableByteChannel target, WritableByteChannel cold) throws IOException {
+        Header header = readHeader(archive);
+        archive.position(headerSize(header.formatVersion));
+
+        CRC32 crc = new CRC32();
+        long rawLength = 0;
+        long databaseLength = header.rawLength - header.coldLength;
+        byte[] chunk = new byte[CHUNK_SIZE];
+        try {
+            // Not closed: closing the stream would close the caller's channel
+            InputStream gzip = new GZIPInputStream(Channels.newInputStream(archive), CHUNK_SIZE);
+            int read;
+            while ((read = gzip.read(chunk)) != -1) {
+                crc.update(chunk, 0, read);
+                // The part of the chunk before the cold snapshot starts
+                int toDatabase = (int) Math.max(0, Math.min(read, databaseLength - rawLength));
+                writeFully(target, ByteBuffer.wrap(chunk, 0, toDatabase));
+                writeFully(cold, ByteBuffer.wrap(chunk, toDatabase, read - toDatabase));
+                rawLength += read;
+            }
+        } catch (ZipException | EOFException e) {
+            throw new FormatException("Archive data is corrupt", e);
+        }
+
+        if (rawLength != header.rawLength || (int) crc.getValue() != header.rawCrc32) {
+            throw new FormatException("Archive checksum does not match");
+        }
+        return header;
+    }
+
+    /**
+     * Streams {@code archive} through {@link #extract} without keeping the output, to check an
+     * archive before relying on it.
+     */
+    public static Header verify(FileChannel archive) throws IOException {
+        return extract(archive, DISCARD, DISCARD);
+    }
+
+    static int headerSize(int formatVersion) {
+        return formatVersion == 1 ? V1_HEADER_SIZE : HEADER_SIZE;
+    }
+
+    /**
+     * @return the number of bytes copied.
+     */
+    private static long copy(ReadableByteChannel source, GZIPOutputStream gzip, CRC32 crc, ByteBuffer buffer) throws IOException {
+        long length = 0;
+        int read;
+        buffer.clear();
+        while ((read = source.read(buffer)) != -1) {
+            if (read > 0) {
+                crc.update(buffer.array(), 0, read);
+                gzip.write(buffer.array(), 0, read);
+                length += read;
+            }
+            buffer.clear();
+        }
+        return length;
+    }
+
+    /**
+     * Fills {@code buffer} from the start of {@code archive} up to {@code size} bytes.
+     */
+    private static void read(FileChannel archive, ByteBuffer buffer, int size) throws IOException {
+        if (archive.size() < size) {
+            throw new FormatException("Archive is truncated");
+        }
+        buffer.limit(size);
+        while (buffer.hasRemaining()) {
+            if (archive.read(buffer, buffer.position()) == -1) {
+                throw new FormatException("Archive is truncated");
+            }
+        }
+    }
+
+    private static ByteBuffer encode(Header header) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.putInt(MAGIC)
+                .putInt(header.formatVersion)
+                .putInt(header.schemaVersion)
+                .putLong(header.createdMillis)
+                .putLong(header.rawLength)
+                .putInt(header.rawCrc32)
+                .putLong(header.coldLength);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, HEADER_SIZE - 4);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
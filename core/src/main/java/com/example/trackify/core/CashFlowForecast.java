@@ -0,0 +1,215 @@
+package com.example.trackify.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Where the current month is heading: the income and spending still expected before it ends,
+ * with a spread, in {@link Currencies#BASE}.
+ *
+ * <p>The expectation comes from day-of-month profiles, decayed sums over past months of what
+ * each day of the month brought in and out (weighted like {@link SpendingStats}, so recent
+ * months count for more), plus the occurrences of recurring rules still due this month, which
+ * are known exactly. Days are treated as independent, so the variance of what is left is the sum
+ * of the days' variances.
+ */
+public final class CashFlowForecast {
+
+    /** Half-width of the bands in standard deviations: an 80% interval under a normal approximation. */
+    public static final double BAND_DEVIATIONS = 1.2816;
+
+    /** The yyyy-MM month forecast. */
+    public final String month;
+    /** The last day counted as already happened, yyyy-MM-dd. */
+    public final String asOf;
+    /** Still expected before the month ends, recurring occurrences included. */
+    public final double expectedIncome;
+    public final double expectedExpense;
+    public final double incomeVariance;
+    public final double expenseVariance;
+    /** The part of the expectation that comes from recurring rules. */
+    public final double recurringIncome;
+    public final double recurringExpense;
+
+    CashFlowForecast(String month, String asOf, double expectedIncome, double expectedExpense, double incomeVariance,
+                     double expenseVariance, double recurringIncome, double recurringExpense) {
+        this.month = month;
+        this.asOf = asOf;
+        this.expectedIncome = expectedIncome;
+        this.expectedExpense = expectedExpense;
+        this.incomeVariance = incomeVariance;
+        this.expenseVariance = expenseVariance;
+        this.recurringIncome = recurringIncome;
+        this.recurringExpense = recurringExpense;
+    }
+
+    public double monthEndSpend(double spentSoFar) {
+        return spentSoFar + expectedExpense;
+    }
+
+    /** Never below what is already spent plus what recurring rules will add. */
+    public double monthEndSpendLow(double spentSoFar) {
+        return Math.max(spentSoFar + recurringExpense, monthEndSpend(spentSoFar) - BAND_DEVIATIONS * Math.sqrt(expenseVariance));
+    }
+
+    public double monthEndSpendHigh(double spentSoFar) {
+        return monthEndSpend(spentSoFar) + BAND_DEVIATIONS * Math.sqrt(expenseVariance);
+    }
+
+    public double monthEndBalance(double balance) {
+        return balance + expectedIncome - expectedExpense;
+    }
+
+    public double monthEndBalanceLow(double balance) {
+        return monthEndBalance(balance) - BAND_DEVIATIONS * Math.sqrt(incomeVariance + expenseVariance);
+    }
+
+    public double monthEndBalanceHigh(double balance) {
+        return monthEndBalance(balance) + BAND_DEVIATIONS * Math.sqrt(incomeVariance + expenseVariance);
+    }
+
+    /**
+     * The number of days in a yyyy-MM month.
+     */
+    public static int daysIn(String month) {
+        int year = Integer.parseInt(month.substring(0, 4));
+        switch (Integer.parseInt(month.substring(5, 7))) {
+            case 2:
+                return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Collects the stored profiles and recurring occurrences for one forecast. Everything added
+     * is keyed by transaction type and currency; the currencies are converted when it is built.
+     */
+    public static final class Builder {
+        private final String asOf;
+        private final String month;
+        private final String firstMonth;
+        // Per type and currency: weighted sums and sums of squares, indexed by day of month
+        private final Map<String, double[][]> profiles = new HashMap<>();
+        private double recurringIncome;
+        private double recurringExpense;
+
+        /**
+         * @param asOf       today, yyyy-MM-dd; the forecast covers the days after it.
+         * @param firstMonth the yyyy-MM month of the oldest transaction, or null if there is none.
+         */
+        public Builder(String asOf, String firstMonth) {
+            this.asOf = asOf;
+            this.month = asOf.substring(0, 7);
+            this.firstMonth = firstMonth;
+        }
+
+        /**
+         * Adds one stored day-of-month profile row.
+         */
+        public Builder profile(String type, String currency, int day, double weightedSum, double weightedSquares) {
+            double[][] profile = profileFor(type, currency);
+            profile[0][day] += weightedSum;
+            profile[1][day] += weightedSquares;
+            return this;
+        }
+
+        /**
+         * Takes one date's total out of the profiles again. The stored profiles cover every
+         * date; the current month and any later ones must not count as history.
+         */
+        public Builder exclude(String type, String currency, String date, double total) {
+            double weight = weightOf(date.substring(0, 7));
+            double[][] profile = profileFor(type, currency);
+            int day = Integer.parseInt(date.substring(8, 10));
+            profile[0][day] -= weight * total;
+            profile[1][day] -= weight * total * total;
+            return this;
+        }
+
+        /**
+         * Adds one occurrence of a recurring rule, in the base currency, still due this month.
+         */
+        public Builder recurring(String type, double amount) {
+            if (Categories.TYPE_INCOME.equals(type)) {
+                recurringIncome += amount;
+            } else {
+                recurringExpense += amount;
+            }
+            return this;
+        }
+
+        /**
+         * @param rateToBase the rate converting each currency to the base currency; currencies
+         *                   with a rate of 0 (none known) are left out.
+         */
+        public CashFlowForecast build(ToDoubleFunction<String> rateToBase) {
+            int today = Integer.parseInt(asOf.substring(8, 10));
+            int lastDay = daysIn(month);
+            double[] historyWeight = historyWeights();
+
+            double[] expected = new double[2];
+            double[] variance = new double[2];
+            for (Map.Entry<String, double[][]> entry : profiles.entrySet()) {
+                String key = entry.getKey();
+                int type = key.startsWith(Categories.TYPE_INCOME + "|") ? 0 : 1;
+                String currency = key.substring(key.indexOf('|') + 1);
+                double rate = Currencies.BASE.equals(currency) ? 1 : rateToBase.applyAsDouble(currency);
+                if (rate <= 0) {
+                    continue;
+                }
+                double[][] profile = entry.getValue();
+                // The month's last day also takes what longer months had on the days it lacks
+                for (int day = today + 1; day <= 31; day++) {
+                    if ((day > lastDay && today >= lastDay) || historyWeight[day] <= 0) {
+                        continue;
+                    }
+                    double mean = profile[0][day] / historyWeight[day];
+                    double dayVariance = Math.max(0, profile[1][day] / historyWeight[day] - mean * mean);
+                    expected[type] += rate * Math.max(0, mean);
+                    variance[type] += rate * rate * dayVariance;
+                }
+            }
+            return new CashFlowForecast(month, asOf, expected[0] + recurringIncome, expected[1] + recurringExpense,
+                    variance[0], variance[1], recurringIncome, recurringExpense);
+        }
+
+        /**
+         * For each day of the month, the total weight of the past months that have it, from the
+         * first month with data to the one before this.
+         */
+        private double[] historyWeights() {
+            double[] weights = new double[32];
+            if (firstMonth == null) {
+                return weights;
+            }
+            int end = SpendingStats.monthIndex(month);
+            for (int index = SpendingStats.monthIndex(firstMonth); index < end; index++) {
+                String past = SpendingStats.month(index);
+                double weight = weightOf(past);
+                for (int day = daysIn(past); day >= 1; day--) {
+                    weights[day] += weight;
+                }
+            }
+            return weights;
+        }
+
+        private double[][] profileFor(String type, String currency) {
+            return profiles.computeIfAbsent(type + "|" + currency, key -> new double[2][32]);
+        }
+
+        /** Matches the database: months without a stored weight count for nothing. */
+        private static double weightOf(String month) {
+            if (month.compareTo(SpendingStats.FIRST_WEIGHTED_MONTH) < 0 || month.compareTo(SpendingStats.LAST_WEIGHTED_MONTH) > 0) {
+                return 0;
+            }
+            return SpendingStats.monthWeight(month);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.trackify.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The fixed category lists offered for each transaction type, plus validation against them.
+ */
+public final class Categories {
+
+    public static final String TYPE_INCOME = "Income";
+    public static final String TYPE_EXPENSE = "Expense";
+
+    public static final List<String> EXPENSE_CATEGORIES = Collections.unmodifiableList(Arrays.asList(
+            "Food", "Rent", "Transportation", "Utilities", "Groceries",
+            "Health & Fitness", "Entertainment", "Shopping", "Travel", "Education",
+            "Miscellaneous"
+    ));
+
+    public static final List<String> INCOME_CATEGORIES = Collections.unmodifiableList(Arrays.asList(
+            "Salary", "Business/Freelance", "Investments", "Rental Income",
+            "Gifts", "Other"
+    ));
+
+    // Hash lookups instead of List.contains() for validation
+    private static final Set<String> EXPENSE_SET = new HashSet<>(EXPENSE_CATEGORIES);
+    private static final Set<String> INCOME_SET = new HashSet<>(INCOME_CATEGORIES);
+
+    private Categories() {
+    }
+
+    /**
+     * Returns the category list for a transaction type ("Income" or "Expense").
+     */
+    public static List<String> forType(String type) {
+        return TYPE_INCOME.equals(type) ? INCOME_CATEGORIES : EXPENSE_CATEGORIES;
+    }
+
+    /**
+     * The catch-all category of a type, for transactions nothing else describes.
+     */
+    public static String fallbackFor(String type) {
+        return TYPE_INCOME.equals(type) ? "Other" : "Miscellaneous";
+    }
+
+    /**
+     * True if {@code category} is one of the predefined categories for {@code type}.
+     */
+    public static boolean isValid(String type, String category) {
+        if (category == null) {
+            return false;
+        }
+        return (TYPE_INCOME.equals(type) ? INCOME_SET : EXPENSE_SET).contains(category);
+    }
+}
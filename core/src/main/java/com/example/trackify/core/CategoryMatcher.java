@@ -0,0 +1,255 @@
+package com.example.trackify.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Picks a category for a transaction from keywords in its note ("swiggy" means Food), with
+ * every rule compiled into one Aho-Corasick automaton: a note is categorized in a single pass
+ * over its characters, however many rules there are.
+ *
+ * <p>Keywords match whole words only, case-insensitively, with runs of whitespace treated as
+ * one space, so "uber" finds "UPI/UBER/1234" but not "tuber". When several rules match, the
+ * user's own rules beat the built-in ones, then the longest keyword wins ("prime video" over
+ * "amazon"), then the earliest in the note. Rules only apply to their own transaction type.
+ */
+public final class CategoryMatcher {
+
+    /** The id of built-in rules; the user's rules have positive database ids. */
+    public static final long SYSTEM_RULE_ID = 0;
+
+    /**
+     * One keyword and the category it stands for.
+     */
+    public static final class Rule {
+        public final long id;
+        public final String keyword;
+        public final String type;
+        public final String category;
+
+        public Rule(long id, String keyword, String type, String category) {
+            this.id = id;
+            this.keyword = normalize(keyword);
+            this.type = type;
+            this.category = category;
+        }
+
+        public boolean isUserRule() {
+            return id != SYSTEM_RULE_ID;
+        }
+
+        @Override
+        public String toString() {
+            return "\"" + keyword + "\" -> " + category;
+        }
+    }
+
+    /** Keywords every account starts with. */
+    public static final List<Rule> SYSTEM_RULES = Collections.unmodifiableList(concat(
+            expense("Food", "swiggy", "zomato", "restaurant", "cafe", "coffee", "starbucks", "dominos", "pizza",
+                    "mcdonalds", "kfc", "burger king", "eatsure"),
+            expense("Groceries", "bigbasket", "blinkit", "zepto", "instamart", "grofers", "dmart", "grocery",
+                    "supermarket", "jiomart"),
+            expense("Transportation", "uber", "ola", "rapido", "metro", "petrol", "diesel", "fuel", "parking", "toll",
+                    "fastag"),
+            expense("Travel", "irctc", "makemytrip", "goibibo", "cleartrip", "indigo", "air india", "airbnb", "hotel",
+                    "oyo"),
+            expense("Utilities", "electricity", "water bill", "gas bill", "broadband", "airtel", "jio", "recharge",
+                    "bescom", "tata power"),
+            expense("Rent", "rent", "landlord", "nobroker"),
+            expense("Health & Fitness", "pharmacy", "apollo", "medplus", "1mg", "pharmeasy", "hospital", "clinic",
+                    "gym", "cult fit"),
+            expense("Entertainment", "netflix", "spotify", "hotstar", "prime video", "bookmyshow", "pvr", "inox",
+                    "cinema"),
+            expense("Shopping", "amazon", "flipkart", "myntra", "ajio", "nykaa", "meesho"),
+            expense("Education", "udemy", "coursera", "tuition", "school fee", "college fee"),
+            income("Salary", "salary", "payroll"),
+            income("Business/Freelance", "upwork", "fiverr", "invoice"),
+            income("Investments", "dividend", "interest", "mutual fund", "redemption"),
+            income("Gifts", "gift")));
+
+    private final List<Rule> rules;
+    // The automaton: child states per (state, character), failure links, and the rules
+    // whose keyword ends in each state, including those of its failure chain
+    private final Map<Long, Integer> transitions = new HashMap<>();
+    private final int[] failure;
+    private final int[][] outputs;
+
+    private CategoryMatcher(List<Rule> rules) {
+        this.rules = rules;
+        List<List<Integer>> ending = new ArrayList<>();
+        ending.add(new ArrayList<>());
+        for (int r = 0; r < rules.size(); r++) {
+            String keyword = rules.get(r).keyword;
+            if (keyword.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                long edge = edge(state, keyword.charAt(i));
+                Integer next = transitions.get(edge);
+                if (next == null) {
+                    next = ending.size();
+                    ending.add(new ArrayList<>());
+                    transitions.put(edge, next);
+                }
+                state = next;
+            }
+            ending.get(state).add(r);
+        }
+
+        // Breadth first, so every failure target is complete before it is used
+        int states = ending.size();
+        failure = new int[states];
+        List<List<long[]>> children = new ArrayList<>(states);
+        for (int s = 0; s < states; s++) {
+            children.add(new ArrayList<>());
+        }
+        for (Map.Entry<Long, Integer> entry : transitions.entrySet()) {
+            long edge = entry.getKey();
+            children.get((int) (edge >>> 16)).add(new long[]{edge & 0xFFFF, entry.getValue()});
+        }
+        outputs = new int[states][];
+        outputs[0] = new int[0];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (long[] child : children.get(0)) {
+            queue.add((int) child[1]);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            List<Integer> matched = new ArrayList<>(ending.get(state));
+            for (int inherited : outputs[failure[state]]) {
+                matched.add(inherited);
+            }
+            outputs[state] = matched.stream().mapToInt(Integer::intValue).toArray();
+            for (long[] child : children.get(state)) {
+                int target = (int) child[1];
+                failure[target] = step(failure[state], (char) child[0]);
+                queue.add(target);
+            }
+        }
+    }
+
+    /**
+     * Compiles the built-in rules together with the user's.
+     */
+    public static CategoryMatcher compile(List<Rule> userRules) {
+        List<Rule> all = new ArrayList<>(SYSTEM_RULES.size() + userRules.size());
+        all.addAll(SYSTEM_RULES);
+        all.addAll(userRules);
+        return new CategoryMatcher(all);
+    }
+
+    /**
+     * The category the best-matching rule gives a transaction.
+     *
+     * @return the category, or null if no rule of {@code type} matches.
+     */
+    public String match(String type, String note) {
+        if (note == null || note.isEmpty()) {
+            return null;
+        }
+        String text = normalize(note);
+        Rule best = null;
+        int bestStart = 0;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            for (int r : outputs[state]) {
+                Rule rule = rules.get(r);
+                int start = i - rule.keyword.length() + 1;
+                if (!rule.type.equals(type) || !isBoundary(text, start - 1) || !isBoundary(text, i + 1)) {
+                    continue;
+                }
+                if (best == null || beats(rule, start, best, bestStart)) {
+                    best = rule;
+                    bestStart = start;
+                }
+            }
+        }
+        return best == null ? null : best.category;
+    }
+
+    /**
+     * The matching rule's category, or the type's fallback if none matches.
+     */
+    public String categorize(String type, String note) {
+        String category = match(type, note);
+        return category != null ? category : Categories.fallbackFor(type);
+    }
+
+    public int ruleCount() {
+        return rules.size();
+    }
+
+    private static boolean beats(Rule rule, int start, Rule best, int bestStart) {
+        if (rule.isUserRule() != best.isUserRule()) {
+            return rule.isUserRule();
+        }
+        if (rule.keyword.length() != best.keyword.length()) {
+            return rule.keyword.length() > best.keyword.length();
+        }
+        return start < bestStart;
+    }
+
+    /**
+     * Follows failure links until {@code c} can be consumed.
+     */
+    private int step(int state, char c) {
+        while (true) {
+            Integer next = transitions.get(edge(state, c));
+            if (next != null) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+
+    private static long edge(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private static boolean isBoundary(String text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    /**
+     * Text as keywords are matched against it: trimmed, lowercase, single spaces.
+     */
+    public static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    @SafeVarargs
+    private static List<Rule> concat(List<Rule>... groups) {
+        List<Rule> all = new ArrayList<>();
+        for (List<Rule> group : groups) {
+            all.addAll(group);
+        }
+        return all;
+    }
+
+    private static List<Rule> expense(String category, String... keywords) {
+        return rules(Categories.TYPE_EXPENSE, category, keywords);
+    }
+
+    private static List<Rule> income(String category, String... keywords) {
+        return rules(Categories.TYPE_INCOME, category, keywords);
+    }
+
+    private static List<Rule> rules(String type, String category, String... keywords) {
+        List<Rule> rules = new ArrayList<>(keywords.length);
+        for (String keyword : keywords) {
+            rules.add(new Rule(SYSTEM_RULE_ID, keyword, type, category));
+        }
+        return rules;
+    }
+}
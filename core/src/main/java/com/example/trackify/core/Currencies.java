@@ -0,0 +1,26 @@
+package com.example.trackify.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The currencies a transaction can be recorded in. Balances and summaries are always shown in
+ * {@link #BASE}; other currencies are converted with the dated rates in the fx_rates table.
+ */
+public final class Currencies {
+
+    /** ISO 4217 code every total is converted to. Rows from before currencies were stored are in it. */
+    public static final String BASE = "INR";
+
+    public static final List<String> SUPPORTED = Collections.unmodifiableList(Arrays.asList(
+            BASE, "USD", "EUR", "GBP", "AED", "SGD", "JPY"
+    ));
+
+    private Currencies() {
+    }
+
+    public static boolean isSupported(String currency) {
+        return SUPPORTED.contains(currency);
+    }
+}
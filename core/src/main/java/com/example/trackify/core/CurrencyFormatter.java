@@ -0,0 +1,89 @@
+package com.example.trackify.core;
+
+import java.text.NumberFormat;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rupee formatting used across the dashboard, the transaction list and notifications, plus the
+ * other currencies a single transaction can be recorded in.
+ * NumberFormat is not thread-safe and expensive to create, so each thread keeps its own instance.
+ */
+public final class CurrencyFormatter {
+
+    public static final Locale INDIA_LOCALE = new Locale("en", "IN");
+
+    private static final ThreadLocal<NumberFormat> CURRENCY_FORMAT = new ThreadLocal<NumberFormat>() {
+        @Override
+        protected NumberFormat initialValue() {
+            NumberFormat format = NumberFormat.getCurrencyInstance(INDIA_LOCALE);
+            // Ensure decimal places are limited for clean display
+            format.setMaximumFractionDigits(2);
+            return format;
+        }
+    };
+
+    // Other currencies, created on first use; there are only a handful
+    private static final ThreadLocal<Map<String, NumberFormat>> OTHER_FORMATS = new ThreadLocal<Map<String, NumberFormat>>() {
+        @Override
+        protected Map<String, NumberFormat> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
+    private CurrencyFormatter() {
+    }
+
+    /**
+     * Grouped Indian currency format, e.g. "₹1,23,456.50".
+     */
+    public static String format(double amount) {
+        return CURRENCY_FORMAT.get().format(amount);
+    }
+
+    /**
+     * Grouped format in {@code currency} (an ISO 4217 code) with that currency's usual number of
+     * decimals, e.g. "US$1,234.50" or "JP¥1,235". Rupees format exactly as {@link #format(double)}.
+     */
+    public static String format(double amount, String currency) {
+        if (currency == null || Currencies.BASE.equals(currency)) {
+            return format(amount);
+        }
+        NumberFormat format = OTHER_FORMATS.get().get(currency);
+        if (format == null) {
+            try {
+                Currency instance = Currency.getInstance(currency);
+                format = NumberFormat.getCurrencyInstance(INDIA_LOCALE);
+                format.setCurrency(instance);
+                format.setMinimumFractionDigits(Math.max(0, instance.getDefaultFractionDigits()));
+                format.setMaximumFractionDigits(Math.max(0, instance.getDefaultFractionDigits()));
+            } catch (IllegalArgumentException e) {
+                // Not an ISO code, e.g. from a newer app version over sync
+                return String.format(Locale.US, "%s %.2f", currency, amount);
+            }
+            OTHER_FORMATS.get().put(currency, format);
+        }
+        return format.format(amount);
+    }
+
+    /**
+     * Ungrouped two-decimal format, e.g. "₹ 123456.50". Replaces
+     * {@code String.format(Locale.US, "₹ %.2f", amount)} on hot paths; the output is the same
+     * except for ties exactly halfway between two paise, which this rounds by binary value.
+     */
+    public static String formatPlain(double amount) {
+        long paise = Math.round(Math.abs(amount) * 100);
+        StringBuilder builder = new StringBuilder(16).append("₹ ");
+        if (amount < 0) {
+            builder.append('-');
+        }
+        long fraction = paise % 100;
+        builder.append(paise / 100).append('.');
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        return builder.append(fraction).toString();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.trackify.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A directory of small files kept under a byte budget, dropping the least recently used first.
+ * Recency is kept in memory and in each file's modification time, so the order survives a
+ * restart. Writes go to a temporary file and are renamed into place, so readers never see a
+ * partial entry. Keys are lowercase hex, e.g. content hashes.
+ */
+public final class FileLruCache {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long maxBytes;
+    // Access order: least recently used first
+    private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    public FileLruCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX) || !isKey(file.getName())) {
+                // Left over from an interrupted write
+                file.delete();
+                continue;
+            }
+            sizes.put(file.getName(), file.length());
+            totalBytes += file.length();
+        }
+        trim();
+    }
+
+    /**
+     * The entry's file, marked as just used, or null if it is not cached.
+     */
+    public synchronized File get(String key) {
+        if (!isKey(key) || sizes.get(key) == null) {
+            return null;
+        }
+        File file = new File(directory, key);
+        if (!file.exists()) {
+            totalBytes -= sizes.remove(key);
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Stores an entry, replacing any with the same key, then drops old entries until the cache
+     * is back under its budget.
+     *
+     * @return the entry's file.
+     */
+    public synchronized File put(String key, byte[] bytes) throws IOException {
+        if (!isKey(key)) {
+            throw new IllegalArgumentException("Not a cache key: " + key);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File temp = new File(directory, key + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+        }
+        File file = new File(directory, key);
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot store " + file);
+        }
+        Long previous = sizes.put(key, (long) bytes.length);
+        totalBytes += bytes.length - (previous == null ? 0 : previous);
+        trim();
+        return file;
+    }
+
+    public synchronized long sizeBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int entryCount() {
+        return sizes.size();
+    }
+
+    private void trim() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> eldest = sizes.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            totalBytes -= entry.getValue();
+            evicted.add(entry.getKey());
+            eldest.remove();
+        }
+        for (String key : evicted) {
+            new File(directory, key).delete();
+        }
+    }
+
+    /**
+     * True for non-empty lowercase hex, which is all a key may contain.
+     */
+    public static boolean isKey(String key) {
+        if (key == null || key.isEmpty() || key.length() > 128) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
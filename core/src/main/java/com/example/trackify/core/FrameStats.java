@@ -0,0 +1,108 @@
+package com.example.trackify.core;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-screen frame durations plus, for every frame over budget, the pipeline stage that took the
+ * largest share of it. Stage names are free-form ("query", "bind", "layout", ...), so the UI
+ * decides how finely to split the work.
+ */
+public final class FrameStats {
+
+    public static final String STAGE_UNKNOWN = "unknown";
+
+    /**
+     * Everything recorded for one screen.
+     */
+    public static final class ScreenStats {
+        public final LatencyHistogram frames = new LatencyHistogram();
+        long jankyFrames;
+        final Map<String, Integer> blame = new HashMap<>();
+
+        public synchronized long jankyFrames() {
+            return jankyFrames;
+        }
+
+        /**
+         * How many janky frames each stage was blamed for.
+         */
+        public synchronized Map<String, Integer> blame() {
+            return new TreeMap<>(blame);
+        }
+    }
+
+    private final Map<String, ScreenStats> screens = new HashMap<>();
+
+    /**
+     * @param stageNanos time spent in each stage while producing this frame; may be empty.
+     * @return the stage blamed for the frame, or null when it was within budget.
+     */
+    public String record(String screen, long frameNanos, long budgetNanos, Map<String, Long> stageNanos) {
+        ScreenStats stats;
+        synchronized (screens) {
+            stats = screens.get(screen);
+            if (stats == null) {
+                stats = new ScreenStats();
+                screens.put(screen, stats);
+            }
+        }
+        stats.frames.record(frameNanos);
+        if (frameNanos <= budgetNanos) {
+            return null;
+        }
+        String stage = blame(stageNanos);
+        synchronized (stats) {
+            stats.jankyFrames++;
+            stats.blame.merge(stage, 1, Integer::sum);
+        }
+        return stage;
+    }
+
+    /**
+     * The stage with the most time, ties broken by name so the result is deterministic.
+     */
+    static String blame(Map<String, Long> stageNanos) {
+        String worst = STAGE_UNKNOWN;
+        long worstNanos = 0;
+        for (Map.Entry<String, Long> entry : new TreeMap<>(stageNanos).entrySet()) {
+            if (entry.getValue() > worstNanos) {
+                worst = entry.getKey();
+                worstNanos = entry.getValue();
+            }
+        }
+        return worst;
+    }
+
+    public Map<String, ScreenStats> screens() {
+        synchronized (screens) {
+            return new TreeMap<>(screens);
+        }
+    }
+
+    public void reset() {
+        synchronized (screens) {
+            screens.clear();
+        }
+    }
+
+    /**
+     * Plain-text table of frame percentiles per screen and the stages blamed for janky frames.
+     */
+    public String report() {
+        StringBuilder builder = new StringBuilder(1024);
+        builder.append(String.format(Locale.US, "%-28s %7s %7s %8s %8s %8s %8s  %s%n",
+                "screen", "frames", "janky", "p50 ms", "p90 ms", "p99 ms", "max ms", "blamed stages"));
+        for (Map.Entry<String, ScreenStats> entry : screens().entrySet()) {
+            ScreenStats stats = entry.getValue();
+            LatencyHistogram frames = stats.frames;
+            builder.append(String.format(Locale.US, "%-28s %7d %7d %8.2f %8.2f %8.2f %8.2f  %s%n",
+                    entry.getKey(), frames.count(), stats.jankyFrames(),
+                    frames.percentileNanos(50) / 1e6, frames.percentileNanos(90) / 1e6,
+                    frames.percentileNanos(99) / 1e6, frames.maxNanos() / 1e6, stats.blame()));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.trackify.core;
+
+import java.util.Locale;
+
+/**
+ * Outcome of one database maintenance run: what the integrity check found and how much space
+ * compaction gave back. Kept as a history so file size can be watched over months of use.
+ */
+public final class MaintenanceReport {
+
+    public static final String INTEGRITY_OK = "ok";
+
+    public final long runAtMillis;
+    public final long durationMillis;
+    /** Database plus WAL size, in bytes. */
+    public final long bytesBefore;
+    public final long bytesAfter;
+    public final long pagesReclaimed;
+    /** "ok", or the first problem the integrity check reported. */
+    public final String integrity;
+    /** True when the run rebuilt the file with VACUUM to switch on incremental auto-vacuum. */
+    public final boolean rebuilt;
+
+    public MaintenanceReport(long runAtMillis, long durationMillis, long bytesBefore, long bytesAfter,
+                             long pagesReclaimed, String integrity, boolean rebuilt) {
+        this.runAtMillis = runAtMillis;
+        this.durationMillis = durationMillis;
+        this.bytesBefore = bytesBefore;
+        this.bytesAfter = bytesAfter;
+        this.pagesReclaimed = pagesReclaimed;
+        this.integrity = integrity;
+        this.rebuilt = rebuilt;
+    }
+
+    public boolean isHealthy() {
+        return INTEGRITY_OK.equals(integrity);
+    }
+
+    /**
+     * Bytes given back to the file system; never negative, since the WAL can grow during a run.
+     */
+    public long bytesReclaimed() {
+        return Math.max(0, bytesBefore - bytesAfter);
+    }
+
+    /**
+     * One line for logs and the debug stats screen, e.g.
+     * "reclaimed 1.2 MB (310 pages), 4.1 MB -> 2.9 MB in 85 ms, integrity ok".
+     */
+    public String summary() {
+        return String.format(Locale.US, "%s %s (%d pages), %s -> %s in %d ms, integrity %s",
+                rebuilt ? "rebuilt, reclaimed" : "reclaimed", formatBytes(bytesReclaimed()), pagesReclaimed,
+                formatBytes(bytesBefore), formatBytes(bytesAfter), durationMillis, integrity);
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.US, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.US, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
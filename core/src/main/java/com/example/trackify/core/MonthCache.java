@@ -0,0 +1,82 @@
+package com.example.trackify.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small least-recently-used cache of per-month results, keyed by yyyy-MM.
+ *
+ * <p>Loads may run on a background thread while the data changes underneath them. Callers take
+ * a {@link #generation()} before loading and hand it back to {@link #put}; a put from before the
+ * last {@link #invalidateAll()} is dropped, so a slow prefetch can never bring back stale data.
+ */
+public final class MonthCache<V> {
+
+    private final int capacity;
+    private final Map<String, V> entries;
+    private long generation;
+
+    public MonthCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(capacity + 1, 0.75f, true);
+    }
+
+    /**
+     * The cached value for {@code month}, now the most recently used, or null.
+     */
+    public synchronized V get(String month) {
+        return entries.get(month);
+    }
+
+    public synchronized boolean contains(String month) {
+        return entries.containsKey(month);
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches {@code value} unless the cache was invalidated since {@code loadedAt} was taken.
+     * Evicts the least recently used month when full.
+     *
+     * @return whether the value was kept
+     */
+    public synchronized boolean put(String month, V value, long loadedAt) {
+        if (loadedAt != generation) {
+            return false;
+        }
+        entries.put(month, value);
+        trimTo(capacity);
+        return true;
+    }
+
+    /**
+     * Drops everything and rejects loads already in flight.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        generation++;
+    }
+
+    /**
+     * Evicts least recently used months until at most {@code size} remain; used to give memory
+     * back when the system asks for it.
+     */
+    public synchronized void trimTo(int size) {
+        int target = Math.max(0, size);
+        Iterator<String> eldest = entries.keySet().iterator();
+        while (entries.size() > target) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
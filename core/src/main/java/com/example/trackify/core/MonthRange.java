@@ -0,0 +1,51 @@
+package com.example.trackify.core;
+
+import java.util.Locale;
+
+/**
+ * Turns a yyyy-MM month filter into a half-open date range, so "transactions in October 2025"
+ * becomes {@code date >= '2025-10' AND date < '2025-11'}. Unlike {@code date LIKE '2025-10%'}
+ * this is a plain range comparison that SQLite can answer from an index on the date column.
+ */
+public final class MonthRange {
+
+    private MonthRange() {
+    }
+
+    /**
+     * Inclusive lower bound. The bare month sorts before every yyyy-MM-dd date inside it.
+     */
+    public static String start(String monthYearFilter) {
+        return monthYearFilter;
+    }
+
+    /**
+     * Exclusive upper bound: the following month, rolling over the year after December.
+     */
+    public static String end(String monthYearFilter) {
+        int year = Integer.parseInt(monthYearFilter.substring(0, 4));
+        int month = Integer.parseInt(monthYearFilter.substring(5, 7));
+        if (month == 12) {
+            year++;
+            month = 1;
+        } else {
+            month++;
+        }
+        return String.format(Locale.US, "%04d-%02d", year, month);
+    }
+
+    /**
+     * The month before, rolling back the year before January.
+     */
+    public static String previous(String monthYearFilter) {
+        int year = Integer.parseInt(monthYearFilter.substring(0, 4));
+        int month = Integer.parseInt(monthYearFilter.substring(5, 7));
+        if (month == 1) {
+            year--;
+            month = 12;
+        } else {
+            month--;
+        }
+        return String.format(Locale.US, "%04d-%02d", year, month);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.trackify.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 password hashing shared by registration and login.
+ */
+public final class PasswordHasher {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private PasswordHasher() {
+    }
+
+    /**
+     * Converts a plain text password into a lowercase hexadecimal SHA-256 hash string.
+     * The output is byte-for-byte identical to the previous Formatter-based implementation,
+     * so stored hashes keep matching.
+     */
+    public static String hash(String password) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java and Android runtime is required to ship SHA-256
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+        return toHex(md.digest(password.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Lowercase hex encoding without the per-byte format parsing of java.util.Formatter.
+     */
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int value = bytes[i] & 0xFF;
+            chars[i * 2] = HEX_DIGITS[value >>> 4];
+            chars[i * 2 + 1] = HEX_DIGITS[value & 0x0F];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.trackify.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a text-and-lines PDF one page at a time. Each finished page goes straight to the output
+ * stream, so only the page being drawn is held in memory, plus two numbers per page for the
+ * cross-reference table written at the end.
+ *
+ * <p>Text is set in the standard Courier fonts, which every PDF reader has, so nothing is
+ * embedded and every character is {@link #CHAR_WIDTH} wide. Characters outside the fonts'
+ * WinAnsi encoding come out as '?'.
+ *
+ * <p>Coordinates are PDF points from the bottom-left corner of the page.
+ */
+public final class PdfStreamWriter {
+
+    public static final float A4_WIDTH = 595;
+    public static final float A4_HEIGHT = 842;
+    /** Advance of every Courier character, as a fraction of the font size. */
+    public static final float CHAR_WIDTH = 0.6f;
+
+    public enum Font {
+        REGULAR("F1", "Courier"),
+        BOLD("F2", "Courier-Bold");
+
+        final String resource;
+        final String baseFont;
+
+        Font(String resource, String baseFont) {
+            this.resource = resource;
+            this.baseFont = baseFont;
+        }
+    }
+
+    // Objects 1 and 2 are the catalog and the page tree, written last; the fonts follow
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FIRST_FONT = 3;
+
+    private final CountingOutputStream out;
+    private final float width;
+    private final float height;
+    // Byte offset of each object, by object number; 0 is unused
+    private long[] offsets = new long[16];
+    private int objects;
+    // Object number of each finished page
+    private int[] pages = new int[16];
+    private int pageCount;
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream(8 * 1024);
+    private boolean inPage;
+
+    /**
+     * Starts the document; {@code out} is written as pages finish and is left open by
+     * {@link #finish()}.
+     */
+    public PdfStreamWriter(OutputStream out, float width, float height) throws IOException {
+        this.out = new CountingOutputStream(out);
+        this.width = width;
+        this.height = height;
+        // The binary comment marks the file as binary for transfer tools
+        write("%PDF-1.4\n%âãÏÓ\n");
+        objects = FIRST_FONT - 1;
+        for (Font font : Font.values()) {
+            beginObject(nextObject());
+            write("<< /Type /Font /Subtype /Type1 /BaseFont /" + font.baseFont + " /Encoding /WinAnsiEncoding >>\nendobj\n");
+        }
+    }
+
+    /**
+     * Width of {@code chars} characters at {@code size} points.
+     */
+    public static float textWidth(float size, int chars) {
+        return CHAR_WIDTH * size * chars;
+    }
+
+    public float width() {
+        return width;
+    }
+
+    public float height() {
+        return height;
+    }
+
+    /**
+     * Pages finished so far.
+     */
+    public int pageCount() {
+        return pageCount;
+    }
+
+    public void beginPage() {
+        if (inPage) {
+            throw new IllegalStateException("Page already started");
+        }
+        content.reset();
+        inPage = true;
+    }
+
+    /**
+     * Draws one line of text with its baseline starting at ({@code x}, {@code y}).
+     */
+    public void text(Font font, float size, float x, float y, String text) {
+        checkInPage();
+        appendContent(String.format(Locale.US, "BT /%s %.1f Tf %.2f %.2f Td (", font.resource, size, x, y));
+        byte[] encoded = encode(text);
+        content.write(encoded, 0, encoded.length);
+        appendContent(") Tj ET\n");
+    }
+
+    /**
+     * Draws a hairline from ({@code x1}, {@code y1}) to ({@code x2}, {@code y2}).
+     */
+    public void line(float x1, float y1, float x2, float y2) {
+        checkInPage();
+        appendContent(String.format(Locale.US, "0.5 w %.2f %.2f m %.2f %.2f l S\n", x1, y1, x2, y2));
+    }
+
+    /**
+     * Compresses the page's content and writes it and the page out.
+     */
+    public void endPage() throws IOException {
+        checkInPage();
+        inPage = false;
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.size() / 3 + 64);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+            content.writeTo(deflater);
+        }
+        int contents = nextObject();
+        beginObject(contents);
+        write("<< /Length " + compressed.size() + " /Filter /FlateDecode >>\nstream\n");
+        compressed.writeTo(out);
+        write("\nendstream\nendobj\n");
+
+        int page = nextObject();
+        beginObject(page);
+        write(String.format(Locale.US, "<< /Type /Page /Parent %d 0 R /MediaBox [0 0 %.0f %.0f] /Resources << /Font << ",
+                PAGES, width, height));
+        for (Font font : Font.values()) {
+            write("/" + font.resource + " " + (FIRST_FONT + font.ordinal()) + " 0 R ");
+        }
+        write(">> >> /Contents " + contents + " 0 R >>\nendobj\n");
+        if (pageCount == pages.length) {
+            pages = Arrays.copyOf(pages, pageCount * 2);
+        }
+        pages[pageCount++] = page;
+    }
+
+    /**
+     * Writes the page tree, the catalog and the cross-reference table, completing the file, and
+     * flushes {@code out}. A document needs at least one page.
+     */
+    public void finish() throws IOException {
+        if (inPage) {
+            throw new IllegalStateException("Page not ended");
+        }
+        if (pageCount == 0) {
+            throw new IllegalStateException("No pages");
+        }
+        beginObject(PAGES);
+        StringBuilder kids = new StringBuilder();
+        for (int i = 0; i < pageCount; i++) {
+            kids.append(i == 0 ? "" : " ").append(pages[i]).append(" 0 R");
+        }
+        write("<< /Type /Pages /Kids [" + kids + "] /Count " + pageCount + " >>\nendobj\n");
+        beginObject(CATALOG);
+        write("<< /Type /Catalog /Pages " + PAGES + " 0 R >>\nendobj\n");
+
+        long xref = out.count;
+        StringBuilder table = new StringBuilder("xref\n0 " + (objects + 1) + "\n0000000000 65535 f \n");
+        for (int i = 1; i <= objects; i++) {
+            // Fixed 20-byte entries, the end-of-line included
+            table.append(String.format(Locale.US, "%010d 00000 n \n", offsets[i]));
+        }
+        table.append("trailer\n<< /Size ").append(objects + 1).append(" /Root ").append(CATALOG)
+                .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+        write(table.toString());
+        out.flush();
+    }
+
+    /**
+     * WinAnsi bytes for a PDF string literal, with its delimiters escaped.
+     */
+    static byte[] encode(String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int code = winAnsi(c);
+            if (code == '(' || code == ')' || code == '\\') {
+                bytes.write('\\');
+            }
+            bytes.write(code);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int winAnsi(char c) {
+        if ((c >= 0x20 && c <= 0x7E) || (c >= 0xA0 && c <= 0xFF)) {
+            return c;
+        }
+        switch (c) {
+            case '€':
+                return 0x80;
+            case '‘':
+                return 0x91;
+            case '’':
+                return 0x92;
+            case '“':
+                return 0x93;
+            case '”':
+                return 0x94;
+            case '•':
+                return 0x95;
+            case '–':
+                return 0x96;
+            case '—':
+                return 0x97;
+            default:
+                return '?';
+        }
+    }
+
+    private int nextObject() {
+        return ++objects;
+    }
+
+    private void beginObject(int number) throws IOException {
+        if (number >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(number + 1, offsets.length * 2));
+        }
+        offsets[number] = out.count;
+        write(number + " 0 obj\n");
+    }
+
+    private void checkInPage() {
+        if (!inPage) {
+            throw new IllegalStateException("No page started");
+        }
+    }
+
+    private void appendContent(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+        content.write(bytes, 0, bytes.length);
+    }
+
+    private void write(String s) throws IOException {
+        out.write(s.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Counts the bytes written, for the cross-reference offsets.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.trackify.core;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-method latency histograms plus a slow-operation log. Recording is lock-free apart from the
+ * slow log, which only sees operations over the threshold.
+ */
+public final class QueryMetrics {
+
+    /**
+     * Everything recorded for one method name.
+     */
+    public static final class MethodStats {
+        public final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong rows = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong mainThreadCalls = new AtomicLong();
+
+        public long rows() {
+            return rows.get();
+        }
+
+        public long bytes() {
+            return bytes.get();
+        }
+
+        public long mainThreadCalls() {
+            return mainThreadCalls.get();
+        }
+    }
+
+    private final Map<String, MethodStats> stats = new ConcurrentHashMap<>();
+    private final SlowQueryLog slowLog;
+    private volatile long slowThresholdNanos;
+
+    public QueryMetrics(long slowThresholdMillis, int slowLogCapacity) {
+        this.slowLog = new SlowQueryLog(slowLogCapacity);
+        setSlowThresholdMillis(slowThresholdMillis);
+    }
+
+    public void record(String method, long durationNanos, String threadName, boolean mainThread, int rows, long bytes) {
+        MethodStats methodStats = stats.get(method);
+        if (methodStats == null) {
+            methodStats = stats.computeIfAbsent(method, key -> new MethodStats());
+        }
+        methodStats.latency.record(durationNanos);
+        methodStats.rows.addAndGet(rows);
+        methodStats.bytes.addAndGet(bytes);
+        if (mainThread) {
+            methodStats.mainThreadCalls.incrementAndGet();
+        }
+        if (durationNanos >= slowThresholdNanos) {
+            slowLog.add(new SlowQueryLog.Entry(System.currentTimeMillis(), method, durationNanos, threadName, mainThread, rows, bytes));
+        }
+    }
+
+    public long getSlowThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+    }
+
+    public void setSlowThresholdMillis(long millis) {
+        slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+    }
+
+    /**
+     * Snapshot of the per-method stats, sorted by method name.
+     */
+    public Map<String, MethodStats> methodStats() {
+        return Collections.unmodifiableMap(new TreeMap<>(stats));
+    }
+
+    public List<SlowQueryLog.Entry> slowQueries() {
+        return slowLog.entries();
+    }
+
+    public void reset() {
+        stats.clear();
+        slowLog.clear();
+    }
+
+    /**
+     * Plain-text report of every method's percentiles followed by the slow log, newest first.
+     */
+    public String report() {
+        StringBuilder builder = new StringBuilder(4096);
+        builder.append(String.format(Locale.US, "%-34s %7s %6s %8s %8s %8s %8s %9s %11s%n",
+                "method", "calls", "main", "p50 ms", "p90 ms", "p99 ms", "max ms", "rows", "bytes"));
+        for (Map.Entry<String, MethodStats> entry : methodStats().entrySet()) {
+            MethodStats methodStats = entry.getValue();
+            LatencyHistogram latency = methodStats.latency;
+            builder.append(String.format(Locale.US, "%-34s %7d %6d %8.2f %8.2f %8.2f %8.2f %9d %11d%n",
+                    entry.getKey(), latency.count(), methodStats.mainThreadCalls(),
+                    millis(latency.percentileNanos(50)), millis(latency.percentileNanos(90)),
+                    millis(latency.percentileNanos(99)), millis(latency.maxNanos()),
+                    methodStats.rows(), methodStats.bytes()));
+        }
+
+        List<SlowQueryLog.Entry> slowQueries = new ArrayList<>(slowQueries());
+        builder.append(String.format(Locale.US, "%nSlow operations (>= %d ms, last %d kept): %d%n",
+                getSlowThresholdMillis(), slowLog.capacity(), slowQueries.size()));
+        SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        for (SlowQueryLog.Entry entry : slowQueries) {
+            builder.append(String.format(Locale.US, "%s  %-34s %8.2f ms  %-4s rows=%d bytes=%d thread=%s%n",
+                    timeFormat.format(new Date(entry.timestampMillis)), entry.method, millis(entry.durationNanos),
+                    entry.mainThread ? "MAIN" : "", entry.rows, entry.bytes, entry.threadName));
+        }
+        return builder.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
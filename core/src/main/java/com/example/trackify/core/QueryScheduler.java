@@ -0,0 +1,270 @@
+package com.example.trackify.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Runs one screen's reads one at a time, keyed by what they read (a month, say), so the screen
+ * never waits behind work it no longer needs.
+ *
+ * <ul>
+ *   <li>Reads for what is on screen ({@link Priority#VISIBLE}) run before prefetches.</li>
+ *   <li>The newest visible request wins. Earlier ones are never answered, and their reads are
+ *       cancelled unless a prefetch still wants the result.</li>
+ *   <li>A request for a key already queued or running joins that read instead of starting
+ *       another.</li>
+ *   <li>{@link #invalidate()} cancels reads that may have seen old data; the visible one is
+ *       run again.</li>
+ * </ul>
+ *
+ * <p>Results are handed over on the executor's thread. Each step runs as its own task on the
+ * executor, which should run one task at a time.
+ */
+public final class QueryScheduler<K, V> {
+
+    public enum Priority {
+        VISIBLE,
+        PREFETCH
+    }
+
+    /**
+     * Reads one key. A read may give up early once its cancellation is set; whatever it then
+     * returns is thrown away. A read that fails should return null, which answers nobody.
+     */
+    public interface Query<K, V> {
+        V run(K key, Cancellation cancellation);
+    }
+
+    /**
+     * Tells a read it is no longer wanted, by polling or through a listener; the listener is
+     * how a database's own cancellation signal gets set.
+     */
+    public static final class Cancellation {
+        private boolean cancelled;
+        private Runnable listener;
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Runs {@code listener} on cancellation, at once if that has already happened.
+         */
+        public void setOnCancelListener(Runnable listener) {
+            boolean already;
+            synchronized (this) {
+                this.listener = listener;
+                already = cancelled;
+            }
+            if (already) {
+                listener.run();
+            }
+        }
+
+        void cancel() {
+            Runnable toRun;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                toRun = listener;
+            }
+            if (toRun != null) {
+                toRun.run();
+            }
+        }
+    }
+
+    private final class Task {
+        final K key;
+        final long sequence;
+        final Cancellation cancellation = new Cancellation();
+        final List<Consumer<? super V>> callbacks = new ArrayList<>();
+        Priority priority;
+
+        Task(K key, Priority priority) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = nextSequence++;
+        }
+    }
+
+    private final Query<K, V> query;
+    private final Executor executor;
+    // Visible before prefetch, then first come first served
+    private final PriorityQueue<Task> queue = new PriorityQueue<>(
+            Comparator.<Task, Priority>comparing(task -> task.priority).thenComparingLong(task -> task.sequence));
+    private final Map<K, Task> queued = new HashMap<>();
+    private Task running;
+    // The newest visible request: its read and its callback
+    private Task visibleTask;
+    private Consumer<? super V> visibleCallback;
+    private boolean stepScheduled;
+    private long nextSequence;
+
+    public QueryScheduler(Query<K, V> query, Executor executor) {
+        this.query = query;
+        this.executor = executor;
+    }
+
+    /**
+     * Reads {@code key} and hands the result to {@code callback}, unless the request is
+     * superseded (visible) or invalidated first.
+     */
+    public void request(K key, Priority priority, Consumer<? super V> callback) {
+        List<Task> toCancel = new ArrayList<>();
+        synchronized (this) {
+            Task task = queued.get(key);
+            if (task == null && running != null && running.key.equals(key) && !running.cancellation.isCancelled()) {
+                task = running;
+            }
+            if (task == null) {
+                task = new Task(key, priority);
+                queue.add(task);
+                queued.put(key, task);
+            } else if (priority == Priority.VISIBLE && task.priority != Priority.VISIBLE && task != running) {
+                // Promoted: a prefetch the screen now waits for
+                queue.remove(task);
+                task.priority = Priority.VISIBLE;
+                queue.add(task);
+            }
+            task.callbacks.add(callback);
+            if (priority == Priority.VISIBLE) {
+                dropVisibleLocked(toCancel);
+                visibleTask = task;
+                visibleCallback = callback;
+            }
+            scheduleLocked();
+        }
+        cancelAll(toCancel);
+    }
+
+    /**
+     * Supersedes the outstanding visible request without making a new one; for when the screen
+     * was answered some other way, e.g. from a cache.
+     */
+    public void cancelVisible() {
+        List<Task> toCancel = new ArrayList<>();
+        synchronized (this) {
+            dropVisibleLocked(toCancel);
+        }
+        cancelAll(toCancel);
+    }
+
+    /**
+     * For after the data changed: cancels the running read and queued prefetches, which may be
+     * stale or are no longer needed, and runs the visible request again. A queued visible read
+     * has not started, so it stays.
+     */
+    public void invalidate() {
+        List<Task> toCancel = new ArrayList<>();
+        synchronized (this) {
+            for (Task task : new ArrayList<>(queue)) {
+                if (task != visibleTask) {
+                    unqueueLocked(task);
+                    toCancel.add(task);
+                }
+            }
+            if (running != null && !running.cancellation.isCancelled()) {
+                toCancel.add(running);
+                if (visibleTask == running) {
+                    Task retry = new Task(running.key, Priority.VISIBLE);
+                    retry.callbacks.add(visibleCallback);
+                    queue.add(retry);
+                    queued.put(retry.key, retry);
+                    visibleTask = retry;
+                }
+            }
+            scheduleLocked();
+        }
+        cancelAll(toCancel);
+    }
+
+    /**
+     * Reads queued or running; for tests and diagnostics.
+     */
+    public synchronized int pending() {
+        return queue.size() + (running != null ? 1 : 0);
+    }
+
+    private void step() {
+        Task task;
+        synchronized (this) {
+            stepScheduled = false;
+            task = queue.poll();
+            if (task == null) {
+                return;
+            }
+            queued.remove(task.key);
+            running = task;
+        }
+        V value = null;
+        boolean completed = false;
+        try {
+            value = query.run(task.key, task.cancellation);
+            completed = true;
+        } finally {
+            List<Consumer<? super V>> callbacks = new ArrayList<>();
+            synchronized (this) {
+                running = null;
+                // A read that failed or threw answers nobody
+                if (completed && value != null && !task.cancellation.isCancelled()) {
+                    callbacks.addAll(task.callbacks);
+                }
+                if (visibleTask == task) {
+                    visibleTask = null;
+                    visibleCallback = null;
+                }
+                scheduleLocked();
+            }
+            for (Consumer<? super V> callback : callbacks) {
+                callback.accept(value);
+            }
+        }
+    }
+
+    private void scheduleLocked() {
+        if (!stepScheduled && !queue.isEmpty() && running == null) {
+            stepScheduled = true;
+            executor.execute(this::step);
+        }
+    }
+
+    /**
+     * Forgets the visible callback; its read is cancelled if nobody else is waiting for it.
+     */
+    private void dropVisibleLocked(List<Task> toCancel) {
+        if (visibleTask == null) {
+            return;
+        }
+        visibleTask.callbacks.remove(visibleCallback);
+        if (visibleTask.callbacks.isEmpty()) {
+            unqueueLocked(visibleTask);
+            toCancel.add(visibleTask);
+        }
+        visibleTask = null;
+        visibleCallback = null;
+    }
+
+    private void unqueueLocked(Task task) {
+        if (queue.remove(task)) {
+            queued.remove(task.key);
+        }
+    }
+
+    /**
+     * Cancels outside the lock, since a cancellation listener may call into the database.
+     */
+    private void cancelAll(List<Task> tasks) {
+        for (Task task : tasks) {
+            task.cancellation.cancel();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.trackify.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory {@link SyncServer} that defines the protocol's semantics: it is what the tests sync
+ * against, and what a real backend has to behave like.
+ *
+ * <p>Each account has a change log ordered by server version. Only the newest change to each
+ * transaction is kept in it, so a device that was offline for months pulls the current state
+ * of what changed, not every intermediate edit.
+ */
+public final class ReferenceSyncServer implements SyncServer {
+
+    private static final class Entry {
+        final SyncRecord record;
+        final String originDeviceId;
+
+        Entry(SyncRecord record, String originDeviceId) {
+            this.record = record;
+            this.originDeviceId = originDeviceId;
+        }
+    }
+
+    private static final class Account {
+        long version;
+        final Map<String, Entry> latest = new HashMap<>();
+        final TreeMap<Long, Entry> log = new TreeMap<>();
+    }
+
+    private final Map<String, Account> accounts = new HashMap<>();
+
+    @Override
+    public synchronized byte[] push(String account, byte[] payload) throws IOException {
+        SyncPayload request = SyncPayload.decode(payload);
+        Account state = accounts.computeIfAbsent(account, key -> new Account());
+        List<SyncRecord> rejected = new ArrayList<>();
+        for (SyncRecord record : request.records) {
+            Entry current = state.latest.get(record.syncId);
+            if (!record.supersedes(current == null ? null : current.record)) {
+                rejected.add(current.record);
+                continue;
+            }
+            if (current != null) {
+                state.log.remove(current.record.serverVersion);
+            }
+            Entry accepted = new Entry(record.withServerVersion(++state.version), request.deviceId);
+            state.latest.put(record.syncId, accepted);
+            state.log.put(state.version, accepted);
+        }
+        return new SyncPayload("", state.version, false, rejected).encode();
+    }
+
+    @Override
+    public synchronized byte[] pull(String account, String deviceId, long sinceVersion, int limit) throws IOException {
+        Account state = accounts.get(account);
+        if (state == null) {
+            return new SyncPayload("", 0, false, new ArrayList<>()).encode();
+        }
+        List<SyncRecord> records = new ArrayList<>();
+        long highWater = state.version;
+        boolean hasMore = false;
+        for (Entry entry : state.log.tailMap(sinceVersion, false).values()) {
+            if (records.size() == limit) {
+                hasMore = true;
+                highWater = records.get(records.size() - 1).serverVersion;
+                break;
+            }
+            if (!entry.originDeviceId.equals(deviceId)) {
+                records.add(entry.record);
+            }
+        }
+        return new SyncPayload("", highWater, hasMore, records).encode();
+    }
+
+    /**
+     * Transactions the server knows about for {@code account}, deleted ones included.
+     */
+    public synchronized int size(String account) {
+        Account state = accounts.get(account);
+        return state == null ? 0 : state.latest.size();
+    }
+}
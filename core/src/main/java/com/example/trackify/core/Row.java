@@ -0,0 +1,21 @@
+package com.example.trackify.core;
+
+/**
+ * Minimal read-only view of the current row of a result set. On Android this wraps a Cursor;
+ * tests and benchmarks back it with plain arrays.
+ */
+public interface Row {
+
+    /**
+     * Returns the index of the named column, or throws IllegalArgumentException if it is missing.
+     */
+    int columnIndex(String columnName);
+
+    long getLong(int columnIndex);
+
+    double getDouble(int columnIndex);
+
+    String getString(int columnIndex);
+
+    boolean isNull(int columnIndex);
+}
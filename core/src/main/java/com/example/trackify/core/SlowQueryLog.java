@@ -0,0 +1,75 @@
+package com.example.trackify.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-capacity ring of the most recent slow operations. Once full, each new entry overwrites
+ * the oldest, so memory stays bounded on a device that runs for weeks.
+ */
+public final class SlowQueryLog {
+
+    /**
+     * One slow operation as it was observed.
+     */
+    public static final class Entry {
+        public final long timestampMillis;
+        public final String method;
+        public final long durationNanos;
+        public final String threadName;
+        public final boolean mainThread;
+        public final int rows;
+        public final long bytes;
+
+        public Entry(long timestampMillis, String method, long durationNanos, String threadName, boolean mainThread,
+                     int rows, long bytes) {
+            this.timestampMillis = timestampMillis;
+            this.method = method;
+            this.durationNanos = durationNanos;
+            this.threadName = threadName;
+            this.mainThread = mainThread;
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+    }
+
+    private final Entry[] entries;
+    private int next;
+    private int size;
+
+    public SlowQueryLog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        entries = new Entry[capacity];
+    }
+
+    public synchronized void add(Entry entry) {
+        entries[next] = entry;
+        next = (next + 1) % entries.length;
+        size = Math.min(size + 1, entries.length);
+    }
+
+    /**
+     * Copies the retained entries, newest first.
+     */
+    public synchronized List<Entry> entries() {
+        List<Entry> copy = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            copy.add(entries[(next - i + entries.length) % entries.length]);
+        }
+        return copy;
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = null;
+        }
+        next = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.trackify.core;
+
+import java.util.Locale;
+
+/**
+ * Streaming spending statistics for one category in one currency, kept as exponentially
+ * decayed sums so they can be updated in constant time when a transaction is added, edited or
+ * removed, and read without touching history.
+ *
+ * <p>Each expense contributes with the weight of its month, {@link #monthWeight}, which doubles
+ * every {@link #HALF_LIFE_MONTHS}. Only the ratios of the sums are used, so relative to any given
+ * month, older months count for exponentially less. Unlike a running EWMA, the sums do not
+ * depend on the order of writes, and a transaction can be taken out again exactly by subtracting
+ * what it added.
+ *
+ * <p>Two kinds of sums are kept: over individual transaction amounts, for "this transaction is
+ * unusually large", and over per-month category totals, for "this category is spiking this
+ * month".
+ */
+public final class SpendingStats {
+
+    public static final int HALF_LIFE_MONTHS = 6;
+    /** Months with a weight; dates outside them count towards totals but not statistics. */
+    public static final String FIRST_WEIGHTED_MONTH = "1990-01";
+    public static final String LAST_WEIGHTED_MONTH = "2099-12";
+    private static final int REFERENCE_MONTH_INDEX = monthIndex("2000-01");
+
+    // History needed before anything is flagged
+    static final int MIN_TRANSACTIONS = 5;
+    static final int MIN_MONTHS = 3;
+    // Flag only what is far outside the usual spread and also well above the usual amount, so a
+    // category with near-identical amounts does not flag every small change
+    static final double TRANSACTION_DEVIATIONS = 3;
+    static final double TRANSACTION_RATIO = 2;
+    static final double MONTH_DEVIATIONS = 2;
+    static final double MONTH_RATIO = 1.5;
+
+    /**
+     * Something worth telling the user about.
+     */
+    public static final class Anomaly {
+        public enum Kind { LARGE_TRANSACTION, CATEGORY_SPIKE }
+
+        public final Kind kind;
+        /** The transaction's amount, or the month's category total for a spike. */
+        public final double amount;
+        /** The weighted mean it is compared with. */
+        public final double typical;
+
+        Anomaly(Kind kind, double amount, double typical) {
+            this.kind = kind;
+            this.amount = amount;
+            this.typical = typical;
+        }
+    }
+
+    public final int count;
+    public final double weight;
+    public final double weightedSum;
+    public final double weightedSquares;
+    public final int months;
+    public final double monthWeight;
+    public final double monthSum;
+    public final double monthSquares;
+
+    public SpendingStats(int count, double weight, double weightedSum, double weightedSquares,
+                         int months, double monthWeight, double monthSum, double monthSquares) {
+        this.count = count;
+        this.weight = weight;
+        this.weightedSum = weightedSum;
+        this.weightedSquares = weightedSquares;
+        this.months = months;
+        this.monthWeight = monthWeight;
+        this.monthSum = monthSum;
+        this.monthSquares = monthSquares;
+    }
+
+    /**
+     * The decay weight of a yyyy-MM month: 2^(months since 2000-01 / {@link #HALF_LIFE_MONTHS}).
+     */
+    public static double monthWeight(String month) {
+        return Math.pow(2, (monthIndex(month) - REFERENCE_MONTH_INDEX) / (double) HALF_LIFE_MONTHS);
+    }
+
+    /**
+     * Checks a transaction that these statistics already include against the rest of its
+     * category's history: first the amount itself, then its month's category total.
+     *
+     * @param monthTotal the category's total for the transaction's month, including it.
+     * @return the anomaly, or null if nothing stands out or there is too little history.
+     */
+    public Anomaly check(double amount, String month, double monthTotal) {
+        double w = monthWeight(month);
+        if (count - 1 >= MIN_TRANSACTIONS) {
+            double mean = mean(weight - w, weightedSum - w * amount);
+            double deviation = deviation(weight - w, weightedSquares - w * amount * amount, mean);
+            if (amount > mean + TRANSACTION_DEVIATIONS * deviation && amount > TRANSACTION_RATIO * mean) {
+                return new Anomaly(Anomaly.Kind.LARGE_TRANSACTION, amount, mean);
+            }
+        }
+        if (months - 1 >= MIN_MONTHS) {
+            double mean = mean(monthWeight - w, monthSum - w * monthTotal);
+            double deviation = deviation(monthWeight - w, monthSquares - w * monthTotal * monthTotal, mean);
+            if (monthTotal > mean + MONTH_DEVIATIONS * deviation && monthTotal > MONTH_RATIO * mean) {
+                return new Anomaly(Anomaly.Kind.CATEGORY_SPIKE, monthTotal, mean);
+            }
+        }
+        return null;
+    }
+
+    private static double mean(double weight, double sum) {
+        return weight > 0 ? sum / weight : 0;
+    }
+
+    private static double deviation(double weight, double squares, double mean) {
+        // Rounding can leave a tiny negative variance when every amount is the same
+        return weight > 0 ? Math.sqrt(Math.max(0, squares / weight - mean * mean)) : 0;
+    }
+
+    static int monthIndex(String month) {
+        return Integer.parseInt(month.substring(0, 4)) * 12 + Integer.parseInt(month.substring(5, 7)) - 1;
+    }
+
+    /**
+     * The yyyy-MM month {@code index} months after January of year 0; the inverse of
+     * {@link #monthIndex}.
+     */
+    static String month(int index) {
+        return String.format(Locale.US, "%04d-%02d", index / 12, index % 12 + 1);
+    }
+
+    /**
+     * Every month from {@link #FIRST_WEIGHTED_MONTH} to {@link #LAST_WEIGHTED_MONTH}, in order.
+     */
+    public static String[] weightedMonths() {
+        int first = monthIndex(FIRST_WEIGHTED_MONTH);
+        String[] months = new String[monthIndex(LAST_WEIGHTED_MONTH) - first + 1];
+        for (int i = 0; i < months.length; i++) {
+            months[i] = month(first + i);
+        }
+        return months;
+    }
+}
@@ -0,0 +1,521 @@
+package com.example.trackify.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Bank statement files, CSV or OFX, read into transactions as a stream: one record is held at
+ * a time, so memory stays flat however long the statement is.
+ *
+ * <p>Every line gets an import key, a 64-bit hash of its date, amount and normalized note, plus
+ * how many identical lines came before it on that date (two coffees at the same price on one
+ * day are two transactions). The target stores the keys and turns down ones it has seen, so
+ * importing overlapping statements adds each transaction once. Statements list their lines in
+ * date order, so only the current date's lines are remembered for the count.
+ *
+ * <p>CSV files need a header row naming a date column and either an amount column or separate
+ * debit and credit columns; a description (memo, narration, payee) column and a currency column
+ * are optional. The delimiter (comma, semicolon or tab) is taken from the header. Negative
+ * amounts and debits are expenses. OFX files, SGML (1.x) or XML (2.x), are read tag by tag, taking
+ * each STMTTRN's DTPOSTED, TRNAMT, NAME and MEMO and the statement's CURDEF.
+ */
+public final class StatementImport {
+
+    /** Lines between progress reports. */
+    public static final int PROGRESS_INTERVAL = 1_000;
+
+    // Characters looked at to tell OFX from CSV and to pick the CSV delimiter
+    private static final int SNIFF_CHARS = 4_096;
+    // Longest CSV record or OFX value; anything longer is not a statement
+    private static final int MAX_FIELD_CHARS = 16_384;
+
+    private StatementImport() {
+    }
+
+    /**
+     * Where imported transactions go. On Android this is DatabaseHelper's bulk inserter.
+     */
+    public interface Target {
+        /**
+         * Inserts the transaction unless a transaction with {@code key} was imported before.
+         *
+         * @param amount positive; {@code type} says which way it went.
+         * @return true if it was inserted, false if it is a duplicate.
+         */
+        boolean insertIfNew(long key, String type, String category, double amount, String currency, String date, String note);
+    }
+
+    /**
+     * Thrown when a file is neither a CSV statement with a usable header nor OFX.
+     */
+    public static class FormatException extends IOException {
+        public FormatException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Counts for one import. Progress reports hand out the running tally.
+     */
+    public static final class Result {
+        public int lines;
+        public int imported;
+        public int duplicates;
+        /** Lines without a readable date or amount, or in an unsupported currency. */
+        public int rejected;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d lines (%d imported, %d duplicates, %d rejected)",
+                    lines, imported, duplicates, rejected);
+        }
+    }
+
+    /**
+     * Imports a statement.
+     *
+     * @param dayFirst     how to read dates such as 03/04/2025 whose day and month could be
+     *                     swapped; ISO dates and days above 12 are unambiguous.
+     * @param baseCurrency the currency of lines whose file does not name one.
+     * @param categories   picks each line's category from its note.
+     * @param progress     called every {@link #PROGRESS_INTERVAL} lines, on the calling thread.
+     */
+    public static Result read(Reader in, boolean dayFirst, String baseCurrency, CategoryMatcher categories,
+                              Target target, Consumer<Result> progress) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        Importer importer = new Importer(categories, target, progress);
+        String start = sniff(reader);
+        if (start.startsWith("OFXHEADER") || start.toUpperCase(Locale.ROOT).contains("<OFX>")) {
+            readOfx(reader, importer, baseCurrency);
+        } else {
+            readCsv(reader, csvDelimiter(start), dayFirst, importer, baseCurrency);
+        }
+        return importer.result;
+    }
+
+    /**
+     * The import key for a line: the first 8 bytes of the SHA-256 of its fields.
+     *
+     * @param occurrence how many lines with the same date, amount and note came before it.
+     */
+    public static long key(String date, double amount, String note, int occurrence) {
+        String fields = date + '\n' + Math.round(amount * 100) + '\n' + normalize(note) + '\n' + occurrence;
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(fields.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        long key = 0;
+        for (int i = 0; i < 8; i++) {
+            key = (key << 8) | (hash[i] & 0xFF);
+        }
+        return key;
+    }
+
+    /**
+     * Notes as compared for duplicates: lowercase, with runs of whitespace collapsed, since
+     * exports of the same account differ in both.
+     */
+    static String normalize(String note) {
+        if (note == null) {
+            return "";
+        }
+        return note.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Turns parsed lines into keyed transactions and keeps the counts.
+     */
+    private static final class Importer {
+        private final CategoryMatcher categories;
+        private final Target target;
+        private final Consumer<Result> progress;
+        private final Result result = new Result();
+        // Identical lines seen so far on the current date
+        private final Map<String, Integer> occurrences = new HashMap<>();
+        private String occurrenceDate;
+
+        Importer(CategoryMatcher categories, Target target, Consumer<Result> progress) {
+            this.categories = categories;
+            this.target = target;
+            this.progress = progress;
+        }
+
+        /**
+         * @param date   yyyy-MM-dd, or null if it could not be read.
+         * @param amount signed, or NaN if it could not be read.
+         */
+        void line(String date, double amount, String currency, String note) {
+            result.lines++;
+            if (date == null || Double.isNaN(amount) || amount == 0 || !Currencies.isSupported(currency)) {
+                result.rejected++;
+            } else {
+                String trimmed = note == null ? "" : note.trim();
+                if (!date.equals(occurrenceDate)) {
+                    occurrences.clear();
+                    occurrenceDate = date;
+                }
+                int occurrence = occurrences.merge(Math.round(amount * 100) + "\n" + normalize(trimmed), 1, Integer::sum) - 1;
+                long key = key(date, amount, trimmed, occurrence);
+                String type = amount > 0 ? Categories.TYPE_INCOME : Categories.TYPE_EXPENSE;
+                boolean inserted = target.insertIfNew(key, type, categories.categorize(type, trimmed), Math.abs(amount),
+                        currency, date, trimmed);
+                if (inserted) {
+                    result.imported++;
+                } else {
+                    result.duplicates++;
+                }
+            }
+            if (result.lines % PROGRESS_INTERVAL == 0) {
+                progress.accept(result);
+            }
+        }
+    }
+
+    private static String sniff(BufferedReader reader) throws IOException {
+        reader.mark(SNIFF_CHARS + 1);
+        char[] buffer = new char[SNIFF_CHARS];
+        int length = 0;
+        int read;
+        while (length < SNIFF_CHARS && (read = reader.read(buffer, length, SNIFF_CHARS - length)) != -1) {
+            length += read;
+        }
+        reader.reset();
+        // A byte order mark is not part of the first header
+        if (length > 0 && buffer[0] == '\uFEFF') {
+            reader.skip(1);
+            return new String(buffer, 1, length - 1).trim();
+        }
+        return new String(buffer, 0, length).trim();
+    }
+
+    // --- CSV ---
+
+    /**
+     * The most frequent of comma, semicolon and tab outside quotes in the header line.
+     */
+    static char csvDelimiter(String start) {
+        int comma = 0;
+        int semicolon = 0;
+        int tab = 0;
+        boolean quoted = false;
+        for (int i = 0; i < start.length(); i++) {
+            char c = start.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && (c == '\n' || c == '\r')) {
+                break;
+            } else if (!quoted && c == ',') {
+                comma++;
+            } else if (!quoted && c == ';') {
+                semicolon++;
+            } else if (!quoted && c == '\t') {
+                tab++;
+            }
+        }
+        if (semicolon > comma && semicolon >= tab) {
+            return ';';
+        }
+        return tab > comma ? '\t' : ',';
+    }
+
+    private static void readCsv(BufferedReader reader, char delimiter, boolean dayFirst, Importer importer,
+                                String baseCurrency) throws IOException {
+        List<String> fields = new ArrayList<>();
+        if (!readRecord(reader, delimiter, fields)) {
+            throw new FormatException("Statement is empty");
+        }
+        int date = -1;
+        int amount = -1;
+        int debit = -1;
+        int credit = -1;
+        int note = -1;
+        int currency = -1;
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.get(i).trim().toLowerCase(Locale.ROOT);
+            if (date < 0 && name.contains("date")) {
+                date = i;
+            } else if (amount < 0 && name.contains("amount")) {
+                amount = i;
+            } else if (debit < 0 && (name.contains("debit") || name.contains("withdrawal") || name.contains("paid out")
+                    || name.contains("money out"))) {
+                debit = i;
+            } else if (credit < 0 && (name.contains("credit") || name.contains("deposit") || name.contains("paid in")
+                    || name.contains("money in"))) {
+                credit = i;
+            } else if (note < 0 && (name.contains("description") || name.contains("memo") || name.contains("narrat")
+                    || name.contains("details") || name.contains("payee") || name.equals("name"))) {
+                note = i;
+            } else if (currency < 0 && name.equals("currency")) {
+                currency = i;
+            }
+        }
+        if (date < 0 || (amount < 0 && debit < 0 && credit < 0)) {
+            throw new FormatException("No date and amount columns in the header");
+        }
+
+        while (readRecord(reader, delimiter, fields)) {
+            if (fields.size() == 1 && fields.get(0).trim().isEmpty()) {
+                continue;
+            }
+            double value;
+            if (amount >= 0) {
+                value = parseAmount(field(fields, amount));
+            } else {
+                double out = parseAmount(field(fields, debit));
+                double in = parseAmount(field(fields, credit));
+                // Banks fill one of the two; some sign debits already
+                value = !Double.isNaN(out) && out != 0 ? -Math.abs(out) : in;
+            }
+            String lineCurrency = field(fields, currency).trim().toUpperCase(Locale.ROOT);
+            importer.line(parseDate(field(fields, date), dayFirst), value,
+                    lineCurrency.isEmpty() ? baseCurrency : lineCurrency, field(fields, note));
+        }
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : "";
+    }
+
+    /**
+     * Reads one RFC 4180 record: quoted fields may hold delimiters, doubled quotes and newlines.
+     *
+     * @return false at the end of the input.
+     */
+    private static boolean readRecord(BufferedReader reader, char delimiter, List<String> fields) throws IOException {
+        fields.clear();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int length = 0;
+        int c = reader.read();
+        if (c == -1) {
+            return false;
+        }
+        while (c != -1) {
+            if (++length > MAX_FIELD_CHARS) {
+                throw new FormatException("Record longer than " + MAX_FIELD_CHARS + " characters");
+            }
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return true;
+    }
+
+    /**
+     * Reads amounts as banks write them: with currency symbols, thousands separators, a decimal
+     * comma, parentheses or a trailing minus for negatives, or a CR/DR suffix.
+     *
+     * @return the signed amount, or NaN if there is none.
+     */
+    static double parseAmount(String text) {
+        String value = text.trim().toUpperCase(Locale.ROOT);
+        boolean negative = false;
+        if (value.endsWith("DR")) {
+            negative = true;
+            value = value.substring(0, value.length() - 2);
+        } else if (value.endsWith("CR")) {
+            value = value.substring(0, value.length() - 2);
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        int lastDot = -1;
+        int lastComma = -1;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (c == '.') {
+                lastDot = digits.length();
+            } else if (c == ',') {
+                lastComma = digits.length();
+            } else if (c == '-' || c == '(' || c == '\u2212') {
+                negative = true;
+            }
+        }
+        if (digits.length() == 0) {
+            return Double.NaN;
+        }
+        // The last separator is the decimal point unless exactly three digits follow a lone one
+        int separator = Math.max(lastDot, lastComma);
+        int decimals = separator < 0 ? 0 : digits.length() - separator;
+        boolean onlyOneKind = lastDot < 0 || lastComma < 0;
+        if (separator >= 0 && onlyOneKind && decimals == 3) {
+            decimals = 0;
+        }
+        double magnitude = Double.parseDouble(digits.toString()) / Math.pow(10, decimals);
+        return negative ? -magnitude : magnitude;
+    }
+
+    /**
+     * Reads yyyy-MM-dd (or with / or . between), yyyyMMdd, and day and month in either order
+     * before a four-digit year. A time after the date is ignored.
+     *
+     * @return yyyy-MM-dd, or null if it is not a valid date.
+     */
+    static String parseDate(String text, boolean dayFirst) {
+        String value = text.trim();
+        int end = 0;
+        while (end < value.length() && value.charAt(end) != ' ' && value.charAt(end) != 'T') {
+            end++;
+        }
+        value = value.substring(0, end);
+        int year;
+        int month;
+        int day;
+        try {
+            if (value.length() == 8 && value.chars().allMatch(Character::isDigit)) {
+                year = Integer.parseInt(value.substring(0, 4));
+                month = Integer.parseInt(value.substring(4, 6));
+                day = Integer.parseInt(value.substring(6, 8));
+            } else {
+                String[] parts = value.split("[-/.]");
+                if (parts.length != 3) {
+                    return null;
+                }
+                if (parts[0].length() == 4) {
+                    year = Integer.parseInt(parts[0]);
+                    month = Integer.parseInt(parts[1]);
+                    day = Integer.parseInt(parts[2]);
+                } else if (parts[2].length() == 4) {
+                    year = Integer.parseInt(parts[2]);
+                    int first = Integer.parseInt(parts[0]);
+                    int second = Integer.parseInt(parts[1]);
+                    boolean firstIsDay = first > 12 || (dayFirst && second <= 12);
+                    day = firstIsDay ? first : second;
+                    month = firstIsDay ? second : first;
+                } else {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (month < 1 || month > 12 || day < 1) {
+            return null;
+        }
+        String yearMonth = String.format(Locale.US, "%04d-%02d", year, month);
+        if (day > CashFlowForecast.daysIn(yearMonth)) {
+            return null;
+        }
+        return String.format(Locale.US, "%s-%02d", yearMonth, day);
+    }
+
+    // --- OFX ---
+
+    private static void readOfx(BufferedReader reader, Importer importer, String baseCurrency) throws IOException {
+        StringBuilder token = new StringBuilder();
+        String currency = baseCurrency;
+        String tag = null;
+        boolean inTransaction = false;
+        String posted = null;
+        String amount = null;
+        String name = null;
+        String memo = null;
+
+        int c = reader.read();
+        while (c != -1) {
+            if (c != '<') {
+                // Text up to the next tag is the value of the last one opened
+                token.setLength(0);
+                while (c != -1 && c != '<') {
+                    if (token.length() >= MAX_FIELD_CHARS) {
+                        throw new FormatException("Value longer than " + MAX_FIELD_CHARS + " characters");
+                    }
+                    token.append((char) c);
+                    c = reader.read();
+                }
+                String value = unescape(token.toString().trim());
+                if (tag != null && !value.isEmpty()) {
+                    if (tag.equals("CURDEF")) {
+                        currency = value.toUpperCase(Locale.ROOT);
+                    } else if (inTransaction && tag.equals("DTPOSTED")) {
+                        posted = value;
+                    } else if (inTransaction && tag.equals("TRNAMT")) {
+                        amount = value;
+                    } else if (inTransaction && tag.equals("NAME")) {
+                        name = value;
+                    } else if (inTransaction && tag.equals("MEMO")) {
+                        memo = value;
+                    }
+                }
+                tag = null;
+                continue;
+            }
+            token.setLength(0);
+            c = reader.read();
+            while (c != -1 && c != '>') {
+                if (token.length() >= MAX_FIELD_CHARS) {
+                    throw new FormatException("Tag longer than " + MAX_FIELD_CHARS + " characters");
+                }
+                token.append((char) c);
+                c = reader.read();
+            }
+            c = reader.read();
+            String element = token.toString().trim().toUpperCase(Locale.ROOT);
+            if (element.startsWith("?") || element.startsWith("!")) {
+                tag = null;
+            } else if (element.equals("STMTTRN")) {
+                inTransaction = true;
+                posted = amount = name = memo = null;
+            } else if (element.equals("/STMTTRN")) {
+                inTransaction = false;
+                String note = name == null ? memo : memo == null || memo.equalsIgnoreCase(name) ? name : name + " " + memo;
+                importer.line(posted == null || posted.length() < 8 ? null : parseDate(posted.substring(0, 8), false),
+                        amount == null ? Double.NaN : parseOfxAmount(amount), currency, note);
+            } else {
+                tag = element.startsWith("/") ? null : element;
+            }
+        }
+    }
+
+    /**
+     * OFX amounts use a period, or a comma in some locales, and never thousands separators.
+     */
+    private static double parseOfxAmount(String text) {
+        try {
+            return Double.parseDouble(text.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&nbsp;", " ").replace("&amp;", "&");
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.trackify.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An account statement as a PDF: a summary with the period's totals and expenses by category,
+ * then every transaction, oldest first. Transactions are added one at a time as they are read,
+ * and each page is written out through {@link PdfStreamWriter} as soon as it is full, so a
+ * statement of several years takes as little memory as one of a month.
+ */
+public final class StatementPdf {
+
+    /** Transactions between progress reports. */
+    public static final int PROGRESS_INTERVAL = 250;
+
+    private static final float MARGIN = 40;
+    private static final float TITLE_SIZE = 16;
+    private static final float HEADING_SIZE = 11;
+    private static final float BODY_SIZE = 9;
+    private static final float LINE_HEIGHT = 12;
+    // Room kept at the bottom of every page for its footer
+    private static final float FOOTER_HEIGHT = 30;
+    private static final String ELLIPSIS = "...";
+
+    // Transaction columns, in characters from the left margin; the amount is right-aligned
+    private static final int DATE_COLUMN = 0;
+    private static final int CATEGORY_COLUMN = 12;
+    private static final int CATEGORY_WIDTH = 16;
+    private static final int NOTE_COLUMN = 30;
+    private static final int AMOUNT_WIDTH = 20;
+
+    /**
+     * What the statement says before its transactions; the totals are in the base currency.
+     */
+    public static final class Summary {
+        public final String userEmail;
+        /** See {@link #period}. */
+        public final String period;
+        /** yyyy-MM-dd. */
+        public final String generated;
+        public final double income;
+        public final double expense;
+        /** Expense totals by category, any order. */
+        public final Map<String, Double> categoryExpenses;
+        /** How many transactions follow, for progress; the list is not cut to it. */
+        public final long transactions;
+
+        public Summary(String userEmail, String period, String generated, double income, double expense,
+                       Map<String, Double> categoryExpenses, long transactions) {
+            this.userEmail = userEmail;
+            this.period = period;
+            this.generated = generated;
+            this.income = income;
+            this.expense = expense;
+            this.categoryExpenses = categoryExpenses;
+            this.transactions = transactions;
+        }
+    }
+
+    private final PdfStreamWriter pdf;
+    private final Summary summary;
+    private final NumberFormat amountFormat = NumberFormat.getNumberInstance(CurrencyFormatter.INDIA_LOCALE);
+    private final int lineChars;
+    // Baseline of the next line, in points from the bottom of the page
+    private float y;
+    private boolean inTransactions;
+    private int transactions;
+
+    /**
+     * Writes the summary, then the heading of the transaction list.
+     */
+    public StatementPdf(OutputStream out, Summary summary) throws IOException {
+        this.pdf = new PdfStreamWriter(out, PdfStreamWriter.A4_WIDTH, PdfStreamWriter.A4_HEIGHT);
+        this.summary = summary;
+        this.lineChars = (int) ((pdf.width() - 2 * MARGIN) / PdfStreamWriter.textWidth(BODY_SIZE, 1));
+        amountFormat.setMinimumFractionDigits(2);
+        amountFormat.setMaximumFractionDigits(2);
+        startPage();
+        writeSummary();
+    }
+
+    /**
+     * The period a statement covers, for its heading: "2025-03" for one month, "2025" for a
+     * calendar year, else "2025-01 to 2025-06".
+     *
+     * @param fromMonth first month, yyyy-MM.
+     * @param toMonth   last month, inclusive.
+     */
+    public static String period(String fromMonth, String toMonth) {
+        if (fromMonth.equals(toMonth)) {
+            return fromMonth;
+        }
+        String year = fromMonth.substring(0, 4);
+        if (fromMonth.equals(year + "-01") && toMonth.equals(year + "-12")) {
+            return year;
+        }
+        return fromMonth + " to " + toMonth;
+    }
+
+    /**
+     * Adds the next transaction to the list; call in date order.
+     */
+    public void add(TransactionRecord transaction) throws IOException {
+        ensureSpace(LINE_HEIGHT);
+        String amount = formatAmount(transaction);
+        String category = transaction.category == null ? "" : transaction.category;
+        String note = transaction.note == null ? "" : transaction.note;
+        int noteWidth = lineChars - NOTE_COLUMN - AMOUNT_WIDTH - 2;
+        text(PdfStreamWriter.Font.REGULAR, BODY_SIZE, DATE_COLUMN, transaction.date);
+        text(PdfStreamWriter.Font.REGULAR, BODY_SIZE, CATEGORY_COLUMN, fit(category, CATEGORY_WIDTH));
+        text(PdfStreamWriter.Font.REGULAR, BODY_SIZE, NOTE_COLUMN, fit(note, noteWidth));
+        text(PdfStreamWriter.Font.REGULAR, BODY_SIZE, lineChars - amount.length(), amount);
+        y -= LINE_HEIGHT;
+        transactions++;
+    }
+
+    /**
+     * Transactions added so far.
+     */
+    public int transactions() {
+        return transactions;
+    }
+
+    /**
+     * Ends the last page and completes the file.
+     *
+     * @return the number of pages.
+     */
+    public int finish() throws IOException {
+        if (transactions == 0) {
+            ensureSpace(LINE_HEIGHT);
+            text(PdfStreamWriter.Font.REGULAR, BODY_SIZE, 0, "No transactions in this period.");
+        }
+        endPage();
+        pdf.finish();
+        return pdf.pageCount();
+    }
+
+    private void writeSummary() throws IOException {
+        text(PdfStreamWriter.Font.BOLD, TITLE_SIZE, 0, "Trackify Statement");
+        y -= TITLE_SIZE + 6;
+        line(PdfStreamWriter.Font.REGULAR, summary.userEmail);
+        line(PdfStreamWriter.Font.REGULAR, "Period: " + summary.period);
+        line(PdfStreamWriter.Font.REGULAR, "Generated: " + summary.generated);
+        y -= LINE_HEIGHT;
+
+        heading("Summary");
+        row(PdfStreamWriter.Font.REGULAR, "Income", "", summary.income);
+        row(PdfStreamWriter.Font.REGULAR, "Expenses", "", summary.expense);
+        row(PdfStreamWriter.Font.BOLD, "Net", "", summary.income - summary.expense);
+        line(PdfStreamWriter.Font.REGULAR, "Amounts in " + Currencies.BASE
+                + ". Other currencies are converted at the rate on each transaction's date.");
+        y -= LINE_HEIGHT;
+
+        if (!summary.categoryExpenses.isEmpty()) {
+            heading("Expenses by Category");
+            List<Map.Entry<String, Double>> categories = new ArrayList<>(summary.categoryExpenses.entrySet());
+            categories.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+            for (Map.Entry<String, Double> category : categories) {
+                String share = summary.expense > 0
+                        ? String.format(Locale.US, "%.1f%%", 100 * category.getValue() / summary.expense) : "";
+                row(PdfStreamWriter.Font.REGULAR, category.getKey(), share, category.getValue());
+            }
+            y -= LINE_HEIGHT;
+        }
+
+        heading(String.format(Locale.US, "Transactions (%d)", summary.transactions));
+        inTransactions = true;
+        columnHeadings();
+    }
+
+    private void heading(String title) throws IOException {
+        // With room for a first line under it
+        ensureSpace(3 * LINE_HEIGHT);
+        text(PdfStreamWriter.Font.BOLD, HEADING_SIZE, 0, title);
+        y -= LINE_HEIGHT + 4;
+    }
+
+    private void columnHeadings() {
+        text(PdfStreamWriter.Font.BOLD, BODY_SIZE, DATE_COLUMN, "Date");
+        text(PdfStreamWriter.Font.BOLD, BODY_SIZE, CATEGORY_COLUMN, "Category");
+        text(PdfStreamWriter.Font.BOLD, BODY_SIZE, NOTE_COLUMN, "Note");
+        text(PdfStreamWriter.Font.BOLD, BODY_SIZE, lineChars - "Amount".length(), "Amount");
+        float rule = y - LINE_HEIGHT + 8;
+        pdf.line(MARGIN, rule, pdf.width() - MARGIN, rule);
+        y -= LINE_HEIGHT + 2;
+    }
+
+    /**
+     * A label, an optional middle column and an amount, right-aligned.
+     */
+    private void row(PdfStreamWriter.Font font, String label, String middle, double amount) throws IOException {
+        ensureSpace(LINE_HEIGHT);
+        String formatted = amountFormat.format(amount);
+        text(font, BODY_SIZE, 0, fit(label, lineChars - AMOUNT_WIDTH - 12));
+        text(font, BODY_SIZE, lineChars - AMOUNT_WIDTH - 8, middle);
+        text(font, BODY_SIZE, lineChars - formatted.length(), formatted);
+        y -= LINE_HEIGHT;
+    }
+
+    private void line(PdfStreamWriter.Font font, String text) throws IOException {
+        ensureSpace(LINE_HEIGHT);
+        text(font, BODY_SIZE, 0, fit(text, lineChars));
+        y -= LINE_HEIGHT;
+    }
+
+    /**
+     * Signed for income and expenses, with the currency code if it is not the base one.
+     */
+    private String formatAmount(TransactionRecord transaction) {
+        String sign = Categories.TYPE_EXPENSE.equals(transaction.type) ? "-"
+                : Categories.TYPE_INCOME.equals(transaction.type) ? "+" : "";
+        String amount = sign + amountFormat.format(transaction.amount);
+        return Currencies.BASE.equals(transaction.currency) ? amount : transaction.currency + " " + amount;
+    }
+
+    private static String fit(String text, int chars) {
+        if (text.length() <= chars) {
+            return text;
+        }
+        return text.substring(0, Math.max(0, chars - ELLIPSIS.length())) + ELLIPSIS;
+    }
+
+    /**
+     * Starts a new page if fewer than {@code needed} points are left above the footer.
+     */
+    private void ensureSpace(float needed) throws IOException {
+        if (y - needed >= MARGIN + FOOTER_HEIGHT) {
+            return;
+        }
+        endPage();
+        startPage();
+        text(PdfStreamWriter.Font.BOLD, BODY_SIZE, 0, "Trackify Statement, " + summary.period + " (continued)");
+        y -= 2 * LINE_HEIGHT;
+        if (inTransactions) {
+            columnHeadings();
+        }
+    }
+
+    private void startPage() {
+        pdf.beginPage();
+        y = pdf.height() - MARGIN - LINE_HEIGHT;
+    }
+
+    private void endPage() throws IOException {
+        float footer = MARGIN;
+        pdf.line(MARGIN, footer + LINE_HEIGHT, pdf.width() - MARGIN, footer + LINE_HEIGHT);
+        String page = "Page " + (pdf.pageCount() + 1);
+        pdf.text(PdfStreamWriter.Font.REGULAR, BODY_SIZE, MARGIN, footer, fit(summary.userEmail, lineChars - page.length() - 2));
+        pdf.text(PdfStreamWriter.Font.REGULAR, BODY_SIZE, pdf.width() - MARGIN - PdfStreamWriter.textWidth(BODY_SIZE, page.length()),
+                footer, page);
+        pdf.endPage();
+    }
+
+    /**
+     * Text at {@code column} body-size characters from the left margin, on the current line.
+     */
+    private void text(PdfStreamWriter.Font font, float size, int column, String text) {
+        pdf.text(font, size, MARGIN + PdfStreamWriter.textWidth(BODY_SIZE, column), y, text);
+    }
+}
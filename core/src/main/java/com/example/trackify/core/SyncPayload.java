@@ -0,0 +1,117 @@
+package com.example.trackify.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * One batch of {@link SyncRecord}s on the wire, in either direction. The body is GZIP-compressed;
+ * a batch of edits to transactions with the same categories and dates compresses well.
+ * <pre>
+ * magic "TRKS" | format version | device id | high water | has more | count | records...
+ * </pre>
+ * Format 2 added each record's currency; format 1 payloads decode with every amount in
+ * {@link Currencies#BASE}.
+ */
+public final class SyncPayload {
+
+    public static final int FORMAT_VERSION = 2;
+    static final int MAGIC = 0x54524B53; // "TRKS"
+
+    /** Device that made the changes in a push; empty in server responses. */
+    public final String deviceId;
+    /** In a pull response, the server version the receiver has now caught up to. */
+    public final long highWater;
+    /** True if the sender stopped at the batch limit and more records are waiting. */
+    public final boolean hasMore;
+    public final List<SyncRecord> records;
+
+    public SyncPayload(String deviceId, long highWater, boolean hasMore, List<SyncRecord> records) {
+        this.deviceId = deviceId;
+        this.highWater = highWater;
+        this.hasMore = hasMore;
+        this.records = Collections.unmodifiableList(new ArrayList<>(records));
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + records.size() * 32);
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeUTF(deviceId);
+            out.writeLong(highWater);
+            out.writeBoolean(hasMore);
+            out.writeInt(records.size());
+            for (SyncRecord record : records) {
+                out.writeUTF(record.syncId);
+                out.writeBoolean(record.deleted);
+                out.writeLong(record.modifiedMillis);
+                out.writeLong(record.serverVersion);
+                if (!record.deleted) {
+                    out.writeUTF(record.type);
+                    out.writeUTF(record.category);
+                    out.writeDouble(record.amount);
+                    out.writeUTF(record.currency);
+                    out.writeUTF(record.date);
+                    out.writeUTF(record.note);
+                }
+            }
+        } catch (IOException e) {
+            // Only thrown for strings over 64 KB; nothing this app stores
+            throw new IllegalArgumentException("Cannot encode sync payload", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IOException if the payload is truncated, corrupt or from a newer format.
+     */
+    public static SyncPayload decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(payload)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a Trackify sync payload");
+            }
+            int formatVersion = in.readUnsignedByte();
+            if (formatVersion > FORMAT_VERSION) {
+                throw new IOException("Sync format " + formatVersion + " is newer than this app supports");
+            }
+            String deviceId = in.readUTF();
+            long highWater = in.readLong();
+            boolean hasMore = in.readBoolean();
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Sync payload is corrupt");
+            }
+            // Not sized from count: a corrupt count must not allocate a huge list up front
+            List<SyncRecord> records = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String syncId = in.readUTF();
+                boolean deleted = in.readBoolean();
+                long modifiedMillis = in.readLong();
+                long serverVersion = in.readLong();
+                SyncRecord record = deleted
+                        ? SyncRecord.tombstone(syncId, modifiedMillis)
+                        : SyncRecord.upsert(syncId, modifiedMillis, in.readUTF(), in.readUTF(), in.readDouble(),
+                        formatVersion >= 2 ? in.readUTF() : Currencies.BASE, in.readUTF(), in.readUTF());
+                records.add(serverVersion == 0 ? record : record.withServerVersion(serverVersion));
+            }
+            // Reading to the end makes GZIP check its CRC trailer
+            if (in.read() != -1) {
+                throw new IOException("Sync payload is corrupt");
+            }
+            return new SyncPayload(deviceId, highWater, hasMore, records);
+        } catch (ZipException | EOFException | UTFDataFormatException e) {
+            throw new IOException("Sync payload is corrupt", e);
+        }
+    }
+}
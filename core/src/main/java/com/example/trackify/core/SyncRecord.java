@@ -0,0 +1,99 @@
+package com.example.trackify.core;
+
+/**
+ * The latest state of one transaction as exchanged during sync: either its fields or a
+ * tombstone. Transactions are identified across devices by a random {@code syncId}, since
+ * local row ids differ from device to device.
+ */
+public final class SyncRecord {
+
+    public final String syncId;
+    public final boolean deleted;
+    /** When the change was made, in epoch ms; what last-writer-wins compares. */
+    public final long modifiedMillis;
+    /** Position in the server's change log; 0 for changes the server has not accepted yet. */
+    public final long serverVersion;
+    public final String type;
+    public final String category;
+    public final double amount;
+    /** ISO 4217 code of {@link #amount}. */
+    public final String currency;
+    public final String date;
+    public final String note;
+
+    private SyncRecord(String syncId, boolean deleted, long modifiedMillis, long serverVersion,
+                       String type, String category, double amount, String currency, String date, String note) {
+        this.syncId = syncId;
+        this.deleted = deleted;
+        this.modifiedMillis = modifiedMillis;
+        this.serverVersion = serverVersion;
+        this.type = orEmpty(type);
+        this.category = orEmpty(category);
+        this.amount = amount;
+        this.currency = currency == null || currency.isEmpty() ? Currencies.BASE : currency;
+        this.date = orEmpty(date);
+        this.note = orEmpty(note);
+    }
+
+    public static SyncRecord upsert(String syncId, long modifiedMillis, String type, String category,
+                                    double amount, String date, String note) {
+        return upsert(syncId, modifiedMillis, type, category, amount, Currencies.BASE, date, note);
+    }
+
+    public static SyncRecord upsert(String syncId, long modifiedMillis, String type, String category,
+                                    double amount, String currency, String date, String note) {
+        return new SyncRecord(syncId, false, modifiedMillis, 0, type, category, amount, currency, date, note);
+    }
+
+    public static SyncRecord tombstone(String syncId, long modifiedMillis) {
+        return new SyncRecord(syncId, true, modifiedMillis, 0, "", "", 0, null, "", "");
+    }
+
+    public SyncRecord withServerVersion(long serverVersion) {
+        return new SyncRecord(syncId, deleted, modifiedMillis, serverVersion, type, category, amount, currency, date, note);
+    }
+
+    /**
+     * Last-writer-wins: true if this change should replace {@code current} (null when the
+     * transaction is unknown). Ties are broken without reference to who is asking, so the
+     * server and every device settle on the same winner: a delete beats an edit, and between
+     * two edits the one whose fields sort higher wins. Identical changes never supersede each
+     * other, which makes applying a change twice harmless.
+     */
+    public boolean supersedes(SyncRecord current) {
+        if (current == null) {
+            return true;
+        }
+        if (modifiedMillis != current.modifiedMillis) {
+            return modifiedMillis > current.modifiedMillis;
+        }
+        if (deleted != current.deleted) {
+            return deleted;
+        }
+        return !deleted && compareFields(current) > 0;
+    }
+
+    private static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private int compareFields(SyncRecord other) {
+        int result = type.compareTo(other.type);
+        if (result == 0) {
+            result = category.compareTo(other.category);
+        }
+        if (result == 0) {
+            result = Double.compare(amount, other.amount);
+        }
+        if (result == 0) {
+            result = currency.compareTo(other.currency);
+        }
+        if (result == 0) {
+            result = date.compareTo(other.date);
+        }
+        if (result == 0) {
+            result = note.compareTo(other.note);
+        }
+        return result;
+    }
+}
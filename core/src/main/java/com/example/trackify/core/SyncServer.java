@@ -0,0 +1,23 @@
+package com.example.trackify.core;
+
+import java.io.IOException;
+
+/**
+ * The server side of delta sync. Requests and responses are encoded {@link SyncPayload}s, so an
+ * implementation can be a remote endpoint or the in-process {@link ReferenceSyncServer}.
+ */
+public interface SyncServer {
+
+    /**
+     * Offers a batch of local changes. The server keeps each one that supersedes what it has.
+     *
+     * @return a payload holding the server's winning version of every change it rejected.
+     */
+    byte[] push(String account, byte[] payload) throws IOException;
+
+    /**
+     * Returns up to {@code limit} changes accepted after {@code sinceVersion}, leaving out the ones
+     * {@code deviceId} pushed itself. The response's high water is the next {@code sinceVersion}.
+     */
+    byte[] pull(String account, String deviceId, long sinceVersion, int limit) throws IOException;
+}
@@ -0,0 +1,115 @@
+package com.example.trackify.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory totals over transaction lists that are already loaded, so screens do not have to go
+ * back to the database for numbers derivable from rows they hold.
+ */
+public final class TransactionAggregator {
+
+    private TransactionAggregator() {
+    }
+
+    /**
+     * Income and expense totals of a set of transactions.
+     */
+    public static final class Summary {
+        public final double income;
+        public final double expense;
+
+        public Summary(double income, double expense) {
+            this.income = income;
+            this.expense = expense;
+        }
+
+        public double balance() {
+            return income - expense;
+        }
+    }
+
+    /**
+     * Applies the sign of a transaction type to an amount: income adds, expense subtracts,
+     * anything else is ignored.
+     */
+    public static double signedAmount(String type, double amount) {
+        if (Categories.TYPE_INCOME.equals(type)) {
+            return amount;
+        } else if (Categories.TYPE_EXPENSE.equals(type)) {
+            return -amount;
+        }
+        return 0.0;
+    }
+
+    /**
+     * Income and expense totals in a single pass.
+     */
+    public static Summary summarize(List<? extends TransactionRecord> transactions) {
+        double income = 0.0;
+        double expense = 0.0;
+        for (int i = 0, n = transactions.size(); i < n; i++) {
+            TransactionRecord transaction = transactions.get(i);
+            if (Categories.TYPE_INCOME.equals(transaction.type)) {
+                income += transaction.amount;
+            } else if (Categories.TYPE_EXPENSE.equals(transaction.type)) {
+                expense += transaction.amount;
+            }
+        }
+        return new Summary(income, expense);
+    }
+
+    /**
+     * Totals per category for one transaction type, largest first.
+     */
+    public static Map<String, Double> totalsByCategory(List<? extends TransactionRecord> transactions, String type) {
+        Map<String, double[]> sums = new HashMap<>();
+        for (int i = 0, n = transactions.size(); i < n; i++) {
+            TransactionRecord transaction = transactions.get(i);
+            if (!type.equals(transaction.type)) {
+                continue;
+            }
+            // double[1] accumulators avoid re-boxing a Double on every addition
+            double[] sum = sums.get(transaction.category);
+            if (sum == null) {
+                sum = new double[1];
+                sums.put(transaction.category, sum);
+            }
+            sum[0] += transaction.amount;
+        }
+
+        List<Map.Entry<String, double[]>> entries = new ArrayList<>(sums.entrySet());
+        entries.sort((a, b) -> Double.compare(b.getValue()[0], a.getValue()[0]));
+        Map<String, Double> totals = new LinkedHashMap<>();
+        for (Map.Entry<String, double[]> entry : entries) {
+            totals.put(entry.getKey(), entry.getValue()[0]);
+        }
+        return totals;
+    }
+
+    /**
+     * Net (income minus expense) totals per yyyy-MM month, in the order months are first seen.
+     */
+    public static Map<String, Double> netByMonth(List<? extends TransactionRecord> transactions) {
+        Map<String, double[]> sums = new LinkedHashMap<>();
+        for (int i = 0, n = transactions.size(); i < n; i++) {
+            TransactionRecord transaction = transactions.get(i);
+            String month = transaction.date.substring(0, 7);
+            double[] sum = sums.get(month);
+            if (sum == null) {
+                sum = new double[1];
+                sums.put(month, sum);
+            }
+            sum[0] += signedAmount(transaction.type, transaction.amount);
+        }
+
+        Map<String, Double> totals = new LinkedHashMap<>();
+        for (Map.Entry<String, double[]> entry : sums.entrySet()) {
+            totals.put(entry.getKey(), entry.getValue()[0]);
+        }
+        return totals;
+    }
+}
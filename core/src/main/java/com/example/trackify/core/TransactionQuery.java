@@ -0,0 +1,296 @@
+package com.example.trackify.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A filter over one user's transactions, compiled to a single parameterized SELECT on the
+ * expenses table.
+ *
+ * <p>Every value is bound as a parameter, so queries that combine the same filters share one SQL
+ * string (their <em>shape</em>) and therefore one prepared statement in SQLite's per-connection
+ * cache. The SQL is shaped for the two expense indexes. A type filter, given or implied by the
+ * categories, puts the query on {@link #INDEX_USER_TYPE_DATE}, whose extra columns let category
+ * and amount filters reject rows without reading them. Date order matches both indexes, so the
+ * default sort needs no sort step.
+ */
+public final class TransactionQuery {
+
+    public enum Sort {
+        NEWEST_FIRST(TransactionRowMapper.COLUMN_DATE + " DESC, " + TransactionRowMapper.COLUMN_ID + " DESC"),
+        OLDEST_FIRST(TransactionRowMapper.COLUMN_DATE + " ASC, " + TransactionRowMapper.COLUMN_ID + " ASC"),
+        LARGEST_FIRST(TransactionRowMapper.COLUMN_AMOUNT + " DESC, " + TransactionRowMapper.COLUMN_ID + " DESC"),
+        SMALLEST_FIRST(TransactionRowMapper.COLUMN_AMOUNT + " ASC, " + TransactionRowMapper.COLUMN_ID + " ASC");
+
+        final String orderBy;
+
+        Sort(String orderBy) {
+            this.orderBy = orderBy;
+        }
+    }
+
+    /**
+     * The app's (user_email, type, date, category, amount) index. Typed queries name it: with
+     * ANALYZE statistics SQLite prefers the narrower (user_email, date) index, which cannot
+     * check category or amount without reading every row of the date range.
+     */
+    public static final String INDEX_USER_TYPE_DATE = "idx_expenses_user_type_date";
+
+    // Generated SQL by shape; there are only a handful of shapes in practice
+    private static final int SQL_CACHE_SIZE = 32;
+    private static final Map<String, String> SQL_CACHE = new LinkedHashMap<String, String>(SQL_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > SQL_CACHE_SIZE;
+        }
+    };
+
+    public final String userEmail;
+    /** Inclusive lower date bound (yyyy-MM or yyyy-MM-dd), or null. */
+    public final String dateFrom;
+    /** Exclusive upper date bound, or null. */
+    public final String dateTo;
+    /** "Income", "Expense", or null for both. */
+    public final String type;
+    /** Empty means any category. */
+    public final List<String> categories;
+    public final Double minAmount;
+    public final Double maxAmount;
+    /** Case-insensitive text the note must contain, or null. */
+    public final String noteContains;
+    public final Sort sort;
+    /** Maximum rows, or 0 for all. */
+    public final int limit;
+
+    private TransactionQuery(Builder builder) {
+        this.userEmail = builder.userEmail;
+        this.dateFrom = builder.dateFrom;
+        this.dateTo = builder.dateTo;
+        this.type = builder.type;
+        this.categories = Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(builder.categories)));
+        this.minAmount = builder.minAmount;
+        this.maxAmount = builder.maxAmount;
+        this.noteContains = builder.noteContains;
+        this.sort = builder.sort;
+        this.limit = builder.limit;
+    }
+
+    public static Builder forUser(String userEmail) {
+        return new Builder(userEmail);
+    }
+
+    public Builder toBuilder() {
+        return new Builder(userEmail)
+                .between(dateFrom, dateTo)
+                .type(type)
+                .categories(categories)
+                .amountBetween(minAmount, maxAmount)
+                .noteContains(noteContains)
+                .sortBy(sort)
+                .limit(limit);
+    }
+
+    /**
+     * True if anything beyond the user and date range narrows the result.
+     */
+    public boolean isFiltered() {
+        return type != null || !categories.isEmpty() || minAmount != null || maxAmount != null
+                || noteContains != null || sort != Sort.NEWEST_FIRST;
+    }
+
+    /**
+     * The type the query is restricted to: the explicit one, or the one implied when every
+     * selected category belongs to the same type. Null if both types can match.
+     */
+    String effectiveType() {
+        if (type != null || categories.isEmpty()) {
+            return type;
+        }
+        for (String candidate : new String[]{Categories.TYPE_EXPENSE, Categories.TYPE_INCOME}) {
+            boolean all = true;
+            for (String category : categories) {
+                all &= Categories.isValid(candidate, category);
+            }
+            if (all) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Which clauses the SQL has; queries with the same shape share one statement.
+     */
+    String shape() {
+        return (dateFrom != null ? "F" : "") + (dateTo != null ? "T" : "") + (effectiveType() != null ? "Y" : "")
+                + "C" + categories.size() + (minAmount != null ? "L" : "") + (maxAmount != null ? "H" : "")
+                + (noteContains != null ? "N" : "") + (limit > 0 ? "R" : "") + sort.ordinal();
+    }
+
+    public String sql() {
+        String shape = shape();
+        synchronized (SQL_CACHE) {
+            String sql = SQL_CACHE.get(shape);
+            if (sql == null) {
+                sql = buildSql();
+                SQL_CACHE.put(shape, sql);
+            }
+            return sql;
+        }
+    }
+
+    /**
+     * Values for the {@code ?}s in {@link #sql()}, in order.
+     */
+    public String[] args() {
+        List<String> args = new ArrayList<>();
+        args.add(userEmail);
+        String effectiveType = effectiveType();
+        if (effectiveType != null) {
+            args.add(effectiveType);
+        }
+        if (dateFrom != null) {
+            args.add(dateFrom);
+        }
+        if (dateTo != null) {
+            args.add(dateTo);
+        }
+        args.addAll(categories);
+        if (minAmount != null) {
+            args.add(String.valueOf(minAmount));
+        }
+        if (maxAmount != null) {
+            args.add(String.valueOf(maxAmount));
+        }
+        if (noteContains != null) {
+            args.add("%" + escapeLike(noteContains) + "%");
+        }
+        if (limit > 0) {
+            args.add(String.valueOf(limit));
+        }
+        return args.toArray(new String[0]);
+    }
+
+    private String buildSql() {
+        boolean typed = effectiveType() != null;
+        StringBuilder sql = new StringBuilder("SELECT * FROM expenses")
+                .append(typed ? " INDEXED BY " + INDEX_USER_TYPE_DATE : "")
+                .append(" WHERE ").append(TransactionRowMapper.COLUMN_USER_EMAIL).append(" = ?");
+        // Equality columns first, in index order, then the date range
+        if (typed) {
+            sql.append(" AND ").append(TransactionRowMapper.COLUMN_TYPE).append(" = ?");
+        }
+        if (dateFrom != null) {
+            sql.append(" AND ").append(TransactionRowMapper.COLUMN_DATE).append(" >= ?");
+        }
+        if (dateTo != null) {
+            sql.append(" AND ").append(TransactionRowMapper.COLUMN_DATE).append(" < ?");
+        }
+        if (!categories.isEmpty()) {
+            sql.append(" AND ").append(TransactionRowMapper.COLUMN_CATEGORY).append(" IN (?");
+            for (int i = 1; i < categories.size(); i++) {
+                sql.append(", ?");
+            }
+            sql.append(')');
+        }
+        if (minAmount != null) {
+            sql.append(" AND ").append(TransactionRowMapper.COLUMN_AMOUNT).append(" >= ?");
+        }
+        if (maxAmount != null) {
+            sql.append(" AND ").append(TransactionRowMapper.COLUMN_AMOUNT).append(" <= ?");
+        }
+        if (noteContains != null) {
+            sql.append(" AND ").append(TransactionRowMapper.COLUMN_NOTE).append(" LIKE ? ESCAPE '\\'");
+        }
+        sql.append(" ORDER BY ").append(sort.orderBy);
+        if (limit > 0) {
+            // Arguments are bound as strings, which LIMIT only accepts once cast
+            sql.append(" LIMIT CAST(? AS INTEGER)");
+        }
+        return sql.toString();
+    }
+
+    static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public static final class Builder {
+        private final String userEmail;
+        private String dateFrom;
+        private String dateTo;
+        private String type;
+        private final List<String> categories = new ArrayList<>();
+        private Double minAmount;
+        private Double maxAmount;
+        private String noteContains;
+        private Sort sort = Sort.NEWEST_FIRST;
+        private int limit;
+
+        private Builder(String userEmail) {
+            if (userEmail == null) {
+                throw new IllegalArgumentException("userEmail is required");
+            }
+            this.userEmail = userEmail;
+        }
+
+        /**
+         * Dates from {@code from} (inclusive) to {@code to} (exclusive); either may be null.
+         */
+        public Builder between(String from, String to) {
+            this.dateFrom = from;
+            this.dateTo = to;
+            return this;
+        }
+
+        /**
+         * One yyyy-MM month, as a {@link MonthRange}.
+         */
+        public Builder month(String monthYearFilter) {
+            return between(MonthRange.start(monthYearFilter), MonthRange.end(monthYearFilter));
+        }
+
+        public Builder type(String type) {
+            this.type = type;
+            return this;
+        }
+
+        public Builder categories(Collection<String> categories) {
+            this.categories.clear();
+            this.categories.addAll(categories);
+            return this;
+        }
+
+        /**
+         * Inclusive amount bounds; either may be null.
+         */
+        public Builder amountBetween(Double min, Double max) {
+            this.minAmount = min;
+            this.maxAmount = max;
+            return this;
+        }
+
+        public Builder noteContains(String text) {
+            this.noteContains = text == null || text.trim().isEmpty() ? null : text.trim();
+            return this;
+        }
+
+        public Builder sortBy(Sort sort) {
+            this.sort = sort;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            this.limit = Math.max(0, limit);
+            return this;
+        }
+
+        public TransactionQuery build() {
+            return new TransactionQuery(this);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.trackify.core;
+
+/**
+ * Platform-independent transaction row. The app's DatabaseHelper.Transaction extends this,
+ * so everything in this module works directly on the lists the database returns.
+ */
+public class TransactionRecord {
+    public long id;
+    public String userEmail;
+    public String type;
+    public String category;
+    public double amount;
+    public String date;
+    public String note;
+    /** ISO 4217 code; set after construction by the row mapper when the row has one. */
+    public String currency = Currencies.BASE;
+    /** SHA-256 of the attached receipt image, or null; set by the row mapper like the currency. */
+    public String receiptHash;
+
+    public TransactionRecord(long id, String userEmail, String type, String category, double amount, String date, String note) {
+        this.id = id;
+        this.userEmail = userEmail;
+        this.type = type;
+        this.category = category;
+        this.amount = amount;
+        this.date = date;
+        this.note = note;
+    }
+
+    public boolean isIncome() {
+        return Categories.TYPE_INCOME.equals(type);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.trackify.core;
+
+/**
+ * Maps rows of the expenses table to transaction objects. Column indices are resolved once per
+ * result set instead of once per row and column.
+ */
+public final class TransactionRowMapper<T extends TransactionRecord> {
+
+    // Column names of the expenses table
+    public static final String COLUMN_ID = "expense_id";
+    public static final String COLUMN_USER_EMAIL = "user_email";
+    public static final String COLUMN_TYPE = "type";
+    public static final String COLUMN_CATEGORY = "category";
+    public static final String COLUMN_AMOUNT = "amount";
+    public static final String COLUMN_DATE = "date";
+    public static final String COLUMN_NOTE = "note";
+    public static final String COLUMN_CURRENCY = "currency";
+    public static final String COLUMN_RECEIPT_HASH = "receipt_hash";
+
+    /**
+     * Creates the concrete transaction type; matches the Transaction constructor.
+     */
+    public interface Factory<T> {
+        T create(long id, String userEmail, String type, String category, double amount, String date, String note);
+    }
+
+    private final Factory<T> factory;
+    private final int idIndex;
+    private final int userEmailIndex;
+    private final int typeIndex;
+    private final int categoryIndex;
+    private final int amountIndex;
+    private final int dateIndex;
+    private final int noteIndex;
+    // -1 for result sets from before transactions had a currency
+    private final int currencyIndex;
+    // -1 for result sets from before receipts could be attached
+    private final int receiptHashIndex;
+
+    /**
+     * @param row any row of the result set; only its column layout is read.
+     */
+    public TransactionRowMapper(Row row, Factory<T> factory) {
+        this.factory = factory;
+        this.idIndex = row.columnIndex(COLUMN_ID);
+        this.userEmailIndex = row.columnIndex(COLUMN_USER_EMAIL);
+        this.typeIndex = row.columnIndex(COLUMN_TYPE);
+        this.categoryIndex = row.columnIndex(COLUMN_CATEGORY);
+        this.amountIndex = row.columnIndex(COLUMN_AMOUNT);
+        this.dateIndex = row.columnIndex(COLUMN_DATE);
+        this.noteIndex = row.columnIndex(COLUMN_NOTE);
+        this.currencyIndex = optionalColumnIndex(row, COLUMN_CURRENCY);
+        this.receiptHashIndex = optionalColumnIndex(row, COLUMN_RECEIPT_HASH);
+    }
+
+    private static int optionalColumnIndex(Row row, String columnName) {
+        try {
+            return row.columnIndex(columnName);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    public T map(Row row) {
+        T transaction = factory.create(
+                row.getLong(idIndex),
+                row.getString(userEmailIndex),
+                row.getString(typeIndex),
+                row.getString(categoryIndex),
+                row.getDouble(amountIndex),
+                row.getString(dateIndex),
+                // The adapter calls note.isEmpty(), so never hand out null
+                row.isNull(noteIndex) ? "" : row.getString(noteIndex));
+        if (currencyIndex >= 0 && !row.isNull(currencyIndex)) {
+            transaction.currency = row.getString(currencyIndex);
+        }
+        if (receiptHashIndex >= 0 && !row.isNull(receiptHashIndex)) {
+            transaction.receiptHash = row.getString(receiptHashIndex);
+        }
+        return transaction;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.trackify.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything the dashboard and the home-screen widget show for one account: the balance, the
+ * month's totals and the newest transactions. It is persisted when the data changes, so both can
+ * draw it without querying the database. Encoded uncompressed, a few hundred bytes:
+ * <pre>
+ * magic "TRKW" | format version | written at | month | balance | month income | month expense |
+ * count | items...
+ * </pre>
+ * Format 2 added each item's id and note; format 1 items decode with id 0 and an empty note.
+ */
+public final class WidgetSnapshot {
+
+    public static final int FORMAT_VERSION = 2;
+    static final int MAGIC = 0x54524B57; // "TRKW"
+
+    /** Recent transactions kept; the dashboard and the widget have a row for each. */
+    public static final int MAX_RECENT = 3;
+
+    /**
+     * One recent transaction, with what the dashboard's list row draws.
+     */
+    public static final class Item {
+        public final long id;
+        public final String type;
+        public final String category;
+        public final double amount;
+        public final String currency;
+        public final String date;
+        public final String note;
+
+        public Item(long id, String type, String category, double amount, String currency, String date, String note) {
+            this.id = id;
+            this.type = type;
+            this.category = category;
+            this.amount = amount;
+            this.currency = currency;
+            this.date = date;
+            this.note = note == null ? "" : note;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Item)) {
+                return false;
+            }
+            Item other = (Item) o;
+            return id == other.id && Double.compare(amount, other.amount) == 0 && type.equals(other.type)
+                    && category.equals(other.category) && currency.equals(other.currency)
+                    && date.equals(other.date) && note.equals(other.note);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id) * 31 + Double.hashCode(amount);
+        }
+    }
+
+    public final long writtenAtMillis;
+    /** The yyyy-MM month the month totals are for. */
+    public final String month;
+    /** All totals are in {@link Currencies#BASE}. */
+    public final double balance;
+    public final double monthIncome;
+    public final double monthExpense;
+    /** Newest first, at most {@link #MAX_RECENT}. */
+    public final List<Item> recent;
+
+    public WidgetSnapshot(long writtenAtMillis, String month, double balance, double monthIncome, double monthExpense,
+                          List<Item> recent) {
+        this.writtenAtMillis = writtenAtMillis;
+        this.month = month;
+        this.balance = balance;
+        this.monthIncome = monthIncome;
+        this.monthExpense = monthExpense;
+        this.recent = Collections.unmodifiableList(new ArrayList<>(recent.subList(0, Math.min(MAX_RECENT, recent.size()))));
+    }
+
+    /**
+     * True if both show the same figures and items, whenever they were written.
+     */
+    public boolean sameContent(WidgetSnapshot other) {
+        return other != null && month.equals(other.month) && Double.compare(balance, other.balance) == 0
+                && Double.compare(monthIncome, other.monthIncome) == 0
+                && Double.compare(monthExpense, other.monthExpense) == 0 && recent.equals(other.recent);
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + recent.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(writtenAtMillis);
+            out.writeUTF(month);
+            out.writeDouble(balance);
+            out.writeDouble(monthIncome);
+            out.writeDouble(monthExpense);
+            out.writeByte(recent.size());
+            for (Item item : recent) {
+                out.writeLong(item.id);
+                out.writeUTF(item.type);
+                out.writeUTF(item.category);
+                out.writeDouble(item.amount);
+                out.writeUTF(item.currency);
+                out.writeUTF(item.date);
+                out.writeUTF(item.note);
+            }
+        } catch (IOException e) {
+            // Only thrown for strings over 64 KB; nothing this app stores
+            throw new IllegalArgumentException("Cannot encode widget snapshot", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IOException if the snapshot is truncated, corrupt or from a newer format.
+     */
+    public static WidgetSnapshot decode(byte[] snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a Trackify widget snapshot");
+            }
+            int formatVersion = in.readUnsignedByte();
+            if (formatVersion > FORMAT_VERSION) {
+                throw new IOException("Widget snapshot format " + formatVersion + " is newer than this app supports");
+            }
+            long writtenAtMillis = in.readLong();
+            String month = in.readUTF();
+            double balance = in.readDouble();
+            double monthIncome = in.readDouble();
+            double monthExpense = in.readDouble();
+            int count = in.readUnsignedByte();
+            if (count > MAX_RECENT) {
+                throw new IOException("Widget snapshot is corrupt");
+            }
+            List<Item> recent = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long id = formatVersion >= 2 ? in.readLong() : 0;
+                String type = in.readUTF();
+                String category = in.readUTF();
+                double amount = in.readDouble();
+                String currency = in.readUTF();
+                String date = in.readUTF();
+                recent.add(new Item(id, type, category, amount, currency, date, formatVersion >= 2 ? in.readUTF() : ""));
+            }
+            if (in.read() != -1) {
+                throw new IOException("Widget snapshot is corrupt");
+            }
+            return new WidgetSnapshot(writtenAtMillis, month, balance, monthIncome, monthExpense, recent);
+        } catch (EOFException | UTFDataFormatException e) {
+            throw new IOException("Widget snapshot is corrupt", e);
+        }
+    }
+}
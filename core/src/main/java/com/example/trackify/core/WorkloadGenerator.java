@@ -0,0 +1,217 @@
+package com.example.trackify.core;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic data for performance work. The same seed always produces the same
+ * users and rows in the same order, so a benchmark or bug report can name a profile by its seed.
+ *
+ * <p>Each user gets a realistic year shape: salary on the 1st with an April raise and a March
+ * bonus, rent on the 5th, utilities with a summer peak, several food spends a day (more at
+ * weekends), weekday commutes, weekly groceries, and shopping that arrives in bursts, most of
+ * them in the Oct-Nov festive season.
+ */
+public final class WorkloadGenerator {
+
+    /**
+     * Receives generated rows. On Android this is DatabaseHelper's bulk inserter.
+     */
+    public interface Sink {
+        void user(String email, String name, String password);
+
+        void expense(String userEmail, String type, String category, double amount, String date, String note);
+    }
+
+    public static final String DEFAULT_PASSWORD = "password";
+
+    private static final String[] FOOD_NOTES = {"Swiggy order", "Zomato dinner", "Office canteen", "Chai and snacks", "Dominos", "Lunch with team"};
+    private static final String[] TRANSPORT_NOTES = {"Uber to office", "Ola ride", "Metro card recharge", "Rapido", "Petrol"};
+    private static final String[] GROCERY_NOTES = {"DMart weekly", "BigBasket", "Blinkit", "Vegetable market"};
+    private static final String[] SHOPPING_NOTES = {"Amazon", "Flipkart", "Myntra", "Mall", "Croma electronics"};
+    private static final String[] FUN_NOTES = {"PVR movie", "Netflix", "Bowling", "Concert tickets"};
+
+    private final long seed;
+
+    public WorkloadGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public static String userEmail(int user) {
+        return "user" + user + "@example.com";
+    }
+
+    /**
+     * Generates {@code users} users with {@code years} years of history starting on 1 January of
+     * {@code startYear}.
+     *
+     * @param activity scales the number of day-to-day spends; 1.0 is about 1,000 rows per user-year.
+     * @return the number of expense rows written.
+     */
+    public int generate(Sink sink, int users, int startYear, int years, double activity) {
+        int rows = 0;
+        for (int user = 0; user < users; user++) {
+            // Per-user stream: adding users never changes the data of existing ones
+            Random random = new Random(seed * 31 + user);
+            String email = userEmail(user);
+            sink.user(email, "User " + user, DEFAULT_PASSWORD);
+            rows += generateUser(sink, random, email, startYear, years, activity);
+        }
+        return rows;
+    }
+
+    private int generateUser(Sink sink, Random random, String email, int startYear, int years, double activity) {
+        double salary = roundRupees(30_000 + random.nextInt(120_000));
+        double rent = roundRupees(salary * (0.2 + random.nextDouble() * 0.15));
+        int leaseMonth = random.nextInt(12);
+        int shoppingBurstDaysLeft = 0;
+        int rows = 0;
+
+        Calendar day = new GregorianCalendar(startYear, Calendar.JANUARY, 1);
+        Calendar end = new GregorianCalendar(startYear + years, Calendar.JANUARY, 1);
+        while (day.before(end)) {
+            int year = day.get(Calendar.YEAR);
+            int month = day.get(Calendar.MONTH);
+            int dayOfMonth = day.get(Calendar.DAY_OF_MONTH);
+            int dayOfWeek = day.get(Calendar.DAY_OF_WEEK);
+            boolean weekend = dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY;
+            String date = date(year, month + 1, dayOfMonth);
+
+            // --- Monthly fixed items ---
+            if (dayOfMonth == 1) {
+                if (month == Calendar.APRIL && year > startYear) {
+                    salary = roundRupees(salary * (1.03 + random.nextDouble() * 0.07));
+                }
+                if (month == leaseMonth && year > startYear) {
+                    rent = roundRupees(rent * 1.05);
+                }
+                sink.expense(email, Categories.TYPE_INCOME, "Salary", salary, date, "Monthly salary");
+                rows++;
+                if (month == Calendar.MARCH && random.nextInt(3) > 0) {
+                    sink.expense(email, Categories.TYPE_INCOME, "Salary", roundRupees(salary * random.nextDouble()), date, "Annual bonus");
+                    rows++;
+                }
+            }
+            if (dayOfMonth == 5) {
+                sink.expense(email, Categories.TYPE_EXPENSE, "Rent", rent, date, "House rent");
+                rows++;
+            }
+            if (dayOfMonth == 10) {
+                // Air conditioning pushes electricity up in the Indian summer
+                double seasonal = month >= Calendar.APRIL && month <= Calendar.JUNE ? 1.6 : 1.0;
+                sink.expense(email, Categories.TYPE_EXPENSE, "Utilities", roundPaise((1200 + random.nextInt(800)) * seasonal), date, "Electricity bill");
+                sink.expense(email, Categories.TYPE_EXPENSE, "Utilities", 599, date, "Broadband");
+                rows += 2;
+            }
+            if (dayOfMonth == 15 && month % 3 == 2) {
+                sink.expense(email, Categories.TYPE_INCOME, "Investments", roundPaise(500 + random.nextInt(5000)), date, "Dividend");
+                rows++;
+            }
+
+            // --- Day-to-day spends ---
+            int meals = poisson(random, (weekend ? 2.5 : 1.8) * activity);
+            for (int i = 0; i < meals; i++) {
+                sink.expense(email, Categories.TYPE_EXPENSE, "Food", roundRupees(80 + random.nextInt(weekend ? 900 : 400)), date, pick(random, FOOD_NOTES));
+            }
+            rows += meals;
+            if (!weekend) {
+                int rides = poisson(random, 0.6 * activity);
+                for (int i = 0; i < rides; i++) {
+                    sink.expense(email, Categories.TYPE_EXPENSE, "Transportation", roundRupees(40 + random.nextInt(400)), date, pick(random, TRANSPORT_NOTES));
+                }
+                rows += rides;
+            }
+            if (dayOfWeek == Calendar.SUNDAY) {
+                sink.expense(email, Categories.TYPE_EXPENSE, "Groceries", roundPaise(800 + random.nextInt(2500) + random.nextDouble()), date, pick(random, GROCERY_NOTES));
+                rows++;
+            }
+            if (weekend && random.nextDouble() < 0.3 * activity) {
+                sink.expense(email, Categories.TYPE_EXPENSE, "Entertainment", roundRupees(200 + random.nextInt(1500)), date, pick(random, FUN_NOTES));
+                rows++;
+            }
+
+            // --- Bursty shopping: rare on a normal day, much likelier around Diwali ---
+            boolean festive = month == Calendar.OCTOBER || month == Calendar.NOVEMBER;
+            if (shoppingBurstDaysLeft == 0 && random.nextDouble() < (festive ? 0.08 : 0.02)) {
+                shoppingBurstDaysLeft = 2 + random.nextInt(5);
+            }
+            if (shoppingBurstDaysLeft > 0) {
+                int purchases = 1 + poisson(random, activity);
+                for (int i = 0; i < purchases; i++) {
+                    sink.expense(email, Categories.TYPE_EXPENSE, "Shopping", roundRupees(300 + random.nextInt(festive ? 8000 : 3000)), date, pick(random, SHOPPING_NOTES));
+                }
+                rows += purchases;
+                shoppingBurstDaysLeft--;
+            }
+
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return rows;
+    }
+
+    /**
+     * Writes a trace of {@code operations} interactive operations for one user: mostly inserts,
+     * some edits and deletes of earlier inserts, and month switches, all dated within
+     * {@code year}. Replaying it reproduces the same load profile exactly.
+     */
+    public void generateTrace(WorkloadTrace.Writer writer, String userEmail, int year, int operations) {
+        Random random = new Random(seed);
+        int nextRef = 1;
+        for (int i = 0; i < operations; i++) {
+            int roll = random.nextInt(100);
+            int month = 1 + random.nextInt(12);
+            String date = date(year, month, 1 + random.nextInt(28));
+            if (roll < 70 || nextRef == 1) {
+                writer.insert(nextRef++, userEmail, Categories.TYPE_EXPENSE, "Food", roundRupees(50 + random.nextInt(900)), date, pick(random, FOOD_NOTES));
+            } else if (roll < 85) {
+                writer.update(1 + random.nextInt(nextRef - 1), userEmail, Categories.TYPE_EXPENSE, "Shopping", roundRupees(300 + random.nextInt(3000)), date, pick(random, SHOPPING_NOTES));
+            } else if (roll < 95) {
+                writer.delete(1 + random.nextInt(nextRef - 1));
+            } else {
+                writer.switchMonth(userEmail, String.format(java.util.Locale.US, "%04d-%02d", year, month));
+            }
+        }
+    }
+
+    // --- Helpers ---
+
+    private static String date(int year, int month, int day) {
+        char[] chars = new char[10];
+        chars[0] = (char) ('0' + year / 1000);
+        chars[1] = (char) ('0' + year / 100 % 10);
+        chars[2] = (char) ('0' + year / 10 % 10);
+        chars[3] = (char) ('0' + year % 10);
+        chars[4] = '-';
+        chars[5] = (char) ('0' + month / 10);
+        chars[6] = (char) ('0' + month % 10);
+        chars[7] = '-';
+        chars[8] = (char) ('0' + day / 10);
+        chars[9] = (char) ('0' + day % 10);
+        return new String(chars);
+    }
+
+    private static int poisson(Random random, double lambda) {
+        // Knuth's method; lambda stays small (< 20) for every caller
+        double limit = Math.exp(-lambda);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            count++;
+            product *= random.nextDouble();
+        }
+        return count;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static double roundRupees(double amount) {
+        return Math.round(amount);
+    }
+
+    private static double roundPaise(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.trackify.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Line-based trace of interactive operations (insert, edit, delete, month switch) that can be
+ * recorded once and replayed against any database.
+ *
+ * <p>One operation per line, fields separated by tabs:
+ * <pre>
+ * I  ref  user  type  category  amount  date  note
+ * U  ref  user  type  category  amount  date  note
+ * D  ref
+ * M  user  yyyy-MM
+ * </pre>
+ * Rows are named by a trace-local {@code ref} rather than their database id, since ids differ
+ * between the database that was recorded and the one being replayed into. Tabs, newlines and
+ * backslashes in notes are escaped. Lines starting with {@code #} are comments.
+ */
+public final class WorkloadTrace {
+
+    public static final String HEADER = "# trackify-trace v1";
+
+    private WorkloadTrace() {
+    }
+
+    /**
+     * The operations a trace can drive. On Android this wraps DatabaseHelper.
+     */
+    public interface Target {
+        /**
+         * @return the new row id, or -1 if the insert failed.
+         */
+        long insert(String userEmail, String type, String category, double amount, String date, String note);
+
+        boolean update(long id, String userEmail, String type, String category, double amount, String date, String note);
+
+        boolean delete(long id);
+
+        /**
+         * Loads what the transactions screen shows for {@code month} (yyyy-MM).
+         */
+        void switchMonth(String userEmail, String month);
+    }
+
+    /**
+     * Counts from one replay. Operations on refs that were never inserted, or whose insert failed,
+     * are counted as skipped.
+     */
+    public static final class Result {
+        public int inserts;
+        public int updates;
+        public int deletes;
+        public int monthSwitches;
+        public int skipped;
+        public long elapsedNanos;
+
+        public int operations() {
+            return inserts + updates + deletes + monthSwitches;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d ops (%d inserts, %d updates, %d deletes, %d month switches, %d skipped) in %.1f ms",
+                    operations(), inserts, updates, deletes, monthSwitches, skipped, elapsedNanos / 1e6);
+        }
+    }
+
+    // --- Writing ---
+
+    /**
+     * Appends operations to a character stream. IO failures surface as {@link UncheckedIOException}
+     * so recording can sit behind the same interfaces as the generator.
+     */
+    public static final class Writer {
+        private final java.io.Writer out;
+        private final StringBuilder line = new StringBuilder(128);
+
+        public Writer(java.io.Writer out) {
+            this.out = out;
+            write(HEADER);
+        }
+
+        public void insert(long ref, String userEmail, String type, String category, double amount, String date, String note) {
+            row('I', ref, userEmail, type, category, amount, date, note);
+        }
+
+        public void update(long ref, String userEmail, String type, String category, double amount, String date, String note) {
+            row('U', ref, userEmail, type, category, amount, date, note);
+        }
+
+        public void delete(long ref) {
+            line.setLength(0);
+            line.append('D').append('\t').append(ref);
+            write(line.toString());
+        }
+
+        public void switchMonth(String userEmail, String month) {
+            line.setLength(0);
+            line.append('M').append('\t');
+            escape(userEmail);
+            line.append('\t').append(month);
+            write(line.toString());
+        }
+
+        public void flush() {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void row(char op, long ref, String userEmail, String type, String category, double amount, String date, String note) {
+            line.setLength(0);
+            line.append(op).append('\t').append(ref).append('\t');
+            escape(userEmail);
+            line.append('\t');
+            escape(type);
+            line.append('\t');
+            escape(category);
+            line.append('\t').append(amount).append('\t').append(date).append('\t');
+            escape(note == null ? "" : note);
+            write(line.toString());
+        }
+
+        private void escape(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\t') {
+                    line.append("\\t");
+                } else if (c == '\n') {
+                    line.append("\\n");
+                } else if (c == '\\') {
+                    line.append("\\\\");
+                } else {
+                    line.append(c);
+                }
+            }
+        }
+
+        private void write(String text) {
+            try {
+                out.write(text);
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // --- Replaying ---
+
+    /**
+     * Streams a trace into {@code target} one line at a time, so traces larger than memory replay fine.
+     *
+     * @throws IllegalArgumentException on a malformed line, with its line number.
+     */
+    public static Result replay(Reader trace, Target target) throws IOException {
+        BufferedReader reader = trace instanceof BufferedReader ? (BufferedReader) trace : new BufferedReader(trace);
+        Map<Long, Long> ids = new HashMap<>();
+        Result result = new Result();
+        long start = System.nanoTime();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            try {
+                apply(fields, target, ids, result);
+            } catch (RuntimeException e) {
+                if (e instanceof UncheckedIOException) {
+                    throw e;
+                }
+                throw new IllegalArgumentException("Malformed trace line " + lineNumber + ": " + line, e);
+            }
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private static void apply(String[] fields, Target target, Map<Long, Long> ids, Result result) {
+        switch (fields[0]) {
+            case "I": {
+                requireFields(fields, 8);
+                long id = target.insert(unescape(fields[2]), unescape(fields[3]), unescape(fields[4]),
+                        Double.parseDouble(fields[5]), fields[6], unescape(fields[7]));
+                if (id == -1) {
+                    result.skipped++;
+                } else {
+                    ids.put(Long.parseLong(fields[1]), id);
+                    result.inserts++;
+                }
+                break;
+            }
+            case "U": {
+                requireFields(fields, 8);
+                Long id = ids.get(Long.parseLong(fields[1]));
+                if (id != null && target.update(id, unescape(fields[2]), unescape(fields[3]), unescape(fields[4]),
+                        Double.parseDouble(fields[5]), fields[6], unescape(fields[7]))) {
+                    result.updates++;
+                } else {
+                    result.skipped++;
+                }
+                break;
+            }
+            case "D": {
+                requireFields(fields, 2);
+                Long id = ids.remove(Long.parseLong(fields[1]));
+                if (id != null && target.delete(id)) {
+                    result.deletes++;
+                } else {
+                    result.skipped++;
+                }
+                break;
+            }
+            case "M":
+                requireFields(fields, 3);
+                target.switchMonth(unescape(fields[1]), fields[2]);
+                result.monthSwitches++;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + fields[0]);
+        }
+    }
+
+    private static void requireFields(String[] fields, int count) {
+        if (fields.length != count) {
+            throw new IllegalArgumentException("Expected " + count + " fields but found " + fields.length);
+        }
+    }
+
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                builder.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
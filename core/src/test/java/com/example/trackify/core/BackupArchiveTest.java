@@ -0,0 +1,187 @@
+package com.example.trackify.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BackupArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip_restoresBytesAndHeader() throws IOException {
+        byte[] data = sampleData(300_000);
+        File archive = write(data);
+
+        try (FileChannel channel = new RandomAccessFile(archive, "r").getChannel()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BackupArchive.Header header = BackupArchive.extract(channel, Channels.newChannel(out));
+
+            assertArrayEquals(data, out.toByteArray());
+            assertEquals(BackupArchive.FORMAT_VERSION, header.formatVersion);
+            assertEquals(5, header.schemaVersion);
+            assertEquals(1_700_000_000_000L, header.createdMillis);
+            assertEquals(data.length, header.rawLength);
+        }
+    }
+
+    @Test
+    public void coldSnapshot_comesBackSeparately() throws IOException {
+        byte[] data = sampleData(200_000);
+        byte[] cold = sampleData(150_001);
+        File archive = folder.newFile();
+        try (FileChannel channel = new RandomAccessFile(archive, "rw").getChannel()) {
+            BackupArchive.write(Channels.newChannel(new ByteArrayInputStream(data)),
+                    Channels.newChannel(new ByteArrayInputStream(cold)), channel, 5, 1_700_000_000_000L);
+        }
+
+        try (FileChannel channel = new RandomAccessFile(archive, "r").getChannel()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream coldOut = new ByteArrayOutputStream();
+            BackupArchive.Header header = BackupArchive.extract(channel, Channels.newChannel(out), Channels.newChannel(coldOut));
+
+            assertArrayEquals(data, out.toByteArray());
+            assertArrayEquals(cold, coldOut.toByteArray());
+            assertEquals(data.length + cold.length, header.rawLength);
+            assertEquals(cold.length, header.coldLength);
+        }
+        try (FileChannel channel = new RandomAccessFile(archive, "r").getChannel()) {
+            // Without a cold target only the database is kept
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BackupArchive.extract(channel, Channels.newChannel(out));
+            assertArrayEquals(data, out.toByteArray());
+        }
+    }
+
+    @Test
+    public void formatOneArchive_isStillRead() throws IOException {
+        byte[] data = sampleData(50_000);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(data);
+        }
+        CRC32 dataCrc = new CRC32();
+        dataCrc.update(data);
+        ByteBuffer header = ByteBuffer.allocate(BackupArchive.V1_HEADER_SIZE);
+        header.putInt(BackupArchive.MAGIC).putInt(1).putInt(5).putLong(1_700_000_000_000L).putLong(data.length)
+                .putInt((int) dataCrc.getValue());
+        CRC32 headerCrc = new CRC32();
+        headerCrc.update(header.array(), 0, BackupArchive.V1_HEADER_SIZE - 4);
+        header.putInt((int) headerCrc.getValue());
+        File archive = folder.newFile();
+        try (RandomAccessFile file = new RandomAccessFile(archive, "rw")) {
+            file.write(header.array());
+            file.write(compressed.toByteArray());
+        }
+
+        try (FileChannel channel = new RandomAccessFile(archive, "r").getChannel()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BackupArchive.Header read = BackupArchive.extract(channel, Channels.newChannel(out), Channels.newChannel(out));
+
+            assertArrayEquals(data, out.toByteArray());
+            assertEquals(1, read.formatVersion);
+            assertEquals(0, read.coldLength);
+        }
+    }
+
+    @Test
+    public void repetitiveData_compresses() throws IOException {
+        byte[] data = sampleData(1_000_000);
+
+        assertTrue(write(data).length() < data.length / 3);
+    }
+
+    @Test
+    public void corruptPayload_isRejected() throws IOException {
+        File archive = write(sampleData(100_000));
+        flipByte(archive, archive.length() / 2);
+
+        assertRejected(archive);
+    }
+
+    @Test
+    public void corruptHeader_isRejected() throws IOException {
+        File archive = write(sampleData(1_000));
+        flipByte(archive, 20);
+
+        assertRejected(archive);
+    }
+
+    @Test
+    public void truncatedArchive_isRejected() throws IOException {
+        File archive = write(sampleData(100_000));
+        try (RandomAccessFile file = new RandomAccessFile(archive, "rw")) {
+            file.setLength(file.length() - 100);
+        }
+
+        assertRejected(archive);
+    }
+
+    @Test
+    public void otherFiles_areRejected() throws IOException {
+        File notAnArchive = folder.newFile();
+        try (RandomAccessFile file = new RandomAccessFile(notAnArchive, "rw")) {
+            file.write("SQLite format 3\0 and some more bytes to fill a header".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        assertRejected(notAnArchive);
+    }
+
+    private File write(byte[] data) throws IOException {
+        File archive = folder.newFile();
+        try (FileChannel channel = new RandomAccessFile(archive, "rw").getChannel()) {
+            BackupArchive.write(Channels.newChannel(new ByteArrayInputStream(data)), channel, 5, 1_700_000_000_000L);
+        }
+        return archive;
+    }
+
+    private static void assertRejected(File archive) throws IOException {
+        try (FileChannel channel = new RandomAccessFile(archive, "r").getChannel()) {
+            BackupArchive.verify(channel);
+            fail("Expected " + archive + " to be rejected");
+        } catch (BackupArchive.FormatException expected) {
+            // Expected
+        }
+    }
+
+    private static void flipByte(File file, long position) throws IOException {
+        try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, position);
+            one.put(0, (byte) ~one.get(0));
+            one.rewind();
+            channel.write(one, position);
+        }
+    }
+
+    /**
+     * Database-like bytes: repeated row text with random amounts, so it compresses but not trivially.
+     */
+    private static byte[] sampleData(int size) {
+        Random random = new Random(3);
+        StringBuilder builder = new StringBuilder(size + 64);
+        while (builder.length() < size) {
+            builder.append("user0@example.com|Expense|Food|").append(random.nextInt(1_000)).append("|2024-12-0").append(random.nextInt(9)).append('\n');
+        }
+        return builder.substring(0, size).getBytes(StandardCharsets.US_ASCII);
+    }
+}
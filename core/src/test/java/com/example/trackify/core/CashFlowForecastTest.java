@@ -0,0 +1,72 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CashFlowForecastTest {
+
+    @Test
+    public void steadyDailySpend_forecastsTheRemainingDays() {
+        // 100 a day on every day of three past months, identically, so no spread
+        CashFlowForecast.Builder builder = new CashFlowForecast.Builder("2025-10-10", "2025-07");
+        for (String month : new String[]{"2025-07", "2025-08", "2025-09"}) {
+            for (int day = 1; day <= CashFlowForecast.daysIn(month); day++) {
+                builder.profile("Expense", "INR", day, SpendingStats.monthWeight(month) * 100,
+                        SpendingStats.monthWeight(month) * 100 * 100);
+            }
+        }
+
+        CashFlowForecast forecast = builder.build(currency -> 0);
+
+        // 21 days after the 10th, the 31st included: two of the three months had one
+        assertEquals(21 * 100, forecast.expectedExpense, 1e-6);
+        assertEquals(1_000 + 2_100, forecast.monthEndSpend(1_000), 1e-6);
+        assertEquals(forecast.monthEndSpend(1_000), forecast.monthEndSpendHigh(1_000), 1e-3);
+        assertEquals(0, forecast.expectedIncome, 0);
+    }
+
+    @Test
+    public void currentMonth_isExcludedAndRecurringItemsAreAddedExactly() {
+        CashFlowForecast.Builder builder = new CashFlowForecast.Builder("2025-10-10", "2025-08")
+                .profile("Expense", "USD", 20, SpendingStats.monthWeight("2025-08") * 10 + SpendingStats.monthWeight("2025-10") * 50,
+                        SpendingStats.monthWeight("2025-08") * 100 + SpendingStats.monthWeight("2025-10") * 2_500)
+                .exclude("Expense", "USD", "2025-10-20", 50)
+                .recurring("Income", 50_000)
+                .recurring("Expense", 15_000);
+
+        CashFlowForecast forecast = builder.build(currency -> "USD".equals(currency) ? 80 : 0);
+
+        // August had 10 on the 20th and September nothing, so about 5 USD expected
+        double weightAugust = SpendingStats.monthWeight("2025-08");
+        double expected = 80 * 10 * weightAugust / (weightAugust + SpendingStats.monthWeight("2025-09"));
+        assertEquals(15_000 + expected, forecast.expectedExpense, 1e-6);
+        assertEquals(50_000, forecast.expectedIncome, 1e-6);
+        assertEquals(15_000, forecast.recurringExpense, 0);
+        assertTrue(forecast.expenseVariance > 0);
+        assertTrue(forecast.monthEndBalanceLow(0) < forecast.monthEndBalance(0));
+        assertEquals(500 + 15_000, forecast.monthEndSpendLow(500), 1e-6);
+    }
+
+    @Test
+    public void noHistory_forecastsOnlyRecurringItems() {
+        CashFlowForecast forecast = new CashFlowForecast.Builder("2025-10-10", "2025-10")
+                .profile("Expense", "INR", 15, SpendingStats.monthWeight("2025-10") * 500, 0)
+                .exclude("Expense", "INR", "2025-10-15", 500)
+                .recurring("Expense", 1_200)
+                .build(currency -> 0);
+
+        assertEquals(1_200, forecast.expectedExpense, 1e-6);
+        assertEquals(0, forecast.expenseVariance, 1e-6);
+    }
+
+    @Test
+    public void daysIn_knowsLeapYears() {
+        assertEquals(29, CashFlowForecast.daysIn("2024-02"));
+        assertEquals(28, CashFlowForecast.daysIn("2100-02"));
+        assertEquals(29, CashFlowForecast.daysIn("2000-02"));
+        assertEquals(30, CashFlowForecast.daysIn("2025-11"));
+        assertEquals(31, CashFlowForecast.daysIn("2025-12"));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CategoriesTest {
+
+    @Test
+    public void isValid_checksCategoryAgainstItsOwnType() {
+        assertTrue(Categories.isValid(Categories.TYPE_EXPENSE, "Food"));
+        assertTrue(Categories.isValid(Categories.TYPE_INCOME, "Salary"));
+        assertFalse(Categories.isValid(Categories.TYPE_INCOME, "Food"));
+        assertFalse(Categories.isValid(Categories.TYPE_EXPENSE, "food"));
+        assertFalse(Categories.isValid(Categories.TYPE_EXPENSE, null));
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CategoryMatcherTest {
+
+    private static final CategoryMatcher SYSTEM = CategoryMatcher.compile(Collections.emptyList());
+
+    @Test
+    public void keywords_matchWholeWordsInAnyCase() {
+        assertEquals("Food", SYSTEM.match(Categories.TYPE_EXPENSE, "UPI/SWIGGY/402918"));
+        assertEquals("Transportation", SYSTEM.match(Categories.TYPE_EXPENSE, "Uber trip"));
+        assertEquals("Utilities", SYSTEM.match(Categories.TYPE_EXPENSE, "Gas   Bill for March"));
+        assertNull(SYSTEM.match(Categories.TYPE_EXPENSE, "Potato and tuber"));
+        assertNull(SYSTEM.match(Categories.TYPE_EXPENSE, ""));
+    }
+
+    @Test
+    public void rules_onlyApplyToTheirType() {
+        assertEquals("Salary", SYSTEM.match(Categories.TYPE_INCOME, "SALARY OCT"));
+        assertNull(SYSTEM.match(Categories.TYPE_EXPENSE, "SALARY OCT"));
+        assertEquals("Other", SYSTEM.categorize(Categories.TYPE_INCOME, "Refund"));
+        assertEquals("Miscellaneous", SYSTEM.categorize(Categories.TYPE_EXPENSE, "Refund"));
+    }
+
+    @Test
+    public void userRules_beatLongerSystemRules_andLongerKeywordsBeatShorter() {
+        CategoryMatcher matcher = CategoryMatcher.compile(Collections.singletonList(
+                new CategoryMatcher.Rule(7, "Swiggy", Categories.TYPE_EXPENSE, "Groceries")));
+
+        assertEquals("Entertainment", SYSTEM.match(Categories.TYPE_EXPENSE, "Amazon Prime Video"));
+        assertEquals("Groceries", matcher.match(Categories.TYPE_EXPENSE, "swiggy instamart order"));
+        assertEquals("Groceries", matcher.match(Categories.TYPE_EXPENSE, "Swiggy dinner"));
+    }
+
+    @Test
+    public void overlappingKeywords_areAllFound() {
+        // "ab" ends inside "aab", and "b c" starts where both end: only failure links find them all
+        CategoryMatcher matcher = CategoryMatcher.compile(Arrays.asList(
+                new CategoryMatcher.Rule(1, "ab", Categories.TYPE_EXPENSE, "Food"),
+                new CategoryMatcher.Rule(2, "aab", Categories.TYPE_EXPENSE, "Rent"),
+                new CategoryMatcher.Rule(3, "b c", Categories.TYPE_EXPENSE, "Travel")));
+
+        assertEquals("Rent", matcher.match(Categories.TYPE_EXPENSE, "x aab"));
+        assertEquals("Food", matcher.match(Categories.TYPE_EXPENSE, "aaab ab"));
+        assertEquals("Travel", matcher.match(Categories.TYPE_EXPENSE, "ab b c"));
+    }
+
+    @Test
+    public void matches_agreeWithCheckingEveryRule() {
+        Random random = new Random(42);
+        List<CategoryMatcher.Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            rules.add(new CategoryMatcher.Rule(i + 1, word(random), Categories.TYPE_EXPENSE,
+                    Categories.EXPENSE_CATEGORIES.get(i % Categories.EXPENSE_CATEGORIES.size())));
+        }
+        CategoryMatcher matcher = CategoryMatcher.compile(rules);
+
+        for (int n = 0; n < 2_000; n++) {
+            String note = word(random) + " " + word(random) + "/" + word(random);
+            assertEquals(note, naiveMatch(rules, note), matcher.match(Categories.TYPE_EXPENSE, note));
+        }
+    }
+
+    /**
+     * Short words over a three-letter alphabet, so notes and keywords overlap a lot.
+     */
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int length = 1 + random.nextInt(3); length > 0; length--) {
+            word.append((char) ('a' + random.nextInt(3)));
+        }
+        return word.toString();
+    }
+
+    private static String naiveMatch(List<CategoryMatcher.Rule> rules, String note) {
+        CategoryMatcher.Rule best = null;
+        int bestStart = 0;
+        int start = 0;
+        for (String token : note.split("/| ")) {
+            for (CategoryMatcher.Rule rule : rules) {
+                if (rule.keyword.equals(token) && (best == null || rule.keyword.length() > best.keyword.length()
+                        || (rule.keyword.length() == best.keyword.length() && start < bestStart))) {
+                    best = rule;
+                    bestStart = start;
+                }
+            }
+            start += token.length() + 1;
+        }
+        return best == null ? null : best.category;
+    }
+}
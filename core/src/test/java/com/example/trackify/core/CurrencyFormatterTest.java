@@ -0,0 +1,36 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CurrencyFormatterTest {
+
+    @Test
+    public void formatPlain_matchesStringFormatForStoredAmounts() {
+        double[] amounts = {0, 0.5, 1.05, 12.3, 999.99, 1234.5, 100000, -250.75, -0.001};
+        for (double amount : amounts) {
+            assertEquals(String.format(Locale.US, "₹ %.2f", amount), CurrencyFormatter.formatPlain(amount));
+        }
+    }
+
+    @Test
+    public void format_usesIndianGrouping() {
+        assertEquals(java.text.NumberFormat.getCurrencyInstance(CurrencyFormatter.INDIA_LOCALE).format(123456.5),
+                CurrencyFormatter.format(123456.5));
+    }
+
+    @Test
+    public void format_usesEachCurrencysDecimals() {
+        assertEquals(CurrencyFormatter.format(1234.5), CurrencyFormatter.format(1234.5, Currencies.BASE));
+        String dollars = CurrencyFormatter.format(1234.5, "USD");
+        String yen = CurrencyFormatter.format(1234.5, "JPY");
+
+        assertTrue(dollars, dollars.endsWith("1,234.50") && !dollars.contains("₹"));
+        assertTrue(yen, yen.endsWith("1,234") || yen.endsWith("1,235"));
+        assertEquals("XYZ 3.00", CurrencyFormatter.format(3, "XYZ"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.trackify.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FileLruCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void overBudget_dropsTheLeastRecentlyUsed() throws IOException {
+        FileLruCache cache = new FileLruCache(folder.getRoot(), 250);
+        cache.put("aa", new byte[100]);
+        cache.put("bb", new byte[100]);
+        assertNotNull(cache.get("aa"));
+
+        cache.put("cc", new byte[100]);
+
+        assertNull(cache.get("bb"));
+        assertFalse(new File(folder.getRoot(), "bb").exists());
+        assertNotNull(cache.get("aa"));
+        assertNotNull(cache.get("cc"));
+        assertEquals(200, cache.sizeBytes());
+    }
+
+    @Test
+    public void reopening_keepsEntriesAndTheirOrder() throws IOException {
+        FileLruCache cache = new FileLruCache(folder.getRoot(), 1_000);
+        cache.put("01", new byte[300]);
+        cache.put("02", new byte[300]);
+        new File(folder.getRoot(), "01").setLastModified(1_000);
+        new File(folder.getRoot(), "02").setLastModified(2_000);
+        // An interrupted write leaves only a temporary file
+        assertTrue(new File(folder.getRoot(), "03.tmp").createNewFile());
+
+        FileLruCache reopened = new FileLruCache(folder.getRoot(), 500);
+
+        assertEquals(1, reopened.entryCount());
+        assertNull(reopened.get("01"));
+        assertNotNull(reopened.get("02"));
+        assertFalse(new File(folder.getRoot(), "03.tmp").exists());
+    }
+
+    @Test
+    public void replacingAnEntry_countsOnlyTheNewSize() throws IOException {
+        FileLruCache cache = new FileLruCache(folder.getRoot(), 1_000);
+        cache.put("ab", new byte[400]);
+        cache.put("ab", new byte[100]);
+
+        assertEquals(100, cache.sizeBytes());
+        assertEquals(100, cache.get("ab").length());
+    }
+
+    @Test
+    public void keysOutsideLowercaseHex_areRejected() throws IOException {
+        FileLruCache cache = new FileLruCache(folder.getRoot(), 1_000);
+
+        assertNull(cache.get("../secret"));
+        try {
+            cache.put("../secret", new byte[1]);
+            fail("Expected a path-like key to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // Keys become file names, so only hex is allowed
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FrameStatsTest {
+
+    private static final long BUDGET = 16_666_666;
+
+    @Test
+    public void framesWithinBudget_areNotBlamed() {
+        FrameStats stats = new FrameStats();
+        assertNull(stats.record("Home", 8_000_000, BUDGET, Collections.singletonMap("bind", 5_000_000L)));
+        assertEquals(0, stats.screens().get("Home").jankyFrames());
+        assertEquals(1, stats.screens().get("Home").frames.count());
+    }
+
+    @Test
+    public void jankyFrame_isBlamedOnTheCostliestStage() {
+        FrameStats stats = new FrameStats();
+        Map<String, Long> stages = new HashMap<>();
+        stages.put("query", 30_000_000L);
+        stages.put("bind", 4_000_000L);
+        stages.put("layout", 2_000_000L);
+
+        assertEquals("query", stats.record("Transactions", 40_000_000, BUDGET, stages));
+        assertEquals("unknown", stats.record("Transactions", 40_000_000, BUDGET, Collections.<String, Long>emptyMap()));
+
+        FrameStats.ScreenStats screen = stats.screens().get("Transactions");
+        assertEquals(2, screen.jankyFrames());
+        assertEquals(Integer.valueOf(1), screen.blame().get("query"));
+        assertTrue(stats.report().contains("Transactions"));
+    }
+}
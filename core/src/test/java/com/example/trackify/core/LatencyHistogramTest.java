@@ -0,0 +1,53 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    private static long millis(long value) {
+        return TimeUnit.MILLISECONDS.toNanos(value);
+    }
+
+    @Test
+    public void buckets_areContiguousAndIncreasing() {
+        long previousUpper = -1;
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKET_COUNT; bucket++) {
+            long upper = LatencyHistogram.upperBoundMicros(bucket);
+            assertTrue(upper > previousUpper);
+            assertEquals(bucket, LatencyHistogram.bucketFor(upper));
+            assertEquals(bucket, LatencyHistogram.bucketFor(previousUpper + 1));
+            previousUpper = upper;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketFor(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentiles_areWithinOneBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(millis(i));
+        }
+        assertEquals(100, histogram.count());
+        assertEquals(millis(100), histogram.maxNanos());
+        long p50 = histogram.percentileNanos(50);
+        long p99 = histogram.percentileNanos(99);
+        assertTrue(p50 >= millis(50) && p50 <= millis(50) * 1.125);
+        assertTrue(p99 >= millis(99) && p99 <= millis(100));
+        assertEquals(millis(100), histogram.percentileNanos(100));
+    }
+
+    @Test
+    public void reset_clearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(millis(5));
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentileNanos(50));
+        assertEquals(0, histogram.meanNanos());
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MaintenanceReportTest {
+
+    @Test
+    public void summary_describesReclaimedSpace() {
+        MaintenanceReport report = new MaintenanceReport(0, 85, 4_300_000, 3_040_000, 310, "ok", false);
+
+        assertTrue(report.isHealthy());
+        assertEquals(1_260_000, report.bytesReclaimed());
+        assertEquals("reclaimed 1.2 MB (310 pages), 4.1 MB -> 2.9 MB in 85 ms, integrity ok", report.summary());
+    }
+
+    @Test
+    public void growth_isNotReportedAsNegative() {
+        MaintenanceReport report = new MaintenanceReport(0, 3, 8192, 12288, 0, "ok", false);
+
+        assertEquals(0, report.bytesReclaimed());
+    }
+
+    @Test
+    public void integrityProblems_markReportUnhealthy() {
+        MaintenanceReport report = new MaintenanceReport(0, 3, 8192, 8192, 0, "*** in database main ***", true);
+
+        assertFalse(report.isHealthy());
+        assertTrue(report.summary().startsWith("rebuilt, reclaimed 0 B"));
+    }
+
+    @Test
+    public void formatBytes_picksUnit() {
+        assertEquals("512 B", MaintenanceReport.formatBytes(512));
+        assertEquals("1.5 KB", MaintenanceReport.formatBytes(1536));
+        assertEquals("2.0 MB", MaintenanceReport.formatBytes(2 * 1024 * 1024));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MonthCacheTest {
+
+    @Test
+    public void full_evictsTheLeastRecentlyUsedMonth() {
+        MonthCache<String> cache = new MonthCache<>(3);
+        cache.put("2025-08", "aug", cache.generation());
+        cache.put("2025-09", "sep", cache.generation());
+        cache.put("2025-10", "oct", cache.generation());
+
+        cache.get("2025-08");
+        cache.put("2025-11", "nov", cache.generation());
+
+        assertEquals(3, cache.size());
+        assertFalse(cache.contains("2025-09"));
+        assertEquals("aug", cache.get("2025-08"));
+    }
+
+    @Test
+    public void loadStartedBeforeInvalidation_isDropped() {
+        MonthCache<String> cache = new MonthCache<>(3);
+        long loadedAt = cache.generation();
+
+        cache.invalidateAll();
+
+        assertFalse(cache.put("2025-10", "stale", loadedAt));
+        assertNull(cache.get("2025-10"));
+        assertTrue(cache.put("2025-10", "fresh", cache.generation()));
+    }
+
+    @Test
+    public void trimTo_keepsTheMostRecentMonths() {
+        MonthCache<String> cache = new MonthCache<>(5);
+        for (int month = 1; month <= 5; month++) {
+            cache.put("2025-0" + month, "m" + month, cache.generation());
+        }
+
+        cache.trimTo(2);
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.contains("2025-04"));
+        assertTrue(cache.contains("2025-05"));
+    }
+}
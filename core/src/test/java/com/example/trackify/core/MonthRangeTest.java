@@ -0,0 +1,31 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MonthRangeTest {
+
+    @Test
+    public void end_rollsOverTheYear() {
+        assertEquals("2025-11", MonthRange.end("2025-10"));
+        assertEquals("2026-01", MonthRange.end("2025-12"));
+    }
+
+    @Test
+    public void previous_rollsBackTheYear() {
+        assertEquals("2025-09", MonthRange.previous("2025-10"));
+        assertEquals("2024-12", MonthRange.previous("2025-01"));
+    }
+
+    @Test
+    public void range_containsExactlyTheMonthsDates() {
+        String start = MonthRange.start("2025-10");
+        String end = MonthRange.end("2025-10");
+        assertTrue("2025-10-01".compareTo(start) >= 0 && "2025-10-01".compareTo(end) < 0);
+        assertTrue("2025-10-31".compareTo(start) >= 0 && "2025-10-31".compareTo(end) < 0);
+        assertTrue("2025-09-30".compareTo(start) < 0);
+        assertTrue("2025-11-01".compareTo(end) >= 0);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PasswordHasherTest {
+
+    @Test
+    public void hash_matchesKnownSha256Vector() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", PasswordHasher.hash("abc"));
+    }
+
+    @Test
+    public void toHex_padsSingleDigitBytes() {
+        assertEquals("000fff10", PasswordHasher.toHex(new byte[]{0x00, 0x0f, (byte) 0xff, 0x10}));
+    }
+}
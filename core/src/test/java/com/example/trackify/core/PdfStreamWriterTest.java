@@ -0,0 +1,116 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PdfStreamWriterTest {
+
+    @Test
+    public void crossReference_pointsAtEveryObject() throws IOException {
+        String pdf = write(3);
+
+        assertTrue(pdf.startsWith("%PDF-1.4\n"));
+        assertTrue(pdf.endsWith("%%EOF\n"));
+        int xref = Integer.parseInt(between(pdf, "startxref\n", "\n"));
+        assertTrue(pdf.startsWith("xref\n", xref));
+
+        // Two fonts, then contents and page per page, then the page tree and catalog (1 and 2)
+        Matcher entries = Pattern.compile("(\\d{10}) 00000 n \n").matcher(pdf.substring(xref));
+        int object = 0;
+        while (entries.find()) {
+            object++;
+            int offset = Integer.parseInt(entries.group(1));
+            assertTrue("object " + object, pdf.startsWith(object + " 0 obj\n", offset));
+        }
+        assertEquals(2 + 2 + 2 * 3, object);
+        assertTrue(pdf.contains("/Type /Pages /Kids [6 0 R 8 0 R 10 0 R] /Count 3"));
+    }
+
+    @Test
+    public void pageContent_isCompressedAndEscaped() throws IOException, DataFormatException {
+        List<String> pages = contents(write(2));
+
+        assertEquals(2, pages.size());
+        assertTrue(pages.get(1).contains("/F2 12.0 Tf 40.00 800.00 Td (Page 2 \\(of 2\\)) Tj"));
+        assertTrue(pages.get(1).contains("0.5 w 40.00 790.00 m 555.00 790.00 l S"));
+    }
+
+    @Test
+    public void pagesAreWritten_asTheyEnd() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfStreamWriter writer = new PdfStreamWriter(out, PdfStreamWriter.A4_WIDTH, PdfStreamWriter.A4_HEIGHT);
+        writer.beginPage();
+        writer.text(PdfStreamWriter.Font.REGULAR, 9, 40, 800, "First");
+        int beforeEnd = out.size();
+
+        writer.endPage();
+
+        assertTrue(out.size() > beforeEnd);
+        assertTrue(out.toString("ISO-8859-1").contains("/Type /Page "));
+    }
+
+    @Test
+    public void text_isWinAnsiEncoded() {
+        assertArrayEquals(new byte[]{'C', 'a', 'f', (byte) 0xE9, ' ', (byte) 0x80, '5', ' ', '?', '?'},
+                PdfStreamWriter.encode("Café €5 ₹म"));
+        assertArrayEquals("a\\(b\\)\\\\".getBytes(StandardCharsets.US_ASCII), PdfStreamWriter.encode("a(b)\\"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void emptyDocument_isRejected() throws IOException {
+        new PdfStreamWriter(new ByteArrayOutputStream(), PdfStreamWriter.A4_WIDTH, PdfStreamWriter.A4_HEIGHT).finish();
+    }
+
+    /**
+     * Every page's decompressed content stream, in order.
+     */
+    static List<String> contents(String pdf) throws DataFormatException {
+        List<String> pages = new ArrayList<>();
+        Matcher streams = Pattern.compile("/Length (\\d+) /Filter /FlateDecode >>\nstream\n").matcher(pdf);
+        while (streams.find()) {
+            byte[] compressed = pdf.substring(streams.end(), streams.end() + Integer.parseInt(streams.group(1)))
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            Inflater inflater = new Inflater();
+            inflater.setInput(compressed);
+            ByteArrayOutputStream page = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                page.write(buffer, 0, inflater.inflate(buffer));
+            }
+            inflater.end();
+            pages.add(new String(page.toByteArray(), StandardCharsets.ISO_8859_1));
+        }
+        return pages;
+    }
+
+    private static String write(int pages) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfStreamWriter writer = new PdfStreamWriter(out, PdfStreamWriter.A4_WIDTH, PdfStreamWriter.A4_HEIGHT);
+        for (int i = 1; i <= pages; i++) {
+            writer.beginPage();
+            writer.text(PdfStreamWriter.Font.BOLD, 12, 40, 800, "Page " + i + " (of " + pages + ")");
+            writer.line(40, 790, 555, 790);
+            writer.endPage();
+        }
+        writer.finish();
+        return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static String between(String text, String start, String end) {
+        int from = text.lastIndexOf(start) + start.length();
+        return text.substring(from, text.indexOf(end, from));
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QueryMetricsTest {
+
+    @Test
+    public void onlyOperationsOverTheThreshold_reachTheSlowLog() {
+        QueryMetrics metrics = new QueryMetrics(16, 10);
+        metrics.record("getTotalBalance", TimeUnit.MILLISECONDS.toNanos(2), "main", true, 2, 16);
+        metrics.record("getMonthlyTransactions", TimeUnit.MILLISECONDS.toNanos(40), "main", true, 300, 30_000);
+
+        List<SlowQueryLog.Entry> slow = metrics.slowQueries();
+        assertEquals(1, slow.size());
+        assertEquals("getMonthlyTransactions", slow.get(0).method);
+        assertTrue(slow.get(0).mainThread);
+        assertEquals(300, slow.get(0).rows);
+        assertEquals(2, metrics.methodStats().size());
+        assertEquals(1, metrics.methodStats().get("getTotalBalance").mainThreadCalls());
+    }
+
+    @Test
+    public void slowLog_keepsOnlyTheNewestEntries() {
+        SlowQueryLog log = new SlowQueryLog(3);
+        for (int i = 0; i < 5; i++) {
+            log.add(new SlowQueryLog.Entry(i, "m" + i, 0, "worker", false, 0, 0));
+        }
+        List<SlowQueryLog.Entry> entries = log.entries();
+        assertEquals(3, entries.size());
+        assertEquals("m4", entries.get(0).method);
+        assertEquals("m2", entries.get(2).method);
+    }
+
+    @Test
+    public void report_listsMethodsAndSlowOperations() {
+        QueryMetrics metrics = new QueryMetrics(0, 5);
+        metrics.record("checkUser", 1_000_000, "worker-1", false, 1, 0);
+        String report = metrics.report();
+        assertTrue(report.contains("checkUser"));
+        assertTrue(report.contains("thread=worker-1"));
+        assertFalse(report.contains("MAIN"));
+
+        metrics.reset();
+        assertTrue(metrics.methodStats().isEmpty());
+        assertTrue(metrics.slowQueries().isEmpty());
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QuerySchedulerTest {
+
+    private final Queue<Runnable> worker = new ArrayDeque<>();
+    private final List<String> reads = new ArrayList<>();
+    private final List<String> shown = new ArrayList<>();
+    private final List<String> prefetched = new ArrayList<>();
+    private final List<QueryScheduler.Cancellation> cancellations = new ArrayList<>();
+    // Runs while a read is in progress, to act as another thread would mid-query
+    private Runnable duringRead = () -> {
+    };
+    private int generation;
+    private final QueryScheduler<String, String> scheduler = new QueryScheduler<>((month, cancellation) -> {
+        reads.add(month);
+        cancellations.add(cancellation);
+        Runnable action = duringRead;
+        duringRead = () -> {
+        };
+        action.run();
+        return month + "@" + generation;
+    }, worker::add);
+
+    @Test
+    public void visibleReads_runBeforeQueuedPrefetches() {
+        scheduler.request("2025-09", QueryScheduler.Priority.PREFETCH, prefetched::add);
+        scheduler.request("2025-11", QueryScheduler.Priority.PREFETCH, prefetched::add);
+        scheduler.request("2025-10", QueryScheduler.Priority.VISIBLE, shown::add);
+
+        runWorker();
+
+        assertEquals(Arrays.asList("2025-10", "2025-09", "2025-11"), reads);
+        assertEquals(Collections.singletonList("2025-10@0"), shown);
+    }
+
+    @Test
+    public void tappingThroughMonths_readsOnlyTheLast() {
+        scheduler.request("2025-07", QueryScheduler.Priority.VISIBLE, shown::add);
+        scheduler.request("2025-08", QueryScheduler.Priority.VISIBLE, shown::add);
+        scheduler.request("2025-09", QueryScheduler.Priority.VISIBLE, shown::add);
+
+        runWorker();
+
+        assertEquals(Collections.singletonList("2025-09"), reads);
+        assertEquals(Collections.singletonList("2025-09@0"), shown);
+    }
+
+    @Test
+    public void supersededRunningRead_isCancelledAndNeverShown() {
+        duringRead = () -> scheduler.request("2025-11", QueryScheduler.Priority.VISIBLE, shown::add);
+        scheduler.request("2025-10", QueryScheduler.Priority.VISIBLE, shown::add);
+
+        runWorker();
+
+        assertEquals(Arrays.asList("2025-10", "2025-11"), reads);
+        assertTrue(cancellations.get(0).isCancelled());
+        assertEquals(Collections.singletonList("2025-11@0"), shown);
+    }
+
+    @Test
+    public void duplicateRequests_shareOneRead_andPrefetchesArePromoted() {
+        List<String> again = new ArrayList<>();
+        scheduler.request("2025-08", QueryScheduler.Priority.PREFETCH, prefetched::add);
+        scheduler.request("2025-09", QueryScheduler.Priority.PREFETCH, prefetched::add);
+        scheduler.request("2025-09", QueryScheduler.Priority.PREFETCH, again::add);
+        scheduler.request("2025-09", QueryScheduler.Priority.VISIBLE, shown::add);
+
+        runWorker();
+
+        assertEquals(Arrays.asList("2025-09", "2025-08"), reads);
+        assertEquals(Collections.singletonList("2025-09@0"), shown);
+        assertEquals(Arrays.asList("2025-09@0", "2025-08@0"), prefetched);
+        assertEquals(Collections.singletonList("2025-09@0"), again);
+    }
+
+    @Test
+    public void supersededRead_stillAnswersPrefetchesWaitingForIt() {
+        scheduler.request("2025-10", QueryScheduler.Priority.VISIBLE, shown::add);
+        scheduler.request("2025-10", QueryScheduler.Priority.PREFETCH, prefetched::add);
+        scheduler.cancelVisible();
+
+        runWorker();
+
+        assertEquals(Collections.singletonList("2025-10"), reads);
+        assertEquals(Collections.emptyList(), shown);
+        assertEquals(Collections.singletonList("2025-10@0"), prefetched);
+    }
+
+    @Test
+    public void invalidate_rerunsTheVisibleReadAndDropsPrefetches() {
+        duringRead = () -> {
+            // A delete commits while the month is being read
+            generation++;
+            scheduler.invalidate();
+        };
+        scheduler.request("2025-10", QueryScheduler.Priority.VISIBLE, shown::add);
+        scheduler.request("2025-11", QueryScheduler.Priority.PREFETCH, prefetched::add);
+
+        runWorker();
+
+        assertEquals(Arrays.asList("2025-10", "2025-10"), reads);
+        assertTrue(cancellations.get(0).isCancelled());
+        assertEquals(Collections.singletonList("2025-10@1"), shown);
+        assertEquals(Collections.emptyList(), prefetched);
+        assertEquals(0, scheduler.pending());
+    }
+
+    @Test
+    public void cancellationListener_runsOnceEvenIfSetLate() {
+        int[] runs = new int[1];
+        QueryScheduler.Cancellation cancellation = new QueryScheduler.Cancellation();
+        cancellation.cancel();
+        cancellation.cancel();
+
+        cancellation.setOnCancelListener(() -> runs[0]++);
+
+        assertEquals(1, runs[0]);
+    }
+
+    private void runWorker() {
+        while (!worker.isEmpty()) {
+            worker.poll().run();
+        }
+    }
+}
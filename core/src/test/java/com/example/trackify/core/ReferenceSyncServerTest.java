@@ -0,0 +1,87 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReferenceSyncServerTest {
+
+    private static final String ACCOUNT = "user0@example.com";
+
+    private final ReferenceSyncServer server = new ReferenceSyncServer();
+
+    @Test
+    public void pull_returnsOtherDevicesChangesOnly() throws IOException {
+        push("phone", edit("a1", 1_000, "Food"), edit("a2", 1_000, "Rent"));
+        push("tablet", edit("a3", 1_000, "Travel"));
+
+        SyncPayload forPhone = pull("phone", 0, 100);
+        SyncPayload forLaptop = pull("laptop", 0, 100);
+
+        assertEquals(1, forPhone.records.size());
+        assertEquals("a3", forPhone.records.get(0).syncId);
+        assertEquals(3, forLaptop.records.size());
+        assertEquals(3, forPhone.highWater);
+        assertEquals(0, pull("laptop", forLaptop.highWater, 100).records.size());
+    }
+
+    @Test
+    public void olderChange_isRejectedWithTheWinner() throws IOException {
+        push("phone", edit("a1", 2_000, "Travel"));
+
+        List<SyncRecord> rejected = push("tablet", edit("a1", 1_000, "Food"));
+
+        assertEquals(1, rejected.size());
+        assertEquals("Travel", rejected.get(0).category);
+        assertEquals("Travel", pull("laptop", 0, 100).records.get(0).category);
+    }
+
+    @Test
+    public void log_keepsOnlyTheLatestChangePerTransaction() throws IOException {
+        push("phone", edit("a1", 1_000, "Food"));
+        push("phone", edit("a1", 2_000, "Rent"));
+        push("phone", SyncRecord.tombstone("a1", 3_000));
+
+        SyncPayload changes = pull("laptop", 0, 100);
+
+        assertEquals(1, changes.records.size());
+        assertTrue(changes.records.get(0).deleted);
+        assertEquals(1, server.size(ACCOUNT));
+    }
+
+    @Test
+    public void pull_pagesThroughLongLogs() throws IOException {
+        for (int i = 0; i < 25; i++) {
+            push("phone", edit("a" + i, 1_000, "Food"));
+        }
+
+        SyncPayload first = pull("laptop", 0, 10);
+        SyncPayload second = pull("laptop", first.highWater, 10);
+        SyncPayload third = pull("laptop", second.highWater, 10);
+
+        assertTrue(first.hasMore);
+        assertTrue(second.hasMore);
+        assertFalse(third.hasMore);
+        assertEquals(25, first.records.size() + second.records.size() + third.records.size());
+        assertEquals("a24", third.records.get(third.records.size() - 1).syncId);
+    }
+
+    private List<SyncRecord> push(String device, SyncRecord... records) throws IOException {
+        byte[] request = new SyncPayload(device, 0, false, Arrays.asList(records)).encode();
+        return SyncPayload.decode(server.push(ACCOUNT, request)).records;
+    }
+
+    private SyncPayload pull(String device, long since, int limit) throws IOException {
+        return SyncPayload.decode(server.pull(ACCOUNT, device, since, limit));
+    }
+
+    private static SyncRecord edit(String syncId, long modifiedMillis, String category) {
+        return SyncRecord.upsert(syncId, modifiedMillis, "Expense", category, 100, "2025-10-01", "");
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SpendingStatsTest {
+
+    @Test
+    public void monthWeight_doublesEveryHalfLife() {
+        assertEquals(1, SpendingStats.monthWeight("2000-01"), 1e-12);
+        assertEquals(2, SpendingStats.monthWeight("2000-07"), 1e-12);
+        assertEquals(0.5, SpendingStats.monthWeight("1999-07"), 1e-12);
+        String[] months = SpendingStats.weightedMonths();
+        assertEquals(SpendingStats.FIRST_WEIGHTED_MONTH, months[0]);
+        assertEquals("1990-02", months[1]);
+        assertEquals(SpendingStats.LAST_WEIGHTED_MONTH, months[months.length - 1]);
+    }
+
+    @Test
+    public void largeTransaction_isFlaggedAgainstTheRestOfHistory() {
+        String[] months = {"2025-05", "2025-06", "2025-07", "2025-08", "2025-09", "2025-10"};
+        double[] amounts = {400, 450, 500, 420, 480, 3_000};
+
+        SpendingStats.Anomaly anomaly = stats(months, amounts).check(3_000, "2025-10", 3_000);
+        SpendingStats.Anomaly ordinary = stats(months, new double[]{400, 450, 500, 420, 480, 470}).check(470, "2025-10", 470);
+
+        assertEquals(SpendingStats.Anomaly.Kind.LARGE_TRANSACTION, anomaly.kind);
+        assertEquals(3_000, anomaly.amount, 0);
+        assertEquals(450, anomaly.typical, 50);
+        assertNull(ordinary);
+    }
+
+    @Test
+    public void shortHistory_flagsNothing() {
+        String[] months = {"2025-08", "2025-09", "2025-10"};
+
+        assertNull(stats(months, new double[]{100, 100, 10_000}).check(10_000, "2025-10", 10_000));
+    }
+
+    @Test
+    public void monthOfManyOrdinaryTransactions_isASpike() {
+        // Four months of one 1,000 transaction each, then six of them in October
+        String[] months = {"2025-06", "2025-07", "2025-08", "2025-09",
+                "2025-10", "2025-10", "2025-10", "2025-10", "2025-10", "2025-10"};
+        double[] amounts = {1_000, 1_000, 1_000, 1_000, 1_000, 1_000, 1_000, 1_000, 1_000, 1_000};
+
+        SpendingStats.Anomaly anomaly = stats(months, amounts).check(1_000, "2025-10", 6_000);
+
+        assertEquals(SpendingStats.Anomaly.Kind.CATEGORY_SPIKE, anomaly.kind);
+        assertEquals(6_000, anomaly.amount, 0);
+        assertEquals(1_000, anomaly.typical, 1e-6);
+    }
+
+    @Test
+    public void monthIndex_roundTrips() {
+        assertArrayEquals(new String[]{"2025-12", "2026-01"},
+                new String[]{SpendingStats.month(SpendingStats.monthIndex("2025-12")), SpendingStats.month(SpendingStats.monthIndex("2025-12") + 1)});
+    }
+
+    /**
+     * The sums the database triggers maintain, computed directly.
+     */
+    private static SpendingStats stats(String[] months, double[] amounts) {
+        double weight = 0, sum = 0, squares = 0;
+        Map<String, Double> monthTotals = new HashMap<>();
+        for (int i = 0; i < amounts.length; i++) {
+            double w = SpendingStats.monthWeight(months[i]);
+            weight += w;
+            sum += w * amounts[i];
+            squares += w * amounts[i] * amounts[i];
+            monthTotals.merge(months[i], amounts[i], Double::sum);
+        }
+        double monthWeight = 0, monthSum = 0, monthSquares = 0;
+        for (Map.Entry<String, Double> total : monthTotals.entrySet()) {
+            double w = SpendingStats.monthWeight(total.getKey());
+            monthWeight += w;
+            monthSum += w * total.getValue();
+            monthSquares += w * total.getValue() * total.getValue();
+        }
+        return new SpendingStats(amounts.length, weight, sum, squares, monthTotals.size(), monthWeight, monthSum, monthSquares);
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class StatementImportTest {
+
+    /**
+     * Keeps keys like the database does, and records what it was asked to insert.
+     */
+    private static final class RecordingTarget implements StatementImport.Target {
+        final Set<Long> keys = new HashSet<>();
+        final List<String> rows = new ArrayList<>();
+
+        @Override
+        public boolean insertIfNew(long key, String type, String category, double amount, String currency, String date,
+                                   String note) {
+            if (!keys.add(key)) {
+                return false;
+            }
+            rows.add(date + " " + type + " " + category + " " + amount + " " + currency + " [" + note + "]");
+            return true;
+        }
+    }
+
+    private static final CategoryMatcher CATEGORIES = CategoryMatcher.compile(Collections.emptyList());
+
+    private static StatementImport.Result read(String statement, RecordingTarget target) throws IOException {
+        return StatementImport.read(new StringReader(statement), true, Currencies.BASE, CATEGORIES, target, result -> {
+        });
+    }
+
+    @Test
+    public void csv_readsSignedAmountsQuotesAndDebitCreditColumns() throws IOException {
+        RecordingTarget target = new RecordingTarget();
+
+        StatementImport.Result result = read("Date,Description,Amount\n"
+                + "2025-03-01,\"Coffee, large\",-4.50\n"
+                + "2025-03-02,\"Salary \"\"March\"\"\",\"52,000.00\"\n"
+                + "not a date,Broken,-1\n", target);
+        StatementImport.Result split = read("﻿Txn Date;Narration;Withdrawal Amt.;Deposit Amt.\r\n"
+                + "05/03/2025;UPI grocer;1.234,50;\r\n"
+                + "06/03/2025;Refund;;99,00\r\n", target);
+
+        assertEquals(3, result.lines);
+        assertEquals(1, result.rejected);
+        assertEquals(2, split.imported);
+        assertEquals("2025-03-01 Expense Food 4.5 INR [Coffee, large]", target.rows.get(0));
+        assertEquals("2025-03-02 Income Salary 52000.0 INR [Salary \"March\"]", target.rows.get(1));
+        assertEquals("2025-03-05 Expense Miscellaneous 1234.5 INR [UPI grocer]", target.rows.get(2));
+        assertEquals("2025-03-06 Income Other 99.0 INR [Refund]", target.rows.get(3));
+    }
+
+    @Test
+    public void reimportingAnOverlappingStatement_addsOnlyTheNewLines() throws IOException {
+        RecordingTarget target = new RecordingTarget();
+        read("Date,Amount,Memo\n"
+                + "2025-04-01,-3.00,COFFEE SHOP\n"
+                + "2025-04-01,-3.00,COFFEE SHOP\n"
+                + "2025-04-02,-20.00,Books\n", target);
+
+        // The next export overlaps, with different spacing and case in the notes
+        StatementImport.Result result = read("Date,Amount,Memo\n"
+                + "2025-04-01,-3.00,coffee  shop\n"
+                + "2025-04-01,-3.00,Coffee Shop\n"
+                + "2025-04-02,-20.00,books\n"
+                + "2025-04-02,-20.00,Books\n"
+                + "2025-04-03,-7.25,Lunch\n", target);
+
+        assertEquals(3, result.duplicates);
+        // A second identical line on a date is a second transaction
+        assertEquals(2, result.imported);
+        assertEquals(5, target.rows.size());
+    }
+
+    @Test
+    public void ofx_readsSgmlAndXmlTransactions() throws IOException {
+        RecordingTarget target = new RecordingTarget();
+        String sgml = "OFXHEADER:100\nDATA:OFXSGML\nVERSION:102\n\n<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS>"
+                + "<CURDEF>USD\n<BANKTRANLIST>\n"
+                + "<STMTTRN>\n<TRNTYPE>DEBIT\n<DTPOSTED>20250510120000[-5:EST]\n<TRNAMT>-12.30\n<FITID>1\n"
+                + "<NAME>AT&amp;T\n<MEMO>Phone bill\n</STMTTRN>\n"
+                + "<STMTTRN>\n<TRNTYPE>CREDIT\n<DTPOSTED>20250511\n<TRNAMT>100\n<FITID>2\n<NAME>Payroll\n</STMTTRN>\n"
+                + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>";
+        String xml = "<?xml version=\"1.0\"?>\n<?OFX OFXHEADER=\"200\" VERSION=\"220\"?>\n<OFX><CURDEF>EUR</CURDEF>"
+                + "<STMTTRN><DTPOSTED>20250601</DTPOSTED><TRNAMT>-5,00</TRNAMT><NAME>Bakery</NAME>"
+                + "<MEMO>Bakery</MEMO></STMTTRN></OFX>";
+
+        StatementImport.Result result = read(sgml, target);
+        read(xml, target);
+
+        assertEquals(2, result.imported);
+        assertEquals("2025-05-10 Expense Miscellaneous 12.3 USD [AT&T Phone bill]", target.rows.get(0));
+        assertEquals("2025-05-11 Income Salary 100.0 USD [Payroll]", target.rows.get(1));
+        assertEquals("2025-06-01 Expense Miscellaneous 5.0 EUR [Bakery]", target.rows.get(2));
+    }
+
+    @Test
+    public void progress_isReportedEveryInterval() throws IOException {
+        StringBuilder statement = new StringBuilder("Date,Amount\n");
+        for (int i = 0; i < StatementImport.PROGRESS_INTERVAL * 2 + 5; i++) {
+            statement.append("2025-01-").append(String.format("%02d", 1 + i % 28)).append(",-").append(i + 1).append('\n');
+        }
+        List<Integer> reports = new ArrayList<>();
+
+        StatementImport.Result result = StatementImport.read(new StringReader(statement.toString()), true, Currencies.BASE,
+                CATEGORIES, new RecordingTarget(), soFar -> reports.add(soFar.lines));
+
+        assertEquals(StatementImport.PROGRESS_INTERVAL * 2 + 5, result.imported);
+        assertEquals(2, reports.size());
+        assertEquals(StatementImport.PROGRESS_INTERVAL, (int) reports.get(0));
+    }
+
+    @Test
+    public void amountsAndDates_acceptBankFormats() {
+        assertEquals(-1234.56, StatementImport.parseAmount("(₹1,234.56)"), 1e-9);
+        assertEquals(-1234.56, StatementImport.parseAmount("1.234,56 DR"), 1e-9);
+        assertEquals(1234, StatementImport.parseAmount("1,234"), 1e-9);
+        assertEquals(-7.5, StatementImport.parseAmount("7.50-"), 1e-9);
+        assertEquals(Double.NaN, StatementImport.parseAmount("n/a"), 0);
+
+        assertEquals("2025-04-03", StatementImport.parseDate("03/04/2025", true));
+        assertEquals("2025-03-04", StatementImport.parseDate("03/04/2025", false));
+        assertEquals("2025-12-25", StatementImport.parseDate("25/12/2025", false));
+        assertEquals("2024-02-29", StatementImport.parseDate("2024-02-29T10:00:00", true));
+        assertNull(StatementImport.parseDate("2025-02-29", true));
+        assertEquals(';', StatementImport.csvDelimiter("Date;Amount;\"a,b,c\""));
+    }
+
+    @Test
+    public void keys_dependOnEveryFieldButNotNoteFormatting() {
+        long key = StatementImport.key("2025-01-01", -3.0, "Coffee  Shop", 0);
+
+        assertEquals(key, StatementImport.key("2025-01-01", -3.0, " coffee shop", 0));
+        assertNotEquals(key, StatementImport.key("2025-01-02", -3.0, "Coffee Shop", 0));
+        assertNotEquals(key, StatementImport.key("2025-01-01", 3.0, "Coffee Shop", 0));
+        assertNotEquals(key, StatementImport.key("2025-01-01", -3.0, "Coffee Shop", 1));
+    }
+
+    @Test
+    public void headerWithoutAmounts_isRejected() throws IOException {
+        try {
+            read("Name,Email\nA,a@example.com\n", new RecordingTarget());
+            fail("Expected a header without date and amount columns to be rejected");
+        } catch (StatementImport.FormatException expected) {
+            // Nothing to import from an address book
+        }
+    }
+}
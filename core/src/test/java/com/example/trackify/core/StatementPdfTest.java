@@ -0,0 +1,112 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StatementPdfTest {
+
+    @Test
+    public void summary_comesFirst_thenEveryTransactionAcrossPages() throws IOException, DataFormatException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatementPdf statement = new StatementPdf(out, summary(500));
+        for (int i = 0; i < 500; i++) {
+            statement.add(transaction(i));
+        }
+        int pages = statement.finish();
+
+        List<String> contents = PdfStreamWriterTest.contents(new String(out.toByteArray(), StandardCharsets.ISO_8859_1));
+        assertEquals(pages, contents.size());
+        assertTrue(pages > 5);
+        String first = contents.get(0);
+        assertTrue(first.contains("(Period: 2025) Tj"));
+        assertTrue(first.contains("(Transactions \\(500\\)) Tj"));
+        assertTrue(first.indexOf("(Food) Tj") < first.indexOf("(Rent) Tj"));
+        // Grouped as the platform groups Indian amounts, 1,20,000.00 on Android
+        NumberFormat grouped = NumberFormat.getNumberInstance(CurrencyFormatter.INDIA_LOCALE);
+        grouped.setMinimumFractionDigits(2);
+        assertTrue(first.contains("(" + grouped.format(120_000) + ") Tj"));
+        assertTrue(first.contains("(66.7%) Tj"));
+        String last = contents.get(pages - 1);
+        assertTrue(last.contains("(Trackify Statement, 2025 \\(continued\\)) Tj"));
+        assertTrue(last.contains("(Date) Tj"));
+        assertTrue(last.contains("(Page " + pages + ") Tj"));
+        assertTrue(last.contains("(USD -10.00) Tj"));
+        // The note is cut to its column
+        assertTrue(last.contains("(Lunch at a place with a name much too lo...) Tj"));
+        assertFalse(String.join("", contents).contains("No transactions"));
+    }
+
+    @Test
+    public void fullPages_areWrittenBeforeTheEnd() throws IOException {
+        int[] written = new int[1];
+        OutputStream counting = new OutputStream() {
+            @Override
+            public void write(int b) {
+                written[0]++;
+            }
+        };
+        StatementPdf statement = new StatementPdf(counting, summary(5_000));
+        int afterSummary = written[0];
+
+        for (int i = 0; i < 5_000; i++) {
+            statement.add(transaction(i));
+        }
+
+        // Everything but the last page is out before finish()
+        assertTrue(written[0] > afterSummary + 100_000);
+        assertEquals(5_000, statement.transactions());
+    }
+
+    @Test
+    public void emptyPeriod_saysSo() throws IOException, DataFormatException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StatementPdf statement = new StatementPdf(out, new StatementPdf.Summary("a@example.com", "2025-03", "2025-04-01",
+                0, 0, Collections.emptyMap(), 0));
+
+        assertEquals(1, statement.finish());
+        String page = PdfStreamWriterTest.contents(new String(out.toByteArray(), StandardCharsets.ISO_8859_1)).get(0);
+        assertTrue(page.contains("(No transactions in this period.) Tj"));
+        assertFalse(page.contains("Expenses by Category"));
+    }
+
+    @Test
+    public void period_namesMonthsAndYears() {
+        assertEquals("2025-03", StatementPdf.period("2025-03", "2025-03"));
+        assertEquals("2025", StatementPdf.period("2025-01", "2025-12"));
+        assertEquals("2024-07 to 2025-06", StatementPdf.period("2024-07", "2025-06"));
+    }
+
+    private static StatementPdf.Summary summary(long transactions) {
+        Map<String, Double> categories = new LinkedHashMap<>();
+        categories.put("Rent", 40_000.0);
+        categories.put("Food", 80_000.0);
+        return new StatementPdf.Summary("statements@example.com", StatementPdf.period("2025-01", "2025-12"), "2026-01-02",
+                600_000, 120_000, categories, transactions);
+    }
+
+    private static TransactionRecord transaction(int i) {
+        String date = String.format("2025-%02d-%02d", 1 + i * 12 / 5_000, 1 + i % 28);
+        if (i % 2 == 0) {
+            TransactionRecord dollars = new TransactionRecord(i, "statements@example.com", Categories.TYPE_EXPENSE,
+                    "Travel", 10, date, "Taxi");
+            dollars.currency = "USD";
+            return dollars;
+        }
+        return new TransactionRecord(i, "statements@example.com", Categories.TYPE_EXPENSE, "Food", 250, date,
+                "Lunch at a place with a name much too long to fit in the note column");
+    }
+}
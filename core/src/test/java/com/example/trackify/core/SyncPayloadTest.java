@@ -0,0 +1,129 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SyncPayloadTest {
+
+    @Test
+    public void roundTrip_keepsEveryField() throws IOException {
+        SyncRecord edit = SyncRecord.upsert("a1", 1_700_000_000_000L, "Expense", "Food", 250.5, "2025-10-04", "Lunch");
+        SyncRecord delete = SyncRecord.tombstone("b2", 1_700_000_000_500L).withServerVersion(42);
+
+        SyncPayload decoded = SyncPayload.decode(new SyncPayload("device", 42, true, Arrays.asList(edit, delete)).encode());
+
+        assertEquals("device", decoded.deviceId);
+        assertEquals(42, decoded.highWater);
+        assertTrue(decoded.hasMore);
+        assertEquals(2, decoded.records.size());
+        SyncRecord first = decoded.records.get(0);
+        assertEquals("a1", first.syncId);
+        assertFalse(first.deleted);
+        assertEquals(1_700_000_000_000L, first.modifiedMillis);
+        assertEquals("Food", first.category);
+        assertEquals(250.5, first.amount, 0);
+        assertEquals("Lunch", first.note);
+        assertTrue(decoded.records.get(1).deleted);
+        assertEquals(42, decoded.records.get(1).serverVersion);
+    }
+
+    @Test
+    public void currency_roundTrips() throws IOException {
+        SyncRecord dollars = SyncRecord.upsert("a1", 1_000, "Expense", "Travel", 19.99, "USD", "2025-10-04", "Taxi");
+
+        SyncRecord decoded = SyncPayload.decode(new SyncPayload("device", 0, false, Arrays.asList(dollars)).encode()).records.get(0);
+
+        assertEquals("USD", decoded.currency);
+        assertEquals(Currencies.BASE, SyncRecord.upsert("b2", 1_000, "Expense", "Food", 10, "2025-10-04", "").currency);
+    }
+
+    @Test
+    public void formatOnePayload_decodesInTheBaseCurrency() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(SyncPayload.MAGIC);
+            out.writeByte(1);
+            out.writeUTF("old-device");
+            out.writeLong(7);
+            out.writeBoolean(false);
+            out.writeInt(1);
+            out.writeUTF("a1");
+            out.writeBoolean(false);
+            out.writeLong(1_000);
+            out.writeLong(0);
+            out.writeUTF("Expense");
+            out.writeUTF("Food");
+            out.writeDouble(120);
+            out.writeUTF("2025-10-04");
+            out.writeUTF("Lunch");
+        }
+
+        SyncRecord decoded = SyncPayload.decode(bytes.toByteArray()).records.get(0);
+
+        assertEquals(Currencies.BASE, decoded.currency);
+        assertEquals(120, decoded.amount, 0);
+        assertEquals("Lunch", decoded.note);
+    }
+
+    @Test
+    public void batchOfSimilarEdits_compresses() {
+        List<SyncRecord> records = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            records.add(SyncRecord.upsert(String.format("%032x", i), 1_700_000_000_000L + i * 1000L,
+                    "Expense", "Groceries", 100 + i % 50, "2025-10-" + (10 + i % 20), "Weekly shop"));
+        }
+
+        assertTrue(new SyncPayload("device", 0, false, records).encode().length < 500 * 30);
+    }
+
+    @Test
+    public void corruptPayload_isRejected() {
+        byte[] payload = new SyncPayload("device", 0, false,
+                Arrays.asList(SyncRecord.tombstone("a1", 1))).encode();
+        payload[payload.length / 2] ^= 0x5A;
+
+        try {
+            SyncPayload.decode(payload);
+            fail("Corrupt payload was decoded");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void newerChange_wins() {
+        SyncRecord older = SyncRecord.upsert("a1", 1_000, "Expense", "Food", 10, "2025-10-01", "");
+        SyncRecord newer = SyncRecord.upsert("a1", 2_000, "Expense", "Travel", 10, "2025-10-01", "");
+
+        assertTrue(newer.supersedes(older));
+        assertFalse(older.supersedes(newer));
+        assertTrue(older.supersedes(null));
+    }
+
+    @Test
+    public void ties_resolveTheSameWayFromEitherSide() {
+        SyncRecord food = SyncRecord.upsert("a1", 1_000, "Expense", "Food", 10, "2025-10-01", "");
+        SyncRecord travel = SyncRecord.upsert("a1", 1_000, "Expense", "Travel", 10, "2025-10-01", "");
+        SyncRecord delete = SyncRecord.tombstone("a1", 1_000);
+
+        // Exactly one side of every pair wins
+        assertTrue(travel.supersedes(food) ^ food.supersedes(travel));
+        assertTrue(delete.supersedes(food));
+        assertFalse(food.supersedes(delete));
+        // Re-applying the same change is a no-op
+        assertFalse(food.supersedes(SyncRecord.upsert("a1", 1_000, "Expense", "Food", 10, "2025-10-01", null)));
+        assertFalse(delete.supersedes(SyncRecord.tombstone("a1", 1_000)));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TransactionAggregatorTest {
+
+    private static final List<TransactionRecord> TRANSACTIONS = Arrays.asList(
+            new TransactionRecord(1, "a@b.c", "Income", "Salary", 50000, "2025-09-01", ""),
+            new TransactionRecord(2, "a@b.c", "Expense", "Rent", 15000, "2025-09-02", ""),
+            new TransactionRecord(3, "a@b.c", "Expense", "Food", 250, "2025-10-03", ""),
+            new TransactionRecord(4, "a@b.c", "Expense", "Food", 150, "2025-10-04", ""));
+
+    @Test
+    public void summarize_splitsIncomeAndExpense() {
+        TransactionAggregator.Summary summary = TransactionAggregator.summarize(TRANSACTIONS);
+        assertEquals(50000, summary.income, 0.001);
+        assertEquals(15400, summary.expense, 0.001);
+        assertEquals(34600, summary.balance(), 0.001);
+    }
+
+    @Test
+    public void totalsByCategory_ordersLargestFirst() {
+        Map<String, Double> totals = TransactionAggregator.totalsByCategory(TRANSACTIONS, "Expense");
+        assertArrayEquals(new Object[]{"Rent", "Food"}, totals.keySet().toArray());
+        assertEquals(400, totals.get("Food"), 0.001);
+    }
+
+    @Test
+    public void netByMonth_groupsOnYearAndMonth() {
+        Map<String, Double> net = TransactionAggregator.netByMonth(TRANSACTIONS);
+        assertEquals(35000, net.get("2025-09"), 0.001);
+        assertEquals(-400, net.get("2025-10"), 0.001);
+    }
+}
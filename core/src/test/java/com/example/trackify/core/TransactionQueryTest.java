@@ -0,0 +1,92 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionQueryTest {
+
+    private static final String USER = "user0@example.com";
+
+    @Test
+    public void monthQuery_matchesTheMonthListStatement() {
+        TransactionQuery query = TransactionQuery.forUser(USER).month("2025-12").build();
+
+        assertEquals("SELECT * FROM expenses WHERE user_email = ? AND date >= ? AND date < ?"
+                + " ORDER BY date DESC, expense_id DESC", query.sql());
+        assertArrayEquals(new String[]{USER, "2025-12", "2026-01"}, query.args());
+        assertFalse(query.isFiltered());
+    }
+
+    @Test
+    public void everyFilter_isBoundInClauseOrder() {
+        TransactionQuery query = TransactionQuery.forUser(USER)
+                .month("2025-10")
+                .type("Expense")
+                .categories(Arrays.asList("Rent", "Food"))
+                .amountBetween(100.0, 500.0)
+                .noteContains("  lunch ")
+                .sortBy(TransactionQuery.Sort.LARGEST_FIRST)
+                .limit(20)
+                .build();
+
+        assertEquals("SELECT * FROM expenses INDEXED BY idx_expenses_user_type_date WHERE user_email = ? AND type = ? AND date >= ? AND date < ?"
+                + " AND category IN (?, ?) AND amount >= ? AND amount <= ? AND note LIKE ? ESCAPE '\\'"
+                + " ORDER BY amount DESC, expense_id DESC LIMIT CAST(? AS INTEGER)", query.sql());
+        assertArrayEquals(new String[]{USER, "Expense", "2025-10", "2025-11", "Food", "Rent", "100.0", "500.0", "%lunch%", "20"},
+                query.args());
+        assertTrue(query.isFiltered());
+    }
+
+    @Test
+    public void sameShape_sharesOneSqlString() {
+        TransactionQuery october = TransactionQuery.forUser(USER).month("2025-10").type("Income").build();
+        TransactionQuery march = TransactionQuery.forUser("user1@example.com").month("2024-03").type("Expense").build();
+        TransactionQuery untyped = TransactionQuery.forUser(USER).month("2025-10").build();
+
+        assertSame(october.sql(), march.sql());
+        assertNotEquals(october.sql(), untyped.sql());
+    }
+
+    @Test
+    public void singleTypeCategories_addTheTypeForTheIndex() {
+        TransactionQuery expenses = TransactionQuery.forUser(USER).categories(Arrays.asList("Food", "Travel")).build();
+        TransactionQuery mixed = TransactionQuery.forUser(USER).categories(Arrays.asList("Food", "Salary")).build();
+
+        assertEquals("Expense", expenses.effectiveType());
+        assertEquals("Expense", expenses.args()[1]);
+        assertEquals(null, mixed.effectiveType());
+        assertFalse(mixed.sql().contains("type = ?"));
+    }
+
+    @Test
+    public void noteWildcards_matchLiterally() {
+        TransactionQuery query = TransactionQuery.forUser(USER).noteContains("50%_off\\").build();
+
+        assertEquals("%50\\%\\_off\\\\%", query.args()[1]);
+    }
+
+    @Test
+    public void toBuilder_copiesEveryFilter() {
+        TransactionQuery original = TransactionQuery.forUser(USER)
+                .type("Expense")
+                .categories(Collections.singletonList("Food"))
+                .amountBetween(null, 99.0)
+                .noteContains("cafe")
+                .sortBy(TransactionQuery.Sort.OLDEST_FIRST)
+                .build();
+
+        TransactionQuery copy = original.toBuilder().month("2025-01").build();
+
+        assertEquals(original.toBuilder().month("2025-01").build().sql(), copy.sql());
+        assertArrayEquals(new String[]{USER, "Expense", "2025-01", "2025-02", "Food", "99.0", "%cafe%"}, copy.args());
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class TransactionRowMapperTest {
+
+    @Test
+    public void map_readsColumnsByNameInAnyOrder() {
+        String[] columns = {"note", "date", "amount", "category", "type", "user_email", "expense_id"};
+        ArrayRow row = new ArrayRow(columns, Arrays.asList(
+                new Object[]{null, "2025-10-01", 99.5, "Food", "Expense", "a@b.c", 7L},
+                new Object[]{"Bonus", "2025-10-02", 1000.0, "Salary", "Income", "a@b.c", 8L}));
+        TransactionRowMapper<TransactionRecord> mapper = new TransactionRowMapper<>(row, TransactionRecord::new);
+
+        TransactionRecord first = mapper.map(row);
+        assertEquals(7L, first.id);
+        assertEquals("Food", first.category);
+        assertEquals(99.5, first.amount, 0.0);
+        assertEquals("", first.note);
+
+        row.moveTo(1);
+        TransactionRecord second = mapper.map(row);
+        assertEquals("Bonus", second.note);
+        assertEquals("Income", second.type);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_failsFastOnMissingColumn() {
+        new TransactionRowMapper<>(new ArrayRow(new String[]{"expense_id"}, Collections.<Object[]>emptyList()),
+                TransactionRecord::new);
+    }
+}
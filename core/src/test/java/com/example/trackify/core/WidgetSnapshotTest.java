@@ -0,0 +1,100 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WidgetSnapshotTest {
+
+    @Test
+    public void roundTrip_keepsEveryField() throws IOException {
+        WidgetSnapshot snapshot = new WidgetSnapshot(1_700_000_000_000L, "2025-10", 12_345.5, 50_000, 8_250.25, Arrays.asList(
+                new WidgetSnapshot.Item(7, "Expense", "Food", 250, "INR", "2025-10-04", "Lunch"),
+                new WidgetSnapshot.Item(5, "Expense", "Travel", 19.99, "USD", "2025-10-03", "Taxi")));
+
+        byte[] encoded = snapshot.encode();
+        WidgetSnapshot decoded = WidgetSnapshot.decode(encoded);
+
+        assertTrue("Snapshot should fit one small read: " + encoded.length, encoded.length < 256);
+        assertTrue(decoded.sameContent(snapshot));
+        assertEquals(1_700_000_000_000L, decoded.writtenAtMillis);
+        assertEquals("2025-10", decoded.month);
+        assertEquals(12_345.5, decoded.balance, 0);
+        assertEquals(50_000, decoded.monthIncome, 0);
+        assertEquals(8_250.25, decoded.monthExpense, 0);
+        assertEquals(2, decoded.recent.size());
+        WidgetSnapshot.Item second = decoded.recent.get(1);
+        assertEquals(5, second.id);
+        assertEquals("Travel", second.category);
+        assertEquals(19.99, second.amount, 0);
+        assertEquals("USD", second.currency);
+        assertEquals("2025-10-03", second.date);
+        assertEquals("Taxi", second.note);
+    }
+
+    @Test
+    public void sameContent_ignoresWhenItWasWritten() {
+        WidgetSnapshot.Item item = new WidgetSnapshot.Item(1, "Expense", "Food", 250, "INR", "2025-10-04", "");
+        WidgetSnapshot first = new WidgetSnapshot(1_000, "2025-10", 10, 20, 30, Collections.singletonList(item));
+
+        assertTrue(first.sameContent(new WidgetSnapshot(2_000, "2025-10", 10, 20, 30, Collections.singletonList(item))));
+        assertFalse(first.sameContent(new WidgetSnapshot(2_000, "2025-10", 10, 20, 31, Collections.singletonList(item))));
+        assertFalse(first.sameContent(new WidgetSnapshot(2_000, "2025-10", 10, 20, 30, Collections.emptyList())));
+    }
+
+    @Test
+    public void formatOneSnapshot_decodesWithoutIdsOrNotes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(WidgetSnapshot.MAGIC);
+            out.writeByte(1);
+            out.writeLong(1_000);
+            out.writeUTF("2025-10");
+            out.writeDouble(10);
+            out.writeDouble(20);
+            out.writeDouble(30);
+            out.writeByte(1);
+            out.writeUTF("Expense");
+            out.writeUTF("Food");
+            out.writeDouble(250);
+            out.writeUTF("INR");
+            out.writeUTF("2025-10-04");
+        }
+
+        WidgetSnapshot.Item item = WidgetSnapshot.decode(bytes.toByteArray()).recent.get(0);
+
+        assertEquals(0, item.id);
+        assertEquals("Food", item.category);
+        assertEquals("", item.note);
+    }
+
+    @Test
+    public void recent_isCappedAtTheWidgetsRows() {
+        WidgetSnapshot.Item item = new WidgetSnapshot.Item(1, "Income", "Salary", 1, "INR", "2025-10-01", "");
+
+        WidgetSnapshot snapshot = new WidgetSnapshot(0, "2025-10", 0, 0, 0, Collections.nCopies(10, item));
+
+        assertEquals(WidgetSnapshot.MAX_RECENT, snapshot.recent.size());
+    }
+
+    @Test
+    public void truncatedSnapshot_isRejected() {
+        byte[] encoded = new WidgetSnapshot(0, "2025-10", 1, 2, 3, Collections.emptyList()).encode();
+
+        try {
+            WidgetSnapshot.decode(Arrays.copyOf(encoded, encoded.length - 3));
+            fail("Expected a truncated snapshot to be rejected");
+        } catch (IOException expected) {
+            // The widget falls back to its empty state
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WorkloadGeneratorTest {
+
+    /**
+     * Records every row as one string so whole runs can be compared.
+     */
+    private static final class RecordingSink implements WorkloadGenerator.Sink {
+        final List<String> users = new ArrayList<>();
+        final List<String> rows = new ArrayList<>();
+
+        @Override
+        public void user(String email, String name, String password) {
+            users.add(email);
+        }
+
+        @Override
+        public void expense(String userEmail, String type, String category, double amount, String date, String note) {
+            rows.add(userEmail + "|" + type + "|" + category + "|" + amount + "|" + date + "|" + note);
+        }
+    }
+
+    private static RecordingSink generate(long seed, int users) {
+        RecordingSink sink = new RecordingSink();
+        int count = new WorkloadGenerator(seed).generate(sink, users, 2024, 1, 1.0);
+        assertEquals(sink.rows.size(), count);
+        return sink;
+    }
+
+    @Test
+    public void sameSeed_producesIdenticalRows() {
+        assertEquals(generate(42, 3).rows, generate(42, 3).rows);
+        assertNotEquals(generate(42, 3).rows, generate(43, 3).rows);
+    }
+
+    @Test
+    public void addingUsers_doesNotChangeExistingUsers() {
+        List<String> twoUsers = generate(42, 2).rows;
+        List<String> threeUsers = generate(42, 3).rows;
+        assertEquals(twoUsers, threeUsers.subList(0, twoUsers.size()));
+    }
+
+    @Test
+    public void everyMonth_hasSalaryAndRent() {
+        RecordingSink sink = generate(7, 1);
+        Map<String, Integer> salaries = new HashMap<>();
+        Map<String, Integer> rents = new HashMap<>();
+        for (String row : sink.rows) {
+            String[] fields = row.split("\\|");
+            String month = fields[4].substring(0, 7);
+            if ("Monthly salary".equals(fields[5])) {
+                salaries.merge(month, 1, Integer::sum);
+            } else if ("Rent".equals(fields[2])) {
+                rents.merge(month, 1, Integer::sum);
+            }
+            assertTrue(Categories.isValid(fields[1], fields[2]));
+        }
+        assertEquals(12, salaries.size());
+        assertEquals(12, rents.size());
+        assertEquals(1, sink.users.size());
+    }
+
+    @Test
+    public void activity_scalesDayToDayVolume() {
+        int quiet = new WorkloadGenerator(1).generate(new RecordingSink(), 1, 2024, 1, 1.0);
+        int busy = new WorkloadGenerator(1).generate(new RecordingSink(), 1, 2024, 1, 4.0);
+        assertTrue(quiet > 700 && quiet < 1_500);
+        assertTrue(busy > quiet * 3);
+    }
+
+    @Test
+    public void generatedTrace_isDeterministic() {
+        StringWriter first = new StringWriter();
+        StringWriter second = new StringWriter();
+        new WorkloadGenerator(5).generateTrace(new WorkloadTrace.Writer(first), "a@example.com", 2025, 200);
+        new WorkloadGenerator(5).generateTrace(new WorkloadTrace.Writer(second), "a@example.com", 2025, 200);
+        assertEquals(first.toString(), second.toString());
+        assertEquals(201, first.toString().split("\n").length);
+    }
+}
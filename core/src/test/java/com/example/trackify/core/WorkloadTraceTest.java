@@ -0,0 +1,91 @@
+package com.example.trackify.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WorkloadTraceTest {
+
+    /**
+     * Hands out ids starting far from the trace refs, so a replayer that confused the two would fail.
+     */
+    private static final class RecordingTarget implements WorkloadTrace.Target {
+        final List<String> calls = new ArrayList<>();
+        long nextId = 1_000;
+
+        @Override
+        public long insert(String userEmail, String type, String category, double amount, String date, String note) {
+            calls.add("insert " + nextId + " " + userEmail + " " + category + " " + amount + " " + date + " [" + note + "]");
+            return nextId++;
+        }
+
+        @Override
+        public boolean update(long id, String userEmail, String type, String category, double amount, String date, String note) {
+            calls.add("update " + id + " " + category);
+            return true;
+        }
+
+        @Override
+        public boolean delete(long id) {
+            calls.add("delete " + id);
+            return true;
+        }
+
+        @Override
+        public void switchMonth(String userEmail, String month) {
+            calls.add("month " + userEmail + " " + month);
+        }
+    }
+
+    @Test
+    public void replay_mapsTraceRefsToDatabaseIds() throws IOException {
+        StringWriter trace = new StringWriter();
+        WorkloadTrace.Writer writer = new WorkloadTrace.Writer(trace);
+        writer.insert(1, "a@example.com", "Expense", "Food", 120.5, "2025-10-01", "Lunch");
+        writer.insert(2, "a@example.com", "Expense", "Rent", 15000, "2025-10-05", "");
+        writer.update(1, "a@example.com", "Expense", "Shopping", 99, "2025-10-02", "Edited");
+        writer.delete(2);
+        writer.switchMonth("a@example.com", "2025-09");
+
+        RecordingTarget target = new RecordingTarget();
+        WorkloadTrace.Result result = WorkloadTrace.replay(new StringReader(trace.toString()), target);
+
+        assertEquals("insert 1000 a@example.com Food 120.5 2025-10-01 [Lunch]", target.calls.get(0));
+        assertEquals("update 1000 Shopping", target.calls.get(2));
+        assertEquals("delete 1001", target.calls.get(3));
+        assertEquals("month a@example.com 2025-09", target.calls.get(4));
+        assertEquals(5, result.operations());
+        assertEquals(0, result.skipped);
+    }
+
+    @Test
+    public void notes_surviveTabsNewlinesAndBackslashes() throws IOException {
+        StringWriter trace = new StringWriter();
+        new WorkloadTrace.Writer(trace).insert(1, "a@example.com", "Expense", "Food", 1, "2025-10-01", "a\tb\nc\\d");
+
+        RecordingTarget target = new RecordingTarget();
+        WorkloadTrace.replay(new StringReader(trace.toString()), target);
+
+        assertTrue(target.calls.get(0).endsWith("[a\tb\nc\\d]"));
+    }
+
+    @Test
+    public void operationsOnUnknownRefs_areSkipped() throws IOException {
+        String trace = WorkloadTrace.HEADER + "\nD\t9\nU\t3\ta@example.com\tExpense\tFood\t1.0\t2025-10-01\t\n";
+        WorkloadTrace.Result result = WorkloadTrace.replay(new StringReader(trace), new RecordingTarget());
+        assertEquals(0, result.operations());
+        assertEquals(2, result.skipped);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedLine_isRejected() throws IOException {
+        WorkloadTrace.replay(new StringReader("I\t1\ttoo-few-fields\n"), new RecordingTarget());
+    }
+}
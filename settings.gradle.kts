@@ -20,3 +20,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "Trackify"
 include(":app")
+// Platform-independent logic shared by the app and the JMH benchmarks
+include(":core")